@@ -0,0 +1,178 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares the JSON results of a benchmark run with the baseline kept in the repository.
+ * Fails if the throughput of a benchmark dropped or its allocations per operation grew by 
+ * more than the given tolerance. Benchmarks without a baseline entry are only reported. If the 
+ * baseline is missing or empty (e.g. before one was recorded on the reference machine), the comparison 
+ * is skipped with a warning.
+ * Independent of the baseline, the benchmarks matching the allocation target's pattern fail if 
+ * they allocate more bytes per operation (as reported by the GC profiler) than the target allows.
+ * <br>
+ * Arguments: the baseline file, the result file, the tolerance in percent, and optionally the 
+ * allocation target in bytes per operation and the pattern of the benchmarks it applies to.
+ * With {@code -Dbenchmarks.updateBaseline=true} the baseline is replaced by the results instead.
+ * 
+ * @author Armin Müller
+ */
+public final class BaselineComparator {
+	
+	/** Allocation differences below this number of bytes per operation are ignored. */
+	private static final double ALLOCATION_NOISE_BYTES = 16.0d;
+	
+	/**
+	 * Private constructor, only used as an entry point.
+	 */
+	private BaselineComparator() {}
+	
+	/**
+	 * Runs the comparison.
+	 * 
+	 * @param args the baseline file, the result file, and the tolerance in percent
+	 * @throws IOException if a file can't be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			throw new IllegalArgumentException("Usage: BaselineComparator <baseline.json> <result.json> <tolerance in percent> "
+					+ "[<allocation target in B/op> <pattern of the benchmarks with an allocation target>]");
+		}
+		
+		Path baselineFile = Path.of(args[0]);
+		Path resultFile = Path.of(args[1]);
+		double tolerance = Double.parseDouble(args[2]) / 100.0d;
+		double allocationTarget = (args.length > 3) ? Double.parseDouble(args[3]) : Double.NaN;
+		Pattern allocationTargetPattern = (args.length > 4) ? Pattern.compile(args[4]) : null;
+		
+		if (Boolean.getBoolean("benchmarks.updateBaseline")) {
+			Files.copy(resultFile, baselineFile, StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Updated the benchmark baseline " + baselineFile + ".");
+			return;
+		}
+		
+		ObjectMapper om = new ObjectMapper();
+		Map<String, Scores> baseline = Files.exists(baselineFile) ? read(om.readTree(baselineFile.toFile())) : Map.of();
+		if (baseline.isEmpty()) {
+			System.out.println("[WARN] The benchmark baseline " + baselineFile + " is missing or empty, only the allocation target is checked. "
+					+ "Record one on the reference machine with -Dbenchmarks.updateBaseline=true.");
+		}
+		Map<String, Scores> results = read(om.readTree(resultFile.toFile()));
+		
+		List<String> regressions = new ArrayList<>();
+		for (Map.Entry<String, Scores> e : results.entrySet()) {
+			Scores current = e.getValue();
+			Scores base = baseline.get(e.getKey());
+			
+			// Check the absolute allocation target first, it also applies to benchmarks without a baseline entry
+			if (allocationTargetPattern != null && allocationTargetPattern.matcher(e.getKey()).matches() 
+					&& !(current.allocatedBytes() <= allocationTarget)) {
+				String line = e.getKey() + ": " + current + " (allocation target: " + allocationTarget + " B/op)";
+				regressions.add(line);
+				System.out.println("[FAIL] " + line);
+				continue;
+			}
+			
+			if (base == null) {
+				System.out.println("[new]  " + e.getKey() + ": " + current);
+				continue;
+			}
+			
+			boolean slower = current.throughput() < base.throughput() * (1.0d - tolerance);
+			boolean allocates = current.allocatedBytes() > base.allocatedBytes() * (1.0d + tolerance) 
+					&& current.allocatedBytes() - base.allocatedBytes() > ALLOCATION_NOISE_BYTES;
+			
+			String line = e.getKey() + ": " + current + " (baseline: " + base + ")";
+			if (slower || allocates) {
+				regressions.add(line);
+				System.out.println("[FAIL] " + line);
+			} else {
+				System.out.println("[ok]   " + line);
+			}
+		}
+		
+		if (!regressions.isEmpty()) {
+			throw new IllegalStateException(regressions.size() + " benchmark(s) regressed by more than " + args[2] 
+					+ "% or exceeded the allocation target.");
+		}
+	}
+	
+	/**
+	 * Extracts the scores from a JMH result file.
+	 * 
+	 * @param root the parsed JSON result (an array of benchmark results)
+	 * @return the scores keyed by the benchmark name and its parameters
+	 */
+	private static Map<String, Scores> read(JsonNode root) {
+		Map<String, Scores> scores = new LinkedHashMap<>();
+		
+		for (JsonNode run : root) {
+			// Build a stable key from the name and the sorted parameters
+			Map<String, String> params = new TreeMap<>();
+			Iterator<Map.Entry<String, JsonNode>> fields = run.path("params").fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				params.put(field.getKey(), field.getValue().asText());
+			}
+			String key = run.path("benchmark").asText() + (params.isEmpty() ? "" : params.toString());
+			
+			// The allocation rate is reported by the GC profiler (the label prefix differs between JMH versions)
+			double allocated = Double.NaN;
+			Iterator<Map.Entry<String, JsonNode>> secondary = run.path("secondaryMetrics").fields();
+			while (secondary.hasNext()) {
+				Map.Entry<String, JsonNode> metric = secondary.next();
+				if (metric.getKey().endsWith("gc.alloc.rate.norm")) {
+					allocated = metric.getValue().path("score").asDouble();
+				}
+			}
+			
+			scores.put(key, new Scores(run.path("primaryMetric").path("score").asDouble(), allocated));
+		}
+		
+		return scores;
+	}
+	
+	/**
+	 * The compared scores of one benchmark.
+	 * 
+	 * @param throughput the operations per second
+	 * @param allocatedBytes the allocated bytes per operation ({@code NaN} if not profiled)
+	 */
+	private record Scores(double throughput, double allocatedBytes) {
+		
+		@Override
+		public String toString() {
+			return String.format("%.1f ops/s, %.1f B/op", throughput, allocatedBytes);
+		}
+	};
+}
@@ -0,0 +1,155 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.context.support.GenericApplicationContext;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AlgorithmDBService;
+import org.trustdeck.service.CounterAllocatorService;
+import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.DomainSecretService;
+import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.utils.SpringBeanLocator;
+import org.trustdeck.utils.Utility;
+
+/**
+ * Helpers shared by the benchmarks. Provides a minimal application context in which the 
+ * database-backed services the pseudonymizers depend on are replaced by in-memory stubs, 
+ * so that only the pseudonymization itself is measured.
+ * 
+ * @author Armin Müller
+ */
+public final class BenchmarkSupport {
+	
+	/** The prefix of the benchmark domain. */
+	public static final String PREFIX = "BM-";
+	
+	/** The salt of the benchmark domain. */
+	private static final String SALT = "ZnJhbmtmdXJ0LWJlbmNobWFyay1zYWx0";
+	
+	/** The secret (FPE) key of the benchmark domain (32 bytes). */
+	private static final byte[] FPE_KEY = "trustdeck-benchmark-fpe-key-0001".getBytes(StandardCharsets.US_ASCII);
+	
+	/** Whether or not the stubbed context was already installed. */
+	private static boolean installed = false;
+	
+	/**
+	 * Private constructor, only static helpers.
+	 */
+	private BenchmarkSupport() {}
+	
+	/**
+	 * Installs the stubbed application context into the {@link SpringBeanLocator}.
+	 */
+	public static synchronized void installStubContext() {
+		if (installed) {
+			return;
+		}
+		
+		GenericApplicationContext context = new GenericApplicationContext();
+		context.getBeanFactory().registerSingleton("algorithmDBService", new AlgorithmDBService());
+		context.getBeanFactory().registerSingleton("counterAllocatorService", new InMemoryCounterAllocator());
+		context.getBeanFactory().registerSingleton("domainDBAccessService", new DomainDBAccessService());
+		context.getBeanFactory().registerSingleton("domainSecretService", new FixedDomainSecretService());
+		context.getBeanFactory().registerSingleton("pseudonymDBAccessService", new CollisionFreePseudonymDBAccessService());
+		context.refresh();
+		
+		new SpringBeanLocator().setApplicationContext(context);
+		installed = true;
+	}
+	
+	/**
+	 * Creates a domain object as it would be stored by the domain creation.
+	 * 
+	 * @param algorithm the pseudonymization algorithm
+	 * @param pseudonymLength the length of the pseudonym values
+	 * @param addCheckDigit whether or not a check digit should be added
+	 * @return the domain object
+	 */
+	public static Domain domain(String algorithm, int pseudonymLength, boolean addCheckDigit) {
+		return new Domain()
+				.setId(1)
+				.setName("benchmark")
+				.setPrefix(PREFIX)
+				.setAlgorithm(algorithm)
+				.setAlphabet(Utility.generateAlphabet(algorithm, null))
+				.setMultiplepsnallowed(false)
+				.setPseudonymlength(pseudonymLength)
+				.setPaddingcharacter("0")
+				.setAddcheckdigit(addCheckDigit)
+				.setLengthincludescheckdigit(false)
+				.setSalt(SALT)
+				.setSaltlength(SALT.length());
+	}
+	
+	/**
+	 * Hands out counter values from memory instead of leasing blocks from the database.
+	 */
+	static final class InMemoryCounterAllocator extends CounterAllocatorService {
+		
+		/** The last handed out value. */
+		private final AtomicLong counter = new AtomicLong();
+		
+		@Override
+		public Long nextDomainValue(int domainID) {
+			return counter.incrementAndGet();
+		}
+		
+		@Override
+		public Long nextAlgorithmValue(int algorithmID) {
+			return counter.incrementAndGet();
+		}
+		
+		@Override
+		public Long reserveDomainValues(int domainID, int count) {
+			return counter.getAndAdd(count) + 1;
+		}
+		
+		@Override
+		public Long reserveAlgorithmValues(int algorithmID, int count) {
+			return counter.getAndAdd(count) + 1;
+		}
+	}
+	
+	/**
+	 * Hands out the same secret key for every domain instead of reading it from the database.
+	 */
+	static final class FixedDomainSecretService extends DomainSecretService {
+		
+		@Override
+		public byte[] getFpeKey(int domainId) {
+			return FPE_KEY.clone();
+		}
+	}
+	
+	/**
+	 * Reports every generated pseudonym as unused.
+	 */
+	static final class CollisionFreePseudonymDBAccessService extends PseudonymDBAccessService {
+		
+		@Override
+		public Set<String> getExistingPseudonyms(int domainId, Collection<String> psns) {
+			return Set.of();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trustdeck.algorithms.LuhnCheckDigit;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.algorithms.RandomSymbolGenerator;
+import org.trustdeck.utils.Utility;
+
+/**
+ * Measures the computation and validation of the check digits for every modulus.
+ * 
+ * @author Armin Müller
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CheckDigitBenchmark {
+	
+	/** The number of prepared pseudonyms. */
+	private static final int SAMPLES = 1024;
+	
+	/** The algorithm, which determines the modulus (10, 16, 26, 32, 36, and N for a custom alphabet). */
+	@Param({"RANDOM_NUM", "RANDOM_HEX", "RANDOM_LET", "RANDOM_SYM_BIOS", "RANDOM_SYM", "RANDOM"})
+	public String algorithm;
+	
+	/** The check digit engine under test. */
+	private LuhnCheckDigit engine;
+	
+	/** Pseudonyms without a check digit. */
+	private String[] pseudonyms;
+	
+	/** Pseudonyms with a check digit. */
+	private String[] checkedPseudonyms;
+	
+	/** The position of the next pseudonym. */
+	private int next;
+	
+	/**
+	 * Creates the engine and the pseudonyms.
+	 */
+	@Setup
+	public void setup() {
+		String alphabet = Utility.generateAlphabet(algorithm, null);
+		engine = Pseudonymizer.resolveCheckDigitEngine(algorithm, alphabet);
+		
+		RandomSymbolGenerator generator = new RandomSymbolGenerator(alphabet);
+		pseudonyms = new String[SAMPLES];
+		checkedPseudonyms = new String[SAMPLES];
+		for (int i = 0; i < SAMPLES; i++) {
+			pseudonyms[i] = BenchmarkSupport.PREFIX + generator.next(16);
+			checkedPseudonyms[i] = pseudonyms[i] + engine.computeCheckDigit(pseudonyms[i], BenchmarkSupport.PREFIX);
+		}
+	}
+	
+	/**
+	 * Computes the check digit of a pseudonym.
+	 * 
+	 * @return the check digit
+	 */
+	@Benchmark
+	public Character compute() {
+		next = (next + 1) % SAMPLES;
+		return engine.computeCheckDigit(pseudonyms[next], BenchmarkSupport.PREFIX);
+	}
+	
+	/**
+	 * Validates the check digit of a pseudonym.
+	 * 
+	 * @return the validation result
+	 */
+	@Benchmark
+	public Boolean validate() {
+		next = (next + 1) % SAMPLES;
+		return engine.validateCheckDigit(checkedPseudonyms[next], BenchmarkSupport.PREFIX);
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trustdeck.service.JsonSchemaService;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.networknt.schema.JsonSchema;
+
+/**
+ * Measures the validation of entity instances against the instance schema built from a type definition.
+ * 
+ * @author Armin Müller
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSchemaBenchmark {
+	
+	/** A type definition with a flat and a nested, repeatable group of attributes. */
+	private static final String DEFINITION = """
+			{
+			  "typeName": "patient",
+			  "attributes": [
+			    { "name": "firstName", "type": "string", "required": true, "linkage": true, "minLength": 1, "maxLength": 100 },
+			    { "name": "lastName", "type": "string", "required": true, "linkage": true, "minLength": 1, "maxLength": 100 },
+			    { "name": "birthDate", "type": "date", "required": true, "linkage": true },
+			    { "name": "weight", "type": "number", "required": false, "linkage": false, "minimum": 0, "maximum": 500 },
+			    { "name": "address", "layout": "group", "repeatable": true, "attributes": [
+			      { "name": "street", "type": "string", "required": true, "linkage": false },
+			      { "name": "zip", "type": "string", "required": true, "linkage": true, "pattern": "^[0-9]{5}$" }
+			    ]}
+			  ]
+			}
+			""";
+	
+	/** A valid instance of the type definition. */
+	private static final String INSTANCE = """
+			{
+			  "firstName": "Erika",
+			  "lastName": "Mustermann",
+			  "birthDate": "1964-08-12",
+			  "weight": 62.5,
+			  "address": [
+			    { "street": "Heidestrasse 17", "zip": "51147" },
+			    { "street": "Hauptstrasse 1", "zip": "04109" }
+			  ]
+			}
+			""";
+	
+	/** The schema service under test. */
+	private JsonSchemaService schemaService;
+	
+	/** The instance schema. */
+	private JsonNode instanceSchema;
+	
+	/** The compiled instance schema. */
+	private JsonSchema compiledSchema;
+	
+	/** The instance to validate. */
+	private JsonNode instance;
+	
+	/**
+	 * Creates the service and the schemas.
+	 * 
+	 * @throws JsonProcessingException if the definition or instance can't be parsed
+	 */
+	@Setup
+	public void setup() throws JsonProcessingException {
+		ObjectMapper om = new ObjectMapper();
+		schemaService = new JsonSchemaService(om);
+		
+		JsonNode definition = om.readTree(DEFINITION);
+		List<String> errors = schemaService.validateDefinition(definition);
+		if (!errors.isEmpty()) {
+			throw new IllegalStateException("Invalid benchmark definition: " + errors);
+		}
+		
+		instanceSchema = schemaService.buildInstanceSchema(definition);
+		compiledSchema = schemaService.getCompiledSchemaFromDefinition(definition);
+		instance = om.readTree(INSTANCE);
+	}
+	
+	/**
+	 * Validates an instance against the (uncompiled) instance schema.
+	 * 
+	 * @return the validation errors
+	 */
+	@Benchmark
+	public List<String> validateInstance() {
+		return schemaService.validateInstance(instance, instanceSchema);
+	}
+	
+	/**
+	 * Validates an instance against the compiled instance schema.
+	 * 
+	 * @return the validation errors
+	 */
+	@Benchmark
+	public List<String> validateInstanceCompiled() {
+		return schemaService.validateInstance(instance, compiledSchema);
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.trustdeck.linkage.LinkageNormalizationService;
+import org.trustdeck.linkage.PPRLEncodingService;
+import org.trustdeck.linkage.model.PPRLConfig;
+
+/**
+ * Measures the encoders used for the privacy-preserving record linkage: 
+ * the normalization of raw values, the Bloom filter generation, and the Dice similarity.
+ * 
+ * @author Armin Müller
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkageBenchmark {
+	
+	/** The raw value that is normalized. */
+	private static final String RAW_VALUE = "  Dr. Jürgen-Maximilian   Müller-Lüdenscheidt ";
+	
+	/** All normalization rules in a typical order. */
+	private static final List<String> NORMALIZERS = List.of("trim", "collapseWhitespace", "removePunctuation", "umlautFold", "asciiFold", "lower");
+	
+	/** The encoding service under test. */
+	private PPRLEncodingService encodingService;
+	
+	/** The normalization service under test. */
+	private LinkageNormalizationService normalizationService;
+	
+	/** The default Bloom filter configuration. */
+	private PPRLConfig config;
+	
+	/** The normalized value. */
+	private String normalized;
+	
+	/** Two encoded Bloom filters of similar values. */
+	private String encodedLeft, encodedRight;
+	
+	/**
+	 * Creates the services and the encoded Bloom filters.
+	 */
+	@Setup
+	public void setup() {
+		encodingService = new PPRLEncodingService();
+		ReflectionTestUtils.setField(encodingService, "pprlSecret", "benchmark-secret-benchmark-secret");
+		normalizationService = new LinkageNormalizationService();
+		config = PPRLConfig.builder().build();
+		
+		normalized = normalizationService.normalize(RAW_VALUE, NORMALIZERS);
+		BitSet left = encodingService.buildBloomFilter(1, 1, "name", normalized, config);
+		BitSet right = encodingService.buildBloomFilter(1, 1, "name", normalized.replace("maximilian", "max"), config);
+		encodedLeft = encodingService.encodeBloomFilter(left, config.getLength());
+		encodedRight = encodingService.encodeBloomFilter(right, config.getLength());
+	}
+	
+	/**
+	 * Normalizes a raw value with all rules.
+	 * 
+	 * @return the normalized value
+	 */
+	@Benchmark
+	public String normalize() {
+		return normalizationService.normalize(RAW_VALUE, NORMALIZERS);
+	}
+	
+	/**
+	 * Builds the n-gram Bloom filter of a normalized value.
+	 * 
+	 * @return the Bloom filter
+	 */
+	@Benchmark
+	public BitSet buildBloomFilter() {
+		return encodingService.buildBloomFilter(1, 1, "name", normalized, config);
+	}
+	
+	/**
+	 * Compares two encoded Bloom filters.
+	 * 
+	 * @return the Dice similarity
+	 */
+	@Benchmark
+	public double diceSimilarity() {
+		return encodingService.diceSimilarity(encodedLeft, encodedRight);
+	}
+}
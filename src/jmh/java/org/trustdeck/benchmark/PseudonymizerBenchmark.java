@@ -0,0 +1,122 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.trustdeck.algorithms.PseudonymizationFactory;
+import org.trustdeck.algorithms.Pseudonymizer;
+
+/**
+ * Measures the throughput and allocations of every pseudonymization algorithm, 
+ * for single identifiers and for batches. A length of 16 truncates the hash-based 
+ * pseudonyms, a length of 40 pads them.
+ * 
+ * @author Armin Müller
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PseudonymizerBenchmark {
+	
+	/** The number of identifiers per batch. */
+	private static final int BATCH_SIZE = 1000;
+	
+	/** The pseudonymization algorithm. */
+	@Param({"MD5", "SHA1", "SHA2", "SHA3", "BLAKE3", "XXHASH", "CONSECUTIVE", "RANDOM_NUM", "RANDOM", 
+		"RANDOM_HEX", "RANDOM_LET", "RANDOM_SYM", "RANDOM_SYM_BIOS", "FPE"})
+	public String algorithm;
+	
+	/** The length of the pseudonym values. */
+	@Param({"16", "40"})
+	public int pseudonymLength;
+	
+	/** Whether or not a check digit is added. */
+	@Param({"false", "true"})
+	public boolean addCheckDigit;
+	
+	/** The pseudonymizer under test. */
+	private Pseudonymizer pseudonymizer;
+	
+	/** The identifiers for the single pseudonymizations. */
+	private String[] identifiers;
+	
+	/** The prepared inputs of one batch. */
+	private List<String> batch;
+	
+	/** The position of the next identifier. */
+	private int next;
+	
+	/**
+	 * Creates the pseudonymizer and the inputs.
+	 */
+	@Setup
+	public void setup() {
+		BenchmarkSupport.installStubContext();
+		pseudonymizer = new PseudonymizationFactory().getPseudonymizer(BenchmarkSupport.domain(algorithm, pseudonymLength, addCheckDigit));
+		
+		// Short identifiers, so that they also fit into the shortest encrypted pseudonyms
+		identifiers = new String[BATCH_SIZE];
+		batch = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < BATCH_SIZE; i++) {
+			identifiers[i] = String.valueOf(100_000 + i);
+			batch.add(pseudonymizer.saltIdentifier(identifiers[i], "ID"));
+		}
+	}
+	
+	/**
+	 * Pseudonymizes one identifier.
+	 * 
+	 * @return the pseudonym
+	 */
+	@Benchmark
+	public String single() {
+		String identifier = identifiers[next];
+		next = (next + 1) % BATCH_SIZE;
+		
+		return pseudonymizer.pseudonymize(identifier, "ID", BenchmarkSupport.PREFIX);
+	}
+	
+	/**
+	 * Pseudonymizes a batch of identifiers. The score is given per identifier.
+	 * 
+	 * @return the pseudonyms
+	 */
+	@Benchmark
+	@OperationsPerInvocation(BATCH_SIZE)
+	public List<String> batch() {
+		return pseudonymizer.pseudonymizeAll(batch, BenchmarkSupport.PREFIX);
+	}
+}
@@ -17,7 +17,10 @@
 
 package org.trustdeck.algorithms;
 
-import org.apache.commons.codec.binary.Hex;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 
@@ -34,6 +37,13 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class BLAKE3Pseudonymizer extends Pseudonymizer {
 	
+	/** 
+	 * Bounded pool of idle BLAKE3 hashers. Each hasher is re-initialized before use, so that the native 
+	 * hasher state doesn't have to be allocated and freed for every pseudonym. Hashers that don't fit 
+	 * into the pool anymore are closed, so that no native memory is left behind.
+	 */
+	private static final BlockingQueue<NativeBLAKE3> HASHERS = new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+	
 	/**
 	 * Basic constructor.
 	 * Padding is turned <b>off</b>.
@@ -94,34 +104,63 @@ public class BLAKE3Pseudonymizer extends Pseudonymizer {
 	 */
 	@Override
 	public String pseudonymize(String identifier, String domainPrefix) {
-		// Initialize the BLAKE3 hasher using a JNI
-		NativeBLAKE3 hasher = new NativeBLAKE3();
-		hasher.initDefault();
-		
-		// Retrieve counter if needed. Immediately update it and write it back
+		// Retrieve the next counter value if needed (reserved atomically through the counter allocator)
 		Long counter = null;
 		if (isMultiplePsnAllowed()) {
-			counter = isAlgorithmObjectBased() ? getAdbs().getAlgorithmByID(getAlgorithmID()).getConsecutivevaluecounter() : getDdba().getDomainByName(getDomainName()).getConsecutivevaluecounter();
-			setCurrentValue(counter == null ? 1L : counter + 1L);
-			persist();
+			counter = nextCounterValue();
+			
+			if (counter == null) {
+				log.error("Couldn't retrieve a counter value for the pseudonymization.");
+				return null;
+			}
 		}
 		
 		// Include counter into the identifier when the domain allows multiple psn for each identifier
 		String text = isMultiplePsnAllowed() ? identifier + counter.toString() : identifier;
 		
-		// "Read" identifier
-		hasher.update(text.getBytes());
-
-		// Finalize the hash. BLAKE3 output length defaults to 256 bits (= 64 chars). Convert to String.
-		String hash = null;
+		String hash = hash(text);
+		return (hash == null) ? null : domainPrefix + hash;
+	}
+	
+	/**
+	 * Creates blake3 hash pseudonyms for the given identifiers. Large batches are hashed in parallel.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		return hashAll(identifiers, domainPrefix, this::hash);
+	}
+	
+	/**
+	 * Hashes the given text with BLAKE3 and corrects the length of the result.
+	 * 
+	 * @param text the text to hash
+	 * @return the length-corrected hash value (without the domain prefix)
+	 */
+	private String hash(String text) {
+		// Borrow an idle BLAKE3 hasher (a JNI resource) instead of allocating and closing one per pseudonym
+		NativeBLAKE3 hasher = HASHERS.poll();
+		if (hasher == null) {
+			hasher = new NativeBLAKE3();
+		}
+		
+		byte[] output;
 		try {
-			hash = Hex.encodeHexString(hasher.getOutput()).toUpperCase();
+			hasher.initDefault();
+			
+			// "Read" identifier
+			hasher.update(text.getBytes());
+			
+			// Finalize the hash. BLAKE3 output length defaults to 256 bits (= 64 chars).
+			output = hasher.getOutput();
 		} catch (InvalidNativeOutput e) {
 			log.error("Couldn't hash the identifier using the BLAKE3 hash function: " + e.getMessage());
+			return null;
+		} finally {
+			// Return the hasher to the pool, or free its native memory if the pool is full
+			if (!HASHERS.offer(hasher)) {
+				hasher.close();
+			}
 		}
-		  
-		// Hasher should be treated as a resource since there is an equivalent object allocated in memory in c.
-		hasher.close();
 		
 		// Warn if the desired pseudonym-length is shorter than the blake3Hex
 		if (getPseudonymValueLength() < 64) {
@@ -129,6 +168,7 @@ public class BLAKE3Pseudonymizer extends Pseudonymizer {
 					+ "shorter than the output of the hashing algorithm (64).");
 		}
 		
-		return domainPrefix + correctPseudonymLength(hash);
+		// The output is encoded directly into the (upper-case hex) pseudonym value
+		return DigestEncoder.encodeHex(output, output.length, DigestEncoder.HEX_UPPER, this);
 	}
 }
\ No newline at end of file
@@ -17,6 +17,9 @@
 
 package org.trustdeck.algorithms;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 
@@ -24,7 +27,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * This class provides a pseudonymization by assigning consecutive numbers as pseudonyms.
- * <b>This class is not thread safe.</b>
+ * The numbers are leased in blocks from the database, so they are unique but may contain gaps 
+ * (see {@link org.trustdeck.service.CounterAllocatorService}).
  * 
  * @author Armin Müller
  *
@@ -106,22 +110,47 @@ public class ConsecutivePseudonymizer extends Pseudonymizer {
 	 */
 	@Override
 	public String pseudonymize(String identifier, String domainPrefix) {
-		// Retrieve counter or use user-given start value if given; immediately update it and write it back
-		Long counter;
+		Long value;
 		if (startValue != null && startValue > 0) {
-			counter = startValue;
+			// Use the user-given start value; immediately update the counter and write it back
+			value = startValue + 1L;
+			if (!persist(value)) {
+				log.error("Couldn't persist the current consecutive value in the database and it may not have been updated.");
+			}
 		} else {
-			counter = isAlgorithmObjectBased() ? getAdbs().getAlgorithmByID(getAlgorithmID()).getConsecutivevaluecounter() : getDdba().getDomainByName(getDomainName()).getConsecutivevaluecounter();
-		}
-		
-		setCurrentValue(counter == null ? 1L : counter + 1L);
-		if (!persist()) {
-			log.error("Couldn't persist the current consecutive value in the database and it may not have been updated.");
+			// Take the next value from the block that was leased from the database
+			value = nextCounterValue();
+			if (value == null) {
+				log.error("Couldn't retrieve the next consecutive value.");
+				return null;
+			}
 		}
 		
 		// Pseudonymize
-		String pseudonym = correctPseudonymLength(String.valueOf(counter == null ? 1L : counter + 1L));
+		String pseudonym = correctPseudonymLength(String.valueOf(value));
 		
 		return domainPrefix + pseudonym;
 	}
+	
+	/**
+	 * Creates consecutive pseudonyms for the given identifiers. One range of values is reserved for the whole batch.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		int size = identifiers.size();
+		
+		// A user-given start value always results in the same value, so handle it like single calls
+		if (startValue != null && startValue > 0) {
+			return pseudonymizeEach(size, domainPrefix, false, i -> pseudonymize(identifiers.get(i), domainPrefix));
+		}
+		
+		// Reserve all values at once
+		Long first = (size > 0) ? reserveCounterValues(size) : null;
+		if (size > 0 && first == null) {
+			log.error("Couldn't reserve the consecutive values for the batch.");
+			return Arrays.asList(new String[size]);
+		}
+		
+		return pseudonymizeEach(size, domainPrefix, false, i -> domainPrefix + correctPseudonymLength(String.valueOf(first + i)));
+	}
 }
@@ -0,0 +1,148 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper for the hash-based pseudonymizers. Digests are computed with per-thread cached engines and 
+ * the resulting bytes are encoded directly into the pseudonym's characters using reusable per-thread 
+ * buffers, so no intermediate hex strings or upper-cased copies are created.
+ * The result is identical to hex-encoding the digest and correcting its length afterwards.
+ * 
+ * @author Armin Müller
+ */
+final class DigestEncoder {
+	
+	/** The upper-case hex alphabet used by the cryptographic hash pseudonymizers. */
+	static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+	
+	/** The lower-case hex alphabet used by the xxHash pseudonymizer. */
+	static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+	
+	/** Reusable per-thread buffer for the encoded characters. */
+	private static final ThreadLocal<char[]> CHAR_BUFFER = ThreadLocal.withInitial(() -> new char[256]);
+	
+	/** Reusable per-thread buffer for the digest output. */
+	private static final ThreadLocal<byte[]> DIGEST_BUFFER = ThreadLocal.withInitial(() -> new byte[64]);
+	
+	/** Hidden constructor; this is a utility class. */
+	private DigestEncoder() {}
+	
+	/**
+	 * Creates per-thread instances of a message digest.
+	 * 
+	 * @param algorithm the JCA name of the digest algorithm (e.g. "SHA-512")
+	 * @return the thread-local digest instances
+	 */
+	static ThreadLocal<MessageDigest> perThread(String algorithm) {
+		return ThreadLocal.withInitial(() -> {
+			try {
+				return MessageDigest.getInstance(algorithm);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException("The digest algorithm " + algorithm + " is not available.", e);
+			}
+		});
+	}
+	
+	/**
+	 * Hashes the UTF-8 representation of the given text and encodes the digest into the pseudonym value.
+	 * 
+	 * @param digests the per-thread digest instances to use
+	 * @param text the text to hash
+	 * @param pseudonymizer the pseudonymizer whose length and padding settings apply
+	 * @return the upper-case hex encoded, length-corrected pseudonym value
+	 */
+	static String digestToHex(ThreadLocal<MessageDigest> digests, String text, Pseudonymizer pseudonymizer) {
+		MessageDigest md = digests.get();
+		int length = md.getDigestLength();
+		
+		byte[] output = DIGEST_BUFFER.get();
+		if (output.length < length) {
+			output = new byte[length];
+			DIGEST_BUFFER.set(output);
+		}
+		
+		md.update(text.getBytes(StandardCharsets.UTF_8));
+		try {
+			length = md.digest(output, 0, output.length);
+		} catch (DigestException e) {
+			// Should not happen since the buffer is large enough; fall back to an allocating digest
+			output = md.digest();
+			length = output.length;
+		}
+		
+		return encodeHex(output, length, HEX_UPPER, pseudonymizer);
+	}
+	
+	/**
+	 * Encodes a 64-bit hash value as 16 hex characters (big-endian, zero-padded).
+	 * 
+	 * @param hash the hash value
+	 * @param symbols the hex alphabet to use
+	 * @param pseudonymizer the pseudonymizer whose length and padding settings apply
+	 * @return the hex encoded, length-corrected pseudonym value
+	 */
+	static String longToHex(long hash, char[] symbols, Pseudonymizer pseudonymizer) {
+		byte[] output = DIGEST_BUFFER.get();
+		for (int i = 0; i < Long.BYTES; i++) {
+			output[i] = (byte) (hash >>> (56 - 8 * i));
+		}
+		
+		return encodeHex(output, Long.BYTES, symbols, pseudonymizer);
+	}
+	
+	/**
+	 * Encodes bytes as hex characters and applies the pseudonymizer's length correction in the same pass:
+	 * longer values are cut to the desired length, shorter values are padded at the start if padding is wanted.
+	 * 
+	 * @param bytes the bytes to encode
+	 * @param byteCount the number of bytes (from the start of the array) to encode
+	 * @param symbols the 16 symbols used for encoding
+	 * @param pseudonymizer the pseudonymizer whose length and padding settings apply
+	 * @return the encoded, length-corrected value
+	 */
+	static String encodeHex(byte[] bytes, int byteCount, char[] symbols, Pseudonymizer pseudonymizer) {
+		int valueLength = pseudonymizer.getPseudonymValueLength();
+		int hexLength = byteCount * 2;
+		int outLength = (hexLength >= valueLength || pseudonymizer.isPaddingWanted()) ? valueLength : hexLength;
+		int padding = Math.max(0, outLength - hexLength);
+		
+		char[] out = CHAR_BUFFER.get();
+		if (out.length < outLength) {
+			out = new char[outLength];
+			CHAR_BUFFER.set(out);
+		}
+		
+		// Padding is added at the start
+		for (int i = 0; i < padding; i++) {
+			out[i] = pseudonymizer.getPaddingChar();
+		}
+		
+		// Encode only as many characters as needed
+		for (int i = 0; i < outLength - padding; i++) {
+			int b = bytes[i >> 1];
+			out[padding + i] = symbols[((i & 1) == 0) ? (b >> 4) & 0x0F : b & 0x0F];
+		}
+		
+		return new String(out, 0, outLength);
+	}
+}
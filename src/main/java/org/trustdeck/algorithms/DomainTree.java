@@ -0,0 +1,436 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Immutable, indexed snapshot of the domain forest. The domains are numbered once when the snapshot is 
+ * built; parents and children are kept as adjacency arrays, together with the depth of every domain and 
+ * its interval in a pre-order (Euler) tour of its tree. With that, checking whether one domain is an 
+ * ancestor of another takes constant time, a subtree is a contiguous slice of the tour, and the path 
+ * between two domains is found by a breadth-first search over the adjacency arrays.
+ * The domain objects are shared with the callers and must not be altered.
+ *
+ * @author Armin Müller
+ */
+@Slf4j
+public final class DomainTree {
+	
+	/** The index used for "no domain" (e.g. the parent of a root domain). */
+	private static final int NONE = -1;
+	
+	/** The index used in the name index for names that are not unique when compared case-insensitively. */
+	private static final int AMBIGUOUS = -2;
+	
+	/** The version of this snapshot. */
+	private final long version;
+	
+	/** The domains, by their index. */
+	private final Domain[] nodes;
+	
+	/** The index of each domain's parent, or {@link #NONE} for root domains. */
+	private final int[] parent;
+	
+	/** The indices of each domain's children. */
+	private final int[][] children;
+	
+	/** The depth of each domain (0 for root domains). */
+	private final int[] depth;
+	
+	/** The index of each domain's root domain. */
+	private final int[] root;
+	
+	/** The position of each domain in the pre-order tour. */
+	private final int[] enter;
+	
+	/** The position of the last descendant of each domain in the pre-order tour. */
+	private final int[] exit;
+	
+	/** The domain indices in pre-order. Each subtree is a contiguous slice. */
+	private final int[] preOrder;
+	
+	/** The domain indices by the domains' IDs. */
+	private final Map<Integer, Integer> indexById;
+	
+	/** The domain indices by the domains' lower-cased names. */
+	private final Map<String, Integer> indexByName;
+	
+	/**
+	 * Builds the snapshot from a list of domains. Domains whose super-domain is not in the list are treated 
+	 * as root domains. Domains that are part of a cycle (and thus can't be reached from any root) are left out.
+	 * 
+	 * @param domains the domains
+	 * @param version the version of this snapshot
+	 */
+	public DomainTree(List<Domain> domains, long version) {
+		this.version = version;
+		
+		// Number the domains
+		List<Domain> list = domains == null ? List.of() : domains.stream().filter(d -> d != null && d.getId() != null).toList();
+		int n = list.size();
+		Map<Integer, Integer> byId = new HashMap<>(n * 2);
+		for (int i = 0; i < n; i++) {
+			byId.put(list.get(i).getId(), i);
+		}
+		
+		// Determine the parents and count the children
+		int[] parentOf = new int[n];
+		int[] childCount = new int[n];
+		for (int i = 0; i < n; i++) {
+			Integer superId = list.get(i).getSuperdomainid();
+			Integer p = superId == null ? null : byId.get(superId);
+			parentOf[i] = (p == null || p == i) ? NONE : p;
+			if (parentOf[i] != NONE) {
+				childCount[parentOf[i]]++;
+			}
+		}
+		
+		int[][] childrenOf = new int[n][];
+		for (int i = 0; i < n; i++) {
+			childrenOf[i] = new int[childCount[i]];
+			childCount[i] = 0;
+		}
+		for (int i = 0; i < n; i++) {
+			if (parentOf[i] != NONE) {
+				childrenOf[parentOf[i]][childCount[parentOf[i]]++] = i;
+			}
+		}
+		
+		// Walk each tree from its root (iteratively, deep trees must not overflow the stack)
+		int[] depthOf = new int[n];
+		int[] rootOf = new int[n];
+		int[] enterOf = new int[n];
+		int[] exitOf = new int[n];
+		int[] order = new int[n];
+		Arrays.fill(enterOf, NONE);
+		int position = 0;
+		
+		int[] stack = new int[n];
+		int[] nextChild = new int[n];
+		for (int r = 0; r < n; r++) {
+			if (parentOf[r] != NONE) {
+				continue;
+			}
+			
+			int top = 0;
+			stack[0] = r;
+			depthOf[r] = 0;
+			rootOf[r] = r;
+			enterOf[r] = position;
+			order[position++] = r;
+			
+			while (top >= 0) {
+				int current = stack[top];
+				if (nextChild[current] < childrenOf[current].length) {
+					int child = childrenOf[current][nextChild[current]++];
+					depthOf[child] = depthOf[current] + 1;
+					rootOf[child] = r;
+					enterOf[child] = position;
+					order[position++] = child;
+					stack[++top] = child;
+				} else {
+					exitOf[current] = position - 1;
+					top--;
+				}
+			}
+		}
+		
+		// Leave out the domains that weren't reached
+		if (position < n) {
+			log.warn((n - position) + " domain(s) are part of a cycle in the domain tree and are ignored.");
+			
+			int[] newIndex = new int[n];
+			Arrays.fill(newIndex, NONE);
+			for (int k = 0; k < position; k++) {
+				newIndex[order[k]] = k;
+			}
+			
+			// Renumber everything in pre-order
+			int[] p2 = new int[position], d2 = new int[position], r2 = new int[position], en2 = new int[position], ex2 = new int[position], o2 = new int[position];
+			int[][] c2 = new int[position][];
+			List<Domain> l2 = new ArrayList<>(position);
+			for (int k = 0; k < position; k++) {
+				int old = order[k];
+				l2.add(list.get(old));
+				p2[k] = parentOf[old] == NONE ? NONE : newIndex[parentOf[old]];
+				d2[k] = depthOf[old];
+				r2[k] = newIndex[rootOf[old]];
+				en2[k] = enterOf[old];
+				ex2[k] = exitOf[old];
+				o2[k] = k;
+				c2[k] = Arrays.stream(childrenOf[old]).map(c -> newIndex[c]).toArray();
+			}
+			
+			list = l2;
+			n = position;
+			parentOf = p2;
+			depthOf = d2;
+			rootOf = r2;
+			enterOf = en2;
+			exitOf = ex2;
+			order = o2;
+			childrenOf = c2;
+			byId = new HashMap<>(n * 2);
+			for (int i = 0; i < n; i++) {
+				byId.put(list.get(i).getId(), i);
+			}
+		}
+		
+		// Index the names (case-insensitively, like the lookups in the database)
+		Map<String, Integer> byName = new HashMap<>(n * 2);
+		for (int i = 0; i < n; i++) {
+			String name = list.get(i).getName();
+			if (name != null) {
+				byName.merge(name.toLowerCase(Locale.ROOT), i, (a, b) -> AMBIGUOUS);
+			}
+		}
+		
+		this.nodes = list.toArray(new Domain[0]);
+		this.parent = parentOf;
+		this.children = childrenOf;
+		this.depth = depthOf;
+		this.root = rootOf;
+		this.enter = enterOf;
+		this.exit = exitOf;
+		this.preOrder = order;
+		this.indexById = byId;
+		this.indexByName = byName;
+	}
+	
+	/**
+	 * @return the version of this snapshot
+	 */
+	public long getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @return the number of domains in this snapshot
+	 */
+	public int size() {
+		return nodes.length;
+	}
+	
+	/**
+	 * Retrieves a domain by its ID.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the domain, or {@code null} if it is not in this snapshot
+	 */
+	public Domain getDomain(Integer domainId) {
+		int i = indexOf(domainId);
+		return i == NONE ? null : nodes[i];
+	}
+	
+	/**
+	 * Retrieves a domain by its name (case-insensitively).
+	 * 
+	 * @param domainName the name of the domain
+	 * @return the domain, or {@code null} if it is not in this snapshot or the name is ambiguous
+	 */
+	public Domain getDomain(String domainName) {
+		int i = indexOf(domainName);
+		return i == NONE ? null : nodes[i];
+	}
+	
+	/**
+	 * Retrieves the parent of a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the parent domain, or {@code null} for root domains and unknown domains
+	 */
+	public Domain getParent(Integer domainId) {
+		int i = indexOf(domainId);
+		return (i == NONE || parent[i] == NONE) ? null : nodes[parent[i]];
+	}
+	
+	/**
+	 * Retrieves the direct children of a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the child domains, or an empty list for unknown domains
+	 */
+	public List<Domain> getChildren(Integer domainId) {
+		int i = indexOf(domainId);
+		if (i == NONE) {
+			return List.of();
+		}
+		
+		List<Domain> result = new ArrayList<>(children[i].length);
+		for (int c : children[i]) {
+			result.add(nodes[c]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Retrieves the root domain of the tree a domain is in.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the root domain, or {@code null} for unknown domains
+	 */
+	public Domain getRoot(Integer domainId) {
+		int i = indexOf(domainId);
+		return i == NONE ? null : nodes[root[i]];
+	}
+	
+	/**
+	 * Retrieves the depth of a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the depth (0 for root domains), or -1 for unknown domains
+	 */
+	public int getDepth(Integer domainId) {
+		int i = indexOf(domainId);
+		return i == NONE ? -1 : depth[i];
+	}
+	
+	/**
+	 * Checks whether a domain is an ancestor of (or the same as) another one.
+	 * 
+	 * @param ancestorId the ID of the presumed ancestor
+	 * @param descendantId the ID of the presumed descendant
+	 * @return {@code true} if the first domain is an ancestor of the second one or the same domain, 
+	 * 			{@code false} otherwise (also for unknown domains)
+	 */
+	public boolean isAncestorOrSelf(Integer ancestorId, Integer descendantId) {
+		int a = indexOf(ancestorId);
+		int d = indexOf(descendantId);
+		
+		return a != NONE && d != NONE && enter[a] <= enter[d] && enter[d] <= exit[a];
+	}
+	
+	/**
+	 * Retrieves the subtree starting with the given domain, in pre-order (i.e. every domain comes before its descendants).
+	 * 
+	 * @param domainId the ID of the domain the subtree starts with
+	 * @return the domains of the subtree, or an empty list for unknown domains
+	 */
+	public List<Domain> getSubtree(Integer domainId) {
+		int i = indexOf(domainId);
+		if (i == NONE) {
+			return List.of();
+		}
+		
+		List<Domain> result = new ArrayList<>(exit[i] - enter[i] + 1);
+		for (int k = enter[i]; k <= exit[i]; k++) {
+			result.add(nodes[preOrder[k]]);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Retrieves the complete tree the given domain is in, in pre-order starting with the root domain.
+	 * 
+	 * @param domainId the ID of any domain in the tree
+	 * @return the domains of the tree, or an empty list for unknown domains
+	 */
+	public List<Domain> getTree(Integer domainId) {
+		int i = indexOf(domainId);
+		return i == NONE ? List.of() : getSubtree(nodes[root[i]].getId());
+	}
+	
+	/**
+	 * Finds the shortest path between two domains with a breadth-first search 
+	 * over the parent and child relations.
+	 * 
+	 * @param sourceId the ID of the source domain
+	 * @param destId the ID of the destination domain
+	 * @return the domains along the path, starting with the source and ending with the destination domain, 
+	 * 			an empty list if the domains are not in the same tree, or {@code null} if a domain is unknown
+	 */
+	public List<Domain> getPath(Integer sourceId, Integer destId) {
+		int s = indexOf(sourceId);
+		int t = indexOf(destId);
+		if (s == NONE || t == NONE) {
+			return null;
+		} else if (root[s] != root[t]) {
+			return new ArrayList<>();
+		}
+		
+		// Search from the source until the destination is reached
+		int[] previous = new int[nodes.length];
+		Arrays.fill(previous, NONE);
+		previous[s] = s;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		queue.add(s);
+		
+		while (!queue.isEmpty() && previous[t] == NONE) {
+			int current = queue.poll();
+			if (parent[current] != NONE && previous[parent[current]] == NONE) {
+				previous[parent[current]] = current;
+				queue.add(parent[current]);
+			}
+			
+			for (int c : children[current]) {
+				if (previous[c] == NONE) {
+					previous[c] = current;
+					queue.add(c);
+				}
+			}
+		}
+		
+		// Walk back from the destination
+		List<Domain> path = new ArrayList<>(depth[s] + depth[t] + 1);
+		for (int k = t; ; k = previous[k]) {
+			path.add(nodes[k]);
+			if (k == s) {
+				break;
+			}
+		}
+		Collections.reverse(path);
+		
+		return path;
+	}
+	
+	/**
+	 * Helper method that returns the index of a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the index, or {@link #NONE} if the domain is unknown
+	 */
+	private int indexOf(Integer domainId) {
+		Integer i = domainId == null ? null : indexById.get(domainId);
+		return i == null ? NONE : i;
+	}
+	
+	/**
+	 * Helper method that returns the index of a domain.
+	 * 
+	 * @param domainName the name of the domain
+	 * @return the index, or {@link #NONE} if the domain is unknown or the name is ambiguous
+	 */
+	private int indexOf(String domainName) {
+		Integer i = domainName == null ? null : indexByName.get(domainName.trim().toLowerCase(Locale.ROOT));
+		return (i == null || i == AMBIGUOUS) ? NONE : i;
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import java.math.BigInteger;
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Implementation of the format-preserving encryption mode FF1 (NIST SP 800-38G, Rev. 1) 
+ * with AES as the underlying block cipher. Encrypts numeral strings of a fixed radix into 
+ * numeral strings of the same radix and length, i.e. it is a keyed permutation of all 
+ * strings of a given length over an alphabet.
+ * The numeral strings are represented as arrays of digits in {@code [0, radix)}.
+ * Instances are thread-safe.
+ * 
+ * @author Armin Müller
+ */
+final class FF1Cipher {
+	
+	/** The number of Feistel rounds defined by FF1. */
+	private static final int ROUNDS = 10;
+	
+	/** The block size of AES in bytes. */
+	private static final int BLOCK_SIZE = 16;
+	
+	/** The minimum size of the message space required by the standard. */
+	private static final BigInteger MINIMUM_DOMAIN_SIZE = BigInteger.valueOf(1_000_000L);
+	
+	/** The maximum radix allowed by the standard. */
+	public static final int MAXIMUM_RADIX = 1 << 16;
+	
+	/** The AES key. */
+	private final SecretKeySpec key;
+	
+	/** The AES engine of each thread (cipher objects are not thread-safe). */
+	private final ThreadLocal<Cipher> aes;
+	
+	/** The radix of the numeral strings. */
+	private final int radix;
+	
+	/**
+	 * Creates a cipher for the given key and radix.
+	 * 
+	 * @param key the AES key (16, 24, or 32 bytes)
+	 * @param radix the radix of the numeral strings (between 2 and 2^16)
+	 * @throws IllegalArgumentException if the key or radix is invalid
+	 */
+	FF1Cipher(byte[] key, int radix) {
+		if (key == null || (key.length != 16 && key.length != 24 && key.length != 32)) {
+			throw new IllegalArgumentException("The key must be 128, 192, or 256 bits long.");
+		}
+		if (radix < 2 || radix > MAXIMUM_RADIX) {
+			throw new IllegalArgumentException("The radix must be between 2 and " + MAXIMUM_RADIX + ".");
+		}
+		
+		this.key = new SecretKeySpec(key, "AES");
+		this.radix = radix;
+		this.aes = ThreadLocal.withInitial(() -> {
+			try {
+				Cipher c = Cipher.getInstance("AES/ECB/NoPadding");
+				c.init(Cipher.ENCRYPT_MODE, this.key);
+				return c;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("AES is not available: " + e.getMessage(), e);
+			}
+		});
+	}
+	
+	/**
+	 * Checks whether or not numeral strings of the given length can be encrypted with this radix.
+	 * The standard requires at least one million possible values and at least two numerals.
+	 * 
+	 * @param length the length of the numeral strings
+	 * @return {@code true} if the length is supported, {@code false} otherwise
+	 */
+	boolean supportsLength(int length) {
+		return length >= 2 && BigInteger.valueOf(radix).pow(length).compareTo(MINIMUM_DOMAIN_SIZE) >= 0;
+	}
+	
+	/**
+	 * Encrypts a numeral string.
+	 * 
+	 * @param x the numeral string (not modified)
+	 * @param tweak the tweak (may be empty)
+	 * @return the encrypted numeral string of the same length
+	 */
+	int[] encrypt(int[] x, byte[] tweak) {
+		return cipher(x, tweak, true);
+	}
+	
+	/**
+	 * Decrypts a numeral string.
+	 * 
+	 * @param y the encrypted numeral string (not modified)
+	 * @param tweak the tweak used for the encryption
+	 * @return the decrypted numeral string of the same length
+	 */
+	int[] decrypt(int[] y, byte[] tweak) {
+		return cipher(y, tweak, false);
+	}
+	
+	/**
+	 * Runs the Feistel network of FF1 in the given direction (algorithms 7 and 8 of the standard).
+	 * 
+	 * @param input the numeral string
+	 * @param tweak the tweak
+	 * @param encrypt {@code true} to encrypt, {@code false} to decrypt
+	 * @return the resulting numeral string
+	 */
+	private int[] cipher(int[] input, byte[] tweak, boolean encrypt) {
+		int n = input.length;
+		if (!supportsLength(n)) {
+			throw new IllegalArgumentException("Numeral strings of length " + n + " are not supported for radix " + radix + ".");
+		}
+		for (int digit : input) {
+			if (digit < 0 || digit >= radix) {
+				throw new IllegalArgumentException("The numeral " + digit + " is out of range for radix " + radix + ".");
+			}
+		}
+		
+		int t = tweak.length;
+		int u = n / 2;
+		int v = n - u;
+		
+		// Byte length of the numeral halves and of the pseudo-random output
+		BigInteger bigRadix = BigInteger.valueOf(radix);
+		int b = (bigRadix.pow(v).subtract(BigInteger.ONE).bitLength() + 7) / 8;
+		int d = 4 * ((b + 3) / 4) + 4;
+		BigInteger modU = bigRadix.pow(u);
+		BigInteger modV = bigRadix.pow(v);
+		
+		// The fixed first block P
+		byte[] p = new byte[BLOCK_SIZE];
+		p[0] = 1;
+		p[1] = 2;
+		p[2] = 1;
+		p[3] = (byte) (radix >>> 16);
+		p[4] = (byte) (radix >>> 8);
+		p[5] = (byte) radix;
+		p[6] = 10;
+		p[7] = (byte) u;
+		writeInt(p, 8, n);
+		writeInt(p, 12, t);
+		
+		// Q = T || 0^((-t-b-1) mod 16) || [i] || [NUM(B)]^b
+		int qLength = t + Math.floorMod(-t - b - 1, BLOCK_SIZE) + 1 + b;
+		byte[] q = new byte[qLength];
+		System.arraycopy(tweak, 0, q, 0, t);
+		
+		Cipher engine = aes.get();
+		BigInteger a = num(input, 0, u);
+		BigInteger bb = num(input, u, n);
+		
+		for (int j = 0; j < ROUNDS; j++) {
+			int i = encrypt ? j : ROUNDS - 1 - j;
+			int m = (i % 2 == 0) ? u : v;
+			
+			// The half that is fed into the round function
+			q[qLength - b - 1] = (byte) i;
+			writeBytes(encrypt ? bb : a, q, qLength - b, b);
+			BigInteger y = roundFunction(engine, p, q, d);
+			
+			if (encrypt) {
+				BigInteger c = a.add(y).mod(m == u ? modU : modV);
+				a = bb;
+				bb = c;
+			} else {
+				BigInteger c = bb.subtract(y).mod(m == u ? modU : modV);
+				bb = a;
+				a = c;
+			}
+		}
+		
+		int[] output = new int[n];
+		str(a, output, 0, u);
+		str(bb, output, u, n);
+		
+		return output;
+	}
+	
+	/**
+	 * The pseudo-random round function: CBC-MAC over P || Q, extended to d bytes.
+	 * 
+	 * @param engine the AES engine
+	 * @param p the first block
+	 * @param q the round specific blocks
+	 * @param d the number of output bytes
+	 * @return the output interpreted as an unsigned integer
+	 */
+	private static BigInteger roundFunction(Cipher engine, byte[] p, byte[] q, int d) {
+		try {
+			byte[] r = engine.doFinal(p);
+			for (int offset = 0; offset < q.length; offset += BLOCK_SIZE) {
+				for (int k = 0; k < BLOCK_SIZE; k++) {
+					r[k] ^= q[offset + k];
+				}
+				r = engine.doFinal(r);
+			}
+			
+			// S = R || CIPH(R xor [1]^16) || CIPH(R xor [2]^16) ..., truncated to d bytes
+			byte[] s = new byte[d];
+			System.arraycopy(r, 0, s, 0, Math.min(d, BLOCK_SIZE));
+			byte[] block = new byte[BLOCK_SIZE];
+			for (int j = 1; j * BLOCK_SIZE < d; j++) {
+				System.arraycopy(r, 0, block, 0, BLOCK_SIZE);
+				for (int k = 0; k < 4; k++) {
+					block[BLOCK_SIZE - 1 - k] ^= (byte) (j >>> (8 * k));
+				}
+				byte[] e = engine.doFinal(block);
+				System.arraycopy(e, 0, s, j * BLOCK_SIZE, Math.min(BLOCK_SIZE, d - j * BLOCK_SIZE));
+			}
+			
+			return new BigInteger(1, s);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("AES encryption failed: " + e.getMessage(), e);
+		}
+	}
+	
+	/**
+	 * Interprets a part of a numeral string as a number (most significant numeral first).
+	 * 
+	 * @param x the numeral string
+	 * @param from the start index (inclusive)
+	 * @param to the end index (exclusive)
+	 * @return the number
+	 */
+	private BigInteger num(int[] x, int from, int to) {
+		BigInteger bigRadix = BigInteger.valueOf(radix);
+		BigInteger result = BigInteger.ZERO;
+		for (int i = from; i < to; i++) {
+			result = result.multiply(bigRadix).add(BigInteger.valueOf(x[i]));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Writes a number as numeral string into a part of the given array (most significant numeral first).
+	 * 
+	 * @param value the number (smaller than radix^(to - from))
+	 * @param target the numeral string to write into
+	 * @param from the start index (inclusive)
+	 * @param to the end index (exclusive)
+	 */
+	private void str(BigInteger value, int[] target, int from, int to) {
+		BigInteger bigRadix = BigInteger.valueOf(radix);
+		for (int i = to - 1; i >= from; i--) {
+			BigInteger[] qr = value.divideAndRemainder(bigRadix);
+			target[i] = qr[1].intValue();
+			value = qr[0];
+		}
+	}
+	
+	/**
+	 * Writes an unsigned number as a fixed-length big-endian byte string.
+	 * 
+	 * @param value the number
+	 * @param target the array to write into
+	 * @param offset the position of the first byte
+	 * @param length the number of bytes to write
+	 */
+	private static void writeBytes(BigInteger value, byte[] target, int offset, int length) {
+		byte[] bytes = value.toByteArray();
+		int copy = Math.min(bytes.length, length);
+		
+		// Drop the sign byte if present and left-pad with zeros
+		for (int k = 0; k < length - copy; k++) {
+			target[offset + k] = 0;
+		}
+		System.arraycopy(bytes, bytes.length - copy, target, offset + length - copy, copy);
+	}
+	
+	/**
+	 * Writes an int as four big-endian bytes.
+	 * 
+	 * @param target the array to write into
+	 * @param offset the position of the first byte
+	 * @param value the value
+	 */
+	private static void writeInt(byte[] target, int offset, int value) {
+		target[offset] = (byte) (value >>> 24);
+		target[offset + 1] = (byte) (value >>> 16);
+		target[offset + 2] = (byte) (value >>> 8);
+		target[offset + 3] = (byte) value;
+	}
+}
@@ -0,0 +1,417 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.DomainSecretService;
+import org.trustdeck.utils.Assertion;
+import org.trustdeck.utils.SpringBeanLocator;
+
+/**
+ * This class provides a pseudonymization through format-preserving encryption (FF1 with AES-256).
+ * The identifier and its type are encrypted into a string of the configured length over the 
+ * domain's alphabet. The key is derived from the domain's secret key, which (unlike the salt) is 
+ * never exposed, so every domain has its own key. Algorithm objects have no secret key and can't be 
+ * used with this algorithm.
+ * <br>
+ * Since the encryption is a permutation, two different identifiers can never receive the same 
+ * pseudonym (so the insertion skips the identifier check, see {@link Pseudonymizer#isCollisionFree(String)}), 
+ * and every pseudonym can be decrypted back into its identifier. The stored record is still needed for 
+ * the validity period, but values that can't be decrypted are rejected by lookups without a database query. 
+ * Consequently, the pseudonym has to be long enough to hold the identifier and its type (e.g. 
+ * 36 symbols and a length of 32 hold up to 20 bytes of UTF-8 encoded identifier and type), 
+ * and each identifier always receives the same pseudonym, even if the domain would allow multiple 
+ * pseudonyms per identifier.
+ * 
+ * @author Armin Müller
+ *
+ */
+@Slf4j
+public class FPEPseudonymizer extends Pseudonymizer {
+	
+	/** The name of this algorithm. */
+	public static final String ALGORITHM_NAME = "FPE";
+	
+	/** Separates the identifier from its type inside the encrypted value. */
+	private static final char SEPARATOR = '\u0000';
+	
+	/** Leading byte of every encrypted value. Keeps leading zero bytes of the identifier intact. */
+	private static final byte MARKER = 0x01;
+	
+	/** The tweak used for the encryption. Domains are already separated by their keys. */
+	private static final byte[] TWEAK = new byte[0];
+	
+	/** The label under which the encryption key is derived from the domain's secret key. */
+	private static final byte[] KEY_LABEL = "TrustDeck FPE key".getBytes(StandardCharsets.UTF_8);
+	
+	/** The cipher together with the settings it was created from. Only recreated when the settings change. */
+	private volatile Engine engine;
+	
+	/** Provides the secret keys of the domains. */
+	private final DomainSecretService secretService = SpringBeanLocator.getBean(DomainSecretService.class);
+	
+	/**
+	 * Basic constructor.
+	 * Padding is turned <b>off</b>.
+	 * (The pseudonym value length is automatically set to the default, as well as the padding character.)
+	 */
+	public FPEPseudonymizer() {
+		super(false, Pseudonymizer.DEFAULT_VALUE_LENGTH, Pseudonymizer.DEFAULT_PADDING_CHAR, null);
+	}
+	
+	/**
+	 * Basic constructor.
+	 * Padding is turned <b>off</b>.
+	 * (The pseudonym value length is automatically set to the default, as well as the padding character.)
+	 * 
+	 * @param domainName the name of the domain to which the record belongs to
+	 */
+	public FPEPseudonymizer(String domainName) {
+		super(false, Pseudonymizer.DEFAULT_VALUE_LENGTH, Pseudonymizer.DEFAULT_PADDING_CHAR, domainName);
+	}
+
+	/**
+	 * A constructor that allows to set whether or not the created pseudonyms should be padded 
+	 * as well as the desired pseudonym value length and the character used for padding.
+	 * 
+	 * @param paddingWanted whether or not the pseudonyms should be padded to a certain length
+	 * @param pseudonymValueLength the desired length of the pseudonym value
+	 * @param paddingChar the character that should be used
+	 * @param domainName the name of the domain to which the record belongs to
+	 */
+	public FPEPseudonymizer(boolean paddingWanted, int pseudonymValueLength, char paddingChar, String domainName) {
+		super(paddingWanted, pseudonymValueLength, paddingChar, domainName);
+	}
+	
+	/**
+	 * Basic constructor.
+	 * All necessary variables are directly retrieved from the domain object.
+	 * 
+	 * @param paddingWanted whether or not the pseudonyms should be padded to a certain length
+	 * @param domain the domain object
+	 */
+	public FPEPseudonymizer(boolean paddingWanted, Domain domain) {
+		super(paddingWanted, domain);
+	}
+	
+	/**
+	 * Basic constructor.
+	 * All necessary variables are directly retrieved from the algorithm object.
+	 * 
+	 * @param paddingWanted whether or not the pseudonyms should be padded to a certain length
+	 * @param algorithm the algorithm object
+	 */
+	public FPEPseudonymizer(boolean paddingWanted, Algorithm algorithm) {
+		super(paddingWanted, algorithm);
+	}
+	
+	/**
+	 * Combines the identifier and its type reversibly. The salt is not needed since the secret key is used instead.
+	 */
+	@Override
+	public String saltIdentifier(String identifier, String idType) {
+		return identifier + SEPARATOR + idType;
+	}
+	
+	/**
+	 * Encrypts the given identifier (created with {@link #saltIdentifier(String, String)}) into a pseudonym.
+	 */
+	@Override
+	public String pseudonymize(String identifier, String domainPrefix) {
+		String value = encrypt(identifier);
+		return value == null ? null : domainPrefix + value;
+	}
+	
+	/**
+	 * Encrypts the given identifiers into pseudonyms. Large batches are encrypted in parallel.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		return pseudonymizeEach(identifiers.size(), domainPrefix, true, i -> pseudonymize(identifiers.get(i), domainPrefix));
+	}
+	
+	/**
+	 * Appends the check digit. The encrypted value always leaves room for it, since replacing 
+	 * the last character would make the pseudonym irreversible.
+	 */
+	@Override
+	protected String completePseudonym(String pseudonym, String domainPrefix) {
+		if (pseudonym == null || !isAddCheckDigit()) {
+			return pseudonym;
+		}
+		
+		return addCheckDigit(pseudonym, false, getDomainName(), domainPrefix);
+	}
+	
+	/**
+	 * Decrypts a pseudonym of this domain back into the identifier and its type. 
+	 * No database access is needed for this.
+	 * 
+	 * @param pseudonym the pseudonym (with or without the domain prefix)
+	 * @param domainPrefix the prefix for the domain
+	 * @return the identifier item, or {@code null} if the value is no pseudonym created with this domain's key
+	 */
+	public IdentifierItem depseudonymize(String pseudonym, String domainPrefix) {
+		Engine e = getEngine();
+		if (e == null || pseudonym == null) {
+			return null;
+		}
+		
+		// Remove the prefix and the check digit
+		int expectedLength = e.length() + (isAddCheckDigit() ? 1 : 0);
+		String value = pseudonym;
+		if (Assertion.isNotNullOrEmpty(domainPrefix) && value.startsWith(domainPrefix) && value.length() == domainPrefix.length() + expectedLength) {
+			value = value.substring(domainPrefix.length());
+		}
+		if (value.length() != expectedLength) {
+			return null;
+		}
+		
+		// Map the symbols back onto numerals
+		int[] numerals = new int[e.length()];
+		for (int i = 0; i < numerals.length; i++) {
+			Integer index = e.indices().get(value.charAt(i));
+			if (index == null) {
+				return null;
+			}
+			numerals[i] = index;
+		}
+		
+		// Decrypt and decode the value
+		BigInteger decrypted = fromNumerals(e.cipher().decrypt(numerals, TWEAK), e.indices().size());
+		byte[] bytes = decrypted.toByteArray();
+		int start = (bytes.length > 1 && bytes[0] == 0) ? 1 : 0;
+		if (bytes[start] != MARKER) {
+			return null;
+		}
+		
+		String text;
+		try {
+			text = StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes, start + 1, bytes.length - start - 1))
+					.toString();
+		} catch (CharacterCodingException ex) {
+			return null;
+		}
+		
+		int separator = text.indexOf(SEPARATOR);
+		if (separator < 0 || text.indexOf(SEPARATOR, separator + 1) >= 0) {
+			return null;
+		}
+		
+		return new IdentifierItem(text.substring(0, separator), text.substring(separator + 1));
+	}
+	
+	/**
+	 * Encrypts a combined identifier into a pseudonym value.
+	 * 
+	 * @param text the identifier combined with its type
+	 * @return the pseudonym value (without the domain prefix), or {@code null} if the encryption failed
+	 */
+	private String encrypt(String text) {
+		Engine e = getEngine();
+		if (e == null || text == null) {
+			return null;
+		}
+		
+		// The separator must only occur once, otherwise the value can't be split again
+		int separator = text.indexOf(SEPARATOR);
+		if (separator < 0 || text.indexOf(SEPARATOR, separator + 1) >= 0) {
+			log.error("The identifier or its type contains unsupported characters.");
+			return null;
+		}
+		
+		// Interpret the marked UTF-8 bytes as a number
+		byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+		byte[] bytes = new byte[utf8.length + 1];
+		bytes[0] = MARKER;
+		System.arraycopy(utf8, 0, bytes, 1, utf8.length);
+		BigInteger value = new BigInteger(1, bytes);
+		
+		if (value.compareTo(e.capacity()) >= 0) {
+			log.error("The identifier and its type are too long to be encrypted into a pseudonym of length " 
+					+ e.length() + ". Use a longer pseudonym length or a larger alphabet.");
+			return null;
+		}
+		
+		// Encrypt and map the numerals onto the alphabet
+		int[] encrypted = e.cipher().encrypt(toNumerals(value, e.length(), e.indices().size()), TWEAK);
+		char[] symbols = new char[encrypted.length];
+		for (int i = 0; i < encrypted.length; i++) {
+			symbols[i] = e.alphabet().charAt(encrypted[i]);
+		}
+		
+		return new String(symbols);
+	}
+	
+	/**
+	 * Retrieves the cipher for the current settings. It is only recreated when the domain, 
+	 * the alphabet, or the length was changed.
+	 * 
+	 * @return the engine, or {@code null} if the settings don't allow an encryption
+	 */
+	private Engine getEngine() {
+		Integer domainId = getDomainID();
+		String alphabet = getAlphabet();
+		int length = getPseudonymValueLength() - (isAddCheckDigit() && isLengthIncludesCheckDigit() ? 1 : 0);
+		Engine current = engine;
+		
+		if (current == null || !Objects.equals(current.domainId(), domainId) || !Objects.equals(current.alphabet(), alphabet) || current.length() != length) {
+			if (domainId == null) {
+				log.error("Format-preserving encryption needs a domain to retrieve the secret key from.");
+				return null;
+			}
+			
+			byte[] secret = secretService.getFpeKey(domainId);
+			if (secret == null) {
+				return null;
+			}
+			
+			current = createEngine(domainId, secret, alphabet, length);
+			Arrays.fill(secret, (byte) 0);
+			if (current == null) {
+				return null;
+			}
+			engine = current;
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * Creates the cipher for the given settings.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param secret the domain's secret key from which the encryption key is derived
+	 * @param alphabet the symbols of the pseudonyms
+	 * @param length the number of encrypted symbols
+	 * @return the engine, or {@code null} if the settings don't allow an encryption
+	 */
+	private static Engine createEngine(int domainId, byte[] secret, String alphabet, int length) {
+		if (alphabet == null || alphabet.length() < 2 || alphabet.length() > FF1Cipher.MAXIMUM_RADIX) {
+			log.error("Format-preserving encryption needs an alphabet of 2 to " + FF1Cipher.MAXIMUM_RADIX + " symbols.");
+			return null;
+		}
+		
+		Map<Character, Integer> indices = new HashMap<>();
+		for (int i = 0; i < alphabet.length(); i++) {
+			if (indices.put(alphabet.charAt(i), i) != null) {
+				log.error("Format-preserving encryption needs an alphabet without duplicate symbols.");
+				return null;
+			}
+		}
+		
+		try {
+			FF1Cipher cipher = new FF1Cipher(deriveKey(secret), alphabet.length());
+			if (!cipher.supportsLength(length)) {
+				log.error("The pseudonym length " + length + " is too short for format-preserving encryption with " 
+						+ alphabet.length() + " symbols.");
+				return null;
+			}
+			
+			return new Engine(domainId, alphabet, length, cipher, indices, BigInteger.valueOf(alphabet.length()).pow(length));
+		} catch (GeneralSecurityException e) {
+			log.error("Couldn't derive the encryption key: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Derives the 256 bit AES key from the domain's secret key.
+	 * 
+	 * @param secret the secret key of the domain
+	 * @return the key
+	 * @throws GeneralSecurityException if HMAC-SHA256 is not available
+	 */
+	private static byte[] deriveKey(byte[] secret) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+		
+		return mac.doFinal(KEY_LABEL);
+	}
+	
+	/**
+	 * Writes a number as a numeral string of a fixed length.
+	 * 
+	 * @param value the number
+	 * @param length the number of numerals
+	 * @param radix the radix
+	 * @return the numerals (most significant first)
+	 */
+	private static int[] toNumerals(BigInteger value, int length, int radix) {
+		BigInteger bigRadix = BigInteger.valueOf(radix);
+		int[] numerals = new int[length];
+		for (int i = length - 1; i >= 0; i--) {
+			BigInteger[] qr = value.divideAndRemainder(bigRadix);
+			numerals[i] = qr[1].intValue();
+			value = qr[0];
+		}
+		
+		return numerals;
+	}
+	
+	/**
+	 * Interprets a numeral string as a number.
+	 * 
+	 * @param numerals the numerals (most significant first)
+	 * @param radix the radix
+	 * @return the number
+	 */
+	private static BigInteger fromNumerals(int[] numerals, int radix) {
+		BigInteger bigRadix = BigInteger.valueOf(radix);
+		BigInteger value = BigInteger.ZERO;
+		for (int numeral : numerals) {
+			value = value.multiply(bigRadix).add(BigInteger.valueOf(numeral));
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * A cipher and the settings it was created from.
+	 * 
+	 * @param domainId the ID of the domain whose secret key the key was derived from
+	 * @param alphabet the symbols of the pseudonyms
+	 * @param length the number of encrypted symbols
+	 * @param cipher the FF1 cipher
+	 * @param indices the position of each symbol in the alphabet
+	 * @param capacity the number of distinct pseudonym values
+	 */
+	private record Engine(Integer domainId, String alphabet, int length, FF1Cipher cipher, Map<Character, Integer> indices, BigInteger capacity) {};
+}
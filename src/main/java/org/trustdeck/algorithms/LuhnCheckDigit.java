@@ -17,11 +17,20 @@
 
 package org.trustdeck.algorithms;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 import lombok.Getter;
 
 /**
  * Abstract class that provides the functionalities for calculating a check digit for an arbitrary list of characters 
  * as long as the length of this list is divisible by two.
+ * Instances are immutable and thread-safe. The position of every character in the list of allowed characters is 
+ * precomputed in a lookup table, so the inputs are processed without searching the list and without creating 
+ * intermediate (e.g. upper-cased) strings.
  * 
  * @author Armin Müller
  */
@@ -29,15 +38,27 @@ public abstract class LuhnCheckDigit {
 
 	/** The list of allowed characters for the algorithm. The check digit will also be any of those chars. */
 	@Getter
-	private String allowedCharacters;
+	private final String allowedCharacters;
 	
 	/** Represents the modulo-n for this instance. */
 	@Getter
-	private int mod;
+	private final int mod;
+	
+	/** The allowed characters, indexed by their value. */
+	private final char[] symbols;
+	
+	/** The index of every ASCII character (after upper-casing) in the allowed characters, or {@code -1}. */
+	private final int[] asciiIndex;
+	
+	/** The index of the non-ASCII allowed characters. */
+	private final Map<Character, Integer> otherIndex;
 	
 	/** Represents the status of the standardization when the given prefix was not found in the input. */
 	private static final String PREFIX_NOT_FOUND = "PREFIX_NOT_FOUND";
 	
+	/** The number of entries of the ASCII lookup table. */
+	private static final int ASCII_TABLE_SIZE = 128;
+	
 	/**
 	 * Basic constructor. A list of allowed characters needs to be provided.
 	 * The list's length must be divisible by two.
@@ -47,6 +68,26 @@ public abstract class LuhnCheckDigit {
 	public LuhnCheckDigit(String allowedCharacters) {
 		this.allowedCharacters = allowedCharacters;
 		this.mod = allowedCharacters.length();
+		this.symbols = allowedCharacters.toCharArray();
+		
+		// Build the lookup tables. If a character occurs more than once, its last position is used.
+		int[] exact = new int[ASCII_TABLE_SIZE];
+		Arrays.fill(exact, -1);
+		Map<Character, Integer> other = new HashMap<>();
+		for (int j = 0; j < symbols.length; j++) {
+			if (symbols[j] < ASCII_TABLE_SIZE) {
+				exact[symbols[j]] = j;
+			} else {
+				other.put(symbols[j], j);
+			}
+		}
+		
+		// Inputs are upper-cased before the lookup, so lower-case letters map to the position of their upper-case letter
+		this.asciiIndex = new int[ASCII_TABLE_SIZE];
+		for (char c = 0; c < ASCII_TABLE_SIZE; c++) {
+			asciiIndex[c] = exact[(c >= 'a' && c <= 'z') ? c - ('a' - 'A') : c];
+		}
+		this.otherIndex = Map.copyOf(other);
 	}
 	
 	/**
@@ -75,104 +116,172 @@ public abstract class LuhnCheckDigit {
 	}
 	
 	/**
-	 * Method to validate the check digit from the given input.
+	 * Method to compute the check digit for the given input.
+	 * If the input doesn't start with the domain prefix, the whole input is used.
 	 * 
-	 * @param input the unsanitized input string
+	 * @param input the unsanitized input
 	 * @param domainPrefix the prefix of the domain where the input should be in, including hyphens
 	 * @return the check digit for the provided input, {@code null} when a character was encountered
 	 * 			that is not part of the list of allowed characters
 	 */
-	public Character computeCheckDigit(String input, String domainPrefix) {
-		int factor = 2;
-		int sum = 0;
+	public Character computeCheckDigit(CharSequence input, String domainPrefix) {
+		if (input == null) {
+			return null;
+		}
 		
-		String standardizedInput = standardizeInput(input, domainPrefix);
-		char[] inputChars = standardizedInput.equals(PREFIX_NOT_FOUND) ? input.trim().toUpperCase().toCharArray() : standardizedInput.toCharArray();
-		char[] allowedChars = getAllowedCharacters().toCharArray();
+		String prefix = (domainPrefix == null) ? "" : domainPrefix;
+		int start = startsWith(input, prefix) ? prefix.length() : 0;
 		
-		// Iterate over the input. Starting from the right and working leftwards 
-		// is easier since the initial "factor" will always be "2".
-		for (int i = inputChars.length - 1; i >= 0; i--) {
-			int index = -1;
-			
-			// Get index of the current character in the array of allowed characters
-			for (int j = 0; j < allowedChars.length; j++) {
-				if (allowedChars[j] == inputChars[i]) {
-					index = j;
-				}
-			}
-			
-			// If the provided character was not found in the allowed characters, return null
-			if (index == -1) {
-				return null;
-			}
-			
-			// Calculate the addend
-			int addend = factor * index;
-	 
-			// Alternate the factor that each index is multiplied by
-			factor = (factor == 2) ? 1 : 2;
-	 
-			// Sum the digits as expressed in base "n"
-			sum += (addend / mod) + (addend % mod);
+		// Starting from the right and working leftwards, the initial "factor" will always be "2"
+		int sum = luhnSum(input, start, 2);
+		if (sum < 0) {
+			return null;
 		}
 	 
 		// Calculate the number that must be added to the "sum" to make it divisible by "n"
 		int checkIndex = mod - (sum % mod);
 		checkIndex %= mod;
 		
-		return allowedChars[checkIndex];
+		return symbols[checkIndex];
 	}
 	
 	/**
 	 * Method to validate the check digit from the given input.
 	 * 
-	 * @param input the unsanitized input string
+	 * @param input the unsanitized input
 	 * @param domainPrefix the prefix of the domain where the input is in, including hyphens
 	 * @return {@code true} when the check digit is valid, {@code false} when it is invalid, 
 	 * 			and {@code null} when there was a character in the input that is not part of 
 	 * 			the allowed characters.
 	 */
-	public Boolean validateCheckDigit(String input, String domainPrefix) {
-		int factor = 1;
-		int sum = 0;
-
-		String standardizedInput = standardizeInput(input, domainPrefix);
-		if (standardizedInput.equals(PREFIX_NOT_FOUND)) {
+	public Boolean validateCheckDigit(CharSequence input, String domainPrefix) {
+		if (input == null) {
 			return false;
 		}
 		
-		char[] inputChars = standardizedInput.toCharArray();
-		char[] allowedChars = getAllowedCharacters().toCharArray();
-
-		// Iterate over the input. Starting from the right and working leftwards 
-		// is easier since the initial "factor" will always be "2".
-		for (int i = inputChars.length-1; i >= 0; i--) {
-			int index = -1;
-			
-			// Get index of the current character in the array of allowed characters
-			for (int j = 0; j < allowedChars.length; j++) {
-				if (allowedChars[j] == inputChars[i]) {
-					index = j;
-				}
-			}
+		String prefix = (domainPrefix == null) ? "" : domainPrefix;
+		if (!startsWith(input, prefix)) {
+			return false;
+		}
+		
+		// The rightmost character is the check digit itself, so the initial "factor" is "1"
+		int sum = luhnSum(input, prefix.length(), 1);
+		if (sum < 0) {
+			return null;
+		}
+		
+		// If there is a remainder when calculating modulo, then the check digit does not fit to the input
+		return (sum % mod == 0);
+	}
+	
+	/**
+	 * Computes the check digits for a batch of inputs.
+	 * 
+	 * @param inputs the unsanitized inputs
+	 * @param domainPrefix the prefix of the domain where the inputs should be in, including hyphens
+	 * @return the check digits in the order of the inputs (see {@link #computeCheckDigit(CharSequence, String)})
+	 */
+	public List<Character> computeCheckDigits(List<? extends CharSequence> inputs, String domainPrefix) {
+		List<Character> checkDigits = new ArrayList<>(inputs.size());
+		for (CharSequence input : inputs) {
+			checkDigits.add(computeCheckDigit(input, domainPrefix));
+		}
+		
+		return checkDigits;
+	}
+	
+	/**
+	 * Validates the check digits of a batch of inputs.
+	 * 
+	 * @param inputs the unsanitized inputs
+	 * @param domainPrefix the prefix of the domain where the inputs are in, including hyphens
+	 * @return the validation results in the order of the inputs (see {@link #validateCheckDigit(CharSequence, String)})
+	 */
+	public List<Boolean> validateCheckDigits(List<? extends CharSequence> inputs, String domainPrefix) {
+		List<Boolean> results = new ArrayList<>(inputs.size());
+		for (CharSequence input : inputs) {
+			results.add(validateCheckDigit(input, domainPrefix));
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Calculates the Luhn sum over the input (from the given start, surrounding white spaces are ignored).
+	 * 
+	 * @param input the input
+	 * @param start the position of the first character to consider (i.e. behind the prefix)
+	 * @param initialFactor the factor for the rightmost character
+	 * @return the sum, or {@code -1} if a character is not part of the allowed characters
+	 */
+	private int luhnSum(CharSequence input, int start, int initialFactor) {
+		// Ignore surrounding white spaces (like String.trim())
+		int end = input.length();
+		while (start < end && input.charAt(start) <= ' ') {
+			start++;
+		}
+		while (end > start && input.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		
+		int factor = initialFactor;
+		int sum = 0;
+		
+		// Iterate over the input, starting from the right and working leftwards
+		for (int i = end - 1; i >= start; i--) {
+			int index = indexOf(input.charAt(i));
 			
-			// If the provided character was not found in the allowed characters, return null
-			if (index == -1) {
-				return null;
+			// If the provided character was not found in the allowed characters, abort
+			if (index < 0) {
+				return -1;
 			}
 			
 			// Calculate the addend
 			int addend = factor * index;
-			
+	 
 			// Alternate the factor that each index is multiplied by
 			factor = (factor == 2) ? 1 : 2;
-		 
+	 
 			// Sum the digits as expressed in base "n"
 			sum += (addend / mod) + (addend % mod);
 		}
 		
-		// If there is a remainder when calculating modulo, then the check digit does not fit to the input
-		return (sum % mod == 0);
+		return sum;
+	}
+	
+	/**
+	 * Looks up the position of an (upper-cased) character in the allowed characters.
+	 * 
+	 * @param c the character
+	 * @return the position, or {@code -1} if the character is not allowed
+	 */
+	private int indexOf(char c) {
+		if (c < ASCII_TABLE_SIZE) {
+			return asciiIndex[c];
+		}
+		
+		Integer index = otherIndex.get(Character.toUpperCase(c));
+		return (index == null) ? -1 : index;
+	}
+	
+	/**
+	 * Checks if the input starts with the given prefix.
+	 * 
+	 * @param input the input
+	 * @param prefix the prefix
+	 * @return {@code true} if the input starts with the prefix
+	 */
+	private static boolean startsWith(CharSequence input, String prefix) {
+		if (input.length() < prefix.length()) {
+			return false;
+		}
+		
+		for (int i = 0; i < prefix.length(); i++) {
+			if (input.charAt(i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		
+		return true;
 	}
 }
@@ -25,6 +25,9 @@ package org.trustdeck.algorithms;
  */
 public class LuhnMod10CheckDigit extends LuhnCheckDigit {
 
+	/** Shared instance. The engine is immutable, so it can be reused everywhere. */
+	public static final LuhnMod10CheckDigit INSTANCE = new LuhnMod10CheckDigit();
+
 	public LuhnMod10CheckDigit() {
 		super("0123456789");
 	}
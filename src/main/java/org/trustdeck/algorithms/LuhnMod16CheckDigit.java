@@ -25,6 +25,9 @@ package org.trustdeck.algorithms;
  */
 public class LuhnMod16CheckDigit extends LuhnCheckDigit {
 
+	/** Shared instance. The engine is immutable, so it can be reused everywhere. */
+	public static final LuhnMod16CheckDigit INSTANCE = new LuhnMod16CheckDigit();
+
 	public LuhnMod16CheckDigit() {
 		super("0123456789ABCDEF");
 	}
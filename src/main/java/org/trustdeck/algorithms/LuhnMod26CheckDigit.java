@@ -25,6 +25,9 @@ package org.trustdeck.algorithms;
  */
 public class LuhnMod26CheckDigit extends LuhnCheckDigit {
 
+	/** Shared instance. The engine is immutable, so it can be reused everywhere. */
+	public static final LuhnMod26CheckDigit INSTANCE = new LuhnMod26CheckDigit();
+
 	public LuhnMod26CheckDigit() {
 		super("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
 	}
@@ -25,6 +25,9 @@ package org.trustdeck.algorithms;
  */
 public class LuhnMod32CheckDigit extends LuhnCheckDigit {
 
+	/** Shared instance. The engine is immutable, so it can be reused everywhere. */
+	public static final LuhnMod32CheckDigit INSTANCE = new LuhnMod32CheckDigit();
+
 	public LuhnMod32CheckDigit() {
 		super("0123456789ACDEFGHJKLMNPQRTUVWXYZ");
 	}
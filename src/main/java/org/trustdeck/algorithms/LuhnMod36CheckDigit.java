@@ -25,6 +25,9 @@ package org.trustdeck.algorithms;
  */
 public class LuhnMod36CheckDigit extends LuhnCheckDigit {
 
+	/** Shared instance. The engine is immutable, so it can be reused everywhere. */
+	public static final LuhnMod36CheckDigit INSTANCE = new LuhnMod36CheckDigit();
+
 	public LuhnMod36CheckDigit() {
 		super("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ");
 	}
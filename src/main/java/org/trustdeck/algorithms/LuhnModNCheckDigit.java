@@ -17,6 +17,9 @@
 
 package org.trustdeck.algorithms;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -27,6 +30,9 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class LuhnModNCheckDigit extends LuhnCheckDigit {
+	
+	/** Shared instances per alphabet. The engines are immutable, so they can be reused everywhere. */
+	private static final Map<String, LuhnModNCheckDigit> INSTANCES = new ConcurrentHashMap<>();
 
 	public LuhnModNCheckDigit(String alphabet) {
 		super((alphabet.length() % 2 == 0) ? alphabet : alphabet.substring(0, alphabet.length() - 1));
@@ -35,4 +41,14 @@ public class LuhnModNCheckDigit extends LuhnCheckDigit {
 			log.debug("Since the alphabet was not of even length, the last character was removed.");
 		}
 	}
+	
+	/**
+	 * Retrieves the shared check digit calculator for the given alphabet.
+	 * 
+	 * @param alphabet the alphabet
+	 * @return the check digit calculator
+	 */
+	public static LuhnModNCheckDigit forAlphabet(String alphabet) {
+		return INSTANCES.computeIfAbsent(alphabet, LuhnModNCheckDigit::new);
+	}
 }
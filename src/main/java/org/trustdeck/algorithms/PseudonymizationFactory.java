@@ -72,6 +72,9 @@ public class PseudonymizationFactory {
             case "XXHASH": {
             	return new XxHashPseudonymizer(true, algorithm);
             }
+            case "FPE": {
+            	return new FPEPseudonymizer(true, algorithm);
+            }
             default: {
                 // Unrecognized algorithm. Use default.
                 log.warn("The pseudonymization algorithm that was requested (" + algorithm.getName() + ") wasn't recognized. Using random letters (A-Z) instead.");
@@ -129,6 +132,9 @@ public class PseudonymizationFactory {
             case "XXHASH": {
             	return new XxHashPseudonymizer(true, domain);
             }
+            case "FPE": {
+            	return new FPEPseudonymizer(true, domain);
+            }
             default: {
                 // Unrecognized algorithm. Use default.
                 log.warn("The pseudonymization algorithm that was requested (" + domain.getAlgorithm() + ") wasn't recognized. Using random letters (A-Z) instead.");
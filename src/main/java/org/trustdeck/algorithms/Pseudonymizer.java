@@ -17,10 +17,25 @@
 
 package org.trustdeck.algorithms;
 
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 import org.trustdeck.service.AlgorithmDBService;
+import org.trustdeck.service.CounterAllocatorService;
 import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.PseudonymDBAccessService;
 import org.trustdeck.utils.SpringBeanLocator;
 
 import lombok.AccessLevel;
@@ -29,7 +44,9 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * An abstract class for different pseudonymization algorithms
+ * An abstract class for different pseudonymization algorithms.
+ * All settings are resolved when the pseudonymizer is constructed, so instances 
+ * created from a domain or algorithm object can be reused for many identifiers.
  * 
  * @author Armin Müller
  *
@@ -52,6 +69,19 @@ public abstract class Pseudonymizer {
 	/** The alphabet to use for the pseudonymization. */
 	private String alphabet;
 	
+	/** Whether or not a check digit should be added to the generated pseudonyms. */
+	private boolean addCheckDigit;
+	
+	/** The check digit engine matching the algorithm and alphabet. Resolved once and then reused. */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private volatile LuhnCheckDigit checkDigitEngine;
+	
+	/** The allocator that hands out the counter values (leased in blocks from the database). */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private CounterAllocatorService counterAllocator;
+	
 	/** The currently used counting value for the pseudonyms. */
 	@Getter(AccessLevel.NONE)
 	private Long currentValue;
@@ -60,6 +90,11 @@ public abstract class Pseudonymizer {
 	@Setter(AccessLevel.NONE)
 	private DomainDBAccessService ddba;
 	
+	/** The database controller used to check generated pseudonyms for collisions with existing ones. */
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	private PseudonymDBAccessService pdba;
+	
 	/** The standard length for the generated pseudonyms. */
 	public static final int DEFAULT_VALUE_LENGTH = 16;
 	
@@ -72,12 +107,18 @@ public abstract class Pseudonymizer {
 	/** String to determine that a domain reaches its filling point at which new pseudonyms are not reasonably probable generated anymore. */
 	public static final String DOMAIN_FULL = "The domain reached its filling point.";
 	
+	/** The ID of the domain where the counter belongs to. */
+	private Integer domainID;
+	
 	/** The name of the domain where the counter belongs to. */
 	private String domainName;
 	
 	/** Flag that indicates if the pseudonymizer is used with an algorithm object instead of a domain. */
 	private boolean isAlgorithmObjectBased;
 	
+	/** Indicates whether the check digit replaces the last character or is appended to the pseudonym. */
+	private boolean lengthIncludesCheckDigit;
+	
 	/** Indicates whether the domain allows multiple pseudonyms for each identifier. */
 	private boolean multiplePsnAllowed;
 	
@@ -92,10 +133,22 @@ public abstract class Pseudonymizer {
 	
 	/** Indicates how long the pseudonym should be (not considering the domain prefix and the hyphen). */
 	private int pseudonymValueLength;
+	
+	/** The salt that is appended to the identifier before pseudonymization. */
+	private String salt;
 
 	/** String to determine that a pseudonymization process failed. */
 	public static final String PSEUDONYMIZATION_FAILED = "Pseudonymization failed.";
 	
+	/** Batches smaller than this are pseudonymized on the calling thread. */
+	protected static final int PARALLEL_BATCH_THRESHOLD = 256;
+	
+	/** The maximum number of rounds in which colliding random pseudonyms of a batch are regenerated. */
+	protected static final int MAX_GENERATION_ROUNDS = 64;
+	
+	/** Bounded pool shared by all pseudonymizers for processing large batches in parallel. */
+	private static final ForkJoinPool BATCH_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+	
 	/**
 	 * Basic constructor. Initializes the values used for pseudonymization.
 	 * Padding is turned off.
@@ -103,14 +156,17 @@ public abstract class Pseudonymizer {
 	 */
 	public Pseudonymizer() {
 		this.alphabet = null;
+		this.counterAllocator = SpringBeanLocator.getBean(CounterAllocatorService.class);
 		this.currentValue = null;
 		this.ddba = SpringBeanLocator.getBean(DomainDBAccessService.class);
+		this.domainID = null;
 		this.domainName = null;
 		this.isAlgorithmObjectBased = false;
 		this.multiplePsnAllowed = false;
 		this.numberOfRetries = DEFAULT_NUMBER_OF_RETRIES;
 		this.paddingChar = DEFAULT_PADDING_CHAR;
 		this.paddingWanted = false;
+		this.pdba = SpringBeanLocator.getBean(PseudonymDBAccessService.class);
 		this.pseudonymValueLength = DEFAULT_VALUE_LENGTH;
 	}
 	
@@ -124,15 +180,22 @@ public abstract class Pseudonymizer {
 	public Pseudonymizer(String domainName) {
 		this.ddba = SpringBeanLocator.getBean(DomainDBAccessService.class);
 		Domain d = ddba.getDomainByName(domainName);
+		this.addCheckDigit = Boolean.TRUE.equals(d.getAddcheckdigit());
+		this.algorithmName = d.getAlgorithm();
 		this.alphabet = d.getAlphabet();
+		this.counterAllocator = SpringBeanLocator.getBean(CounterAllocatorService.class);
 		this.currentValue = null;
+		this.domainID = d.getId();
 		this.domainName = domainName;
 		this.isAlgorithmObjectBased = false;
+		this.lengthIncludesCheckDigit = Boolean.TRUE.equals(d.getLengthincludescheckdigit());
 		this.multiplePsnAllowed = d.getMultiplepsnallowed();
 		this.numberOfRetries = DEFAULT_NUMBER_OF_RETRIES;
 		this.paddingChar = DEFAULT_PADDING_CHAR;
 		this.paddingWanted = false;
+		this.pdba = SpringBeanLocator.getBean(PseudonymDBAccessService.class);
 		this.pseudonymValueLength = DEFAULT_VALUE_LENGTH;
+		this.salt = d.getSalt();
 	}
 	
 	/**
@@ -147,15 +210,22 @@ public abstract class Pseudonymizer {
 	public Pseudonymizer(boolean paddingWanted, int pseudonymValueLength, char paddingChar, String domainName) {
 		this.ddba = SpringBeanLocator.getBean(DomainDBAccessService.class);
 		Domain d = ddba.getDomainByName(domainName);
+		this.addCheckDigit = Boolean.TRUE.equals(d.getAddcheckdigit());
+		this.algorithmName = d.getAlgorithm();
 		this.alphabet = d.getAlphabet();
+		this.counterAllocator = SpringBeanLocator.getBean(CounterAllocatorService.class);
 		this.currentValue = null;
+		this.domainID = d.getId();
 		this.domainName = domainName;
 		this.isAlgorithmObjectBased = false;
+		this.lengthIncludesCheckDigit = Boolean.TRUE.equals(d.getLengthincludescheckdigit());
 		this.multiplePsnAllowed = d.getMultiplepsnallowed();
 		this.numberOfRetries = DEFAULT_NUMBER_OF_RETRIES;
 		this.paddingChar = paddingChar;
 		this.paddingWanted = paddingWanted;
+		this.pdba = SpringBeanLocator.getBean(PseudonymDBAccessService.class);
 		this.pseudonymValueLength = pseudonymValueLength;
+		this.salt = d.getSalt();
 	}
 	
 	/**
@@ -166,16 +236,23 @@ public abstract class Pseudonymizer {
 	 * @param domain the domain object containing the necessary configuration information
 	 */
 	public Pseudonymizer(boolean paddingWanted, Domain domain) {
+		this.addCheckDigit = Boolean.TRUE.equals(domain.getAddcheckdigit());
+		this.algorithmName = domain.getAlgorithm();
 		this.alphabet = domain.getAlphabet();
+		this.counterAllocator = SpringBeanLocator.getBean(CounterAllocatorService.class);
 		this.currentValue = null;
 		this.ddba = SpringBeanLocator.getBean(DomainDBAccessService.class);
+		this.domainID = domain.getId();
 		this.domainName = domain.getName();
 		this.isAlgorithmObjectBased = false;
+		this.lengthIncludesCheckDigit = Boolean.TRUE.equals(domain.getLengthincludescheckdigit());
 		this.multiplePsnAllowed = domain.getMultiplepsnallowed();
 		this.numberOfRetries = DEFAULT_NUMBER_OF_RETRIES;
 		this.paddingChar = domain.getPaddingcharacter().charAt(0);
 		this.paddingWanted = paddingWanted;
+		this.pdba = SpringBeanLocator.getBean(PseudonymDBAccessService.class);
 		this.pseudonymValueLength = domain.getPseudonymlength();
+		this.salt = domain.getSalt();
 	}
 	
 	/**
@@ -187,16 +264,21 @@ public abstract class Pseudonymizer {
 	 */
 	public Pseudonymizer(boolean paddingWanted, Algorithm algorithm) {
 		this.adbs = SpringBeanLocator.getBean(AlgorithmDBService.class);
+		this.addCheckDigit = Boolean.TRUE.equals(algorithm.getAddcheckdigit());
 		this.algorithmID = algorithm.getId();
 		this.algorithmName = algorithm.getName();
 		this.alphabet = algorithm.getAlphabet();
+		this.counterAllocator = SpringBeanLocator.getBean(CounterAllocatorService.class);
 		this.currentValue = algorithm.getConsecutivevaluecounter();
 		this.isAlgorithmObjectBased = true;
+		this.lengthIncludesCheckDigit = Boolean.TRUE.equals(algorithm.getLengthincludescheckdigit());
 		this.multiplePsnAllowed = false;
 		this.numberOfRetries = DEFAULT_NUMBER_OF_RETRIES;
 		this.paddingChar = algorithm.getPaddingcharacter().charAt(0);
 		this.paddingWanted = paddingWanted;
+		this.pdba = SpringBeanLocator.getBean(PseudonymDBAccessService.class);
 		this.pseudonymValueLength = algorithm.getPseudonymlength();
+		this.salt = algorithm.getSalt();
 	}
 	
 	/**
@@ -208,6 +290,210 @@ public abstract class Pseudonymizer {
 	 */
 	public abstract String pseudonymize(String identifier, String domainPrefix);
 	
+	/**
+	 * Pseudonymizes an identifier together with its type using the preresolved settings of this 
+	 * pseudonymizer (salt, check digit). This is the equivalent of concatenating identifier, idType, 
+	 * and salt, pseudonymizing the result, and adding a check digit if the configuration requires one.
+	 * 
+	 * @param identifier the value to be pseudonymized
+	 * @param idType the type of the identifier
+	 * @param domainPrefix the prefix for the domain
+	 * @return the generated pseudonym or {@code null} if the pseudonymization failed
+	 */
+	public String pseudonymize(String identifier, String idType, String domainPrefix) {
+		return completePseudonym(pseudonymize(saltIdentifier(identifier, idType), domainPrefix), domainPrefix);
+	}
+	
+	/**
+	 * Abstract method for the pseudonymization of a batch of identifiers in one pass.
+	 * For every input, the result equals {@link #pseudonymize(String, String)} followed by 
+	 * adding the check digit, if the configuration requires one.
+	 * 
+	 * @param identifiers the values to be pseudonymized (e.g. created with {@link #saltIdentifier(String, String)})
+	 * @param domainPrefix the prefix for the domain
+	 * @return the pseudonyms in the order of the given identifiers; failed entries are {@code null}
+	 */
+	public abstract List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix);
+	
+	/**
+	 * Creates the actual input for the pseudonymization by combining the identifier, its type, and the salt.
+	 * 
+	 * @param identifier the identifier
+	 * @param idType the type of the identifier
+	 * @return the value that should be pseudonymized
+	 */
+	public String saltIdentifier(String identifier, String idType) {
+		return identifier + idType + salt;
+	}
+	
+	/**
+	 * Adds the check digit to a generated pseudonym, if the configuration requires one.
+	 * 
+	 * @param pseudonym the generated pseudonym (including the prefix)
+	 * @param domainPrefix the prefix for the domain
+	 * @return the completed pseudonym
+	 */
+	protected String completePseudonym(String pseudonym, String domainPrefix) {
+		if (pseudonym == null || !addCheckDigit || pseudonym.equals(DOMAIN_FULL)) {
+			return pseudonym;
+		}
+		
+		return addCheckDigit(pseudonym, lengthIncludesCheckDigit, domainName, domainPrefix);
+	}
+	
+	/**
+	 * Generates and completes (check digit) the pseudonyms of a batch. Large batches are 
+	 * processed in parallel on a bounded pool if the generator allows it.
+	 * 
+	 * @param size the number of pseudonyms in the batch
+	 * @param domainPrefix the prefix for the domain
+	 * @param parallel whether or not the generator may be called concurrently
+	 * @param generator creates the (prefixed) pseudonym for the batch entry with the given index
+	 * @return the pseudonyms in the order of the indices
+	 */
+	protected List<String> pseudonymizeEach(int size, String domainPrefix, boolean parallel, IntFunction<String> generator) {
+		String[] pseudonyms = new String[size];
+		
+		if (!parallel || size < PARALLEL_BATCH_THRESHOLD) {
+			for (int i = 0; i < size; i++) {
+				pseudonyms[i] = completePseudonym(generator.apply(i), domainPrefix);
+			}
+		} else {
+			BATCH_POOL.submit(() -> IntStream.range(0, size).parallel()
+					.forEach(i -> pseudonyms[i] = completePseudonym(generator.apply(i), domainPrefix))).join();
+		}
+		
+		return Arrays.asList(pseudonyms);
+	}
+	
+	/**
+	 * Generates a batch of unique random pseudonyms in one pass. Candidates that collide with another 
+	 * pseudonym of the same batch or with an existing pseudonym of the domain are regenerated automatically, 
+	 * so that the caller doesn't have to retry. Only the still colliding candidates are checked again in 
+	 * each round. Entries for which no unique pseudonym was found within {@link #MAX_GENERATION_ROUNDS} 
+	 * rounds are marked with {@link #DOMAIN_FULL}.
+	 * 
+	 * @param size the number of pseudonyms in the batch
+	 * @param domainPrefix the prefix for the domain
+	 * @param candidateGenerator creates a new random (prefixed) pseudonym candidate
+	 * @return the completed pseudonyms
+	 */
+	protected List<String> generateUnique(int size, String domainPrefix, Supplier<String> candidateGenerator) {
+		String[] pseudonyms = new String[size];
+		Set<String> batch = new HashSet<>(2 * size);
+		
+		List<Integer> open = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			open.add(i);
+		}
+		
+		for (int round = 0; round < MAX_GENERATION_ROUNDS && !open.isEmpty(); round++) {
+			// Generate candidates for all open entries, avoiding collisions within the batch
+			List<Integer> assigned = new ArrayList<>(open.size());
+			List<Integer> stillOpen = new ArrayList<>();
+			for (int i : open) {
+				String candidate = completePseudonym(candidateGenerator.get(), domainPrefix);
+				
+				if (batch.add(candidate)) {
+					pseudonyms[i] = candidate;
+					assigned.add(i);
+				} else {
+					stillOpen.add(i);
+				}
+			}
+			
+			// Check the new candidates against the pseudonyms already stored in the domain
+			List<String> candidates = new ArrayList<>(assigned.size());
+			for (int i : assigned) {
+				candidates.add(pseudonyms[i]);
+			}
+			
+			Set<String> existing = findExistingPseudonyms(candidates);
+			for (int i : assigned) {
+				if (existing.contains(pseudonyms[i])) {
+					// The candidate stays in the batch set since it's taken anyway
+					pseudonyms[i] = null;
+					stillOpen.add(i);
+				}
+			}
+			
+			if (!stillOpen.isEmpty()) {
+				log.trace("Regenerating " + stillOpen.size() + " colliding pseudonym(s) (round " + (round + 1) + ").");
+			}
+			open = stillOpen;
+		}
+		
+		// Give up on the remaining entries
+		if (!open.isEmpty()) {
+			log.warn("Couldn't generate " + open.size() + " non-colliding pseudonym(s) in " + MAX_GENERATION_ROUNDS + " rounds.");
+			for (int i : open) {
+				pseudonyms[i] = DOMAIN_FULL;
+			}
+		}
+		
+		return Arrays.asList(pseudonyms);
+	}
+	
+	/**
+	 * Determines which of the given pseudonyms already exist in this pseudonymizer's domain.
+	 * Pseudonymizers that are based on an algorithm object have no domain to check against.
+	 * 
+	 * @param pseudonyms the pseudonyms to check
+	 * @return the subset of the given pseudonyms that already exists (empty if it couldn't be determined)
+	 */
+	private Set<String> findExistingPseudonyms(Collection<String> pseudonyms) {
+		if (isAlgorithmObjectBased || pseudonyms.isEmpty()) {
+			return Set.of();
+		}
+		
+		Integer id = domainID;
+		if (id == null) {
+			// Domain is only known by its name
+			Domain d = (domainName == null) ? null : ddba.getDomainByName(domainName);
+			id = (d == null) ? null : d.getId();
+		}
+		
+		Set<String> existing = (id == null) ? null : pdba.getExistingPseudonyms(id, pseudonyms);
+		if (existing == null) {
+			// Remaining collisions are still detected when the pseudonyms are inserted
+			log.debug("Couldn't check the generated pseudonyms against the domain's existing pseudonyms.");
+			return Set.of();
+		}
+		
+		return existing;
+	}
+	
+	/**
+	 * Pseudonymizes a batch of identifiers with a hash function. If the domain allows multiple pseudonyms 
+	 * per identifier, one range of counter values is reserved for the whole batch.
+	 * 
+	 * @param identifiers the values to be pseudonymized
+	 * @param domainPrefix the prefix for the domain
+	 * @param hashFunction creates the (length-corrected) pseudonym value without the prefix from an input text
+	 * @return the pseudonyms in the order of the given identifiers; failed entries are {@code null}
+	 */
+	protected List<String> hashAll(List<String> identifiers, String domainPrefix, UnaryOperator<String> hashFunction) {
+		int size = identifiers.size();
+		
+		// Reserve all counter values at once
+		Long firstCounter = null;
+		if (multiplePsnAllowed && size > 0) {
+			firstCounter = reserveCounterValues(size);
+			
+			if (firstCounter == null) {
+				log.error("Couldn't reserve the counter values for the batch pseudonymization.");
+				return Arrays.asList(new String[size]);
+			}
+		}
+		
+		final Long first = firstCounter;
+		return pseudonymizeEach(size, domainPrefix, true, i -> {
+			String text = (first != null) ? identifiers.get(i) + (first + i) : identifiers.get(i);
+			String hash = hashFunction.apply(text);
+			return hash == null ? null : domainPrefix + hash;
+		});
+	}
+	
 	/**
 	 * Corrects the length of the generated pseudonym.
 	 * 
@@ -246,10 +532,9 @@ public abstract class Pseudonymizer {
 	 * @return the pseudonym including the checksum
 	 */
 	public String addCheckDigit(String pseudonym, boolean addInsteadOfLastChar, String domainName, String domainPrefix) {
-		// Get used algorithm nameString algo
+		// Get used algorithm name. Only fall back to the database if it was not provided during construction.
 		String algo;
-		if (isAlgorithmObjectBased) {
-			// Use algorithm object
+		if (algorithmName != null) {
 			algo = algorithmName.toUpperCase();
 		} else {
 			// Use domain
@@ -264,26 +549,43 @@ public abstract class Pseudonymizer {
 		
 		// Shorten pseudonym when the last character should be overwritten. Exception: For
 		// the consecutive numbering, we don't want to cut anything from the pseudonym away.
-		String psn = (addInsteadOfLastChar && !algo.equals("CONSECUTIVE")) ? pseudonym.substring(0, pseudonym.length() - 1) : pseudonym;
+		int length = (addInsteadOfLastChar && !algo.equals("CONSECUTIVE")) ? pseudonym.length() - 1 : pseudonym.length();
+		
+		// Resolve the (shared) check digit engine only once per pseudonymizer
+		LuhnCheckDigit luhn = checkDigitEngine;
+		if (luhn == null) {
+			luhn = resolveCheckDigitEngine(algo, alphabet);
+			checkDigitEngine = luhn;
+		}
 		
-		// Decide the character space for the check digit depending on the used pseudonymization algorithm
-		LuhnCheckDigit luhn;
+		// Generate check digit (on a view of the shortened pseudonym, without copying it)
+		Character checkDigit = luhn.computeCheckDigit(CharBuffer.wrap(pseudonym, 0, length), domainPrefix);
 		
+		// If successful, return the pseudonym with the attached check digit. If not, return the original pseudonym.
+		return (checkDigit != null) ? new StringBuilder(length + 1).append(pseudonym, 0, length).append(checkDigit.charValue()).toString() : pseudonym;
+	}
+	
+	/**
+	 * Decides the character space for the check digit depending on the used pseudonymization algorithm.
+	 * 
+	 * @param algo the upper-cased name of the pseudonymization algorithm
+	 * @param alphabet the alphabet used by the algorithm (only relevant for the custom alphabet algorithms)
+	 * @return the shared check digit engine for the given algorithm
+	 */
+	public static LuhnCheckDigit resolveCheckDigitEngine(String algo, String alphabet) {
 		switch (algo) {
 	        case "CONSECUTIVE":
+	        case "FPE":
 	        case "RANDOM": {
-	        	luhn = new LuhnModNCheckDigit(alphabet);
-	        	break;
+	        	return LuhnModNCheckDigit.forAlphabet(alphabet);
 	        }
 	        case "RANDOM_HEX": {
 	        	// Used alphabet: "ABCDEF0123456789"
-	        	luhn = new LuhnMod16CheckDigit();
-	        	break;
+	        	return LuhnMod16CheckDigit.INSTANCE;
 	        }
 	        case "RANDOM_NUM": {
 	        	// Used alphabet: "0123456789"
-	        	luhn = new LuhnMod10CheckDigit();
-	        	break;
+	        	return LuhnMod10CheckDigit.INSTANCE;
 	        }
 			case "MD5":
 	        case "SHA1":
@@ -292,33 +594,34 @@ public abstract class Pseudonymizer {
 	        case "BLAKE3":
 	        case "XXHASH": {
 	        	// Used alphabet: "ABCDEF0123456789"
-	        	luhn = new LuhnMod16CheckDigit();
-	        	break;
+	        	return LuhnMod16CheckDigit.INSTANCE;
 	        }
 	        case "RANDOM_LET": {
 	        	// Used alphabet: "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
-	        	luhn = new LuhnMod26CheckDigit();
-	        	break;
+	        	return LuhnMod26CheckDigit.INSTANCE;
 	        }
 	        case "RANDOM_SYM_BIOS": {
 	        	// Used alphabet: "ACDEFGHJKLMNPQRTUVWXYZ0123456789"
-	        	luhn = new LuhnMod32CheckDigit();
-	        	break;
+	        	return LuhnMod32CheckDigit.INSTANCE;
 	        }
 	        case "RANDOM_SYM": {
 	        	// Used alphabet: "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
-	        	luhn = new LuhnMod36CheckDigit();
-	        	break;
+	        	return LuhnMod36CheckDigit.INSTANCE;
 	        }
 			default:
 				throw new IllegalArgumentException("Unexpected algorithm: " + algo);
 		}
-		
-		// Generate check digit
-		Character checkDigit = luhn.computeCheckDigit(psn, domainPrefix);
-		
-		// If successful, return the pseudonym with the attached check digit. If not, return the original pseudonym.
-		return (checkDigit != null) ? psn + checkDigit : pseudonym;
+	}
+	
+	/**
+	 * Checks whether an algorithm creates pseudonyms that can't collide by construction, 
+	 * so that the identifiers don't need to be checked for existing records before the insertion.
+	 * 
+	 * @param algo the name of the pseudonymization algorithm
+	 * @return {@code true} if two identifiers can never receive the same pseudonym, {@code false} otherwise
+	 */
+	public static boolean isCollisionFree(String algo) {
+		return FPEPseudonymizer.ALGORITHM_NAME.equalsIgnoreCase(algo);
 	}
 	
 	/**
@@ -342,24 +645,75 @@ public abstract class Pseudonymizer {
 		return paddedPseudonym;
 	}
 	
+	/**
+	 * Retrieves the next value of the domain's (or algorithm object's) counter. The values are unique 
+	 * across threads and nodes but, depending on the configured block size, not necessarily gapless.
+	 * 
+	 * @return the next counter value, or {@code null} if no value could be reserved
+	 */
+	public Long nextCounterValue() {
+		if (isAlgorithmObjectBased) {
+			return (algorithmID == null) ? null : counterAllocator.nextAlgorithmValue(algorithmID);
+		}
+		
+		if (domainID == null) {
+			// Domain is only known by its name
+			Domain d = (domainName == null) ? null : ddba.getDomainByName(domainName);
+			return (d == null) ? null : counterAllocator.nextDomainValue(d.getId());
+		}
+		
+		return counterAllocator.nextDomainValue(domainID);
+	}
+	
+	/**
+	 * Reserves a contiguous range of counter values at once, e.g. for a batch pseudonymization.
+	 * 
+	 * @param count the number of values to reserve
+	 * @return the first value of the reserved range, or {@code null} if no range could be reserved
+	 */
+	public Long reserveCounterValues(int count) {
+		if (isAlgorithmObjectBased) {
+			return (algorithmID == null) ? null : counterAllocator.reserveAlgorithmValues(algorithmID, count);
+		}
+		
+		if (domainID == null) {
+			// Domain is only known by its name
+			Domain d = (domainName == null) ? null : ddba.getDomainByName(domainName);
+			return (d == null) ? null : counterAllocator.reserveDomainValues(d.getId(), count);
+		}
+		
+		return counterAllocator.reserveDomainValues(domainID, count);
+	}
+	
 	/**
 	 * Method to persist the consecutive value in the database.
 	 * 
 	 * @return {@code true} if the counter was successfully stored, {@code false} otherwise
 	 */
 	public boolean persist() {
+		return persist(currentValue);
+	}
+	
+	/**
+	 * Method to persist the given consecutive value in the database.
+	 * Does not touch the instance state so that a pseudonymizer can be shared between threads.
+	 * 
+	 * @param value the counter value to store
+	 * @return {@code true} if the counter was successfully stored, {@code false} otherwise
+	 */
+	public boolean persist(Long value) {
 		if (!isAlgorithmObjectBased) {
 			if (domainName == null) {
 				return false;
 			}
 			
-			return ddba.updateCounter(currentValue, domainName);
+			return ddba.updateCounter(value, domainName);
 		} else {
 			if (algorithmID == null) {
 				return false;
 			}
 			
-			return adbs.updateCounter(currentValue, algorithmID);
+			return adbs.updateCounter(value, algorithmID);
 		}
 	}
 }
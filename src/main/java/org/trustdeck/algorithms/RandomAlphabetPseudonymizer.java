@@ -19,7 +19,8 @@ package org.trustdeck.algorithms;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.List;
 
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
@@ -33,6 +34,9 @@ import org.trustdeck.jooq.generated.tables.pojos.Domain;
 @Slf4j
 public class RandomAlphabetPseudonymizer extends Pseudonymizer {
 	
+	/** The generators of the threads using this pseudonymizer, reused for every single pseudonym. */
+	private final ThreadLocal<RandomSymbolGenerator> generators = new ThreadLocal<>();
+	
 	/**
 	 * Basic constructor.
 	 * Padding is turned <b>off</b>.
@@ -126,19 +130,33 @@ public class RandomAlphabetPseudonymizer extends Pseudonymizer {
 	 * @return a string containing a random sequence of characters from this instance's alphabet
 	 */
 	private String getRandomString(int length, String alphabet) {
-		SecureRandom rnd = new SecureRandom();
-		StringBuilder sb = new StringBuilder();
-		
 		if (alphabet == null || alphabet.isBlank()) {
 			return PSEUDONYMIZATION_FAILED;
 		}
-			
-		// Generate random string
-		for (int j = 0; j < length; j++) {
-            // Pick random characters from the provided alphabet and append
-            sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
-        }
 		
-		return sb.toString();
+		// Pick random characters from the provided alphabet
+		return RandomSymbolGenerator.perThread(generators, alphabet).next(length);
+	}
+	
+	/**
+	 * Creates random character pseudonyms for the given identifiers.
+	 * Candidates are drawn in bulk from the shared random generator. Candidates colliding within the batch 
+	 * or with existing pseudonyms of the domain are regenerated, so the batch completes in one pass.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		String alphabet = getAlphabet();
+		if (alphabet == null || alphabet.isBlank()) {
+			log.warn("Random-Alphabet-Pseudonymizer: pseudonym generation failed!");
+			return Arrays.asList(new String[identifiers.size()]);
+		}
+		
+		RandomSymbolGenerator generator = new RandomSymbolGenerator(alphabet);
+		char[] buffer = new char[getPseudonymValueLength()];
+		
+		return generateUnique(identifiers.size(), domainPrefix, () -> {
+			generator.fill(buffer);
+			return domainPrefix + new String(buffer);
+		});
 	}
 }
\ No newline at end of file
@@ -19,7 +19,7 @@ package org.trustdeck.algorithms;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.security.SecureRandom;
+import java.util.List;
 
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
@@ -33,6 +33,12 @@ import org.trustdeck.jooq.generated.tables.pojos.Domain;
 @Slf4j
 public class RandomNumberPseudonymizer extends Pseudonymizer {
 	
+	/** The symbols of the generated pseudonyms. */
+	private static final String DIGITS = "0123456789";
+	
+	/** The generators of the threads using this pseudonymizer, reused for every single pseudonym. */
+	private final ThreadLocal<RandomSymbolGenerator> generators = new ThreadLocal<>();
+	
 	/**
 	 * Basic constructor.
 	 * Padding is turned <b>off</b>.
@@ -107,21 +113,25 @@ public class RandomNumberPseudonymizer extends Pseudonymizer {
 	 */
 	@Override
 	public String pseudonymize(String identifier, String domainPrefix) {
-		SecureRandom rnd = new SecureRandom(identifier.getBytes());
-		
-		// Generate a random number
-		String pseudonym = "";
-
-		// Due to a Long being only 64 bit, this won't produce anything longer than a string with 19 numbers.
-		// Append multiple random values to get the desired length.
-		int psnLength = getPseudonymValueLength();
-		while (psnLength > 0) {
-			Double upperBound = psnLength >= 19 ? Long.MAX_VALUE : Math.pow(10, psnLength);
-			String p = String.valueOf(rnd.nextLong(upperBound.longValue()));
-			pseudonym += p;
-			psnLength -= p.length();
-		}
+		// Draw the digits from this thread's generator instead of seeding a new random number generator
+		String pseudonym = RandomSymbolGenerator.perThread(generators, DIGITS).next(getPseudonymValueLength());
 		
 		return domainPrefix + correctPseudonymLength(pseudonym);
 	}
+	
+	/**
+	 * Creates random number pseudonyms for the given identifiers.
+	 * The digits are drawn in bulk from the shared random generator. Candidates colliding within the batch 
+	 * or with existing pseudonyms of the domain are regenerated, so the batch completes in one pass.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		RandomSymbolGenerator generator = new RandomSymbolGenerator(DIGITS);
+		char[] buffer = new char[getPseudonymValueLength()];
+		
+		return generateUnique(identifiers.size(), domainPrefix, () -> {
+			generator.fill(buffer);
+			return domainPrefix + new String(buffer);
+		});
+	}
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generator for random pseudonym values over an alphabet. All generators share one DRBG from which 
+ * random bytes are drawn in bulk. The bytes are mapped to the alphabet using rejection sampling, 
+ * so every symbol is equally probable (no modulo bias).
+ * An instance buffers random bytes and is therefore not thread-safe; create one per batch or thread 
+ * (e.g. with {@link #perThread(ThreadLocal, String)}).
+ * 
+ * @author Armin Müller
+ */
+@Slf4j
+public class RandomSymbolGenerator {
+	
+	/** The random bit generator shared by all instances. */
+	private static final SecureRandom DRBG = createDrbg();
+	
+	/** The number of random bytes that are drawn from the DRBG at once. */
+	private static final int BUFFER_SIZE = 512;
+	
+	/** The alphabet. */
+	private final String alphabet;
+	
+	/** The symbols of the alphabet. */
+	private final char[] symbols;
+	
+	/** Bit mask covering all indices of the alphabet. */
+	private final int mask;
+	
+	/** Whether one or two random bytes are needed per drawn index. */
+	private final boolean wideIndices;
+	
+	/** Buffer for the random bytes drawn from the DRBG. */
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	
+	/** The position of the next unused byte in the buffer. */
+	private int position = BUFFER_SIZE;
+	
+	/**
+	 * Creates a generator for the given alphabet.
+	 * 
+	 * @param alphabet the alphabet the values are drawn from (at least one and at most 65536 symbols)
+	 */
+	public RandomSymbolGenerator(String alphabet) {
+		if (alphabet == null || alphabet.isEmpty() || alphabet.length() > 65536) {
+			throw new IllegalArgumentException("The alphabet must contain between 1 and 65536 symbols.");
+		}
+		
+		this.alphabet = alphabet;
+		this.symbols = alphabet.toCharArray();
+		this.mask = (symbols.length == 1) ? 0 : (-1 >>> Integer.numberOfLeadingZeros(symbols.length - 1));
+		this.wideIndices = symbols.length > 256;
+	}
+	
+	/**
+	 * Retrieves the calling thread's generator from the given per-thread holder. A new generator is 
+	 * only created when the thread has none yet or the alphabet has changed in the meantime.
+	 * 
+	 * @param holder the per-thread generators
+	 * @param alphabet the alphabet the values are drawn from
+	 * @return the generator of the calling thread
+	 */
+	public static RandomSymbolGenerator perThread(ThreadLocal<RandomSymbolGenerator> holder, String alphabet) {
+		RandomSymbolGenerator generator = holder.get();
+		if (generator == null || !generator.alphabet.equals(alphabet)) {
+			generator = new RandomSymbolGenerator(alphabet);
+			holder.set(generator);
+		}
+		
+		return generator;
+	}
+	
+	/**
+	 * Generates a random value of the given length.
+	 * 
+	 * @param length the length of the value
+	 * @return the random value
+	 */
+	public String next(int length) {
+		char[] value = new char[length];
+		fill(value);
+		
+		return new String(value);
+	}
+	
+	/**
+	 * Fills the given array with random symbols of the alphabet.
+	 * 
+	 * @param value the array to fill
+	 */
+	public void fill(char[] value) {
+		for (int i = 0; i < value.length; i++) {
+			value[i] = symbols[nextIndex()];
+		}
+	}
+	
+	/**
+	 * Draws a uniformly distributed index into the alphabet. Candidates are masked to the 
+	 * smallest power of two covering the alphabet and rejected if they are out of range.
+	 * 
+	 * @return the index
+	 */
+	private int nextIndex() {
+		while (true) {
+			int candidate = wideIndices ? ((nextByte() << 8) | nextByte()) & mask : nextByte() & mask;
+			
+			if (candidate < symbols.length) {
+				return candidate;
+			}
+		}
+	}
+	
+	/**
+	 * Retrieves the next random byte, refilling the buffer from the DRBG when it is exhausted.
+	 * 
+	 * @return the random byte as an unsigned value
+	 */
+	private int nextByte() {
+		if (position == BUFFER_SIZE) {
+			DRBG.nextBytes(buffer);
+			position = 0;
+		}
+		
+		return buffer[position++] & 0xFF;
+	}
+	
+	/**
+	 * Creates the shared DRBG. Falls back to the platform's default SecureRandom if no DRBG is available.
+	 * 
+	 * @return the random bit generator
+	 */
+	private static SecureRandom createDrbg() {
+		try {
+			return SecureRandom.getInstance("DRBG");
+		} catch (NoSuchAlgorithmException e) {
+			log.warn("No DRBG available, falling back to the default SecureRandom: " + e.getMessage());
+			return new SecureRandom();
+		}
+	}
+}
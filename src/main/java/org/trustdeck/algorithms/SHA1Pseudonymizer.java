@@ -17,7 +17,9 @@
 
 package org.trustdeck.algorithms;
 
-import org.apache.commons.codec.digest.DigestUtils;
+import java.security.MessageDigest;
+import java.util.List;
+
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 
@@ -32,6 +34,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class SHA1Pseudonymizer extends Pseudonymizer {
 	
+	/** Per-thread SHA1 digest instances, reused for every pseudonym. */
+	private static final ThreadLocal<MessageDigest> DIGEST = DigestEncoder.perThread("SHA-1");
+	
 	/**
 	 * Basic constructor.
 	 * Padding is turned <b>off</b>.
@@ -92,26 +97,46 @@ public class SHA1Pseudonymizer extends Pseudonymizer {
 	 */
 	@Override
 	public String pseudonymize(String identifier, String domainPrefix) {
-		// Retrieve counter if needed. Immediately update it and write it back
+		// Retrieve the next counter value if needed (reserved atomically through the counter allocator)
 		Long counter = null;
 		if (isMultiplePsnAllowed()) {
-			counter = isAlgorithmObjectBased() ? getAdbs().getAlgorithmByID(getAlgorithmID()).getConsecutivevaluecounter() : getDdba().getDomainByName(getDomainName()).getConsecutivevaluecounter();
-			setCurrentValue(counter == null ? 1L : counter + 1L);
-			persist();
+			counter = nextCounterValue();
+			
+			if (counter == null) {
+				log.error("Couldn't retrieve a counter value for the pseudonymization.");
+				return null;
+			}
 		}
 		
 		// Include counter into the identifier when the domain allows multiple psn for each identifier
 		String text = isMultiplePsnAllowed() ? identifier + counter.toString() : identifier;
 		
-		// Use SHA1 hashes because they're of equal length (160 bits = 40 chars)
-		String hash = DigestUtils.sha1Hex(text.trim()).toUpperCase();
-		
+		return domainPrefix + hash(text);
+	}
+	
+	/**
+	 * Creates sha1 hash pseudonyms for the given identifiers. Large batches are hashed in parallel.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		return hashAll(identifiers, domainPrefix, this::hash);
+	}
+	
+	/**
+	 * Hashes the given text with SHA1 and corrects the length of the result.
+	 * 
+	 * @param text the text to hash
+	 * @return the length-corrected hash value (without the domain prefix)
+	 */
+	private String hash(String text) {
 		// Warn if the desired pseudonym-length is shorter than the sha1Hex
 		if (getPseudonymValueLength() < 40) {
 			log.debug("The requested length (" + getPseudonymValueLength() + ") for the pseudonyms is "
 					+ "shorter than the output of the hashing algorithm (40).");
 		}
 
-		return domainPrefix + correctPseudonymLength(hash);
+		// Use SHA1 hashes because they're of equal length (160 bits = 40 chars)
+		// The digest is encoded directly into the (upper-case hex) pseudonym value
+		return DigestEncoder.digestToHex(DIGEST, text.trim(), this);
 	}
 }
\ No newline at end of file
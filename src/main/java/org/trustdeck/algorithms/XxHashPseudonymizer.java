@@ -27,6 +27,8 @@ import org.trustdeck.jooq.generated.tables.pojos.Domain;
 import org.trustdeck.utils.Assertion;
 
 import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * This class provides a pseudonymization by assigning xxHash64-values as pseudonyms.
@@ -37,6 +39,12 @@ import java.nio.ByteBuffer;
 @Slf4j
 public class XxHashPseudonymizer extends Pseudonymizer {
 	
+	/** The xxHash64 hasher. Instances are stateless and thread-safe, so one is shared. */
+	private static final XXHash64 XXHASH_64 = XXHashFactory.fastestInstance().hash64();
+	
+	/** The seed derived from the salt, together with the salt it was derived from. Computed once per salt. */
+	private volatile Seed seed;
+	
 	/**
 	 * Basic constructor.
 	 * Padding is turned <b>off</b>.
@@ -97,33 +105,41 @@ public class XxHashPseudonymizer extends Pseudonymizer {
 	 */
 	@Override
 	public String pseudonymize(String identifier, String domainPrefix) {
-		// Initialize the xxHash64 hasher
-		XXHashFactory factory = XXHashFactory.fastestInstance();
-		XXHash64 xxHash64 = factory.hash64();
-		
-		// Retrieve counter if needed. Immediately update it and write it back
+		// Retrieve the next counter value if needed (reserved atomically through the counter allocator)
 		Long counter = null;
 		if (isMultiplePsnAllowed()) {
-			counter = isAlgorithmObjectBased() ? getAdbs().getAlgorithmByID(getAlgorithmID()).getConsecutivevaluecounter() : getDdba().getDomainByName(getDomainName()).getConsecutivevaluecounter();
-			setCurrentValue(counter == null ? 1L : counter + 1L);
-			persist();
+			counter = nextCounterValue();
+			
+			if (counter == null) {
+				log.error("Couldn't retrieve a counter value for the pseudonymization.");
+				return null;
+			}
 		}
 		
 		// Include counter into the identifier when the domain allows multiple psn for each identifier
 		String text = isMultiplePsnAllowed() ? identifier + counter.toString() : identifier;
-
-		// Get salt and transform it into a seed (non-numeric String to Long)
-		String salt = isAlgorithmObjectBased() ? getAdbs().getAlgorithmByID(getAlgorithmID()).getSalt() : getDdba().getDomainByName(getDomainName()).getSalt();
-		long seed = Assertion.isNotNullOrEmpty(salt) ? ByteBuffer.wrap(DigestUtils.sha256(salt)).getLong() : 0L;
-
-		// Transform the identifier into a ByteBuffer and hash it
-		ByteBuffer textBuffer = ByteBuffer.wrap(text.getBytes());
-		String hash = Long.toHexString(xxHash64.hash(textBuffer, seed));
 		
-		// Since the algorithm outputs numbers, leading zeros will not be reflected in the output. We will now add them again if necessary.
-		if (hash.length() < 16) {
-			hash = addPadding(hash, 16, '0');
-		}
+		return domainPrefix + hash(text);
+	}
+	
+	/**
+	 * Creates xxHash64 hash pseudonyms for the given identifiers. Large batches are hashed in parallel.
+	 */
+	@Override
+	public List<String> pseudonymizeAll(List<String> identifiers, String domainPrefix) {
+		return hashAll(identifiers, domainPrefix, this::hash);
+	}
+	
+	/**
+	 * Hashes the given text with xxHash64 and corrects the length of the result.
+	 * 
+	 * @param text the text to hash
+	 * @return the length-corrected hash value (without the domain prefix)
+	 */
+	private String hash(String text) {
+		// Hash the identifier with the precomputed seed
+		byte[] bytes = text.getBytes();
+		long hash = XXHASH_64.hash(bytes, 0, bytes.length, getSeed());
 		
 		// Warn if the desired pseudonym-length is shorter than the xxHash output
 		if (getPseudonymValueLength() < 16) {
@@ -131,6 +147,42 @@ public class XxHashPseudonymizer extends Pseudonymizer {
 					+ "shorter than the output of the hashing algorithm (16).");
 		}
 		
-		return domainPrefix + correctPseudonymLength(hash);
+		// Encode as 16 lower-case hex characters (including leading zeros) directly into the pseudonym value
+		return DigestEncoder.longToHex(hash, DigestEncoder.HEX_LOWER, this);
 	}
+	
+	/**
+	 * Retrieves the seed for the current salt. The seed is only recomputed when the salt was changed.
+	 * 
+	 * @return the seed
+	 */
+	private long getSeed() {
+		String salt = getSalt();
+		Seed current = seed;
+		
+		if (current == null || !Objects.equals(current.salt(), salt)) {
+			current = new Seed(salt, computeSeed(salt));
+			seed = current;
+		}
+		
+		return current.value();
+	}
+	
+	/**
+	 * Transforms the salt into a seed for the hash function (non-numeric String to Long).
+	 * 
+	 * @param salt the preresolved salt
+	 * @return the seed, or {@code 0} if there is no salt
+	 */
+	private static long computeSeed(String salt) {
+		return Assertion.isNotNullOrEmpty(salt) ? ByteBuffer.wrap(DigestUtils.sha256(salt)).getLong() : 0L;
+	}
+	
+	/**
+	 * A seed and the salt it was derived from.
+	 * 
+	 * @param salt the salt
+	 * @param value the seed derived from the salt
+	 */
+	private record Seed(String salt, long value) {};
 }
\ No newline at end of file
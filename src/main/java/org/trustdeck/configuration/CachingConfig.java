@@ -23,8 +23,10 @@ import com.hazelcast.config.EvictionPolicy;
 import com.hazelcast.config.InMemoryFormat;
 import com.hazelcast.config.MapConfig;
 import com.hazelcast.config.MaxSizePolicy;
+import com.hazelcast.config.NearCacheConfig;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.trustdeck.service.PseudonymCacheService;
 
 /**
  * This class provides configuration for the caching.
@@ -38,10 +40,11 @@ public class CachingConfig {
 	/**
 	 * This method is used to initialize the hazelcast cache configuration object.
 	 * 
+	 * @param properties the tuning properties for the pseudonymization (used for the pseudonym lookup cache)
 	 * @return a configuration object to use for initializing a hazelcast instance
 	 */    
     @Bean
-    public Config hazelcastConfig() {
+    public Config hazelcastConfig(PseudonymizationProperties properties) {
         Config config = new Config();
         config.setInstanceName("trustdeck-hazelcast");
         
@@ -67,6 +70,24 @@ public class CachingConfig {
                 .setEvictionConfig(eviction)
                 .setTimeToLiveSeconds(15 * 60));
 
+        // Optional shared cache for pseudonym lookups; the near cache keeps the hot lookups deserialized on 
+        // every node and is invalidated whenever an entry changes (the entries' TTL is set per entry)
+        if (properties.isPseudonymCacheHazelcastEnabled() && properties.getPseudonymCacheMaxEntries() > 0) {
+            config.addMapConfig(new MapConfig()
+                    .setName(PseudonymCacheService.MAP_PSEUDONYM_LOOKUPS)
+                    .setInMemoryFormat(InMemoryFormat.BINARY)
+                    .setEvictionConfig(eviction)
+                    .setNearCacheConfig(new NearCacheConfig(PseudonymCacheService.MAP_PSEUDONYM_LOOKUPS)
+                            .setInMemoryFormat(InMemoryFormat.OBJECT)
+                            .setCacheLocalEntries(true)
+                            .setInvalidateOnChange(true)
+                            .setTimeToLiveSeconds((int) properties.getPseudonymCacheTtlSeconds())
+                            .setEvictionConfig(new EvictionConfig()
+                                    .setMaxSizePolicy(MaxSizePolicy.ENTRY_COUNT)
+                                    .setSize(properties.getPseudonymCacheMaxEntries())
+                                    .setEvictionPolicy(EvictionPolicy.LRU))));
+        }
+
         return config;
     }
 }
\ No newline at end of file
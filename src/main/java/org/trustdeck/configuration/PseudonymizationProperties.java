@@ -0,0 +1,115 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.configuration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import lombok.Data;
+
+/**
+ * Class that loads the tuning properties for the pseudonymization from the yml-file.
+ *
+ * @author Armin Müller
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "app.pseudonymization")
+public class PseudonymizationProperties {
+	
+	/** 
+	 * The number of consecutive counter values a node reserves in the database at once. Values of a reserved 
+	 * block that are not handed out (e.g. due to a restart) are lost, so the numbering may contain gaps. 
+	 * A block size of 1 keeps the numbering gapless. 
+	 */
+	private int counterBlockSize = 100;
+	
+	/** 
+	 * Whether or not a per-domain Bloom filter is used to skip collision checks for definitely new pseudonyms. 
+	 * The filters are node-local and don't see pseudonyms stored by other nodes, so collisions with these are 
+	 * only detected when inserting (and regenerated for the RANDOM* algorithms). 
+	 */
+	private boolean existenceFilterEnabled = false;
+	
+	/** The false positive rate the existence filters are dimensioned for. */
+	private double existenceFilterFalsePositiveRate = 0.01d;
+	
+	/** The minimum number of pseudonyms an existence filter is dimensioned for, regardless of the domain's size. */
+	private long existenceFilterMinimumCapacity = 100000L;
+	
+	/** Whether or not pseudonyms of randomness-based domains are pre-generated in the background. */
+	private boolean poolEnabled = false;
+	
+	/** The maximum number of pre-generated pseudonyms per domain. */
+	private int poolCapacity = 10000;
+	
+	/** A domain's pool is refilled (up to its capacity) when it holds fewer pseudonyms than this. */
+	private int poolLowWatermark = 2000;
+	
+	/** The number of pseudonyms generated and checked against the database at once when refilling a pool. */
+	private int poolRefillBatchSize = 1000;
+	
+	/** The interval in milliseconds in which the pools are checked against their low watermark. */
+	private long poolRefillIntervalMillis = 1000L;
+	
+	/** 
+	 * The number of pseudonym-records whose inherited validity is updated per transaction after a domain update.
+	 * A value of 0 (or less) updates all records of the domain (sub-)tree with a single statement inside the 
+	 * transaction of the domain update.
+	 */
+	private int validityPropagationChunkSize = 0;
+	
+	/** The interval in milliseconds in which the changes of the per-domain pseudonym counts are written to the database. */
+	private long statisticsFlushIntervalMillis = 5000L;
+	
+	/** The interval in minutes in which the per-domain pseudonym counts are replaced by exact counts (0 disables it). */
+	private long statisticsReconciliationIntervalMinutes = 60L;
+	
+	/** The maximum number of cached pseudonym lookups (by identifier or by pseudonym-value). A value of 0 disables the cache. */
+	private int pseudonymCacheMaxEntries = 100000;
+	
+	/** The number of seconds a pseudonym lookup that found a record is cached. */
+	private long pseudonymCacheTtlSeconds = 60L;
+	
+	/** The number of seconds a pseudonym lookup that found nothing is cached. */
+	private long pseudonymCacheNegativeTtlSeconds = 5L;
+	
+	/** Whether or not the pseudonym lookups are cached in a Hazelcast map with a near cache instead of the local cache. */
+	private boolean pseudonymCacheHazelcastEnabled = false;
+	
+	/** 
+	 * The maximum number of records a single search for linked pseudonyms may visit along the path through the 
+	 * domain tree (summed up over all hops). Searches that exceed it are aborted.
+	 */
+	private int linkedPseudonymMaxRows = 10000;
+	
+	/** 
+	 * The maximum number of records a batch search for linked pseudonyms may visit along the path through the 
+	 * domain tree (summed up over all hops and all starting records). Searches that exceed it are aborted.
+	 */
+	private int linkedPseudonymBatchMaxRows = 100000;
+	
+	/** 
+	 * The number of seconds the in-memory snapshot of the domain tree is used before it is reloaded (to pick up 
+	 * changes made by other nodes). A value of 0 disables the snapshot, the tree is then loaded for every use.
+	 */
+	private long domainTreeMaxAgeSeconds = 60L;
+	
+	/** The number of seconds a domain is cached (by ID and by name). A value of 0 disables the cache. */
+	private long domainCacheTtlSeconds = 60L;
+}
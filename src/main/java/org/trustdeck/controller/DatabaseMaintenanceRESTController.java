@@ -33,14 +33,26 @@ import org.springframework.security.config.annotation.method.configuration.Enabl
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.trustdeck.security.audittrail.annotation.Audit;
+import org.trustdeck.service.DomainCacheService;
+import org.trustdeck.service.DomainClosureService;
+import org.trustdeck.service.DomainClosureService.ClosureVerification;
+import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.DomainStatisticsService;
 import org.trustdeck.service.PermissionDBService;
+import org.trustdeck.service.PseudonymCacheService;
+import org.trustdeck.service.PseudonymExistenceFilterService;
+import org.trustdeck.service.PseudonymPoolService;
 import org.trustdeck.service.ResponseService;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.OffsetDateTime;
+import java.util.List;
+
 /**
  * This class provides database maintenance access.
  *
@@ -64,8 +76,37 @@ public class DatabaseMaintenanceRESTController {
     @Autowired
     private PermissionDBService permissionDBService;
     
+    /** Provides the metrics of the per-domain pseudonym existence filters. */
+    @Autowired
+    private PseudonymExistenceFilterService existenceFilter;
+    
+    /** Provides the metrics of the per-domain pools of pre-generated pseudonyms. */
+    @Autowired
+    private PseudonymPoolService pseudonymPool;
+    
+    /** Maintains the per-domain pseudonym counts. */
+    @Autowired
+    private DomainStatisticsService domainStatistics;
+    
+    /** Caches the lookups of pseudonym-records. */
+    @Autowired
+    private PseudonymCacheService pseudonymCache;
+    
+    /** Caches the domains by ID and by name. */
+    @Autowired
+    private DomainCacheService domainCache;
+    
+    /** Maintains the closure table of the domain tree. */
+    @Autowired
+    private DomainClosureService domainClosure;
+    
+    /** Manages the per-domain partitions of the pseudonym table. */
+    @Autowired
+    private DomainDBAccessService domainDBAccessService;
+    
     /**
-     * Endpoint to retrieve the size of a database table
+     * Endpoint to retrieve the size of a database table.
+     * For partitioned tables, the size and number of records of each partition are listed as well (one per line).
      * 
      * @param tableName (required) the name of the table from which the user wants to read the table size
      * @return<li>a <b>200-OK</b> status and the table size on success</li>
@@ -76,16 +117,150 @@ public class DatabaseMaintenanceRESTController {
     public ResponseEntity<?> monitorDatabaseMetrics(@PathVariable("table") String tableName) {
     	TableMetrics metrics = getTableMetrics(tableName);
     	Long dbSize = getTotalDatabaseSize();
+    	List<PartitionMetrics> partitions = getPartitionMetrics(tableName);
     	
-    	if (metrics == null | dbSize == null) {
+    	if (metrics == null | dbSize == null | partitions == null) {
     		log.debug("Retrieval of database space usage was unsuccessful.");
     		return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
     	}
     	
     	// Create response string
-    	String response = "tableSize: " + metrics.size + ", recordCount: " + metrics.recordCount + ", totalSize: " + dbSize;
+    	StringBuilder response = new StringBuilder("tableSize: " + metrics.size + ", recordCount: " + metrics.recordCount + ", totalSize: " + dbSize);
+    	for (PartitionMetrics partition : partitions) {
+    		response.append("\npartition: " + partition.name + ", tableSize: " + partition.size + ", recordCount: " + partition.recordCount
+    				+ ", deadRecordCount: " + partition.deadRecordCount + ", lastVacuum: " + partition.lastVacuum);
+    	}
+    	
+    	return responseService.ok(MediaType.TEXT_PLAIN_VALUE, response.toString());
+    }
+    
+    /**
+     * Endpoint to retrieve the metrics of the in-memory pseudonym existence filters
+     * (one per domain that was used since the start of this node).
+     * 
+     * @return<li>a <b>200-OK</b> status and the size, false positive rates, and build status of the filters</li>
+     */
+    @GetMapping("/tables/pseudonym/filters")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:read-storage')")
+    @Audit
+    public ResponseEntity<?> monitorPseudonymFilters() {
+    	return responseService.ok(MediaType.APPLICATION_JSON_VALUE, existenceFilter.getMetrics());
+    }
+    
+    /**
+     * Endpoint to retrieve the metrics of the pools of pre-generated pseudonyms
+     * (one per domain using a randomness-based algorithm that was used since the start of this node).
+     * 
+     * @return<li>a <b>200-OK</b> status and the depth, refill rate, and exhaustion count of the pools</li>
+     */
+    @GetMapping("/tables/pseudonym/pools")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:read-storage')")
+    @Audit
+    public ResponseEntity<?> monitorPseudonymPools() {
+    	return responseService.ok(MediaType.APPLICATION_JSON_VALUE, pseudonymPool.getMetrics());
+    }
+    
+    /**
+     * Endpoint to retrieve the metrics of the cache for pseudonym lookups.
+     * 
+     * @return<li>a <b>200-OK</b> status and the size, hit rate, and invalidation count of the cache</li>
+     */
+    @GetMapping("/tables/pseudonym/cache")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:read-storage')")
+    @Audit
+    public ResponseEntity<?> monitorPseudonymCache() {
+    	return responseService.ok(MediaType.APPLICATION_JSON_VALUE, pseudonymCache.getMetrics());
+    }
+    
+    /**
+     * Endpoint to retrieve the metrics of the cache for domains.
+     * 
+     * @return<li>a <b>200-OK</b> status and the size, hit rate, and invalidation count of the cache</li>
+     */
+    @GetMapping("/tables/domain/cache")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:read-storage')")
+    @Audit
+    public ResponseEntity<?> monitorDomainCache() {
+    	return responseService.ok(MediaType.APPLICATION_JSON_VALUE, domainCache.getMetrics());
+    }
+    
+    /**
+     * Endpoint to store exact per-domain pseudonym counts and reset the maintained deltas.
+     * This happens periodically anyway, but can be triggered manually, e.g. after bulk imports.
+     * 
+     * @return<li>a <b>200-OK</b> status and the number of reconciled domains</li>
+     */
+    @PostMapping("/tables/domain-statistics/reconcile")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:maintain')")
+    @Audit
+    public ResponseEntity<?> reconcileDomainStatistics() {
+    	int reconciled = domainStatistics.reconcile(null);
+    	
+    	if (reconciled < 0) {
+    		log.debug("Reconciling the domain statistics was unsuccessful.");
+    		return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
+    	}
+    	
+    	return responseService.ok(MediaType.TEXT_PLAIN_VALUE, "reconciledDomains: " + reconciled);
+    }
+    
+    /**
+     * Endpoint to move the pseudonyms of domains without a partition of their own (e.g. after converting 
+     * the pseudonym table of an existing database into a partitioned table) into per-domain partitions.
+     * 
+     * @return<li>a <b>200-OK</b> status and the number of created partitions</li>
+     */
+    @PostMapping("/tables/pseudonym/partitions")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:maintain')")
+    @Audit
+    public ResponseEntity<?> createPseudonymPartitions() {
+    	int created = domainDBAccessService.createMissingPseudonymPartitions();
+    	
+    	if (created < 0) {
+    		log.debug("Creating the missing pseudonym partitions was unsuccessful.");
+    		return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
+    	}
+    	
+    	return responseService.ok(MediaType.TEXT_PLAIN_VALUE, "createdPartitions: " + created);
+    }
+    
+    /**
+     * Endpoint to rebuild the closure table of the domain tree from the domain table 
+     * (e.g. for existing installations or after an unsuccessful verification).
+     * 
+     * @return<li>a <b>200-OK</b> status and the number of rows in the closure table</li>
+     */
+    @PostMapping("/tables/domain-closure/backfill")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:maintain')")
+    @Audit
+    public ResponseEntity<?> backfillDomainClosure() {
+    	int rows = domainClosure.backfill();
+    	
+    	if (rows < 0) {
+    		log.debug("Rebuilding the domain closure table was unsuccessful.");
+    		return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
+    	}
+    	
+    	return responseService.ok(MediaType.TEXT_PLAIN_VALUE, "closureRows: " + rows);
+    }
+    
+    /**
+     * Endpoint to compare the closure table of the domain tree with the domain table.
+     * 
+     * @return<li>a <b>200-OK</b> status and the number of expected, actual, missing, and surplus rows</li>
+     */
+    @GetMapping("/tables/domain-closure/verify")
+    @PreAuthorize("isAuthenticated() and @auth.hasGlobalPermission(#root, 'table:read-storage')")
+    @Audit
+    public ResponseEntity<?> verifyDomainClosure() {
+    	ClosureVerification verification = domainClosure.verify();
     	
-    	return responseService.ok(MediaType.TEXT_PLAIN_VALUE, response);
+    	if (verification == null) {
+    		log.debug("Verifying the domain closure table was unsuccessful.");
+    		return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
+    	}
+    	
+    	return responseService.ok(MediaType.APPLICATION_JSON_VALUE, verification);
     }
     
     /**
@@ -106,6 +281,10 @@ public class DatabaseMaintenanceRESTController {
 			
 			// Perform vacuum to free up space
 			dsl.execute("VACUUM FULL " + DSL.name(tableName).toString() + ";");
+			
+			// Cached pseudonym lookups and domains might refer to the deleted records
+			pseudonymCache.invalidateAll();
+			domainCache.invalidateAll();
 		} catch (DataAccessException e) {
 			log.error("Deleting the table " + tableName + " from the database was unsuccessfull.", e);
 			return responseService.internalServerError(MediaType.TEXT_PLAIN_VALUE);
@@ -146,7 +325,9 @@ public class DatabaseMaintenanceRESTController {
      * @return the size in bytes or {@code null}, if unsuccessful
      */
     private TableMetrics getTableMetrics(String tableName) {
-		Field<Long> totalSize = DSL.field("pg_total_relation_size({0}::regclass)", Long.class, DSL.val(tableName));
+		// The parent of a partitioned table has no storage of its own, so sum up all of its partitions
+		Field<Long> totalSize = DSL.field("(SELECT sum(pg_total_relation_size(t.relid))::bigint FROM pg_partition_tree({0}::regclass) t)", 
+				Long.class, DSL.val(tableName));
     	
 		Result<Record2<Long, Integer>> result;
 		try {
@@ -162,6 +343,31 @@ public class DatabaseMaintenanceRESTController {
 		return new TableMetrics(size, recordCount);
     }
 
+    /**
+     * Helper method that retrieves the used amount of storage space and the number of (dead) records 
+     * for each partition of a table. The numbers of records are the estimates of the statistics collector, 
+     * so that the table doesn't need to be scanned.
+     * 
+     * @param tableName the name of the table
+     * @return the metrics of the partitions (empty for tables that aren't partitioned) or {@code null}, if unsuccessful
+     */
+    private List<PartitionMetrics> getPartitionMetrics(String tableName) {
+    	try {
+    		return dsl.resultQuery("SELECT t.relid::text AS name, pg_total_relation_size(t.relid) AS size, "
+    				+ "coalesce(s.n_live_tup, 0) AS records, coalesce(s.n_dead_tup, 0) AS dead_records, "
+    				+ "greatest(s.last_vacuum, s.last_autovacuum) AS last_vacuum "
+    				+ "FROM pg_partition_tree({0}::regclass) t "
+    				+ "LEFT JOIN pg_stat_user_tables s ON s.relid = t.relid "
+    				+ "WHERE t.isleaf AND t.level > 0 ORDER BY t.relid::text", 
+    				DSL.val(tableName))
+    			.fetch(r -> new PartitionMetrics(r.get("name", String.class), r.get("size", Long.class), r.get("records", Long.class), 
+    					r.get("dead_records", Long.class), r.get("last_vacuum", OffsetDateTime.class)));
+		} catch (DataAccessException e) {
+			log.debug("Retrieving the storage used by the partitions of table " + tableName + " was unsuccessfull.", e);
+			return null;
+		}
+    }
+
     /**
      * Helper method that retrieves the used amount of storage space for the whole database.
      * 
@@ -188,4 +394,15 @@ public class DatabaseMaintenanceRESTController {
      * @param recordCount the number of records stored in a table
      */
     private record TableMetrics(long size, long recordCount) {};
+    
+    /**
+     * Helper class that encapsulates the metrics of a single partition of a table into one object.
+     * 
+     * @param name the name of the partition
+     * @param size the size of the partition (including its indexes)
+     * @param recordCount the estimated number of records stored in the partition
+     * @param deadRecordCount the estimated number of dead records that still need to be vacuumed
+     * @param lastVacuum the point in time the partition was last vacuumed (manually or automatically), or {@code null}
+     */
+    private record PartitionMetrics(String name, long size, long recordCount, long deadRecordCount, OffsetDateTime lastVacuum) {};
 }
@@ -33,11 +33,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.trustdeck.dto.DomainDTO;
+import org.trustdeck.dto.DomainStatisticsDTO;
 import org.trustdeck.dto.DomainTreeDTO;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 import org.trustdeck.security.audittrail.annotation.Audit;
 import org.trustdeck.service.AuthorizationService;
 import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.DomainStatisticsService;
 import org.trustdeck.service.ResponseService;
 import org.trustdeck.utils.Assertion;
 import org.trustdeck.utils.Utility;
@@ -133,6 +135,10 @@ public class DomainRESTController {
     @Autowired
     private AuthorizationService authorizationService;
 
+    /** Provides the maintained per-domain pseudonym counts. */
+    @Autowired
+    private DomainStatisticsService domainStatistics;
+
     /**
      * Method to create a new domain. Creates the record inside the
      * domain table.
@@ -999,6 +1005,39 @@ public class DomainRESTController {
         return responseService.ok(responseContentType, tree);
     }
 
+    /**
+     * This method returns the statistics of a domain: the number of pseudonyms, the fill ratio
+     * relative to the desired size of randomness-based domains, and the growth per hour.
+     *
+     * @param domainName (required) the name of the domain
+     * @param exact (optional) whether the pseudonyms should be counted instead of using the maintained number
+     * @param responseContentType (optional) the response content type
+     * @return 	<li>a <b>200-OK</b> status and the <b>statistics</b> when the query was successful</li>
+     * 			<li>a <b>404-Not Found</b> status when the domain wasn't found</li>
+     * 			<li>a <b>422-Unprocessable Entity</b> status when the statistics couldn't be collected</li>
+     */
+    @GetMapping("/domains/{domainName}/statistics")
+    @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'domain:read')")
+    @Audit
+    public ResponseEntity<?> getDomainStatistics(@PathVariable("domainName") String domainName,
+    											 @RequestParam(name = "exact", required = false, defaultValue = "false") Boolean exact,
+    											 @RequestHeader(name = "accept", required = false) String responseContentType) {
+        Domain domain = domainDBAccessService.getDomainByName(domainName);
+        if (domain == null) {
+        	log.debug("The domain \"" + domainName + "\" was not found.");
+        	return responseService.notFound(responseContentType);
+        }
+
+        DomainStatisticsDTO statistics = domainStatistics.getStatistics(domain, Boolean.TRUE.equals(exact));
+        if (statistics == null) {
+        	log.debug("Collecting the statistics for domain \"" + domainName + "\" failed.");
+        	return responseService.unprocessableEntity(responseContentType);
+        }
+
+        log.trace("Successfully retrieved the statistics for domain \"" + domainName + "\".");
+        return responseService.ok(responseContentType, statistics);
+    }
+
     /**
      * This method returns all domains from the database in a list of trees with each domains children inlined.
      *
@@ -36,7 +36,6 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
-import org.trustdeck.algorithms.PseudonymizationFactory;
 import org.trustdeck.algorithms.Pseudonymizer;
 import org.trustdeck.dto.DomainDTO;
 import org.trustdeck.dto.EntityInstanceDTO;
@@ -55,8 +54,10 @@ import org.trustdeck.service.DomainDBAccessService;
 import org.trustdeck.service.EntityInstanceDBService;
 import org.trustdeck.service.EntityTypeDBService;
 import org.trustdeck.service.JsonSchemaService;
+import org.trustdeck.service.LinkedPseudonymService.BatchLinkageResult;
 import org.trustdeck.service.ProjectDBService;
 import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.service.PseudonymizerRegistryService;
 import org.trustdeck.service.RecordLinkageService;
 import org.trustdeck.service.ResponseService;
 import org.trustdeck.utils.Assertion;
@@ -101,6 +102,10 @@ public class EntityInstanceRESTController {
 	@Autowired
 	private PseudonymDBAccessService pdba;
 	
+	/** Provides the preconfigured pseudonymizers for the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
 	/** Enables access to the JSON schema validation functionalities. */
 	@Autowired
 	private JsonSchemaService jsonSchemaService;
@@ -225,9 +230,8 @@ public class EntityInstanceRESTController {
 				String idType = "TrustDeckID";
 				
 				// Generate a new pseudonym-value
-	            Pseudonymizer pseudonymizer = new PseudonymizationFactory().getPseudonymizer(domain);
-	            String rawPseudonym = pseudonymizer.pseudonymize(identifier + idType + domain.getSalt(), domain.getPrefix());
-	            String psn = domain.getAddcheckdigit() ? pseudonymizer.addCheckDigit(rawPseudonym, domain.getLengthincludescheckdigit(), domain.getName(), domain.getPrefix()) : rawPseudonym;
+	            Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+	            String psn = pseudonymizer == null ? null : pseudonymizer.pseudonymize(identifier, idType, domain.getPrefix());
 				
 				// Build pseudonym object
 	            IdentifierItem idItem = IdentifierItem.builder().identifier(identifier).idType(idType).build();
@@ -241,7 +245,7 @@ public class EntityInstanceRESTController {
 	            p.setDomainName(domain.getName());
 				
 	            // Sent to database
-				String result = pdba.createPseudonyms(List.of(p), domain.getId(), false).getFirst();
+				String result = pdba.createPseudonyms(List.of(p), domain.getId(), false, Pseudonymizer.isCollisionFree(domain.getAlgorithm())).getFirst();
 				
 				// Evaluate creation result
 				if (!result.equals(PseudonymDBAccessService.INSERTION_SUCCESS)) {
@@ -584,7 +588,8 @@ public class EntityInstanceRESTController {
 	 * @return <li>a <b>200-OK</b> status with the list of linked pseudonyms on 
 	 * 		   success</li>
      *         <li>a <b>206-PARTIAL_CONTENT</b> status with a truncated result set when 
-     *         more than the maximum number of allowed resulting pseudonyms were found</li>
+     *         more than the maximum number of allowed resulting pseudonyms were found, or when 
+     *         the search for the linked pseudonyms in a sub-domain visited too many records</li>
      *         <li>a <b>403-FORBIDDEN</b> status when the rights to read or link 
      *         pseudonyms in any of the involved domains is missing</li>
      *         <li>a <b>404-NOT_FOUND</b> status when the project, the entity type, or  
@@ -593,6 +598,8 @@ public class EntityInstanceRESTController {
      *         is marked as deprecated, or the entity instance is marked as deleted</li>
      *         <li>a <b>422-UNPROCESSABLE_ENTITY</b> status when there was no domain 
      *         associated with the entity type</li>
+     *         <li>a <b>500-INTERNAL_SERVER_ERROR</b> status when the linked pseudonyms 
+     *         in a sub-domain couldn't be searched</li>
 	 */
 	@GetMapping("/projects/{projectAbbreviation}/entities/{entityTypeName}/{trustDeckId}/pseudonyms")
 	@PreAuthorize("isAuthenticated() and @auth.hasProjectPermission(#root, #projectAbbreviation, 'instance:list-pseudonyms')")
@@ -655,26 +662,36 @@ public class EntityInstanceRESTController {
 		
 		// For every domain in the subtree, find the pseudonyms linked by psn-id-connection in it
 		List<Pair<PseudonymDTO, PseudonymDTO>> linkedPseudonyms = new ArrayList<>();
-		for (DomainDTO d : tree) {
-			if (d.getName().equalsIgnoreCase(domain)) {
-				// Ignore the already processed domain
-				continue;
-			}
-			
-			// Check permissions
-			if (!authorizationService.hasDomainPermission(domain, "pseudonym:link")
-					|| !authorizationService.hasDomainPermission(d.getName(), "pseudonym:read")
-					|| !authorizationService.hasDomainPermission(d.getName(), "pseudonym:link")) {
-				log.debug("Read or link access to the domains involved in searching linked pseudonyms was forbidden.");
-				return responseService.forbidden(responseContentType);
-			}
-			
-			// Get secondary pseudonyms for every pseudonym in the "root"-domain
-			for (PseudonymDTO p : pseudonyms) {
-				List<Pair<PseudonymDTO, PseudonymDTO>> linked = ddba.getLinkedPseudonyms(domain, p.getIdentifierItem().getIdentifier(),
-						p.getIdentifierItem().getIdType(), p.getPsn(), d.getName());
+		boolean truncated = false;
+		if (pseudonyms != null && !pseudonyms.isEmpty()) {
+			for (DomainDTO d : tree) {
+				if (d.getName().equalsIgnoreCase(domain)) {
+					// Ignore the already processed domain
+					continue;
+				}
+				
+				// Check permissions (once per domain)
+				if (!authorizationService.hasDomainPermission(domain, "pseudonym:link")
+						|| !authorizationService.hasDomainPermission(d.getName(), "pseudonym:read")
+						|| !authorizationService.hasDomainPermission(d.getName(), "pseudonym:link")) {
+					log.debug("Read or link access to the domains involved in searching linked pseudonyms was forbidden.");
+					return responseService.forbidden(responseContentType);
+				}
+				
+				// Get secondary pseudonyms for all pseudonyms in the "root"-domain at once
+				BatchLinkageResult linkage = ddba.linkPseudonymBatch(domain, pseudonyms, d.getName());
+				if (linkage == null) {
+					log.error("Searching the pseudonyms linked to the entity instance in the domain \"" + d.getName() + "\" failed.");
+					return responseService.internalServerError(responseContentType);
+				} else if (linkage.limitExceeded()) {
+					// The linked pseudonyms of this domain are missing from the result
+					log.debug("Too many records were visited while linking the pseudonyms in the domain \"" + d.getName() 
+							+ "\" (per hop: " + linkage.hopCardinalities() + "), so the result list is truncated.");
+					truncated = true;
+					continue;
+				}
 				
-				if (linked != null && !linked.isEmpty()) {
+				for (List<Pair<PseudonymDTO, PseudonymDTO>> linked : ddba.toPseudonymDTOPairs(linkage, domain, d.getName())) {
 					linkedPseudonyms.addAll(linked);
 				}
 			}
@@ -691,6 +708,8 @@ public class EntityInstanceRESTController {
 			log.debug("Successfully retrieved more than " + MAX_NUMBER_OF_SEARCH_RESULTS + " pseudonyms "
 					+ "for the given entity instance, so the result list was truncated.");
 			return responseService.partialContent(responseContentType, pseudonyms.subList(0, MAX_NUMBER_OF_SEARCH_RESULTS));
+		} else if (truncated) {
+			return responseService.partialContent(responseContentType, pseudonyms);
 		}
 		
 		log.debug("Successfully retrieved the pseudonyms connected to an entity instance.");
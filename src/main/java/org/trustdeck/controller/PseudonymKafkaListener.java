@@ -238,7 +238,8 @@ public class PseudonymKafkaListener {
         dto.setPsn(pseudonym);
         
         // Insert the pseudonym into the database
-        String result = pdba.createPseudonyms(List.of(dto), domain.getId(), domain.getMultiplepsnallowed()).getFirst();
+        String result = pdba.createPseudonyms(List.of(dto), domain.getId(), domain.getMultiplepsnallowed(), 
+        		Pseudonymizer.isCollisionFree(domain.getAlgorithm())).getFirst();
 		
         // If a random algorithm is used, check if we generated a duplicate. If so, retry.
         if (domain.getAlgorithm().toUpperCase().startsWith("RANDOM")) {
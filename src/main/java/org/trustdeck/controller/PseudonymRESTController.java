@@ -17,6 +17,9 @@
 
 package org.trustdeck.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -25,33 +28,49 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.trustdeck.algorithms.LuhnCheckDigit;
-import org.trustdeck.algorithms.LuhnMod10CheckDigit;
-import org.trustdeck.algorithms.LuhnMod16CheckDigit;
-import org.trustdeck.algorithms.LuhnMod26CheckDigit;
-import org.trustdeck.algorithms.LuhnMod32CheckDigit;
-import org.trustdeck.algorithms.LuhnMod36CheckDigit;
-import org.trustdeck.algorithms.PseudonymizationFactory;
 import org.trustdeck.algorithms.Pseudonymizer;
 import org.trustdeck.algorithms.RandomNumberPseudonymizer;
+import org.trustdeck.dto.DomainDTO;
+import org.trustdeck.dto.LinkedPseudonymsDTO;
 import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.dto.PseudonymLookupDTO;
 import org.trustdeck.dto.PseudonymUpdateDTO;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
 import org.trustdeck.model.IdentifierItem;
 import org.trustdeck.security.audittrail.annotation.Audit;
 import org.trustdeck.service.AuthorizationService;
 import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.DomainStatisticsService;
+import org.trustdeck.service.LinkedPseudonymService.BatchLinkageResult;
+import org.trustdeck.service.LinkedPseudonymService.LinkageResult;
 import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.service.PseudonymDBAccessService.PseudonymSearchPage;
+import org.trustdeck.service.PseudonymDBAccessService.ResolvedPseudonym;
+import org.trustdeck.service.PseudonymDBAccessService.SearchCursor;
+import org.trustdeck.service.PseudonymPoolService;
+import org.trustdeck.service.PseudonymizerRegistryService;
 import org.trustdeck.service.ResponseService;
 import org.trustdeck.utils.Assertion;
+import org.trustdeck.utils.SpringBeanLocator;
 import org.trustdeck.utils.Utility;
 import org.trustdeck.utils.Utility.Pair;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class represents a REST-API controller encapsulating the requests for pseudonyms.
@@ -81,13 +100,47 @@ public class PseudonymRESTController {
     @Autowired
     private AuthorizationService authorizationService;
 
+    /** Provides the preconfigured pseudonymizers for the domains. */
+    @Autowired
+    private PseudonymizerRegistryService pseudonymizerRegistry;
+
+    /** Provides pre-generated pseudonyms for domains using randomness-based algorithms. */
+    @Autowired
+    private PseudonymPoolService pseudonymPool;
+
+    /** Provides the maintained number of pseudonyms per domain. */
+    @Autowired
+    private DomainStatisticsService domainStatistics;
+
+    /** Serializes the pseudonyms of exports. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /** The default maximum allowed batch size. */
     private static final int DEFAULT_PSEUDONYM_BATCH_LENGTH = 50000;
 
+    /** The default number of pseudonyms per page when retrieving the pseudonyms of a domain page by page. */
+    private static final int DEFAULT_PSEUDONYM_PAGE_SIZE = 1000;
+
+    /** The number of records fetched from the database at once during an export. */
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    /** The export format with one JSON object per line. */
+    private static final String EXPORT_FORMAT_NDJSON = "ndjson";
+
+    /** The export format with comma-separated values. */
+    private static final String EXPORT_FORMAT_CSV = "csv";
+
+    /** The media type of exports with one JSON object per line. */
+    private static final String EXPORT_MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    /** The media type of exports with comma-separated values. */
+    private static final String EXPORT_MEDIA_TYPE_CSV = "text/csv";
+
     /** The default for regenerating the pseudonym on updates that affect the identifierItem or the domain. */
     private static final boolean DEFAULT_REGENERATE_PSEUDONYM = true;
     
-    /** The default maximum number of pseudonyms found by searching the DB that are returned to the user. */
+    /** The default maximum number of pseudonyms found by searching the DB that are returned to the user per page. */
     private static final int MAX_NUMBER_OF_SEARCH_RESULTS = 30;
 	
     /**
@@ -111,7 +164,8 @@ public class PseudonymRESTController {
 		Double k = Math.pow(10.0d, (double) domain.getPseudonymlength());
 		Double n = k * Math.pow((1.0d - T), (1.0d / (double) Pseudonymizer.DEFAULT_NUMBER_OF_RETRIES));
 		
-		Integer existingPseudonyms = domainDBAccessService.getAmountOfPseudonymsInDomain(domain.getName());
+		// The maintained number of pseudonyms is sufficient for this estimation
+		Long existingPseudonyms = domainStatistics.getPseudonymCount(domain.getId(), false);
 		existingPseudonyms = existingPseudonyms == null ? 0 : existingPseudonyms; // Ignore unsuccessful database retrieval
 		
 		if (existingPseudonyms > n) {
@@ -173,8 +227,30 @@ public class PseudonymRESTController {
             return responseService.unprocessableEntity(responseContentType);
         }
 
+        // Resolve the domain's pseudonymizer once for the whole batch
+        Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+        String prefix = (omitPrefix != null && omitPrefix) ? "" : domain.getPrefix(); // Omitting the prefix here shouldn't be the norm
+
+        // Pseudonymize all identifiers that come without a pseudonym in one pass
+        List<String> inputs = new ArrayList<>();
+        for (PseudonymDTO pseudonymDTO : pseudonymDtoList) {
+            if (pseudonymDTO.getPsn() == null || pseudonymDTO.getPsn().trim().equals("")) {
+                IdentifierItem idItem = pseudonymDTO.getIdentifierItem();
+                inputs.add(pseudonymizer == null ? null : pseudonymizer.saltIdentifier(idItem.getIdentifier(), idItem.getIdType()));
+            }
+        }
+        // Take pre-generated pseudonyms from the domain's pool first (if pooling is enabled for it)
+        List<String> pooledPseudonyms = (omitPrefix == null || !omitPrefix) ? pseudonymPool.take(domain, inputs.size()) : List.of();
+        List<String> generatedPseudonyms = new ArrayList<>(inputs.size());
+        generatedPseudonyms.addAll(pooledPseudonyms);
+        List<String> remainingInputs = inputs.subList(generatedPseudonyms.size(), inputs.size());
+        generatedPseudonyms.addAll((pseudonymizer == null) ? Collections.nCopies(remainingInputs.size(), null) : pseudonymizer.pseudonymizeAll(remainingInputs, prefix));
+        int generatedIndex = 0;
+
         // Transform the user-given inputs into a list of pseudonym objects.
         List<PseudonymDTO> pseudonyms = new ArrayList<>();
+        List<Integer> generatedIndices = new ArrayList<>();
+        Map<Integer, String> pooledIndices = new HashMap<>();
         for (PseudonymDTO pseudonymDTO : pseudonymDtoList) {
             // Start creating the pseudonym
             PseudonymDTO p = new PseudonymDTO();
@@ -192,94 +268,105 @@ public class PseudonymRESTController {
                     pseudonym = psn.startsWith(domain.getPrefix()) ? psn : domain.getPrefix() + psn;
                 }
             } else {
-                // Generate a new pseudonym
-                String prefix = (omitPrefix != null && omitPrefix) ? "" : domain.getPrefix(); // Omitting the prefix here shouldn't be the norm
-                Pseudonymizer pseudonymizer = new PseudonymizationFactory().getPseudonymizer(domain);
-                pseudonym = pseudonymizer.pseudonymize(pseudonymDTO.getIdentifierItem().getIdentifier() + pseudonymDTO.getIdentifierItem().getIdType() + domain.getSalt(), prefix);
-                pseudonym = domain.getAddcheckdigit() ? pseudonymizer.addCheckDigit(pseudonym, domain.getLengthincludescheckdigit(), domain.getName(), prefix) : pseudonym;
+                // Use the newly generated pseudonym
+                boolean pooled = generatedIndex < pooledPseudonyms.size();
+                pseudonym = generatedPseudonyms.get(generatedIndex++);
 
-                if (domain.getAlgorithm().toUpperCase().startsWith("RANDOM") && pseudonym.equals(RandomNumberPseudonymizer.DOMAIN_FULL)) {
+                if (domain.getAlgorithm().toUpperCase().startsWith("RANDOM") && RandomNumberPseudonymizer.DOMAIN_FULL.equals(pseudonym)) {
                 	// Pseudonymization failed due to too many collisions. The domain reached it's filling point (~49%) 
                 	// at which the probability to generate a previously unseen pseudonym in 25 tries is no longer greater
                 	// than 99.999998%.
                 	log.warn("Couldn't generate a new pseudonym due to too many pseudonyms being already in the database. ");
+                	pseudonymPool.giveBack(domain, pooledPseudonyms);
                 	return responseService.insufficientStorage(responseContentType);
                 } else if (pseudonym == null && domain.getAlgorithm().toUpperCase().startsWith("RANDOM")) {
                 	// Pseudonymization failed: probably no non-colliding pseudonym was found.
                 	log.warn("Pseudonymization failed for identifier \"" + pseudonymDTO.getIdentifierItem().getIdentifier() + "\" and idType \"" + pseudonymDTO.getIdentifierItem().getIdType() + "\". "
                 			+ "Probably due to collisions with other pseudonyms. Try a greater pseudonym-length.");
+                	pseudonymPool.giveBack(domain, pooledPseudonyms);
                 	return responseService.unprocessableEntity(responseContentType);
             	} else if (pseudonym == null) {
                     // Pseudonymization failed. Return a 500-INTERNAL_SERVER_ERROR.
                     log.error("Pseudonymization failed for identifier \"" + pseudonymDTO.getIdentifierItem().getIdentifier() + "\" and idType \"" + pseudonymDTO.getIdentifierItem().getIdType() + "\".");
+                    pseudonymPool.giveBack(domain, pooledPseudonyms);
                     return responseService.internalServerError(responseContentType);
                 }
-            }
-            p.setPsn(pseudonym);
 
-            // Determine validFrom date if (not) given by the user
-            if (pseudonymDTO.getValidFrom() != null) {
-                if (domain.getEnforcestartdatevalidity()) {
-                    // Ensure that the given start date isn't before the start date of the domain
-                    p.setValidFrom(pseudonymDTO.getValidFrom().isAfter(domain.getValidfrom()) ? pseudonymDTO.getValidFrom() : domain.getValidfrom());
-                    p.setValidFromInherited(!pseudonymDTO.getValidFrom().isAfter(domain.getValidfrom()));
-                } else {
-                    p.setValidFrom(pseudonymDTO.getValidFrom());
-                    p.setValidFromInherited(false);
+                if (pooled) {
+                	pooledIndices.put(pseudonyms.size(), pseudonym);
                 }
-            } else {
-                // Nothing given by the user. Use domain information.
-            	// If no start and end date is given, ensure that the used start date plus a given validityTime results in a 
-            	// validity period that has not already ended (e.g. domain.start is 2 weeks ago, validityTime is 1 week 
-            	// --> the calculated period would be in the past) 
-            	if (pseudonymDTO.getValidTo() == null && pseudonymDTO.getValidityTime() != null 
-            			&& Utility.plusValidityTime(domain.getValidfrom(), pseudonymDTO.getValidityTime()).isBefore(LocalDateTime.now())
-            			&& LocalDateTime.now().isBefore(domain.getValidto())) {
-            		log.debug("Using the domain validFrom-date plus the given validity time would result in an expired pseudonym. Using now() for the start instead.");
-            		
-            		p.setValidFrom(LocalDateTime.now());
-            		p.setValidFromInherited(false);
-            	}
-            	
-                p.setValidFrom(domain.getValidfrom());
-                p.setValidFromInherited(true);
+                generatedIndices.add(pseudonyms.size());
             }
+            p.setPsn(pseudonym);
 
-            // Determine validTo date if (not) given by the user
-            if (pseudonymDTO.getValidTo() != null) {
-                // End date of validity period is given
-                if (domain.getEnforceenddatevalidity()) {
-                    // Ensure that the given end date isn't after the end date of the domain
-                    p.setValidTo((pseudonymDTO.getValidTo().isBefore(domain.getValidto())) ? pseudonymDTO.getValidTo() : domain.getValidto());
-                    p.setValidToInherited(!pseudonymDTO.getValidTo().isBefore(domain.getValidto()));
-                } else {
-                    p.setValidTo(pseudonymDTO.getValidTo());
-                    p.setValidToInherited(false);
-                }
-            } else if (pseudonymDTO.getValidTo() == null && pseudonymDTO.getValidityTime() != null) {
-                // A validity period was given
-                String vTime = pseudonymDTO.getValidityTime();
-
-                if (domain.getEnforceenddatevalidity()) {
-                    // Ensure that the given validity period ends before the end date of the domain
-                    p.setValidTo((Utility.plusValidityTime(p.getValidFrom(), vTime).isBefore(domain.getValidto())) ? Utility.plusValidityTime(p.getValidFrom(), vTime) : domain.getValidto());
-                    p.setValidToInherited(!Utility.plusValidityTime(p.getValidFrom(), vTime).isBefore(domain.getValidto()));
-                } else {
-                    p.setValidTo(Utility.plusValidityTime(p.getValidFrom(), vTime));
-                    p.setValidToInherited(false);
-                }
-            } else {
-                // Nothing was given: use date from domain
-                p.setValidTo(domain.getValidto());
-                p.setValidToInherited(true);
-            }
+            // Determine the validity period from the user's input and the domain
+            assignValidityPeriod(p, pseudonymDTO, domain);
 
             // Add the newly created pseudonym to the list
             pseudonyms.add(p);
         }
 
         // Insert the list of pseudonyms in one batch
-        List<String> result = pseudonymDBAccessService.createPseudonyms(pseudonyms, domain.getId(), domain.getMultiplepsnallowed());
+        List<String> result = pseudonymDBAccessService.createPseudonyms(pseudonyms, domain.getId(), domain.getMultiplepsnallowed(), 
+        		Pseudonymizer.isCollisionFree(domain.getAlgorithm()));
+        
+        // If a random algorithm is used, generated pseudonyms can still collide with pseudonyms that were stored 
+        // concurrently (e.g. by another node). The insertion detected these collisions, so regenerate and retry them.
+        if (result != null && pseudonymizer != null && domain.getAlgorithm().toUpperCase().startsWith("RANDOM")) {
+        	result = new ArrayList<>(result);
+        	for (int i = 1; i < Pseudonymizer.DEFAULT_NUMBER_OF_RETRIES; i++) {
+        		List<Integer> colliding = new ArrayList<>();
+        		for (int index : generatedIndices) {
+        			if (PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM.equals(result.get(index))) {
+        				colliding.add(index);
+        			}
+        		}
+        		
+        		if (colliding.isEmpty()) {
+        			break;
+        		}
+        		
+        		// Check the domain's filling rate and regenerate the colliding pseudonyms
+        		checkDomainFillingRate(domain);
+        		List<String> regenerated = pseudonymizer.pseudonymizeAll(Collections.nCopies(colliding.size(), ""), prefix);
+        		List<Integer> retryIndices = new ArrayList<>(colliding.size());
+        		List<PseudonymDTO> retry = new ArrayList<>(colliding.size());
+        		for (int k = 0; k < colliding.size(); k++) {
+        			String pseudonym = regenerated.get(k);
+        			if (pseudonym != null && !RandomNumberPseudonymizer.DOMAIN_FULL.equals(pseudonym)) {
+        				PseudonymDTO p = pseudonyms.get(colliding.get(k));
+        				p.setPsn(pseudonym);
+        				retryIndices.add(colliding.get(k));
+        				retry.add(p);
+        			}
+        		}
+        		
+        		List<String> retryResult = retry.isEmpty() ? null : pseudonymDBAccessService.createPseudonyms(retry, domain.getId(), domain.getMultiplepsnallowed());
+        		if (retryResult == null) {
+        			break;
+        		}
+        		for (int k = 0; k < retryIndices.size(); k++) {
+        			result.set(retryIndices.get(k), retryResult.get(k));
+        		}
+        	}
+        }
+        
+        // Put pooled pseudonyms that weren't stored back into the pool. Only values of skipped identifiers are 
+        // unused, colliding values are in use by now. If the insertion failed, nothing was stored at all.
+        List<String> unusedPooled = new ArrayList<>();
+        for (Map.Entry<Integer, String> pooled : pooledIndices.entrySet()) {
+        	boolean skipped = result != null && PseudonymDBAccessService.INSERTION_DUPLICATE_IDENTIFIER.equals(result.get(pooled.getKey()));
+        	if (result == null || (skipped && pooled.getValue().equals(pseudonyms.get(pooled.getKey()).getPsn()))) {
+        		unusedPooled.add(pooled.getValue());
+        	}
+        }
+        pseudonymPool.giveBack(domain, unusedPooled);
+        
+        if (result == null) {
+            // The insertion failed. Return an error 422-UNPROCESSABLE_ENTITY.
+            log.error("Insertion of a batch of pseudonyms failed.");
+            return responseService.unprocessableEntity(responseContentType);
+        }
 
         // Evaluate the result
         List<PseudonymDTO> pseudonymDTOs = new ArrayList<>();
@@ -481,7 +568,8 @@ public class PseudonymRESTController {
         p.setPsn(pseudonym);
         
         // Insert the pseudonym into the database
-        String result = pseudonymDBAccessService.createPseudonyms(List.of(p), domain.getId(), domain.getMultiplepsnallowed()).getFirst();
+        String result = pseudonymDBAccessService.createPseudonyms(List.of(p), domain.getId(), domain.getMultiplepsnallowed(), 
+        		Pseudonymizer.isCollisionFree(domain.getAlgorithm())).getFirst();
         
         // If a random algorithm is used, check if we generated a duplicate. If so, retry.
         if (domain.getAlgorithm().toUpperCase().startsWith("RANDOM")) {
@@ -700,6 +788,8 @@ public class PseudonymRESTController {
      * 				the rights to access the source and/or target domain</li>
      * 			<li>a <b>404-NOT_FOUND</b> when no linkable pseudonyms were found for the
      * 				given parameters</li>
+     * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> when the search was aborted because
+     * 				it visited too many records along the path</li>
      */
     @GetMapping(value = "/domains/linked-pseudonyms", params = {"sourceDomain", "targetDomain"})
     @PreAuthorize("isAuthenticated()"
@@ -716,13 +806,21 @@ public class PseudonymRESTController {
     										  	 @RequestHeader(name = "accept", required = false) String responseContentType) {
 
         // Try to find any pseudonyms that are connected in a pseudonym chain in the given domains
-    	List<Pair<PseudonymDTO, PseudonymDTO>> pseudonyms = domainDBAccessService.getLinkedPseudonyms(sourceDomain,
+    	LinkageResult linkage = domainDBAccessService.linkPseudonyms(sourceDomain,
                 Assertion.isNotNullOrEmpty(sourceIdentifier) ? sourceIdentifier : null,
                 Assertion.isNotNullOrEmpty(sourceIdType) ? sourceIdType : null,
                 Assertion.isNotNullOrEmpty(sourcePsn) ? sourcePsn : null,
                 targetDomain);
         
+        // Check if the search was aborted
+        if (linkage != null && linkage.limitExceeded()) {
+        	log.debug("Too many records were visited while linking the pseudonyms (per hop: " + linkage.hopCardinalities() + ").");
+        	return responseService.unprocessableEntity(responseContentType);
+        }
+        
         // Check if anything was found
+        List<Pair<PseudonymDTO, PseudonymDTO>> pseudonyms = (linkage == null) ? null 
+        		: domainDBAccessService.toPseudonymDTOPairs(linkage, sourceDomain, targetDomain);
         if (pseudonyms == null || pseudonyms.size() == 0) {
         	log.debug("No linkable pseudonyms were found.");
         	return responseService.notFound(responseContentType);
@@ -751,37 +849,119 @@ public class PseudonymRESTController {
         return responseService.ok(responseContentType, listOfPseudonymPairs);
     }
 
+    /**
+     * Method to search and link the pseudonyms of many source records along the pseudonym-chain 
+     * in the tree at once. The path between the domains is computed once and all chains are 
+     * resolved with a single query.
+     * 
+     * @param sourceDomain the starting domain for the search
+     * @param targetDomain the target domain for the search
+     * @param sources (required) the source records, each identified by an identifier &amp; idType or by a pseudonym
+     * @param responseContentType (optional) the response content type
+     * @return 	<li>a <b>200-OK</b> status and the <b>linked pseudonyms</b> of every source 
+     * 				record (in the order of the request; empty if nothing was linked)</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when an entry contains neither a complete
+     * 				identifier nor a pseudonym</li>
+     * 			<li>a <b>403-FORBIDDEN</b> when the requester does not have 
+     * 				the rights to access the source and/or target domain</li>
+     * 			<li>a <b>404-NOT_FOUND</b> when a domain or the path between them wasn't found</li>
+     * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> when the batch exceeds the maximum allowed 
+     * 				batch size or the search was aborted because it visited too many records</li>
+     */
+    @PostMapping(value = "/domains/linked-pseudonyms/batch", params = {"sourceDomain", "targetDomain"})
+    @PreAuthorize("isAuthenticated()"
+    		+ " and @auth.hasDomainPermission(#root, #sourceDomain, 'pseudonym:read')"
+    		+ " and @auth.hasDomainPermission(#root, #sourceDomain, 'pseudonym:link')"
+    		+ " and @auth.hasDomainPermission(#root, #targetDomain, 'pseudonym:read')"
+    		+ " and @auth.hasDomainPermission(#root, #targetDomain, 'pseudonym:link')")
+    @Audit
+    public ResponseEntity<?> getLinkedPseudonymBatch(@RequestParam(name = "sourceDomain", required = true) String sourceDomain,
+    												 @RequestParam(name = "targetDomain", required = true) String targetDomain,
+    												 @RequestBody List<PseudonymDTO> sources,
+    												 @RequestHeader(name = "accept", required = false) String responseContentType) {
+        // Check that the batch size isn't too big.
+        if (sources.size() > DEFAULT_PSEUDONYM_BATCH_LENGTH) {
+            // The batch size exceeded the limit. Return an error 422-UNPROCESSABLE_ENTITY.
+            log.error("The given list of objects is too big. The maximum allowed batch size is: " + DEFAULT_PSEUDONYM_BATCH_LENGTH);
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Every entry must name a source record
+        for (int i = 0; i < sources.size(); i++) {
+        	PseudonymDTO source = sources.get(i);
+        	boolean hasIdentifier = source != null && source.getIdentifierItem() != null && source.getIdentifierItem().isNotNullNorEmpty();
+        	if (source == null || (!hasIdentifier && Assertion.isNullOrEmpty(source.getPsn()))) {
+        		log.debug("The source record with batch-number " + (i + 1) + " contains neither an identifier nor a pseudonym.");
+        		return responseService.badRequest(responseContentType);
+        	}
+        }
+
+        // Find the pseudonyms that are connected in a pseudonym chain to each of the source records
+        BatchLinkageResult linkage = domainDBAccessService.linkPseudonymBatch(sourceDomain, sources, targetDomain);
+        if (linkage == null) {
+        	log.debug("The domains or the path between them couldn't be found.");
+        	return responseService.notFound(responseContentType);
+        } else if (linkage.limitExceeded()) {
+        	log.debug("Too many records were visited while linking the pseudonyms (per hop: " + linkage.hopCardinalities() + ").");
+        	return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Determine once whether or not a reduced standard view or a complete view is requested
+        boolean completeView = authorizationService.hasDomainPermission(sourceDomain, "complete-view")
+        		&& authorizationService.hasDomainPermission(targetDomain, "complete-view");
+
+        // Group the linked pseudonyms by source record, in the order of the request
+        List<List<Pair<PseudonymDTO, PseudonymDTO>>> pairLists = domainDBAccessService.toPseudonymDTOPairs(linkage, sourceDomain, targetDomain);
+        List<LinkedPseudonymsDTO> result = new ArrayList<>(sources.size());
+        for (int i = 0; i < sources.size(); i++) {
+        	List<List<PseudonymDTO>> listOfPseudonymPairs = new ArrayList<>();
+        	for (Pair<PseudonymDTO, PseudonymDTO> pair : pairLists.get(i)) {
+        		listOfPseudonymPairs.add(completeView ? List.of(pair.first(), pair.second()) 
+        				: List.of(pair.first().toReducedStandardView(), pair.second().toReducedStandardView()));
+        	}
+        	
+        	result.add(LinkedPseudonymsDTO.builder()
+        			.identifierItem(sources.get(i).getIdentifierItem())
+        			.psn(sources.get(i).getPsn())
+        			.linkedPseudonyms(listOfPseudonymPairs)
+        			.build());
+        }
+
+        log.debug("Successfully linked the pseudonyms of " + sources.size() + " source record" + (sources.size() == 1 ? "." : "s."));
+        return responseService.ok(responseContentType, result);
+    }
+
     /**
      * This method retrieves all pseudonyms stored in the given domain.
+     * When a cursor or a limit is given, the pseudonyms are returned in pages: the 
+     * cursor for the next page is passed in the {@code X-Next-Cursor} header and is 
+     * absent on the last page. Without them, the complete domain is returned as long 
+     * as it doesn't exceed the maximum batch size.
      *
      * @param domainName (required) the name of the domain the pseudonyms are in
+     * @param cursor (optional) the cursor returned with the previous page
+     * @param limit (optional) the maximum number of pseudonyms of the page
      * @param responseContentType (optional) the response content type
      * @return	<li>a <b>200-OK</b> status and the <b>list of pseudonyms</b>
      * 				when successful</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when the limit is not positive</li>
      * 			<li>a <b>404-NOT_FOUND</b> when the given domain wasn't
      * 				found</li>
      * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> status when the
-     * 				pseudonyms could not be retrieved</li>
+     * 				pseudonyms could not be retrieved or the domain exceeds
+     * 				the maximum batch size</li>
      */
     @GetMapping("/domains/{domainName}/pseudonyms/batch")
     @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'pseudonym:read-batch')")
     @Audit
     public ResponseEntity<?> getPseudonymBatch(@PathVariable("domainName") String domainName,
+                                               @RequestParam(name = "cursor", required = false) Long cursor,
+                                               @RequestParam(name = "limit", required = false) Integer limit,
                                                @RequestHeader(name = "accept", required = false) String responseContentType) {
-        // Check that the batch size isn't too big.
-        Integer count = domainDBAccessService.getAmountOfPseudonymsInDomain(domainName);
-        if (count == null) {
-            // An error during accessing the domain occurred. Maybe the domain is not in the database.
-            log.error("Couldn't count the number of pseudonyms in the domain \"" + domainName + "\".");
-            return responseService.unprocessableEntity(responseContentType);
-        } else if (count == DomainDBAccessService.DOMAIN_NOT_FOUND) {
-            // The domain wasn't found. Return an error 404-NOT_FOUND
-            log.error("Couldn't find the domain \"" + domainName + "\".");
-            return responseService.notFound(responseContentType);
-        } else if (count > DEFAULT_PSEUDONYM_BATCH_LENGTH) {
-            // The batch size exceeded the limit. Return an error 422-UNPROCESSABLE_ENTITY.
-            log.error("The domain contains too many entries. The maximum allowed batch size is: " + DEFAULT_PSEUDONYM_BATCH_LENGTH);
-            return responseService.unprocessableEntity(responseContentType);
+        if (limit != null && limit < 1) {
+            // The page size must be positive. Return an error 400-BAD_REQUEST.
+            log.debug("The requested page size (" + limit + ") is not positive.");
+            return responseService.badRequest(responseContentType);
         }
 
         // Retrieve the domain the pseudonyms belong to
@@ -792,26 +972,45 @@ public class PseudonymRESTController {
             return responseService.notFound(responseContentType);
         }
 
-        // Retrieve the pseudonyms
-        List<PseudonymDTO> pseudonyms = domainDBAccessService.getAllPseudonymsInDomain(domainName);
+        // Determine the size of the page; without cursor and limit the complete domain is requested
+        boolean paginated = cursor != null || limit != null;
+        int pageSize = paginated ? Math.min(limit != null ? limit : DEFAULT_PSEUDONYM_PAGE_SIZE, DEFAULT_PSEUDONYM_BATCH_LENGTH) : DEFAULT_PSEUDONYM_BATCH_LENGTH;
+
+        // Retrieve the pseudonyms (one more than needed to find out whether there are further ones)
+        List<Pseudonym> records = pseudonymDBAccessService.getPseudonymPage(d.getId(), cursor, pageSize + 1);
 
         // Check if anything was found
-        if (pseudonyms == null) {
+        if (records == null) {
             // Something went wrong
             log.error("Retrieving the pseudonyms in the domain \"" + domainName + "\" failed.");
             return responseService.unprocessableEntity(responseContentType);
-        } else if (pseudonyms.size() == 0) {
+        } else if (records.size() > pageSize && !paginated) {
+            // The batch size exceeded the limit. Return an error 422-UNPROCESSABLE_ENTITY.
+            log.error("The domain contains too many entries. The maximum allowed batch size is: " + DEFAULT_PSEUDONYM_BATCH_LENGTH);
+            return responseService.unprocessableEntity(responseContentType);
+        } else if (records.size() == 0) {
             // Nothing was found. Return a 200-OK status.
             log.debug("No pseudonyms were found.");
             return responseService.ok(responseContentType, Collections.emptyList());
         }
 
+        // Determine the cursor for the next page
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+        	records = records.subList(0, pageSize);
+        	nextCursor = String.valueOf(records.getLast().getId());
+        }
+
+        // Determine once whether or not a reduced standard view or a complete view is requested
+        boolean completeView = authorizationService.hasDomainPermission(domainName, "complete-view");
+        DomainDTO domain = new DomainDTO().assignPojoValues(d);
+
         // Transform result into the desired output format
         List<PseudonymDTO> resultAsJson = new ArrayList<>();
         List<String> resultAsString = new ArrayList<>();
-        for (PseudonymDTO p : pseudonyms) {
-        	// Determine whether or not a reduced standard view or a complete view is requested
-            if (!authorizationService.hasDomainPermission(domainName, "complete-view")) {
+        for (Pseudonym pseudonymRecord : records) {
+        	PseudonymDTO p = new PseudonymDTO().assignPojoValues(pseudonymRecord, domain);
+            if (!completeView) {
                 p = p.toReducedStandardView();
             }
 
@@ -824,13 +1023,141 @@ public class PseudonymRESTController {
         }
 
         // Return result
-        log.debug("Successfully retrieved all pseudonyms from domain \"" + domainName + "\".");
+        log.debug("Successfully retrieved " + records.size() + " pseudonyms from domain \"" + domainName + "\".");
 
         if (responseContentType != null && responseContentType.equals(MediaType.TEXT_PLAIN_VALUE)) {
-            return responseService.ok(responseContentType, resultAsString);
+            return responseService.ok(responseContentType, resultAsString, nextCursor);
         } else {
-            return responseService.ok(responseContentType, resultAsJson);
+            return responseService.ok(responseContentType, resultAsJson, nextCursor);
+        }
+    }
+
+    /**
+     * This method exports all pseudonyms stored in the given domain. The pseudonyms are 
+     * streamed directly from the database to the client, so that domains of any size 
+     * can be exported with a constant memory consumption.
+     *
+     * @param domainName (required) the name of the domain the pseudonyms are in
+     * @param format (optional) the format of the export: {@code ndjson} (default) or {@code csv}
+     * @param responseContentType (optional) the response content type (used for error responses)
+     * @return	<li>a <b>200-OK</b> status and the streamed pseudonyms
+     * 				when successful</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when the format is not supported</li>
+     * 			<li>a <b>404-NOT_FOUND</b> when the given domain wasn't
+     * 				found</li>
+     */
+    @GetMapping("/domains/{domainName}/pseudonyms/export")
+    @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'pseudonym:read-batch')")
+    @Audit
+    public ResponseEntity<StreamingResponseBody> exportPseudonyms(@PathVariable("domainName") String domainName,
+                                                                  @RequestParam(name = "format", required = false) String format,
+                                                                  @RequestHeader(name = "accept", required = false) String responseContentType) {
+        String exportFormat = (format == null) ? EXPORT_FORMAT_NDJSON : format.trim().toLowerCase();
+        if (!exportFormat.equals(EXPORT_FORMAT_NDJSON) && !exportFormat.equals(EXPORT_FORMAT_CSV)) {
+            // Unknown format. Return an error 400-BAD_REQUEST.
+            log.debug("The requested export format \"" + format + "\" is not supported.");
+            return responseService.streamed(responseService.badRequest(responseContentType));
         }
+        boolean csv = exportFormat.equals(EXPORT_FORMAT_CSV);
+
+        // Retrieve the domain the pseudonyms belong to
+        Domain d = domainDBAccessService.getDomainByName(domainName);
+        if (d == null) {
+            // The domain wasn't found; return a 404-NOT_FOUND
+            log.debug("The domain whose pseudonyms should be exported couldn't be found.");
+            return responseService.streamed(responseService.notFound(responseContentType));
+        }
+
+        // Determine once whether or not a reduced standard view or a complete view is requested
+        // (the streaming happens outside of the request's security context)
+        boolean completeView = authorizationService.hasDomainPermission(domainName, "complete-view");
+        DomainDTO domain = new DomainDTO().assignPojoValues(d);
+        ObjectWriter jsonWriter = objectMapper.writerFor(PseudonymDTO.class);
+
+        StreamingResponseBody body = out -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            if (csv) {
+                writer.write(toCsvHeader(completeView));
+            }
+
+            long exported = pseudonymDBAccessService.streamPseudonyms(d.getId(), EXPORT_FETCH_SIZE, pseudonymRecord -> {
+                PseudonymDTO p = new PseudonymDTO().assignPojoValues(pseudonymRecord, domain);
+                if (!completeView) {
+                    p = p.toReducedStandardView();
+                }
+
+                try {
+                    writer.write(csv ? toCsvLine(p, completeView) : jsonWriter.writeValueAsString(p) + "\n");
+                } catch (IOException e) {
+                    // E.g. the client closed the connection; aborts the database cursor
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.flush();
+
+            if (exported < 0) {
+                // The response is already committed, so the export can only be aborted
+                throw new IOException("The export of the domain \"" + domainName + "\" was aborted.");
+            }
+            log.debug("Successfully exported " + exported + " pseudonyms from domain \"" + domainName + "\".");
+        };
+
+        return responseService.stream(csv ? EXPORT_MEDIA_TYPE_CSV : EXPORT_MEDIA_TYPE_NDJSON, domainName + "." + exportFormat, body);
+    }
+
+    /**
+     * Creates the header line of a CSV export.
+     *
+     * @param completeView whether or not the complete view is exported
+     * @return the header line including the line break
+     */
+    private static String toCsvHeader(boolean completeView) {
+    	return "identifier,idType,psn,validFrom," + (completeView ? "validFromInherited," : "") 
+    			+ "validTo," + (completeView ? "validToInherited," : "") + "domainName\n";
+    }
+
+    /**
+     * Creates the line of a pseudonym in a CSV export.
+     *
+     * @param p the pseudonym
+     * @param completeView whether or not the complete view is exported
+     * @return the line including the line break
+     */
+    private static String toCsvLine(PseudonymDTO p, boolean completeView) {
+    	StringBuilder line = new StringBuilder();
+    	line.append(toCsvField(p.getIdentifierItem().getIdentifier())).append(',')
+    		.append(toCsvField(p.getIdentifierItem().getIdType())).append(',')
+    		.append(toCsvField(p.getPsn())).append(',')
+    		.append(toCsvField(p.getValidFrom())).append(',');
+    	if (completeView) {
+    		line.append(toCsvField(p.getValidFromInherited())).append(',');
+    	}
+    	line.append(toCsvField(p.getValidTo())).append(',');
+    	if (completeView) {
+    		line.append(toCsvField(p.getValidToInherited())).append(',');
+    	}
+    	
+    	return line.append(toCsvField(p.getDomainName())).append('\n').toString();
+    }
+
+    /**
+     * Formats a value as a CSV field. Fields containing separators, quotes, or 
+     * line breaks are quoted (RFC 4180); {@code null} results in an empty field.
+     *
+     * @param value the value
+     * @return the CSV field
+     */
+    private static String toCsvField(Object value) {
+    	if (value == null) {
+    		return "";
+    	}
+    	
+    	String s = value.toString();
+    	if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0 && s.indexOf('\r') < 0) {
+    		return s;
+    	}
+    	
+    	return "\"" + s.replace("\"", "\"\"") + "\"";
     }
 
     /**
@@ -930,6 +1257,412 @@ public class PseudonymRESTController {
         }
     }
     
+    /**
+     * This method looks up many pseudonyms at once. Every entry of the request is either an 
+     * identifier (id &amp; idType), a pseudonym, or both (then both have to match), just like 
+     * the single lookups. All entries are resolved with a single database query.
+     *
+     * @param domainName (required) the name of the domain the pseudonyms are in
+     * @param lookups (required) the identifiers and/or pseudonyms to look up
+     * @param responseContentType (optional) the response content type
+     * @return 	<li>a <b>200-OK</b> status and a <b>lookup result</b> for every entry
+     * 				(in the order of the request) that states whether or not a
+     * 				pseudonym was found and contains it if so</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when an entry contains neither an
+     * 				identifier nor a pseudonym</li>
+     * 			<li>a <b>404-NOT_FOUND</b> when the domain wasn't found</li>
+     * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> when the batch exceeds the
+     * 				maximum allowed batch size or the lookup failed</li>
+     */
+    @PostMapping("/domains/{domainName}/pseudonyms/lookup")
+    @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'pseudonym:read-batch')")
+    @Audit
+    public ResponseEntity<?> lookupPseudonymBatch(@PathVariable("domainName") String domainName,
+                                                  @RequestBody List<PseudonymDTO> lookups,
+                                                  @RequestHeader(name = "accept", required = false) String responseContentType) {
+        // Check that the batch size isn't too big.
+        if (lookups.size() > DEFAULT_PSEUDONYM_BATCH_LENGTH) {
+            // The batch size exceeded the limit. Return an error 422-UNPROCESSABLE_ENTITY.
+            log.error("The given list of objects is too big. The maximum allowed batch size is: " + DEFAULT_PSEUDONYM_BATCH_LENGTH);
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Every entry must name something to look up
+        for (int i = 0; i < lookups.size(); i++) {
+        	PseudonymDTO lookup = lookups.get(i);
+        	boolean hasIdentifier = lookup != null && lookup.getIdentifierItem() != null && lookup.getIdentifierItem().isNotNullNorEmpty();
+        	if (lookup == null || (!hasIdentifier && Assertion.isNullOrEmpty(lookup.getPsn()))) {
+        		log.debug("The lookup with batch-number " + (i + 1) + " contains neither an identifier nor a pseudonym.");
+        		return responseService.badRequest(responseContentType);
+        	}
+        }
+
+        // Retrieve the domain the pseudonyms belong to
+        Domain d = domainDBAccessService.getDomainByName(domainName);
+        if (d == null) {
+            // The domain wasn't found; return a 404-NOT_FOUND
+            log.debug("The domain where the pseudonyms should be searched couldn't be found.");
+            return responseService.notFound(responseContentType);
+        }
+
+        // Resolve all lookups at once
+        List<Pseudonym> records = pseudonymDBAccessService.lookupPseudonyms(d.getId(), lookups);
+        if (records == null) {
+            log.error("Looking up the pseudonyms in the domain \"" + domainName + "\" failed.");
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Determine once whether or not a reduced standard view or a complete view is requested
+        boolean completeView = authorizationService.hasDomainPermission(domainName, "complete-view");
+        DomainDTO domain = new DomainDTO().assignPojoValues(d);
+        boolean plainText = responseContentType != null && responseContentType.equals(MediaType.TEXT_PLAIN_VALUE);
+
+        // Build one result per lookup, in the order of the request
+        List<PseudonymLookupDTO> resultAsJson = new ArrayList<>(lookups.size());
+        List<String> resultAsString = new ArrayList<>(lookups.size());
+        for (int i = 0; i < lookups.size(); i++) {
+        	PseudonymDTO lookup = lookups.get(i);
+        	Pseudonym pseudonymRecord = records.get(i);
+        	
+        	PseudonymDTO p = null;
+        	if (pseudonymRecord != null) {
+        		p = new PseudonymDTO().assignPojoValues(pseudonymRecord, domain);
+        		if (!completeView) {
+        			p = p.toReducedStandardView();
+        		}
+        	}
+        	
+        	if (plainText) {
+        		resultAsString.add(p != null ? p.toRepresentationString() : "not found");
+        	} else {
+        		resultAsJson.add(PseudonymLookupDTO.builder()
+        				.identifierItem(lookup.getIdentifierItem())
+        				.psn(lookup.getPsn())
+        				.found(p != null)
+        				.pseudonym(p)
+        				.build());
+        	}
+        }
+
+        log.debug("Successfully looked up " + lookups.size() + " pseudonym" + (lookups.size() == 1 ? "" : "s") + " in domain \"" + domainName + "\".");
+        return plainText ? responseService.ok(responseContentType, resultAsString) : responseService.ok(responseContentType, resultAsJson);
+    }
+    
+    /**
+     * This method resolves an identifier to its pseudonym and creates the pseudonym if it doesn't 
+     * exist yet (get-or-create). Repeating the request always returns the same pseudonym, even 
+     * when it is sent concurrently. When an external created pseudonym is given, it is stored 
+     * for identifiers that don't have a pseudonym yet.
+     *
+     * @param domainName (required) the name of the domain the pseudonym should be in
+     * @param omitPrefix (optional) determines whether or not the prefix should be added to the pseudonym
+     * @param pseudonymDTO (required) the identifier (and optionally the pseudonym and validity period)
+     * @param responseContentType (optional) the response content type
+     * @return	<li>a <b>200-OK</b> status and the <b>pseudonym-object</b> when it already existed</li>
+     * 			<li>a <b>201-CREATED</b> status and the <b>pseudonym-object</b> when it was created</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when no identifier was given</li>
+     * 			<li>a <b>404-NOT_FOUND</b> when the domain wasn't found</li>
+     * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> when the pseudonym couldn't be 
+     * 				created (e.g. due to an expired domain validity period)</li>
+     * 			<li>a <b>507-INSUFFICICENT_STORAGE</b> when the domain reached its 
+     * 				filling point and we therefore only generated collisions.</li>
+     */
+    @PutMapping("/domains/{domainName}/pseudonyms/resolve")
+    @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'pseudonym:create')")
+    @Audit
+    public ResponseEntity<?> resolvePseudonym(@PathVariable("domainName") String domainName,
+                                              @RequestParam(name = "omitPrefix", required = false, defaultValue = "false") Boolean omitPrefix,
+                                              @RequestBody PseudonymDTO pseudonymDTO,
+                                              @RequestHeader(name = "accept", required = false) String responseContentType) {
+        // Check that an identifier was given
+        if (pseudonymDTO == null || pseudonymDTO.getIdentifierItem() == null || !pseudonymDTO.getIdentifierItem().isNotNullNorEmpty()) {
+            log.debug("No identifier was given to resolve.");
+            return responseService.badRequest(responseContentType);
+        }
+
+        // Retrieve the domain the pseudonym belongs to
+        Domain domain = domainDBAccessService.getDomainByName(domainName);
+        if (domain == null) {
+            // The domain wasn't found; return a 404-NOT_FOUND
+            log.debug("The domain in which the pseudonym should be resolved couldn't be found.");
+            return responseService.notFound(responseContentType);
+        }
+
+        // Resolve (or create) the pseudonym
+        boolean[] domainFull = {false};
+        List<ResolvedPseudonym> resolved = resolvePseudonyms(domain, List.of(pseudonymDTO), omitPrefix, domainFull);
+        if (resolved == null || resolved.get(0) == null) {
+            if (domainFull[0]) {
+                log.warn("Couldn't generate a new pseudonym due to too many pseudonyms being already in the database. ");
+                return responseService.insufficientStorage(responseContentType);
+            }
+
+            log.error("Resolving the pseudonym in the domain \"" + domainName + "\" failed.");
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Determine whether or not a reduced standard view or a complete view is requested
+        PseudonymDTO p = new PseudonymDTO().assignPojoValues(resolved.get(0).pseudonym(), new DomainDTO().assignPojoValues(domain));
+        if (!authorizationService.hasDomainPermission(domainName, "complete-view")) {
+            p = p.toReducedStandardView();
+        }
+
+        // Process the DTO depending on the response`s media type
+        Object body = (responseContentType != null && responseContentType.equals(MediaType.TEXT_PLAIN_VALUE)) ? p.toRepresentationString() : p;
+        return resolved.get(0).created() ? responseService.created(responseContentType, body) : responseService.ok(responseContentType, body);
+    }
+
+    /**
+     * This method resolves identifiers to their pseudonyms in batches and creates the pseudonyms 
+     * that don't exist yet (get-or-create). Pseudonyms are only generated for identifiers that 
+     * don't have one yet; existing and created pseudonyms are returned in the order of the request.
+     *
+     * @param domainName (required) the name of the domain the pseudonyms should be in
+     * @param omitPrefix (optional) determines whether or not the prefix should be added to the pseudonyms
+     * @param pseudonymDtoList (required) the identifiers (and optionally the pseudonyms and validity periods)
+     * @param responseContentType (optional) the response content type
+     * @return	<li>a <b>200-OK</b> status and the list of <b>pseudonym-objects</b> when all of them already existed</li>
+     * 			<li>a <b>201-CREATED</b> status and the list of <b>pseudonym-objects</b> when at least one of them was created</li>
+     * 			<li>a <b>206-PARTIAL_CONTENT</b> status and the list of <b>pseudonym-objects</b> (with {@code null} 
+     * 				for the identifiers that couldn't be resolved) when not all identifiers could be resolved</li>
+     * 			<li>a <b>400-BAD_REQUEST</b> when an entry contains no identifier</li>
+     * 			<li>a <b>404-NOT_FOUND</b> when the domain wasn't found</li>
+     * 			<li>a <b>422-UNPROCESSABLE_ENTITY</b> when the batch exceeds the maximum allowed 
+     * 				batch size or nothing could be resolved</li>
+     * 			<li>a <b>507-INSUFFICICENT_STORAGE</b> when the domain reached its 
+     * 				filling point and we therefore only generated collisions.</li>
+     */
+    @PutMapping("/domains/{domainName}/pseudonyms/resolve/batch")
+    @PreAuthorize("isAuthenticated() and @auth.hasDomainPermission(#root, #domainName, 'pseudonym:create-batch')")
+    @Audit
+    public ResponseEntity<?> resolvePseudonymBatch(@PathVariable("domainName") String domainName,
+                                                   @RequestParam(name = "omitPrefix", required = false, defaultValue = "false") Boolean omitPrefix,
+                                                   @RequestBody List<PseudonymDTO> pseudonymDtoList,
+                                                   @RequestHeader(name = "accept", required = false) String responseContentType) {
+        // Check that the batch size isn't too big.
+        if (pseudonymDtoList.size() > DEFAULT_PSEUDONYM_BATCH_LENGTH) {
+            // The batch size exceeded the limit. Return an error 422-UNPROCESSABLE_ENTITY.
+            log.error("The given list of objects is too big. The maximum allowed batch size is: " + DEFAULT_PSEUDONYM_BATCH_LENGTH);
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Every entry must contain an identifier
+        for (int i = 0; i < pseudonymDtoList.size(); i++) {
+        	PseudonymDTO entry = pseudonymDtoList.get(i);
+        	if (entry == null || entry.getIdentifierItem() == null || !entry.getIdentifierItem().isNotNullNorEmpty()) {
+        		log.debug("The entry with batch-number " + (i + 1) + " contains no identifier.");
+        		return responseService.badRequest(responseContentType);
+        	}
+        }
+
+        // Retrieve the domain the pseudonyms belong to
+        Domain domain = domainDBAccessService.getDomainByName(domainName);
+        if (domain == null) {
+            // The domain wasn't found; return a 404-NOT_FOUND
+            log.debug("The domain in which the pseudonyms should be resolved couldn't be found.");
+            return responseService.notFound(responseContentType);
+        }
+
+        // Resolve (or create) all pseudonyms at once
+        boolean[] domainFull = {false};
+        List<ResolvedPseudonym> resolved = resolvePseudonyms(domain, pseudonymDtoList, omitPrefix, domainFull);
+        if (resolved == null) {
+            log.error("Resolving the batch of pseudonyms in the domain \"" + domainName + "\" failed.");
+            return responseService.unprocessableEntity(responseContentType);
+        }
+
+        // Determine once whether or not a reduced standard view or a complete view is requested
+        boolean completeView = authorizationService.hasDomainPermission(domainName, "complete-view");
+        DomainDTO domainDTO = new DomainDTO().assignPojoValues(domain);
+        boolean plainText = responseContentType != null && responseContentType.equals(MediaType.TEXT_PLAIN_VALUE);
+
+        // Build one result per entry, in the order of the request
+        List<PseudonymDTO> resultAsJson = new ArrayList<>(resolved.size());
+        List<String> resultAsString = new ArrayList<>(resolved.size());
+        int unresolved = 0;
+        boolean anyCreated = false;
+        for (ResolvedPseudonym r : resolved) {
+        	PseudonymDTO p = null;
+        	if (r != null) {
+        		anyCreated |= r.created();
+        		p = new PseudonymDTO().assignPojoValues(r.pseudonym(), domainDTO);
+        		if (!completeView) {
+        			p = p.toReducedStandardView();
+        		}
+        	} else {
+        		unresolved++;
+        	}
+        	
+        	if (plainText) {
+        		resultAsString.add(p != null ? p.toRepresentationString() : "not resolved");
+        	} else {
+        		resultAsJson.add(p);
+        	}
+        }
+        Object body = plainText ? resultAsString : resultAsJson;
+
+        // Decide which status code to use
+        if (unresolved == resolved.size()) {
+        	if (domainFull[0]) {
+        		log.warn("Couldn't generate new pseudonyms due to too many pseudonyms being already in the database. ");
+        		return responseService.insufficientStorage(responseContentType);
+        	}
+        	
+            // Nothing resolved. Return an error 422-UNPROCESSABLE_ENTITY.
+        	log.error("Resolution of a batch of pseudonyms failed.");
+        	return responseService.unprocessableEntity(responseContentType);
+        } else if (unresolved > 0) {
+        	log.debug("Successfully resolved " + (resolved.size() - unresolved) + " out of " + resolved.size() + " identifiers.");
+        	return responseService.partialContent(responseContentType, body);
+        }
+        
+        log.debug("Successfully resolved the batch of " + resolved.size() + " identifiers.");
+        return anyCreated ? responseService.created(responseContentType, body) : responseService.ok(responseContentType, body);
+    }
+
+    /**
+     * Helper method that resolves the given identifiers to their pseudonyms and creates the 
+     * missing ones. Pseudonyms are generated in one pass for all identifiers that have to be created.
+     *
+     * @param domain the domain the pseudonyms are in
+     * @param requested the identifiers (and optionally the pseudonyms and validity periods)
+     * @param omitPrefix determines whether or not the prefix should be added to the pseudonyms
+     * @param domainFull is set to {@code true} when a pseudonym couldn't be generated because the domain is full
+     * @return the resolved pseudonyms or {@code null} for each request (in the original order), 
+     * 			or {@code null} when an error occurred
+     */
+    private List<ResolvedPseudonym> resolvePseudonyms(Domain domain, List<PseudonymDTO> requested, Boolean omitPrefix, boolean[] domainFull) {
+        // Check if the domain still allows adding pseudonyms
+        if (domain.getValidto().isBefore(LocalDateTime.now())) {
+            // Expired validity period. No changes allowed.
+            log.debug("The validity period of the domain has already expired. No changes allowed.");
+            return null;
+        }
+
+        Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+        String prefix = (omitPrefix != null && omitPrefix) ? "" : domain.getPrefix(); // Omitting the prefix here shouldn't be the norm
+
+        // Only randomness-based algorithms generate a different pseudonym when retrying after a collision
+        int attempts = domain.getAlgorithm().toUpperCase().startsWith("RANDOM") ? Pseudonymizer.DEFAULT_NUMBER_OF_RETRIES : 1;
+
+        // Only called for the identifiers that don't have a pseudonym yet
+        return pseudonymDBAccessService.resolvePseudonyms(domain.getId(), requested, missing -> {
+            // Pseudonymize all identifiers that come without a pseudonym in one pass
+            List<String> inputs = new ArrayList<>();
+            for (PseudonymDTO pseudonymDTO : missing) {
+                if (Assertion.isNullOrEmpty(pseudonymDTO.getPsn())) {
+                    IdentifierItem idItem = pseudonymDTO.getIdentifierItem();
+                    inputs.add(pseudonymizer == null ? null : pseudonymizer.saltIdentifier(idItem.getIdentifier(), idItem.getIdType()));
+                }
+            }
+            List<String> generatedPseudonyms = new ArrayList<>(inputs.size());
+            if (omitPrefix == null || !omitPrefix) {
+            	generatedPseudonyms.addAll(pseudonymPool.take(domain, inputs.size()));
+            }
+            List<String> remainingInputs = inputs.subList(generatedPseudonyms.size(), inputs.size());
+            generatedPseudonyms.addAll((pseudonymizer == null) ? Collections.nCopies(remainingInputs.size(), null) : pseudonymizer.pseudonymizeAll(remainingInputs, prefix));
+            int generatedIndex = 0;
+
+            List<PseudonymDTO> prepared = new ArrayList<>(missing.size());
+            for (PseudonymDTO pseudonymDTO : missing) {
+                String pseudonym;
+                if (!Assertion.isNullOrEmpty(pseudonymDTO.getPsn())) {
+                    // A pseudonym was given --> store it instead of creating a new one
+                    String psn = pseudonymDTO.getPsn().trim();
+                    pseudonym = (omitPrefix != null && omitPrefix) || psn.startsWith(domain.getPrefix()) ? psn : domain.getPrefix() + psn;
+                } else {
+                    pseudonym = generatedPseudonyms.get(generatedIndex++);
+                    if (RandomNumberPseudonymizer.DOMAIN_FULL.equals(pseudonym)) {
+                        domainFull[0] = true;
+                        pseudonym = null;
+                    }
+                }
+
+                if (pseudonym == null) {
+                    log.warn("Pseudonymization failed for identifier \"" + pseudonymDTO.getIdentifierItem().getIdentifier() + "\" and idType \"" + pseudonymDTO.getIdentifierItem().getIdType() + "\".");
+                    prepared.add(null);
+                    continue;
+                }
+
+                PseudonymDTO p = new PseudonymDTO();
+                p.setIdentifierItem(pseudonymDTO.getIdentifierItem());
+                p.setDomainName(domain.getName());
+                p.setPsn(pseudonym);
+                assignValidityPeriod(p, pseudonymDTO, domain);
+                prepared.add(p);
+            }
+
+            return prepared;
+        }, attempts);
+    }
+    
+    /**
+     * Helper method that determines the validity period of a new pseudonym from the 
+     * user's input (start date, end date, validity time) and the domain's validity period.
+     * 
+     * @param p the pseudonym object that receives the validity period
+     * @param pseudonymDTO the user's input
+     * @param domain the domain the pseudonym is created in
+     */
+    private static void assignValidityPeriod(PseudonymDTO p, PseudonymDTO pseudonymDTO, Domain domain) {
+        // Determine validFrom date if (not) given by the user
+        if (pseudonymDTO.getValidFrom() != null) {
+            if (domain.getEnforcestartdatevalidity()) {
+                // Ensure that the given start date isn't before the start date of the domain
+                p.setValidFrom(pseudonymDTO.getValidFrom().isAfter(domain.getValidfrom()) ? pseudonymDTO.getValidFrom() : domain.getValidfrom());
+                p.setValidFromInherited(!pseudonymDTO.getValidFrom().isAfter(domain.getValidfrom()));
+            } else {
+                p.setValidFrom(pseudonymDTO.getValidFrom());
+                p.setValidFromInherited(false);
+            }
+        } else {
+            // Nothing given by the user. Use domain information.
+        	// If no start and end date is given, ensure that the used start date plus a given validityTime results in a 
+        	// validity period that has not already ended (e.g. domain.start is 2 weeks ago, validityTime is 1 week 
+        	// --> the calculated period would be in the past) 
+        	if (pseudonymDTO.getValidTo() == null && pseudonymDTO.getValidityTime() != null 
+        			&& Utility.plusValidityTime(domain.getValidfrom(), pseudonymDTO.getValidityTime()).isBefore(LocalDateTime.now())
+        			&& LocalDateTime.now().isBefore(domain.getValidto())) {
+        		log.debug("Using the domain validFrom-date plus the given validity time would result in an expired pseudonym. Using now() for the start instead.");
+        		
+        		p.setValidFrom(LocalDateTime.now());
+        		p.setValidFromInherited(false);
+        	}
+        	
+            p.setValidFrom(domain.getValidfrom());
+            p.setValidFromInherited(true);
+        }
+
+        // Determine validTo date if (not) given by the user
+        if (pseudonymDTO.getValidTo() != null) {
+            // End date of validity period is given
+            if (domain.getEnforceenddatevalidity()) {
+                // Ensure that the given end date isn't after the end date of the domain
+                p.setValidTo((pseudonymDTO.getValidTo().isBefore(domain.getValidto())) ? pseudonymDTO.getValidTo() : domain.getValidto());
+                p.setValidToInherited(!pseudonymDTO.getValidTo().isBefore(domain.getValidto()));
+            } else {
+                p.setValidTo(pseudonymDTO.getValidTo());
+                p.setValidToInherited(false);
+            }
+        } else if (pseudonymDTO.getValidTo() == null && pseudonymDTO.getValidityTime() != null) {
+            // A validity period was given
+            String vTime = pseudonymDTO.getValidityTime();
+
+            if (domain.getEnforceenddatevalidity()) {
+                // Ensure that the given validity period ends before the end date of the domain
+                p.setValidTo((Utility.plusValidityTime(p.getValidFrom(), vTime).isBefore(domain.getValidto())) ? Utility.plusValidityTime(p.getValidFrom(), vTime) : domain.getValidto());
+                p.setValidToInherited(!Utility.plusValidityTime(p.getValidFrom(), vTime).isBefore(domain.getValidto()));
+            } else {
+                p.setValidTo(Utility.plusValidityTime(p.getValidFrom(), vTime));
+                p.setValidToInherited(false);
+            }
+        } else {
+            // Nothing was given: use date from domain
+            p.setValidTo(domain.getValidto());
+            p.setValidToInherited(true);
+        }
+    }
+    
     /**
      * Method that encapsulates the pseudonym generation.
      * 
@@ -943,9 +1676,16 @@ public class PseudonymRESTController {
         // Generate a new pseudonym
         String prefix = (omitPrefix != null && omitPrefix) ? "" : domain.getPrefix();
         
-        Pseudonymizer pseudonymizer = new PseudonymizationFactory().getPseudonymizer(domain);
-        String pseudonym = pseudonymizer.pseudonymize(identifier + idType + domain.getSalt(), prefix);
-        return domain.getAddcheckdigit() ? pseudonymizer.addCheckDigit(pseudonym, domain.getLengthincludescheckdigit(), domain.getName(), prefix) : pseudonym;
+        // Use a pre-generated pseudonym if the domain has a pool
+        if (omitPrefix == null || !omitPrefix) {
+        	String pooled = SpringBeanLocator.getBean(PseudonymPoolService.class).poll(domain);
+        	if (pooled != null) {
+        		return pooled;
+        	}
+        }
+        
+        Pseudonymizer pseudonymizer = SpringBeanLocator.getBean(PseudonymizerRegistryService.class).getPseudonymizer(domain);
+        return pseudonymizer == null ? null : pseudonymizer.pseudonymize(identifier, idType, prefix);
     }
 
     /**
@@ -999,21 +1739,17 @@ public class PseudonymRESTController {
         	}
         }
 
-        // Update pseudonyms
-        List<Boolean> updateSuccess = pseudonymDBAccessService.updatePseudonyms(updateablePseudonyms);
-        if (updateSuccess != null && !updateSuccess.isEmpty()) {
+        // Update pseudonyms; the updated records are returned directly
+        List<PseudonymDTO> updateResults = pseudonymDBAccessService.updateAndRetrievePseudonyms(updateablePseudonyms);
+        if (updateResults != null && !updateResults.isEmpty()) {
         	// Success. Return a status code 200-OK and a list of the updated pseudonyms.
+        	boolean completeView = authorizationService.hasDomainPermission(domainName, "complete-view");
         	List<PseudonymDTO> updatedPseudonyms = new ArrayList<>();
-        	for (int i = 0; i < updateablePseudonyms.size(); i++) {
-        		if (updateSuccess.get(i) != null && updateSuccess.get(i)) {
-        			// Decide on which identifier item to use: the new one or the old one 
-        			IdentifierItem idItem = updateablePseudonyms.get(i).getNewIdentifierItem() != null ? updateablePseudonyms.get(i).getNewIdentifierItem() : updateablePseudonyms.get(i).getOldIdentifierItem();
-        			String psn = updateablePseudonyms.get(i).getNewPsn() != null ? updateablePseudonyms.get(i).getNewPsn() : updateablePseudonyms.get(i).getOldPsn();
-        			
-        			PseudonymDTO updatedPseudonym = pseudonymDBAccessService.getPseudonym(domainName, idItem, psn).getFirst();
-        			updatedPseudonyms.add(authorizationService.hasDomainPermission(domainName, "complete-view") ? updatedPseudonym : updatedPseudonym.toReducedStandardView());
+        	for (PseudonymDTO updatedPseudonym : updateResults) {
+        		if (updatedPseudonym != null) {
+        			updatedPseudonyms.add(completeView ? updatedPseudonym : updatedPseudonym.toReducedStandardView());
         			updated++;
-        		} else if (updateSuccess.get(i) != null && !updateSuccess.get(i)) {
+        		} else {
         			// An update failed
         			ignored++;
         		}
@@ -1371,45 +2107,8 @@ public class PseudonymRESTController {
     		return responseService.unprocessableEntity(responseContentType);
     	}
     	
-    	// Decide the character space for the check digit validation depending on the used pseudonymization algorithm
-		LuhnCheckDigit luhn;
-		
-		switch (d.getAlgorithm().toUpperCase()) {
-	        case "CONSECUTIVE":
-	        case "RANDOM":
-	        case "RANDOM_NUM": {
-	        	// Used alphabet: "0123456789"
-	        	luhn = new LuhnMod10CheckDigit();
-	        	break;
-	        }
-			case "MD5":
-	        case "SHA1":
-	        case "SHA2": 
-	        case "SHA3":
-	        case "BLAKE3":
-	        case "XXHASH": {
-	        	// Used alphabet: "0123456789ABCDEF"
-	        	luhn = new LuhnMod16CheckDigit();
-	        	break;
-	        }
-	        case "RANDOM_LET": {
-	        	// Used alphabet: "ABCDEFGHIJKLMNOPQRSTUVWXYZ"
-	        	luhn = new LuhnMod26CheckDigit();
-	        	break;
-	        }
-	        case "RANDOM_SYM_BIOS": {
-	        	// Used alphabet: "ACDEFGHJKLMNPQRTUVWXYZ0123456789"
-	        	luhn = new LuhnMod32CheckDigit();
-	        	break;
-	        }
-	        case "RANDOM_SYM": {
-	        	// Used alphabet: "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789"
-	        	luhn = new LuhnMod36CheckDigit();
-	        	break;
-	        }
-			default:
-				throw new IllegalArgumentException("Unexpected algorithm: " + d.getAlgorithm());
-		}
+    	// Use the same (shared) check digit engine that was used when the pseudonyms were generated
+		LuhnCheckDigit luhn = Pseudonymizer.resolveCheckDigitEngine(d.getAlgorithm().toUpperCase(), d.getAlphabet());
     	
 		// Perform validation
 		Boolean valid = luhn.validateCheckDigit(psn, d.getPrefix());
@@ -1424,15 +2123,21 @@ public class PseudonymRESTController {
     
     /**
 	 * Endpoint to search for pseudonyms.
-	 * Supports multi-word searches.
+	 * Supports multi-word searches. The results are ranked by their similarity to the query 
+	 * and are returned page by page. When there are further results, the cursor for the next 
+	 * page is passed in the {@code X-Next-Cursor} header.
 	 * 
 	 * @param domainName the name of the domain to which the request is scoped to
 	 * @param query the search string that should be looked up 
+	 * @param cursor (optional) the cursor returned with the previous page
+	 * @param limit (optional) the maximum number of results of the page
 	 * @param responseContentType (optional) the response content type
 	 * @return <li>a <b>200-OK</b> status with the list of matching pseudonyms on 
 	 * 		   success</li>
-     *         <li>a <b>206-PARTIAL_CONTENT</b> status with a truncated result set when 
-     *         more than the maximum number of allowed results were found</li>
+     *         <li>a <b>206-PARTIAL_CONTENT</b> status with the first results and the 
+     *         cursor for the next page when more results were found</li>
+     *         <li>a <b>400-BAD_REQUEST</b> status when the cursor is invalid or the 
+     *         limit is not positive</li>
      *         <li>a <b>404-NOT_FOUND</b> status when the domain cannot be found, or 
      *         when no pseudonyms match the query</li>
      *         <li>a <b>410-GONE</b> status when the request is not during the domain's 
@@ -1443,7 +2148,16 @@ public class PseudonymRESTController {
 	@Audit
 	public ResponseEntity<?> searchPseudonyms(@PathVariable("domainName") String domainName,
 											  @RequestParam(name = "query", required = true) String query,
+											  @RequestParam(name = "cursor", required = false) String cursor,
+											  @RequestParam(name = "limit", required = false) Integer limit,
 											  @RequestHeader(name = "accept", required = false) String responseContentType) {
+		// Check the paging parameters
+		SearchCursor after = SearchCursor.parse(cursor);
+		if ((cursor != null && after == null) || (limit != null && limit < 1)) {
+			log.debug("The cursor (" + cursor + ") or the page size (" + limit + ") of the search is invalid.");
+			return responseService.badRequest(responseContentType);
+		}
+		
 		// Check if the domain exists and is still active
         Domain domain = domainDBAccessService.getDomainByName(domainName);
         if (domain == null) {
@@ -1456,19 +2170,20 @@ public class PseudonymRESTController {
 			return responseService.gone(responseContentType);
 		}
 		
-		// Retrieve pseudonyms from the database
-		List<PseudonymDTO> pseudonyms = pseudonymDBAccessService.searchPseudonyms(query, domain.getId());
+		// Retrieve one page of pseudonyms from the database
+		int pageSize = Math.min(limit != null ? limit : MAX_NUMBER_OF_SEARCH_RESULTS, DEFAULT_PSEUDONYM_PAGE_SIZE);
+		PseudonymSearchPage page = pseudonymDBAccessService.searchPseudonyms(query, domain.getId(), after, pageSize);
 		
 		// Evaluate result
-		if (pseudonyms == null || pseudonyms.size() == 0) {
+		if (page == null || page.pseudonyms().size() == 0) {
 			log.debug("No pseudonyms for the given query string were found.");
 			return responseService.notFound(responseContentType);
-		} else if (pseudonyms.size() > MAX_NUMBER_OF_SEARCH_RESULTS) {
-			log.debug("Successfully queried the database and found more than " + MAX_NUMBER_OF_SEARCH_RESULTS + " pseudonyms, so the result list was truncated.");
-			return responseService.partialContent(responseContentType, pseudonyms.subList(0, MAX_NUMBER_OF_SEARCH_RESULTS));
+		} else if (page.nextCursor() != null) {
+			log.debug("Successfully queried the database and found more than " + pageSize + " pseudonyms, so only the first page is returned.");
+			return responseService.partialContent(responseContentType, page.pseudonyms(), page.nextCursor().toString());
 		} else {
-			log.debug("Successfully found " + pseudonyms.size() + " pseudonyms.");
-			return responseService.ok(responseContentType, pseudonyms);
+			log.debug("Successfully found " + page.pseudonyms().size() + " pseudonyms.");
+			return responseService.ok(responseContentType, page.pseudonyms());
 		}
 	}
 }
@@ -0,0 +1,61 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustdeck.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.context.annotation.Scope;
+import java.time.LocalDateTime;
+
+/**
+ * Data transfer object for the statistics of a domain.
+ *
+ * @author Armin Müller
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Scope("prototype")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DomainStatisticsDTO {
+	
+	/** The name of the domain. */
+	private String domainName;
+	
+	/** The number of pseudonyms in the domain. */
+	private Long pseudonymCount;
+	
+	/** Whether the pseudonyms were counted or the maintained number was used. */
+	private Boolean exact;
+	
+	/** The desired size of the domain (for randomness-based algorithms). */
+	private Long desiredSize;
+	
+	/** The ratio between the number of pseudonyms and the desired size of the domain. */
+	private Double fillRatio;
+	
+	/** The average number of pseudonyms added per hour since the reconciliation before the last one. */
+	private Double growthPerHour;
+	
+	/** The time the maintained number was last replaced by an exact count. */
+	private LocalDateTime reconciledAt;
+}
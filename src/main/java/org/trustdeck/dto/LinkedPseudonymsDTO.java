@@ -0,0 +1,54 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.dto;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.context.annotation.Scope;
+import org.trustdeck.model.IdentifierItem;
+
+/**
+ * Data transfer object for the linked pseudonyms of a single source record in a batch 
+ * search for linked pseudonyms. It repeats the source record as it was requested, so 
+ * that the results can be matched to the requests even without relying on their order.
+ *
+ * @author Armin Müller
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Scope("prototype")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class LinkedPseudonymsDTO {
+	
+	/** The identifier of the source record (if given). */
+	private IdentifierItem identifierItem;
+	
+	/** The pseudonym of the source record (if given). */
+	private String psn;
+	
+	/** The pairs of linked pseudonym-records (source record, linked record); empty if nothing was linked. */
+	private List<List<PseudonymDTO>> linkedPseudonyms;
+}
@@ -90,6 +90,17 @@ public class PseudonymDTO implements IObjectDTO<IPseudonym, PseudonymDTO> {
     @JsonIgnore
     @Override
     public PseudonymDTO assignPojoValues(IPseudonym pojo) {
+        DomainDTO d = pojo.getDomainid() != null ? new DomainDTO().assignPojoValues(domainDBAccessService.getDomainByID(pojo.getDomainid())) : null;
+
+        return assignPojoValues(pojo, d);
+    }
+
+    /**
+     * Maps all values from jOOQ's Pseudonym object to a PseudonymDTO object
+     * using an already resolved domain (e.g. when mapping a batch of records).
+     */
+    @JsonIgnore
+    public PseudonymDTO assignPojoValues(IPseudonym pojo, DomainDTO d) {
         String identifier = pojo.getIdentifier() != null ? pojo.getIdentifier() : "";
         String idType = pojo.getIdtype() != null ? pojo.getIdtype() : "";
         this.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType(idType).build());
@@ -98,7 +109,6 @@ public class PseudonymDTO implements IObjectDTO<IPseudonym, PseudonymDTO> {
         this.setValidFromInherited(pojo.getValidfrominherited());
         this.setValidTo(pojo.getValidto() != null ? pojo.getValidto() : null);
         this.setValidToInherited(pojo.getValidtoinherited());
-        DomainDTO d = pojo.getDomainid() != null ? new DomainDTO().assignPojoValues(domainDBAccessService.getDomainByID(pojo.getDomainid())) : null;
         this.setDomainName(d != null ? d.getName() : null);
         this.setDomain(d != null ? d : null);
 
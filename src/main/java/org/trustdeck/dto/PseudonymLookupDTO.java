@@ -0,0 +1,54 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustdeck.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.context.annotation.Scope;
+import org.trustdeck.model.IdentifierItem;
+
+/**
+ * Data transfer object for the result of a single lookup in a bulk lookup of pseudonyms.
+ * It repeats what was looked up, so that the results can be matched to the requests 
+ * even without relying on their order.
+ *
+ * @author Armin Müller
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Scope("prototype")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PseudonymLookupDTO {
+	
+	/** The identifier that was looked up (if any). */
+	private IdentifierItem identifierItem;
+	
+	/** The pseudonym that was looked up (if any). */
+	private String psn;
+	
+	/** Whether or not a pseudonym-record was found. */
+	private Boolean found;
+	
+	/** The found pseudonym-record (only present if one was found). */
+	private PseudonymDTO pseudonym;
+}
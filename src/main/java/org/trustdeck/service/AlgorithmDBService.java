@@ -19,12 +19,14 @@ package org.trustdeck.service;
 
 import org.jooq.Condition;
 import org.jooq.DSLContext;
+import org.jooq.Record1;
 import org.jooq.exception.DataAccessException;
 import org.jooq.exception.MappingException;
 import org.jooq.exception.TooManyRowsException;
 import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.trustdeck.exception.UnexpectedResultSizeException;
 import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
@@ -491,6 +493,40 @@ public class AlgorithmDBService {
         return wasStored == 1 ? algorithmRecord.getId() : null;
     }
     
+    /**
+     * Atomically reserves a range of consecutive counter values by increasing the algorithm's counter
+     * by the size of the range. The reserved range is {@code [result - rangeSize + 1, result]}.
+     * Runs in its own transaction so that a rollback of the caller can never hand out a range twice.
+     * 
+     * @param algorithmID the ID of the algorithm-object whose counter should be used
+     * @param rangeSize the number of values to reserve
+     * @return the highest value of the reserved range, or {@code null} if the algorithm wasn't found or an error occurred
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long reserveCounterRange(int algorithmID, int rangeSize) {
+    	if (rangeSize < 1) {
+    		return null;
+    	}
+    	
+        try {
+        	Record1<Long> result = dsl.update(ALGORITHM)
+        			.set(ALGORITHM.CONSECUTIVEVALUECOUNTER, DSL.coalesce(ALGORITHM.CONSECUTIVEVALUECOUNTER, DSL.inline(0L)).plus(rangeSize))
+        			.where(ALGORITHM.ID.eq(algorithmID))
+        			.returningResult(ALGORITHM.CONSECUTIVEVALUECOUNTER)
+        			.fetchOne();
+        	
+        	if (result == null) {
+        		log.debug("Couldn't reserve counter values: the algorithm record was not found (ID: " + algorithmID + ").");
+        		return null;
+        	}
+        	
+        	return result.value1();
+        } catch (DataAccessException e) {
+            log.error("Couldn't reserve counter values for the algorithm record (ID: " + algorithmID + "): " + e.getMessage());
+            return null;
+        }
+    }
+    
     /**
      * Method to update only the counter value of an algorithm.
      * 
@@ -0,0 +1,180 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.configuration.PseudonymizationProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out consecutive counter values for domains and algorithm objects.
+ * Instead of reading and writing the counter in the database for every single value, each node leases a 
+ * block of values (hi/lo) with one atomic update and then serves the values of that block from memory.
+ * Values are unique across threads and nodes. Values of a block that weren't handed out before a restart 
+ * (or an invalidation) are lost, i.e. the numbering can contain gaps but never duplicates.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class CounterAllocatorService {
+
+	/** Enables the access to the domain specific database access methods. */
+	@Autowired
+	private DomainDBAccessService domainDBAccessService;
+
+	/** Enables the access to the algorithm specific database access methods. */
+	@Autowired
+	private AlgorithmDBService algorithmDBService;
+
+	/** The configuration for the pseudonymization. */
+	@Autowired
+	private PseudonymizationProperties pseudonymizationProperties;
+
+	/** The currently leased blocks, keyed by the domain's ID. */
+	private final Map<Integer, CounterBlock> domainBlocks = new ConcurrentHashMap<>();
+
+	/** The currently leased blocks, keyed by the algorithm object's ID. */
+	private final Map<Integer, CounterBlock> algorithmBlocks = new ConcurrentHashMap<>();
+
+	/** Locks that ensure only one thread per domain or algorithm object leases a new block. */
+	private final Map<String, Object> leaseLocks = new ConcurrentHashMap<>();
+
+	/**
+	 * Retrieves the next counter value for the given domain.
+	 *
+	 * @param domainID the ID of the domain
+	 * @return the next value, or {@code null} if no value could be reserved
+	 */
+	public Long nextDomainValue(int domainID) {
+		return next(domainBlocks, domainID, size -> domainDBAccessService.reserveCounterRange(domainID, size));
+	}
+
+	/**
+	 * Retrieves the next counter value for the given algorithm object.
+	 *
+	 * @param algorithmID the ID of the algorithm object
+	 * @return the next value, or {@code null} if no value could be reserved
+	 */
+	public Long nextAlgorithmValue(int algorithmID) {
+		return next(algorithmBlocks, algorithmID, size -> algorithmDBService.reserveCounterRange(algorithmID, size));
+	}
+
+	/**
+	 * Reserves a contiguous range of values for the given domain directly in the database, 
+	 * e.g. for a batch pseudonymization. The node's leased block is not touched.
+	 *
+	 * @param domainID the ID of the domain
+	 * @param count the number of values to reserve
+	 * @return the first value of the reserved range, or {@code null} if no range could be reserved
+	 */
+	public Long reserveDomainValues(int domainID, int count) {
+		Long hi = domainDBAccessService.reserveCounterRange(domainID, count);
+		return (hi == null) ? null : hi - count + 1;
+	}
+
+	/**
+	 * Reserves a contiguous range of values for the given algorithm object directly in the database.
+	 *
+	 * @param algorithmID the ID of the algorithm object
+	 * @param count the number of values to reserve
+	 * @return the first value of the reserved range, or {@code null} if no range could be reserved
+	 */
+	public Long reserveAlgorithmValues(int algorithmID, int count) {
+		Long hi = algorithmDBService.reserveCounterRange(algorithmID, count);
+		return (hi == null) ? null : hi - count + 1;
+	}
+
+	/**
+	 * Drops the leased block of a domain, e.g. because its counter was changed manually.
+	 * The remaining values of the block are lost.
+	 *
+	 * @param domainID the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainID) {
+		if (domainID != null) {
+			domainBlocks.remove(domainID);
+		}
+	}
+
+	/**
+	 * Drops the leased block of an algorithm object. The remaining values of the block are lost.
+	 *
+	 * @param algorithmID the ID of the algorithm object
+	 */
+	public void invalidateAlgorithm(Integer algorithmID) {
+		if (algorithmID != null) {
+			algorithmBlocks.remove(algorithmID);
+		}
+	}
+
+	/**
+	 * Hands out the next value of the current block or leases a new block if the current one is exhausted.
+	 *
+	 * @param blocks the map of leased blocks to use
+	 * @param id the ID of the domain or algorithm object
+	 * @param lease the function that reserves a range of the given size in the database and returns its highest value
+	 * @return the next value, or {@code null} if no value could be reserved
+	 */
+	private Long next(Map<Integer, CounterBlock> blocks, int id, IntFunction<Long> lease) {
+		while (true) {
+			// Fast path: take a value from the current block
+			CounterBlock block = blocks.get(id);
+			if (block != null) {
+				long value = block.next().getAndIncrement();
+				if (value <= block.end()) {
+					return value;
+				}
+			}
+
+			// The block is exhausted (or there is none yet). Only one thread leases a new one.
+			synchronized (leaseLocks.computeIfAbsent(blocks == domainBlocks ? "D" + id : "A" + id, k -> new Object())) {
+				CounterBlock current = blocks.get(id);
+				if (current != block) {
+					// Another thread already leased a new block
+					continue;
+				}
+
+				int blockSize = Math.max(1, pseudonymizationProperties.getCounterBlockSize());
+				Long hi = lease.apply(blockSize);
+				if (hi == null) {
+					log.error("Couldn't reserve a block of counter values (ID: " + id + ").");
+					return null;
+				}
+
+				log.trace("Leased counter values " + (hi - blockSize + 1) + " to " + hi + " (ID: " + id + ").");
+				blocks.put(id, new CounterBlock(new AtomicLong(hi - blockSize + 1), hi));
+			}
+		}
+	}
+
+	/**
+	 * A leased block of counter values.
+	 *
+	 * @param next the next value to hand out
+	 * @param end the last value (inclusive) of this block
+	 */
+	private record CounterBlock(AtomicLong next, long end) {};
+}
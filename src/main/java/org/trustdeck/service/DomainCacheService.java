@@ -0,0 +1,303 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.utils.TransactionHooks;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.topic.ITopic;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache for the domains, by ID and by name (case-insensitively). A single request usually 
+ * resolves the same domain several times (authorization, controller, pseudonymizer, DTOs), which is then 
+ * answered from memory. Entries are invalidated by all paths that change a domain, both right away and 
+ * once the surrounding transaction is completed. Invalidations are also published on a Hazelcast topic, 
+ * so that the other nodes drop their entries (and their snapshot of the domain tree) as well. 
+ * Lookups that overlap with an invalidation are not cached. Domains that weren't found are not cached.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class DomainCacheService {
+	
+	/** Name of the Hazelcast topic on which the invalidations are published. */
+	public static final String TOPIC_DOMAIN_INVALIDATIONS = "domain-invalidations";
+	
+	/** The domain ID used in the published invalidations to invalidate all domains. */
+	private static final int ALL_DOMAINS = -1;
+	
+	/** Hazelcast instance used for publishing the invalidations to the other nodes. */
+	@Autowired
+	private HazelcastInstance hazelcast;
+	
+	/** The snapshot of the domain tree, which is outdated by changes on other nodes as well. */
+	@Autowired
+	private DomainTreeService domainTree;
+	
+	/** The tuning properties (time-to-live of the cache). */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/** The cached domains, by their ID. */
+	private final Map<Integer, CacheEntry> byId = new ConcurrentHashMap<>();
+	
+	/** The IDs of the cached domains, by their lower-cased name. Outdated mappings lead to a cache miss. */
+	private final Map<String, Integer> idByName = new ConcurrentHashMap<>();
+	
+	/** The version of the cache's content, increased by every invalidation. A lookup is only cached if it didn't change while it was loaded. */
+	private final AtomicLong version = new AtomicLong();
+	
+	/** The number of lookups answered from the cache. */
+	private final LongAdder hits = new LongAdder();
+	
+	/** The number of lookups that had to query the database. */
+	private final LongAdder misses = new LongAdder();
+	
+	/** The number of invalidations (local and received from other nodes). */
+	private final LongAdder invalidations = new LongAdder();
+	
+	/** The topic on which the invalidations are exchanged with the other nodes. */
+	private ITopic<Integer> topic;
+	
+	/**
+	 * Subscribes to the invalidations published by the other nodes.
+	 */
+	@PostConstruct
+	public void init() {
+		topic = hazelcast.getTopic(TOPIC_DOMAIN_INVALIDATIONS);
+		topic.addMessageListener(message -> {
+			if (message.getPublishingMember() != null && message.getPublishingMember().localMember()) {
+				return;
+			}
+			
+			Integer domainId = message.getMessageObject();
+			log.trace("Received the invalidation of " + (domainId == ALL_DOMAINS ? "all domains." : "the domain with ID " + domainId + "."));
+			
+			if (domainId == ALL_DOMAINS) {
+				removeAll();
+			} else {
+				remove(domainId);
+			}
+			domainTree.invalidate();
+		});
+	}
+	
+	/**
+	 * Retrieves a domain by its ID.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param loader queries the domain from the database if it isn't cached (returns {@code null} if there is none)
+	 * @return a copy of the domain, or {@code null} if there is none
+	 */
+	public Domain getById(int domainId, Supplier<Domain> loader) {
+		if (!isEnabled()) {
+			return loader.get();
+		}
+		
+		long v = version.get();
+		CacheEntry entry = byId.get(domainId);
+		if (entry != null && entry.expiresAt() > System.currentTimeMillis()) {
+			hits.increment();
+			return new Domain(entry.domain());
+		}
+		
+		return load(loader, v);
+	}
+	
+	/**
+	 * Retrieves a domain by its name (case-insensitively).
+	 * 
+	 * @param domainName the name of the domain
+	 * @param loader queries the domain from the database if it isn't cached (returns {@code null} if there is none)
+	 * @return a copy of the domain, or {@code null} if there is none
+	 */
+	public Domain getByName(String domainName, Supplier<Domain> loader) {
+		if (!isEnabled() || domainName == null) {
+			return loader.get();
+		}
+		
+		long v = version.get();
+		String key = domainName.trim().toLowerCase(Locale.ROOT);
+		Integer domainId = idByName.get(key);
+		CacheEntry entry = domainId == null ? null : byId.get(domainId);
+		if (entry != null && entry.expiresAt() > System.currentTimeMillis() && key.equals(entry.name())) {
+			hits.increment();
+			return new Domain(entry.domain());
+		}
+		
+		return load(loader, v);
+	}
+	
+	/**
+	 * Removes a domain from the cache (on this and all other nodes), right away and once the 
+	 * surrounding transaction is completed (so that a lookup of uncommitted changes is dropped as well).
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidate(Integer domainId) {
+		if (domainId == null) {
+			return;
+		}
+		
+		remove(domainId);
+		TransactionHooks.afterCompletion(() -> {
+			remove(domainId);
+			publish(domainId);
+		});
+	}
+	
+	/**
+	 * Removes all domains from the cache and outdates the snapshot of the domain tree (on this and all other nodes).
+	 */
+	public void invalidateAll() {
+		removeAll();
+		domainTree.invalidate();
+		TransactionHooks.afterCompletion(() -> {
+			removeAll();
+			publish(ALL_DOMAINS);
+		});
+	}
+	
+	/**
+	 * Collects the metrics of the cache.
+	 * 
+	 * @return the metrics
+	 */
+	public DomainCacheMetrics getMetrics() {
+		long h = hits.sum();
+		long m = misses.sum();
+		long lookups = h + m;
+		
+		return new DomainCacheMetrics(byId.size(), h, m, lookups == 0 ? 0.0d : (double) h / lookups, invalidations.sum(), version.get());
+	}
+	
+	/**
+	 * Loads a domain from the database and caches it, unless an invalidation happened since the lookup started.
+	 * 
+	 * @param loader queries the domain from the database
+	 * @param v the version of the cache when the lookup started
+	 * @return a copy of the domain, or {@code null} if there is none
+	 */
+	private Domain load(Supplier<Domain> loader, long v) {
+		misses.increment();
+		Domain loaded = loader.get();
+		if (loaded == null || loaded.getId() == null || loaded.getName() == null) {
+			return loaded;
+		}
+		
+		Domain cached = new Domain(loaded);
+		String name = cached.getName().trim().toLowerCase(Locale.ROOT);
+		synchronized (byId) {
+			if (version.get() != v) {
+				log.trace("The domain \"" + cached.getName() + "\" was invalidated while it was loaded and is therefore not cached.");
+				return loaded;
+			}
+			
+			byId.put(cached.getId(), new CacheEntry(cached, name, System.currentTimeMillis() + 1000L * properties.getDomainCacheTtlSeconds()));
+			idByName.put(name, cached.getId());
+		}
+		
+		return loaded;
+	}
+	
+	/**
+	 * Removes a domain from the local cache.
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	private void remove(int domainId) {
+		synchronized (byId) {
+			version.incrementAndGet();
+			invalidations.increment();
+			CacheEntry removed = byId.remove(domainId);
+			if (removed != null) {
+				idByName.remove(removed.name(), domainId);
+			}
+		}
+	}
+	
+	/**
+	 * Removes all domains from the local cache.
+	 */
+	private void removeAll() {
+		synchronized (byId) {
+			version.incrementAndGet();
+			invalidations.increment();
+			byId.clear();
+			idByName.clear();
+		}
+	}
+	
+	/**
+	 * Publishes an invalidation to the other nodes.
+	 * 
+	 * @param domainId the ID of the invalidated domain, or {@link #ALL_DOMAINS}
+	 */
+	private void publish(int domainId) {
+		try {
+			topic.publish(domainId);
+		} catch (Exception e) {
+			log.error("Couldn't publish the invalidation of the domain with ID " + domainId + ": " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Checks whether or not the cache is enabled.
+	 * 
+	 * @return {@code true} if domains should be cached
+	 */
+	private boolean isEnabled() {
+		return properties.getDomainCacheTtlSeconds() > 0;
+	}
+	
+	/**
+	 * An entry of the cache.
+	 * 
+	 * @param domain the domain
+	 * @param name the lower-cased name of the domain
+	 * @param expiresAt the time (in milliseconds) after which the entry must not be used anymore
+	 */
+	private record CacheEntry(Domain domain, String name, long expiresAt) {};
+	
+	/**
+	 * The metrics of the cache.
+	 * 
+	 * @param size the number of cached domains
+	 * @param hits the number of lookups answered from the cache
+	 * @param misses the number of lookups that had to query the database
+	 * @param hitRate the share of lookups answered from the cache
+	 * @param invalidations the number of invalidations (local and received from other nodes)
+	 * @param version the current version of the cache's content
+	 */
+	public record DomainCacheMetrics(int size, long hits, long misses, double hitRate, long invalidations, long version) {};
+}
@@ -0,0 +1,221 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import static org.trustdeck.jooq.generated.Tables.DOMAIN;
+
+import java.util.List;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains the closure table of the domain tree, which holds one row for every pair of a domain and one of 
+ * its ancestors (including the domain itself, with depth 0). Subtree lookups are thereby single indexed 
+ * queries instead of recursive walks over the super-domain references. The table is updated in the 
+ * same transaction as the domain table. The table is part of the database schema. For existing installations, 
+ * it is filled on startup if it's empty and can be rebuilt and verified against the domain table on demand.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class DomainClosureService {
+	
+	/** The closure table. */
+	private static final Table<Record> DOMAIN_CLOSURE = DSL.table(DSL.name("domain_closure"));
+	
+	/** The ID of the ancestor domain. */
+	private static final Field<Integer> ANCESTOR_ID = DSL.field(DSL.name("domain_closure", "ancestor_id"), Integer.class);
+	
+	/** The ID of the descendant domain. */
+	private static final Field<Integer> DESCENDANT_ID = DSL.field(DSL.name("domain_closure", "descendant_id"), Integer.class);
+	
+	/** The distance between the two domains (0 for the row of a domain with itself). */
+	private static final Field<Integer> DEPTH = DSL.field(DSL.name("domain_closure", "depth"), Integer.class);
+	
+	/** The recursive walk over the domain table that yields the expected content of the closure table. */
+	private static final String EXPECTED_CLOSURE = "WITH RECURSIVE expected(ancestor_id, descendant_id, depth) AS ("
+			+ "SELECT id, id, 0 FROM {0} "
+			+ "UNION ALL "
+			+ "SELECT e.ancestor_id, d.id, e.depth + 1 FROM expected e JOIN {0} d ON d.superdomainid = e.descendant_id "
+			+ "WHERE e.depth < (SELECT count(*) FROM {0})) ";
+	
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/**
+	 * Checks that the closure table exists and fills it if it's empty.
+	 * 
+	 * @throws IllegalStateException when the closure table is missing from the database schema
+	 */
+	@PostConstruct
+	public void init() {
+		// The subtree lookups and domain deletions depend on the table, so don't start without it
+		if (dsl.fetchValue(DSL.field("to_regclass({0})::text", String.class, DSL.val("domain_closure"))) == null) {
+			throw new IllegalStateException("The table \"domain_closure\" is missing. It needs to be created with the database schema "
+					+ "(see trustdeck-example.sql) before the application is started.");
+		}
+		
+		if (!dsl.fetchExists(DOMAIN_CLOSURE) && dsl.fetchExists(DOMAIN)) {
+			log.info("The domain closure table is empty. Filling it with the existing domains.");
+			backfill();
+		}
+	}
+	
+	/**
+	 * Adds a new domain to the closure table: a row for the domain itself and one for each of its ancestors.
+	 * Needs to be called in the transaction that inserts the domain.
+	 * 
+	 * @param ctx the context of the running transaction
+	 * @param domainId the ID of the new domain
+	 * @param superDomainId the ID of the new domain's super-domain, or {@code null} for a root domain
+	 */
+	public void addDomain(DSLContext ctx, int domainId, Integer superDomainId) {
+		ctx.query("INSERT INTO {0} (ancestor_id, descendant_id, depth) "
+				+ "SELECT ancestor_id, {1}, depth + 1 FROM {0} WHERE descendant_id = {2} "
+				+ "UNION ALL SELECT {1}, {1}, 0", 
+				DOMAIN_CLOSURE, DSL.inline(domainId), DSL.inline(superDomainId, Integer.class))
+			.execute();
+	}
+	
+	/**
+	 * Removes a domain from the closure table. Its descendants must have been removed before.
+	 * Needs to be called in the transaction that deletes the domain.
+	 * 
+	 * @param ctx the context of the running transaction
+	 * @param domainId the ID of the domain
+	 */
+	public void removeDomain(DSLContext ctx, int domainId) {
+		ctx.deleteFrom(DOMAIN_CLOSURE)
+			.where(DESCENDANT_ID.eq(domainId).or(ANCESTOR_ID.eq(domainId)))
+			.execute();
+	}
+	
+	/**
+	 * Retrieves the subtree starting with the given domain. 
+	 * 
+	 * @param domainName the name of the domain the subtree starts with (case-insensitive)
+	 * @return the domains of the subtree, ordered by their depth below the given domain (i.e. every domain 
+	 * 			comes before its sub-domains), or an empty list if the domain wasn't found
+	 */
+	public List<Domain> getSubtree(String domainName) {
+		return dsl.select(DOMAIN.asterisk())
+				.from(DOMAIN_CLOSURE)
+				.join(DOMAIN).on(DOMAIN.ID.eq(DESCENDANT_ID))
+				.where(ANCESTOR_ID.eq(DSL.select(DOMAIN.ID).from(DOMAIN).where(DOMAIN.NAME.equalIgnoreCase(domainName))))
+				.orderBy(DEPTH, DOMAIN.ID)
+				.fetchInto(Domain.class);
+	}
+	
+	/**
+	 * Retrieves the names of all descendants of a domain, the deepest first (i.e. every domain 
+	 * comes after its sub-domains), so that they can be deleted in this order.
+	 * 
+	 * @param ctx the context of the running transaction
+	 * @param domainId the ID of the domain
+	 * @return the names of the descendants, without the domain itself
+	 */
+	public List<String> getDescendantNames(DSLContext ctx, int domainId) {
+		return ctx.select(DOMAIN.NAME)
+				.from(DOMAIN_CLOSURE)
+				.join(DOMAIN).on(DOMAIN.ID.eq(DESCENDANT_ID))
+				.where(ANCESTOR_ID.eq(domainId).and(DEPTH.gt(0)))
+				.orderBy(DEPTH.desc(), DOMAIN.ID)
+				.fetch(DOMAIN.NAME);
+	}
+	
+	/**
+	 * Rebuilds the closure table from the domain table in a single transaction. 
+	 * The domain table is locked against changes in the meantime.
+	 * 
+	 * @return the number of rows in the rebuilt closure table, or -1 if an error occurred
+	 */
+	public int backfill() {
+		try {
+			return dsl.transactionResult(configuration -> {
+				DSLContext ctx = DSL.using(configuration);
+				ctx.query("LOCK TABLE {0} IN SHARE MODE", DOMAIN).execute();
+				ctx.deleteFrom(DOMAIN_CLOSURE).execute();
+				
+				int rows = ctx.query("INSERT INTO {1} (ancestor_id, descendant_id, depth) " 
+						+ EXPECTED_CLOSURE + "SELECT ancestor_id, descendant_id, depth FROM expected", 
+						DOMAIN, DOMAIN_CLOSURE).execute();
+				
+				log.info("Rebuilt the domain closure table with " + rows + " rows.");
+				return rows;
+			});
+		} catch (Exception e) {
+			log.error("Couldn't rebuild the domain closure table: " + e.getMessage());
+			return -1;
+		}
+	}
+	
+	/**
+	 * Compares the closure table with the content expected from the domain table.
+	 * 
+	 * @return the result of the comparison, or {@code null} if an error occurred
+	 */
+	public ClosureVerification verify() {
+		try {
+			Record r = dsl.resultQuery(EXPECTED_CLOSURE 
+					+ "SELECT (SELECT count(*) FROM expected), (SELECT count(*) FROM {1}), "
+					+ "(SELECT count(*) FROM expected e WHERE NOT EXISTS (SELECT 1 FROM {1} c "
+					+ "WHERE c.ancestor_id = e.ancestor_id AND c.descendant_id = e.descendant_id AND c.depth = e.depth)), "
+					+ "(SELECT count(*) FROM {1} c WHERE NOT EXISTS (SELECT 1 FROM expected e "
+					+ "WHERE c.ancestor_id = e.ancestor_id AND c.descendant_id = e.descendant_id AND c.depth = e.depth))", 
+					DOMAIN, DOMAIN_CLOSURE)
+				.fetchOne();
+			
+			long missing = r.get(2, Long.class);
+			long surplus = r.get(3, Long.class);
+			ClosureVerification verification = new ClosureVerification(r.get(0, Long.class), r.get(1, Long.class), missing, surplus, 
+					missing == 0L && surplus == 0L);
+			if (!verification.consistent()) {
+				log.warn("The domain closure table is inconsistent: " + verification.missing() + " missing and " 
+						+ verification.surplus() + " surplus rows.");
+			}
+			
+			return verification;
+		} catch (Exception e) {
+			log.error("Couldn't verify the domain closure table: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * The result of the comparison of the closure table with the domain table.
+	 * 
+	 * @param expected the number of rows expected from the domain table
+	 * @param actual the number of rows in the closure table
+	 * @param missing the number of expected rows that are not in the closure table
+	 * @param surplus the number of rows in the closure table that are not expected
+	 * @param consistent whether or not the closure table matches the domain table
+	 */
+	public record ClosureVerification(long expected, long actual, long missing, long surplus, boolean consistent) {};
+}
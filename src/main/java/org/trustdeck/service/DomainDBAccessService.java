@@ -20,42 +20,41 @@ package org.trustdeck.service;
 import java.util.ArrayList;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
-import org.jooq.CommonTableExpression;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.DeleteConditionStep;
 import org.jooq.impl.DSL;
-import org.jooq.JoinType;
-import org.jooq.Record;
-import org.jooq.SelectQuery;
+import org.jooq.Name;
+import org.jooq.Record1;
+import org.jooq.Record2;
+import org.jooq.Table;
 import org.jooq.exception.DataAccessException;
 import org.jooq.exception.MappingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
-import org.trustdeck.algorithms.PathFinder;
+import org.trustdeck.algorithms.DomainTree;
+import org.trustdeck.configuration.PseudonymizationProperties;
 import org.trustdeck.dto.DomainDTO;
 import org.trustdeck.dto.PseudonymDTO;
-import org.trustdeck.dto.PseudonymUpdateDTO;
 import org.trustdeck.exception.DomainNotFoundException;
 import org.trustdeck.exception.DuplicateDomainException;
 import org.trustdeck.exception.FailedChildDomainDeletionException;
-import org.trustdeck.exception.FailedChildDomainUpdateException;
 import org.trustdeck.exception.FailedPseudonymDeletionException;
-import org.trustdeck.exception.FailedPseudonymUpdateException;
 import org.trustdeck.exception.PermissionManagementException;
 import org.trustdeck.exception.UnexpectedResultSizeException;
 import org.trustdeck.jooq.generated.tables.daos.DomainDao;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
 import org.trustdeck.jooq.generated.tables.records.PseudonymRecord;
-import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.LinkedPseudonymService.BatchLinkageResult;
+import org.trustdeck.service.LinkedPseudonymService.LinkageResult;
 import org.trustdeck.utils.Assertion;
+import org.trustdeck.utils.TransactionHooks;
 import org.trustdeck.utils.Utility.Pair;
 
-import static org.jooq.impl.DSL.field;
-import static org.jooq.impl.DSL.name;
-import static org.jooq.impl.DSL.select;
 import static org.trustdeck.jooq.generated.Tables.DOMAIN;
 import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
 
@@ -82,6 +81,50 @@ public class DomainDBAccessService {
     /** Enables access to the permission grants database methods. */
     @Autowired
     private PermissionDBService permissionDBService;
+    
+    /** Provides the preconfigured pseudonymizers that need to be invalidated when a domain changes. */
+    @Autowired
+    private PseudonymizerRegistryService pseudonymizerRegistry;
+    
+    /** Hands out the leased counter values that need to be dropped when a domain's counter changes. */
+    @Autowired
+    private CounterAllocatorService counterAllocator;
+    
+    /** Holds the per-domain existence filters that need to be dropped when a domain is deleted. */
+    @Autowired
+    private PseudonymExistenceFilterService existenceFilter;
+    
+    /** Holds the per-domain pools of pre-generated pseudonyms that need to be dropped when a domain changes. */
+    @Autowired
+    private PseudonymPoolService pseudonymPool;
+    
+    /** Maintains the number of pseudonyms per domain; the pending changes of deleted domains need to be dropped. */
+    @Autowired
+    private DomainStatisticsService domainStatistics;
+    
+    /** Caches the lookups of pseudonym-records by identifier and by pseudonym-value. */
+    @Autowired
+    private PseudonymCacheService pseudonymCache;
+    
+    /** Caches the domains by ID and by name; the entries need to be invalidated when a domain changes. */
+    @Autowired
+    private DomainCacheService domainCache;
+    
+    /** Maintains the closure table of the domain tree. */
+    @Autowired
+    private DomainClosureService domainClosure;
+    
+    /** Holds the snapshot of the domain tree that needs to be replaced when a domain changes. */
+    @Autowired
+    private DomainTreeService domainTree;
+    
+    /** Links pseudonym-records along a path through the domain tree. */
+    @Autowired
+    private LinkedPseudonymService linkedPseudonymService;
+    
+    /** The tuning properties of the pseudonymization (e.g. the chunk size of the validity propagation). */
+    @Autowired
+    private PseudonymizationProperties properties;
 
     /** Represents the duplication status of a requested insertion of a domain into the database. */
     public static final String INSERTION_DUPLICATE = "duplicate";
@@ -91,6 +134,12 @@ public class DomainDBAccessService {
 
     /** Represents a successful insertion of a domain into the database. */
     public static final String INSERTION_SUCCESS = "success";
+    
+    /** The name prefix of the per-domain partitions of the pseudonym table (followed by the domain's ID). */
+    private static final String PSEUDONYM_PARTITION_PREFIX = "pseudonym_d";
+    
+    /** The name suffix of the unique identifier index on a partition of a domain that doesn't allow multiple pseudonyms per identifier. */
+    private static final String IDENTIFIER_INDEX_SUFFIX = "_identifier_idtype_key";
 
     /**
      * Method to retrieve the domain data access object.
@@ -116,6 +165,16 @@ public class DomainDBAccessService {
     		return null;
     	}
     	
+    	return domainCache.getByName(domainName, () -> loadDomainByName(domainName));
+    }
+    
+    /**
+     * Helper method that queries a domain from the database given its name.
+     *
+     * @param domainName the name of the domain
+     * @return the domain, or {@code null} if nothing was found
+     */
+    private Domain loadDomainByName(String domainName) {
     	// Build and execute the query
     	List<Domain> domains = null;
     	try {
@@ -150,6 +209,16 @@ public class DomainDBAccessService {
      * @return the retrieved domain as a jOOQ Domain object, or {@code null} if nothing was found
      */
     public Domain getDomainByID(int domainID) {
+    	return domainCache.getById(domainID, () -> loadDomainByID(domainID));
+    }
+    
+    /**
+     * Helper method that queries a domain from the database given its ID.
+     *
+     * @param domainID the ID of the domain
+     * @return the domain, or {@code null} if nothing was found
+     */
+    private Domain loadDomainByID(int domainID) {
     	try {
             Domain domain = this.dsl.transactionResult(configuration -> {
                 // Get domain
@@ -175,6 +244,7 @@ public class DomainDBAccessService {
      *
      * @param domainName a domain name from which the search should start
      * @return a list of domain DTOs which represent all domains of the subtree starting with the given domain
+     * 			(every domain comes before its sub-domains)
      */
     @Transactional
     public List<DomainDTO> getSubtreeFromDomainName(String domainName) {
@@ -183,35 +253,9 @@ public class DomainDBAccessService {
     		return List.of();
     	}
     	
-    	/*
-	        WITH RECURSIVE tree_structure AS (
-	    	    SELECT * FROM DOMAIN WHERE name = :start_name
-	    	    UNION ALL
-	    	    SELECT domain.* FROM DOMAIN
-	    	    INNER JOIN tree_structure ON domain.superdomainid = tree_structure.id
-	    	)
-	    	SELECT * FROM tree_structure;
-        */
-    	
-    	// Build the query
-        CommonTableExpression<Record> treeStructure = name("tree_structure").as(
-        		select(DOMAIN.asterisk())
-                .from(DOMAIN)
-                .where(DOMAIN.NAME.equalIgnoreCase(domainName))
-                .unionAll(
-                		select(DOMAIN.asterisk())
-                        .from(DOMAIN)
-                        .innerJoin(name("tree_structure"))
-                        .on(DOMAIN.SUPERDOMAINID.eq(field(name("tree_structure", "id"), DOMAIN.ID.getDataType())))
-                )
-        );
-        
-        // Execute the query
+    	// Retrieve the domains of the subtree with a single lookup in the closure table
         try {
-        	return dsl.withRecursive(treeStructure)
-        			.selectFrom(treeStructure)
-        			.fetchInto(Domain.class)
-        			.stream().map(d -> new DomainDTO().assignPojoValues(d)).toList();
+        	return domainClosure.getSubtree(domainName).stream().map(d -> new DomainDTO().assignPojoValues(d)).toList();
 		} catch (Exception e) {
 			log.error("Couldn't generate the subtree from the given domain: " + e.getClass() + ": " + e.getMessage());
             return List.of();
@@ -220,79 +264,25 @@ public class DomainDBAccessService {
 
     /**
      * Helper method that creates the complete tree of domains for any given domain inside this tree.
+     * The tree is taken from the snapshot of the domain tree, so that only the structure (IDs, names, 
+     * and super-domains) of the returned domains is reliable.
      *
      * @param domain any domain object from the tree
-     * @return a list of domain objects which represent all domains of the tree surrounding the given domain
+     * @return a list of domain objects which represent all domains of the tree surrounding the given domain 
+     * 			(starting with the root domain), or {@code null} if the tree couldn't be loaded
      */
     public List<Domain> getDomainTreeStructure(Domain domain) {
-
         if (domain == null || domain.getId() == null) {
             return null;
         }
-
-        /**
-
-         WITH RECURSIVE find_root AS (
-         	SELECT * FROM DOMAIN WHERE id = 1
-         	UNION ALL
-         	SELECT domain.* FROM DOMAIN
-         	INNER JOIN find_root ON domain.id = find_root.superdomainid
-         ), tree_structure AS (
-			SELECT * FROM DOMAIN WHERE id = (
-				SELECT id FROM find_root WHERE superdomainid IS NULL
-			)
-         	UNION ALL
-         	SELECT domain.* FROM DOMAIN
-         	INNER JOIN tree_structure ON domain.superdomainid = tree_structure.id
-         )
-         SELECT * FROM tree_structure;
-         
-         */
         
-        // Build the queries
-        CommonTableExpression<Record> findRoot = name("find_root").as(
-                select(DOMAIN.asterisk()).from(DOMAIN)
-                        .where(DOMAIN.ID.eq(domain.getId()))
-                        .unionAll(
-                                select(DOMAIN.asterisk())
-                                        .from(DOMAIN)
-                                        .innerJoin(name("find_root"))
-                                        .on(DOMAIN.ID.eq(field(name("find_root", "superdomainid"), Integer.class)))
-                        )
-        );
-
-        CommonTableExpression<Record> treeStructure = name("tree_structure").as(
-                select(DOMAIN.asterisk()).from(DOMAIN)
-                        .where(DOMAIN.ID.eq(
-                                select(field("id"))
-                                        .from(name("find_root"))
-                                        .where(field("superdomainid").isNull()).asField()
-                        ))
-                        .unionAll(
-                                select(DOMAIN.asterisk())
-                                        .from(DOMAIN)
-                                        .innerJoin(name("tree_structure"))
-                                        .on(DOMAIN.SUPERDOMAINID.eq(field(name("tree_structure", "id"), Integer.class)))
-                        )
-        );
-
-        // Execute the query
-        List<Domain> result = null;
-        try {
-			result = this.dsl.transactionResult(configuration -> {
-			    List<Domain> r = DSL.using(configuration).withRecursive(findRoot, treeStructure)
-			            .select()
-			            .from(name("tree_structure")).fetchInto(Domain.class);
-			    return r;
-			    
-			    // Implicit transaction commit here
-			});
-		} catch (Exception e) {
-			log.error("Couldn't generate the tree structure: " + e.getMessage() + "\n");
-            return null;
-		}
+        DomainTree tree = domainTree.getTree();
+        if (tree == null) {
+        	log.error("Couldn't generate the tree structure since the domain tree couldn't be loaded.");
+        	return null;
+        }
         
-        return result;
+        return tree.getTree(domain.getId());
     }
     
     /**
@@ -359,11 +349,68 @@ public class DomainDBAccessService {
      * 			or {@code null}.
      */
     public List<Pair<PseudonymDTO, PseudonymDTO>> getLinkedPseudonyms(String sourceDomainName, String sourceIdentifier, String sourceIdType, String sourcePsn, String targetDomainName) {
+    	LinkageResult linkage = linkPseudonyms(sourceDomainName, sourceIdentifier, sourceIdType, sourcePsn, targetDomainName);
+    	if (linkage == null || linkage.limitExceeded()) {
+    		return null;
+    	}
+    	
+    	return toPseudonymDTOPairs(linkage, sourceDomainName, targetDomainName);
+    }
+    
+    /**
+     * Method to find pseudonym(s) linked to the given one in the provided domain.
+     * The search walks the path between the two domains one hop at a time and 
+     * reports the number of records found at each hop.
+     * 
+     * @param sourceDomainName the name of the domain to start from
+     * @param sourceIdentifier the identifier of the record to start the search from
+     * @param sourceIdType the idType of the starting identifier
+     * @param sourcePsn the pseudonym of the record to start the search from
+     * @param targetDomainName the name of the domain where to find the matching pseudonym records in
+     * @return the linked records (which are empty when the search visited too many records), 
+     * 			or {@code null} when a domain or the path between them wasn't found
+     */
+    public LinkageResult linkPseudonyms(String sourceDomainName, String sourceIdentifier, String sourceIdType, String sourcePsn, String targetDomainName) {
+    	List<Domain> path = getLinkingPath(sourceDomainName, targetDomainName);
+    	if (path == null) {
+    		return null;
+    	}
+    	
+        // Walk the path from the starting record(s) to the target domain
+        return linkedPseudonymService.link(path, sourceIdentifier, sourceIdType, sourcePsn);
+    }
+    
+    /**
+     * Method to find the pseudonyms linked to each of the given source records in the provided domain.
+     * The path between the domains is computed once and all chains are resolved at once.
+     * 
+     * @param sourceDomainName the name of the domain to start from
+     * @param sources the records to start the search from (an identifier &amp; idType or a pseudonym each)
+     * @param targetDomainName the name of the domain where to find the matching pseudonym records in
+     * @return the linked records for each source record (which are empty when the search visited too 
+     * 			many records), or {@code null} when a domain or the path between them wasn't found
+     */
+    public BatchLinkageResult linkPseudonymBatch(String sourceDomainName, List<PseudonymDTO> sources, String targetDomainName) {
+    	List<Domain> path = getLinkingPath(sourceDomainName, targetDomainName);
+    	if (path == null) {
+    		return null;
+    	}
+    	
+        // Walk the path from all source records to the target domain at once
+        return linkedPseudonymService.linkAll(path, sources);
+    }
+    
+    /**
+     * Helper method that determines the path through the domain tree along which pseudonyms are linked.
+     * 
+     * @param sourceDomainName the name of the domain to start from
+     * @param targetDomainName the name of the domain where to find the matching pseudonym records in
+     * @return the domains along the path (at least two), or {@code null} when a domain or the path wasn't found
+     */
+    private List<Domain> getLinkingPath(String sourceDomainName, String targetDomainName) {
     	// Retrieve the source domain object (will not be audited)
 		Domain sourceDomain = getDomainByName(sourceDomainName);
 		Domain targetDomain = getDomainByName(targetDomainName);
-		IdentifierItem sourceII = IdentifierItem.builder().identifier(sourceIdentifier).idType(sourceIdType).build();
-		List<PseudonymDTO> sourcePseudonymList = pseudonymDBAccessService.getPseudonym(sourceDomainName, sourceII, sourcePsn);
 		
 		// Check if the given information is sufficient to start the linking-process
         if (sourceDomain == null) {
@@ -372,16 +419,11 @@ public class DomainDBAccessService {
         } else if (targetDomain == null) {
         	log.debug("The domain to find the target in (\"" + targetDomainName + "\") was not found.");
             return null;
-        } else if (sourcePseudonymList == null || sourcePseudonymList.isEmpty()) {
-        	log.debug("The record to start the search from was not found.");
-            return null;
         }
         
-        PseudonymDTO sourcePseudonym = sourcePseudonymList.getFirst();
-        
-        // Generate the tree starting from the given source-domain and generate the path to the destination domain
-        PathFinder pathFinder = new PathFinder(getDomainTreeStructure(sourceDomain));
-        List<Domain> path = pathFinder.getPath(sourceDomainName, targetDomainName);
+        // Find the path to the destination domain in the snapshot of the domain tree
+        DomainTree tree = domainTree.getTree();
+        List<Domain> path = tree == null ? null : tree.getPath(sourceDomain.getId(), targetDomain.getId());
 
         if (Assertion.assertNullAll(path)) {
         	log.debug("No path between the domains (" + sourceDomainName + ", " + targetDomainName + ") was found.");
@@ -390,66 +432,65 @@ public class DomainDBAccessService {
 
         // Only use the path if a minimum of two different domains are in there
         // If the user wants to retrieve linked pseudonyms in the same domain, they need to do this manually
-        int pathSize = path.size();
-        if (pathSize < 2) {
+        if (path.size() < 2) {
         	log.debug("Too few domains for linking provided.");
             return null;
         }
 
-        try {
-            List<Pair<PseudonymDTO, PseudonymDTO>> result = dsl.transactionResult(configuration -> {
-                // Start building the query
-            	SelectQuery<Record> query = dsl.select(PSEUDONYM.as("p" + pathSize).asterisk()).getQuery();
-                query.addFrom(PSEUDONYM.as("p1"));
-
-                // Iterate over the path to find all the pseudonyms along the path
-                // Builds all pseudonym record-chains of length pathSize
-                for (int i = 2; i <= pathSize; i++) {
-                	// Include forwards and backwards chains
-                    query.addJoin(PSEUDONYM.as("p" + i), JoinType.RIGHT_OUTER_JOIN,
-                    		// Forwards/down the tree: psn_i-1 = identifier_i
-                    		PSEUDONYM.as("p" + (i - 1)).PSEUDONYM_.equal(PSEUDONYM.as("p" + i).IDENTIFIER)
-                    		// Backwards/up the tree: identifier_i-1 = psn_i
-                    		.or(PSEUDONYM.as("p" + (i - 1)).IDENTIFIER.equal(PSEUDONYM.as("p" + i).PSEUDONYM_)));
-                }
-
-                // Filter by removing every record-chain that doesn't start with the user-given record
-                if (sourceIdentifier != null && sourceIdType != null) {
-                	// Using identifier & idType
-                	query.addConditions(PSEUDONYM.as("p1").IDENTIFIER.equal(sourceIdentifier),
-                						PSEUDONYM.as("p1").IDTYPE.equal(sourceIdType));
-                } else if (sourcePsn != null) {
-                	// Using psn
-                	query.addConditions(PSEUDONYM.as("p1").PSEUDONYM_.equal(sourcePsn));
-                } else {
-                	// If nothing (or only the identifier or only the idType) was given, match everything from the sourceDomain
-                	query.addConditions(PSEUDONYM.as("p1").DOMAINID.equal(sourceDomain.getId()));
-                }
-                
-                // We only want those records that are in the target domain
-                query.addConditions(PSEUDONYM.as("p" + pathSize).DOMAINID.equal(targetDomain.getId()));
-
-                // Execute query and fetch the result
-                List<Pseudonym> resultList = query.fetchInto(Pseudonym.class);
-                
-                // Transform the query result into a list of pairs
-                List<Pair<PseudonymDTO, PseudonymDTO>> pairList = new ArrayList<>();
-                for (Pseudonym r : resultList) {
-                	if (r != null) {
-                		pairList.add(new Pair<PseudonymDTO, PseudonymDTO>(sourcePseudonym, new PseudonymDTO().assignPojoValues(r)));
-                	}
-                }
-                
-                return pairList;
-                
-                // Implicit transaction commit here
-            });
-
-            return result;
-        } catch (Exception e) {
-            log.error("Couldn't successfully query the database: " + e.getMessage() + "\n");
-            return null;
-        }
+        return path;
+    }
+    
+    /**
+     * Helper method that transforms the linked records into pairs of pseudonym DTOs.
+     * 
+     * @param linkage the result of the linking
+     * @param sourceDomainName the name of the domain the search started from
+     * @param targetDomainName the name of the domain the linked records are in
+     * @return a list of pairs <b>(A, B)</b> of linked pseudonym records
+     */
+    public List<Pair<PseudonymDTO, PseudonymDTO>> toPseudonymDTOPairs(LinkageResult linkage, String sourceDomainName, String targetDomainName) {
+    	DomainDTO sourceDomain = new DomainDTO().assignPojoValues(getDomainByName(sourceDomainName));
+    	DomainDTO targetDomain = new DomainDTO().assignPojoValues(getDomainByName(targetDomainName));
+    	
+    	return toPseudonymDTOPairs(linkage.links(), sourceDomain, targetDomain);
+    }
+    
+    /**
+     * Helper method that transforms the linked records of each source record into pairs of pseudonym DTOs.
+     * 
+     * @param linkage the result of the linking
+     * @param sourceDomainName the name of the domain the search started from
+     * @param targetDomainName the name of the domain the linked records are in
+     * @return a list of pairs <b>(A, B)</b> of linked pseudonym records for each source record
+     */
+    public List<List<Pair<PseudonymDTO, PseudonymDTO>>> toPseudonymDTOPairs(BatchLinkageResult linkage, String sourceDomainName, String targetDomainName) {
+    	DomainDTO sourceDomain = new DomainDTO().assignPojoValues(getDomainByName(sourceDomainName));
+    	DomainDTO targetDomain = new DomainDTO().assignPojoValues(getDomainByName(targetDomainName));
+    	
+    	List<List<Pair<PseudonymDTO, PseudonymDTO>>> pairLists = new ArrayList<>(linkage.links().size());
+    	for (List<Pair<Pseudonym, Pseudonym>> links : linkage.links()) {
+    		pairLists.add(toPseudonymDTOPairs(links, sourceDomain, targetDomain));
+    	}
+    	
+    	return pairLists;
+    }
+    
+    /**
+     * Helper method that transforms pairs of linked records into pairs of pseudonym DTOs.
+     * 
+     * @param links the pairs of linked records
+     * @param sourceDomain the domain the search started from
+     * @param targetDomain the domain the linked records are in
+     * @return a list of pairs <b>(A, B)</b> of linked pseudonym records
+     */
+    private static List<Pair<PseudonymDTO, PseudonymDTO>> toPseudonymDTOPairs(List<Pair<Pseudonym, Pseudonym>> links, DomainDTO sourceDomain, DomainDTO targetDomain) {
+    	List<Pair<PseudonymDTO, PseudonymDTO>> pairList = new ArrayList<>();
+    	for (Pair<Pseudonym, Pseudonym> link : links) {
+    		pairList.add(new Pair<PseudonymDTO, PseudonymDTO>(new PseudonymDTO().assignPojoValues(link.first(), sourceDomain), 
+    				new PseudonymDTO().assignPojoValues(link.second(), targetDomain)));
+    	}
+    	
+    	return pairList;
     }
     
     /**
@@ -557,6 +598,9 @@ public class DomainDBAccessService {
      * was not in the database, {@code false} otherwise
      */
     public boolean deleteDomain(String domainName, boolean recursiveDeletion) {
+    	// The ID of the domain whose pseudonym partition was emptied and must be dropped after the commit
+    	List<Integer> emptiedPartition = new ArrayList<>();
+    	
         try {
             this.dsl.transaction(configuration -> {
                 // Retrieve the domain object
@@ -568,20 +612,15 @@ public class DomainDBAccessService {
                     throw new DomainNotFoundException(domainName);
                 }
 
-                // Check if sub-domains should also be deleted -> if so, perform DFS and delete bottom-up
+                // Check if sub-domains should also be deleted -> if so, delete them bottom-up
                 if (recursiveDeletion) {
-                    // Retrieve a list of sub-domains. Bind variable and execute query.
-                    List<Integer> ids = DSL.using(configuration).select(DOMAIN.ID)
-                            .from(DOMAIN)
-                            .where(DOMAIN.SUPERDOMAINID.equal(domain.getId()))
-                            .fetchInto(Integer.class);
-
-                    // Iterate over the sub-domain IDs
-                    for (int id : ids) {
-                        String childName = getDomainByID(id).getName();
-
-                        // Recursive call of the delete method -> DFS
-                        if (deleteDomain(childName, recursiveDeletion)) {
+                    // Retrieve all descendants at once from the closure table, the deepest first
+                    List<String> descendants = domainClosure.getDescendantNames(DSL.using(configuration), domain.getId());
+
+                    // Iterate over the descendants; their own sub-domains are already deleted when it's their turn
+                    for (String childName : descendants) {
+                        // Call of the (non-recursive) delete method
+                        if (deleteDomain(childName, false)) {
                             /* (deletions on the connections opened in this DFS are committed only if
                              * the deletion is successful from bottom to top, otherwise the deletion fails
                              * and the error is transferred bottom-up.)
@@ -595,13 +634,19 @@ public class DomainDBAccessService {
                     }
                 }
 
-                /* NOTE: This point is reached the first time, when the DFS found the last sub-domain in
-                 * the "domain-tree". From here the bottom-up deletion starts. First delete the records in
-                 * the domain, then delete the domain itself and return one recursion level upward.
+                /* NOTE: At this point, all sub-domains are deleted. First delete the records in
+                 * the domain, then delete the domain itself.
                  */
-                // Delete by creating multiple delete statements and executing them as a batch.
                 DSLContext ctx = DSL.using(configuration);
                 
+                // Empty the domain's partition of the pseudonym table, which removes all of its records at once
+                if (truncatePseudonymPartition(ctx, domain.getId())) {
+                	log.debug("Emptied the pseudonym partition of the domain \"" + domain.getName() + "\".");
+                	emptiedPartition.add(domain.getId());
+                }
+                
+                // Delete the remaining records (e.g. when the pseudonym table isn't partitioned) by creating 
+                // multiple delete statements and executing them as a batch.
                 // Retrieve a list of all pseudonym-records in the domain
                 List<Pseudonym> pseudonyms = ctx
                         .selectFrom(PSEUDONYM)
@@ -619,7 +664,7 @@ public class DomainDBAccessService {
                 }
 
                 // Batch the delete statements and execute the batch
-                int[] result = ctx.batch(deletions).execute();
+                int[] result = deletions.isEmpty() ? new int[0] : ctx.batch(deletions).execute();
 
                 // Process the result
                 for (int i = 0; i < result.length; i++) {
@@ -632,7 +677,8 @@ public class DomainDBAccessService {
                 // Success; continue with the deletion process
                 log.debug("Successfully deleted all records in the domain \"" + domain.getName() + "\".");
 
-                // Now delete the domain itself
+                // Now delete the domain itself (and its rows in the closure table)
+                domainClosure.removeDomain(DSL.using(configuration), domain.getId());
                 int deletedDomains = DSL.using(configuration).deleteFrom(DOMAIN)
                         .where(DOMAIN.ID.equal(domain.getId()))
                         .execute();
@@ -644,18 +690,30 @@ public class DomainDBAccessService {
                     log.error("Couldn't delete the domain \"" + domain.getName() + "\" from the database.");
                     throw new UnexpectedResultSizeException(1, deletedDomains);
                 }
+                domainCache.invalidate(domain.getId());
                 
                 // Handle permissions
                 if (!permissionDBService.removeDomainPermissionsForSubject(domain.getName())) {
                 	log.debug("Failed to remove the domain's permissions. Aborting.");
                 	throw new PermissionManagementException(domain.getName());
                 }
+                
+                // The domain's pseudonymizer, leased counter values, existence filter, pooled pseudonyms, statistics, 
+                // and cached lookups must not be used anymore
+                pseudonymizerRegistry.invalidateDomain(domain.getId());
+                counterAllocator.invalidateDomain(domain.getId());
+                existenceFilter.invalidateDomain(domain.getId());
+                pseudonymPool.invalidateDomain(domain.getId());
+                domainStatistics.invalidateDomain(domain.getId());
+                pseudonymCache.invalidateDomain(domain.getId());
+                domainTree.invalidate();
 
                 // Implicit transaction commit here
             });
 
             // At this point the deletion was successful
             log.debug("Successfully deleted the domain \"" + domainName + "\" from the database.");
+            emptiedPartition.forEach(domainId -> TransactionHooks.afterCommit(() -> dropPseudonymPartition(domainId)));
             return true;
         } catch (DomainNotFoundException e) {
             log.info("The domain \"" + e.getDomainName() + "\" is not in the database. Nothing to delete.");
@@ -733,12 +791,23 @@ public class DomainDBAccessService {
                     log.error("Couldn't insert the domain into the database.");
                     throw new UnexpectedResultSizeException(1, 0);
                 }
+                
+                // Give the domain its own partition of the pseudonym table
+                createPseudonymPartition(DSL.using(configuration), domainId);
+                updateIdentifierIndex(DSL.using(configuration), domainId);
+                
+                // Connect the domain with its ancestors in the closure table
+                domainClosure.addDomain(DSL.using(configuration), domainId, 
+                		(domain.getSuperdomainid() == null || domain.getSuperdomainid() == 0) ? null : domain.getSuperdomainid());
 
                 // Handle permissions
                 if (!permissionDBService.addDomainPermissionsForSubject(domainId)) {
                 	log.debug("Failed to add the domain's permissions. Aborting.");
                 	throw new PermissionManagementException(domain.getName());
                 }
+                
+                // The new domain needs to be in the domain tree
+                domainTree.invalidate();
 
                 // Implicit transaction commit here
             });
@@ -765,6 +834,178 @@ public class DomainDBAccessService {
         }
     }
 
+    /**
+     * Moves the pseudonym-records of all domains that don't have a partition of their own yet (e.g. 
+     * after the pseudonym table of an existing database was converted into a partitioned table, where 
+     * all records end up in the default partition) into new per-domain partitions. Every domain is 
+     * handled in a transaction of its own, so that the locks are only held for one domain at a time 
+     * and a failure doesn't undo the partitions that were already created.
+     * 
+     * @return the number of created partitions, or {@code -1} when an error occurred
+     */
+    public int createMissingPseudonymPartitions() {
+    	List<Integer> domainIds;
+    	try {
+    		if (!isPseudonymTablePartitioned(this.dsl)) {
+    			log.debug("The pseudonym table isn't partitioned. No partitions created.");
+    			return 0;
+    		}
+    		
+    		domainIds = this.dsl.select(DOMAIN.ID).from(DOMAIN).orderBy(DOMAIN.ID).fetch(DOMAIN.ID);
+    	} catch (Exception e) {
+    		log.error("Couldn't create the missing pseudonym partitions: " + e.getMessage());
+    		return -1;
+    	}
+    	
+    	int created = 0;
+    	boolean failed = false;
+    	for (Integer domainId : domainIds) {
+    		try {
+    			boolean isCreated = this.dsl.transactionResult(configuration -> {
+    				DSLContext ctx = DSL.using(configuration);
+    				Name partition = DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId);
+    				if (ctx.fetchValue(DSL.field("to_regclass({0})::text", String.class, DSL.val(partition.toString()))) != null) {
+    					// Partitions created before the identifiers were made unique might still lack the index
+    					updateIdentifierIndex(ctx, domainId);
+    					return false;
+    				}
+    				
+    				// A partition can't be created as long as the default partition contains records for it, so 
+    				// fill a new table and attach it afterwards
+    				ctx.query("CREATE TABLE {0} (LIKE {1} INCLUDING DEFAULTS)", partition, PSEUDONYM).execute();
+    				int moved = ctx.query("WITH moved AS (DELETE FROM {1} WHERE domainid = {2} RETURNING *) "
+    						+ "INSERT INTO {0} SELECT * FROM moved", partition, PSEUDONYM, DSL.val(domainId))
+    					.execute();
+    				ctx.query("ALTER TABLE {0} ATTACH PARTITION {1} FOR VALUES IN ({2})", PSEUDONYM, partition, DSL.inline(domainId))
+    					.execute();
+    				updateIdentifierIndex(ctx, domainId);
+    				
+    				log.debug("Created the pseudonym partition of the domain with ID " + domainId + " and moved " + moved + " records into it.");
+    				return true;
+    			});
+    			
+    			if (isCreated) {
+    				created++;
+    			}
+    		} catch (Exception e) {
+    			log.error("Couldn't create the pseudonym partition of the domain with ID " + domainId + ": " + e.getMessage());
+    			failed = true;
+    		}
+    	}
+    	
+    	return failed ? -1 : created;
+    }
+    
+    /**
+     * Helper method that determines whether or not the pseudonym table is partitioned by domain.
+     * Databases that were set up before the partitioning was introduced keep a single table.
+     * 
+     * @param ctx the context of the current transaction (or the default context)
+     * @return {@code true} if the pseudonym table is partitioned, {@code false} otherwise
+     */
+    private boolean isPseudonymTablePartitioned(DSLContext ctx) {
+    	return ctx.fetchExists(DSL.table(DSL.name("pg_partitioned_table")), 
+    			DSL.condition("partrelid = to_regclass({0})", DSL.val(PSEUDONYM.getQualifiedName().toString())));
+    }
+    
+    /**
+     * Helper method that creates the partition of the pseudonym table for a new domain.
+     * Nothing is done if the pseudonym table isn't partitioned.
+     * 
+     * @param ctx the context of the current transaction
+     * @param domainId the ID of the domain
+     */
+    private void createPseudonymPartition(DSLContext ctx, int domainId) {
+    	if (!isPseudonymTablePartitioned(ctx)) {
+    		return;
+    	}
+    	
+    	// jOOQ doesn't model "PARTITION OF" yet, so use plain SQL
+    	ctx.query("CREATE TABLE IF NOT EXISTS {0} PARTITION OF {1} FOR VALUES IN ({2})", 
+    			DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId), PSEUDONYM, DSL.inline(domainId))
+    		.execute();
+    }
+    
+    /**
+     * Helper method that determines whether or not the given table is a partition of the pseudonym table.
+     * 
+     * @param ctx the context of the current transaction
+     * @param partition the name of the table
+     * @return {@code true} if the table exists and is attached to the pseudonym table, {@code false} otherwise
+     */
+    private boolean isPseudonymPartition(DSLContext ctx, Name partition) {
+    	return ctx.fetchExists(DSL.table(DSL.name("pg_inherits")), 
+    			DSL.condition("inhrelid = to_regclass({0}) AND inhparent = to_regclass({1})", 
+    					DSL.val(partition.toString()), DSL.val(PSEUDONYM.getQualifiedName().toString())));
+    }
+    
+    /**
+     * Helper method that enforces unique identifier &amp; idType combinations in a domain that doesn't allow 
+     * multiple pseudonyms per identifier, with a unique index on the domain's partition. The index is removed 
+     * again when the domain allows multiple pseudonyms. Nothing is done if the domain has no partition of its 
+     * own (e.g. when the pseudonym table isn't partitioned).
+     * Creating the index fails if the domain already contains multiple pseudonyms for an identifier.
+     * 
+     * @param ctx the context of the current transaction
+     * @param domainId the ID of the domain
+     */
+    private void updateIdentifierIndex(DSLContext ctx, int domainId) {
+    	Name partition = DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId);
+    	if (!isPseudonymPartition(ctx, partition)) {
+    		return;
+    	}
+    	
+    	Boolean multiplePsnAllowed = ctx.select(DOMAIN.MULTIPLEPSNALLOWED)
+    			.from(DOMAIN)
+    			.where(DOMAIN.ID.eq(domainId))
+    			.fetchOne(DOMAIN.MULTIPLEPSNALLOWED);
+    	Name index = DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId + IDENTIFIER_INDEX_SUFFIX);
+    	
+    	if (Boolean.FALSE.equals(multiplePsnAllowed)) {
+    		ctx.query("CREATE UNIQUE INDEX IF NOT EXISTS {0} ON {1} (identifier, idtype)", index, partition).execute();
+    	} else {
+    		ctx.query("DROP INDEX IF EXISTS {0}", index).execute();
+    	}
+    }
+    
+    /**
+     * Helper method that empties the partition of the pseudonym table that belongs to a domain.
+     * Truncating the partition only locks the partition itself (until the end of the transaction), 
+     * other domains remain accessible. The partition must be dropped after the commit (see 
+     * {@link #dropPseudonymPartition(int)}).
+     * 
+     * @param ctx the context of the current transaction
+     * @param domainId the ID of the domain
+     * @return {@code true} if the partition was emptied, {@code false} if the domain has no partition
+     */
+    private boolean truncatePseudonymPartition(DSLContext ctx, int domainId) {
+    	Name partition = DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId);
+    	if (!isPseudonymPartition(ctx, partition)) {
+    		return false;
+    	}
+    	
+    	ctx.query("TRUNCATE TABLE {0}", partition).execute();
+    	return true;
+    }
+    
+    /**
+     * Helper method that drops the (emptied) partition of the pseudonym table that belonged to a deleted domain.
+     * Dropping a partition takes an ACCESS EXCLUSIVE lock on the whole pseudonym table, which is why this is 
+     * done in a short transaction of its own instead of the domain's deletion (detaching the partition 
+     * concurrently isn't possible because of the default partition).
+     * 
+     * @param domainId the ID of the deleted domain
+     */
+    private void dropPseudonymPartition(int domainId) {
+    	try {
+    		dsl.query("DROP TABLE IF EXISTS {0}", DSL.name(PSEUDONYM_PARTITION_PREFIX + domainId)).execute();
+    		log.debug("Dropped the pseudonym partition of the deleted domain with ID " + domainId + ".");
+    	} catch (Exception e) {
+    		// The partition is empty and no records can be added to it anymore
+    		log.warn("Couldn't drop the pseudonym partition of the deleted domain with ID " + domainId + ": " + e.getMessage());
+    	}
+    }
+
     /**
      * This method lists all domains from the database.
      *
@@ -793,17 +1034,19 @@ public class DomainDBAccessService {
     	try {
             this.dsl.transaction(configuration -> {
                 // Create and execute the update query
-                int updatedDomain = DSL.using(configuration).update(DOMAIN)
+                List<Integer> updatedDomains = DSL.using(configuration).update(DOMAIN)
                         .set(DOMAIN.CONSECUTIVEVALUECOUNTER, counter)
                         .where(DOMAIN.NAME.equal(domainName))
-                        .execute();
+                        .returning(DOMAIN.ID)
+                        .fetch(DOMAIN.ID);
                 
                 // Determine success
-                if (updatedDomain != 1) {
+                if (updatedDomains.size() != 1) {
                     // An unexpected number of domains was affected. Log it and abort by throwing
                     // an exception (which will rollback everything from the transaction).
-                    throw new UnexpectedResultSizeException(1, updatedDomain);
+                    throw new UnexpectedResultSizeException(1, updatedDomains.size());
                 }
+                domainCache.invalidate(updatedDomains.getFirst());
 
                 // Implicit transaction commit here
             });
@@ -821,6 +1064,43 @@ public class DomainDBAccessService {
         }
     }
 
+    /**
+     * Atomically reserves a range of consecutive counter values by increasing the domain's counter
+     * by the size of the range. The counter always stores the highest value that was handed out
+     * (or reserved), so the reserved range is {@code [result - rangeSize + 1, result]}.
+     * Runs in its own transaction so that a rollback of the caller can never hand out a range twice.
+     *
+     * @param domainID the ID of the domain whose counter should be used
+     * @param rangeSize the number of values to reserve
+     * @return the highest value of the reserved range, or {@code null} if the domain wasn't found or an error occurred
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Long reserveCounterRange(int domainID, int rangeSize) {
+    	if (rangeSize < 1) {
+    		return null;
+    	}
+    	
+    	try {
+    		Record1<Long> result = dsl.update(DOMAIN)
+                    .set(DOMAIN.CONSECUTIVEVALUECOUNTER, DSL.coalesce(DOMAIN.CONSECUTIVEVALUECOUNTER, DSL.inline(0L)).plus(rangeSize))
+                    .where(DOMAIN.ID.equal(domainID))
+                    .returningResult(DOMAIN.CONSECUTIVEVALUECOUNTER)
+                    .fetchOne();
+    		
+    		if (result == null) {
+    			log.debug("Couldn't reserve counter values: the domain with ID " + domainID + " wasn't found.");
+    			return null;
+    		}
+    		
+    		// The cached domain shows the counter, too
+    		domainCache.invalidate(domainID);
+    		return result.value1();
+    	} catch (DataAccessException e) {
+    		log.error("Couldn't reserve counter values for the domain with ID " + domainID + ": " + e.getMessage());
+    		return null;
+    	}
+    }
+
     /**
      * Method to update a domain in the database.
      * Updates only those parameters that aren't {@code null}.
@@ -832,6 +1112,9 @@ public class DomainDBAccessService {
      * @return {@code true} if the update was successful, {@code false} otherwise
      */
     public Domain updateDomain(Domain oldDomain, Domain newDomain, boolean recursiveChanges) {
+    	// The IDs of the updated domain and (if requested) its descendants
+    	List<Integer> subtree = new ArrayList<>();
+    	
         try {
             this.dsl.transaction(configuration -> {
                 // Check if the domain to be updated exists
@@ -862,7 +1145,7 @@ public class DomainDBAccessService {
                         .set(DOMAIN.RANDOMALGORITHMDESIREDSUCCESSPROBABILITYINHERITED, (newDomain.getRandomalgorithmdesiredsuccessprobabilityinherited() != null) ? newDomain.getRandomalgorithmdesiredsuccessprobabilityinherited() : oldDomain.getRandomalgorithmdesiredsuccessprobabilityinherited())
                         .set(DOMAIN.MULTIPLEPSNALLOWED, (newDomain.getMultiplepsnallowed() != null) ? newDomain.getMultiplepsnallowed() : oldDomain.getMultiplepsnallowed())
                         .set(DOMAIN.MULTIPLEPSNALLOWEDINHERITED, (newDomain.getMultiplepsnallowedinherited() != null) ? newDomain.getMultiplepsnallowedinherited() : oldDomain.getMultiplepsnallowedinherited())
-                        .set(DOMAIN.CONSECUTIVEVALUECOUNTER, (newDomain.getConsecutivevaluecounter() != null) ? newDomain.getConsecutivevaluecounter() : oldDomain.getConsecutivevaluecounter())
+                        .set(DOMAIN.CONSECUTIVEVALUECOUNTER, (newDomain.getConsecutivevaluecounter() != null) ? DSL.val(newDomain.getConsecutivevaluecounter()) : DOMAIN.CONSECUTIVEVALUECOUNTER)
                         .set(DOMAIN.PSEUDONYMLENGTH, (newDomain.getPseudonymlength() != null) ? newDomain.getPseudonymlength() : oldDomain.getPseudonymlength())
                         .set(DOMAIN.PSEUDONYMLENGTHINHERITED, (newDomain.getPseudonymlengthinherited() != null) ? newDomain.getPseudonymlengthinherited() : oldDomain.getPseudonymlengthinherited())
                         .set(DOMAIN.PADDINGCHARACTER, (newDomain.getPaddingcharacter() != null && !newDomain.getPaddingcharacter().trim().equals("")) ? newDomain.getPaddingcharacter() : oldDomain.getPaddingcharacter())
@@ -884,87 +1167,25 @@ public class DomainDBAccessService {
                     throw new UnexpectedResultSizeException(1, updatedDomain);
                 }
 
-                // Retrieve a list of all pseudonym-records in the updated domain
-                List<Pseudonym> records = DSL.using(configuration).selectFrom(PSEUDONYM)
-                        .where(PSEUDONYM.DOMAINID.equal(oldDomain.getId()))
-                        .fetchInto(Pseudonym.class);
-
-                // Iterate over the pseudonym-records, if there are any, and create updatable DTOs
-                List<PseudonymUpdateDTO> updates = new ArrayList<>();
-                for (Pseudonym old : records) {
-                    // Create a new record with the necessary changes
-                	IdentifierItem oldIdItem = IdentifierItem.builder().identifier(old.getIdentifier()).idType(old.getIdtype()).build();
-                	
-                    PseudonymUpdateDTO update = new PseudonymUpdateDTO();
-                    update.setOldIdentifierItem(oldIdItem);
-                    update.setOldPsn(old.getPseudonym());
-                    update.setOldDomain(oldDomain);
-                    update.setNewIdentifierItem(oldIdItem);
-                    update.setNewPsn(old.getPseudonym());
-                    update.setNewDomain(newDomain);
-                    update.setNewDomainName(newDomain.getName());
-                    update.setValidFrom(old.getValidfrominherited() ? newDomain.getValidfrom() : oldDomain.getValidfrom());
-                    update.setValidFromInherited(old.getValidfrominherited());
-                    update.setValidTo(old.getValidtoinherited() ? newDomain.getValidto() : oldDomain.getValidto());
-                    update.setValidToInherited(old.getValidtoinherited());
-
-                    updates.add(update);
+                // Propagate the inherited attributes to all descendant domains at once
+                subtree.add(oldDomain.getId());
+                if (recursiveChanges) {
+                	subtree.addAll(propagateInheritedAttributes(DSL.using(configuration), oldDomain.getId()));
+                	log.debug("Propagated the inherited attributes to " + (subtree.size() - 1) + " descendant domain(s).");
                 }
+                subtree.forEach(domainCache::invalidate);
                 
-                // Update the inheritable variables
-                List<Boolean> results = pseudonymDBAccessService.updatePseudonyms(updates);
-                if (!updates.isEmpty() && results.contains(false)) {
-                    // Failed update of a pseudonym-record: use exception to break the transaction
-                	IdentifierItem ii = updates.get(results.indexOf(false)).getNewIdentifierItem();
-                    throw new FailedPseudonymUpdateException((newDomain.getName() != null) ? newDomain.getName() : oldDomain.getName(), ii.getIdentifier(), ii.getIdType());
+                // Only domains that don't allow multiple pseudonyms per identifier keep their identifiers unique
+                if (newDomain.getMultiplepsnallowed() != null) {
+                	updateIdentifierIndex(DSL.using(configuration), oldDomain.getId());
                 }
 
-                // Check if child domains should also be updated
-                if (recursiveChanges) {
-                    // Find child domains
-                    List<Domain> oldChilds = DSL.using(configuration).select(DOMAIN.ID)
-                            .from(DOMAIN)
-                            .where(DOMAIN.SUPERDOMAINID.equal(oldDomain.getId()))
-                            .fetchInto(Domain.class);
-
-                    // Iterate over child domains
-                    for (Domain oldChild : oldChilds) {
-                        // Gather all variables for the new child domain. Update inherited values, keep non-inherited ones.
-                        Domain updateDomain = new Domain();
-                        updateDomain.setValidfrom(oldChild.getValidfrominherited() ? newDomain.getValidfrom() : oldChild.getValidfrom());
-                        updateDomain.setValidfrominherited(oldChild.getValidfrominherited());
-                        updateDomain.setValidto(oldChild.getValidtoinherited() ? newDomain.getValidto() : oldChild.getValidto());
-                        updateDomain.setValidtoinherited(oldChild.getValidtoinherited());
-                        updateDomain.setEnforcestartdatevalidity(oldChild.getEnforcestartdatevalidityinherited() ? newDomain.getEnforcestartdatevalidity() : oldChild.getEnforcestartdatevalidity());
-                        updateDomain.setEnforcestartdatevalidityinherited(oldChild.getEnforcestartdatevalidityinherited());
-                        updateDomain.setEnforceenddatevalidity(oldChild.getEnforceenddatevalidityinherited() ? newDomain.getEnforceenddatevalidity() : oldChild.getEnforceenddatevalidity());
-                        updateDomain.setEnforceenddatevalidityinherited(oldChild.getEnforceenddatevalidityinherited());
-                        updateDomain.setAlgorithm(oldChild.getAlgorithminherited() ? newDomain.getAlgorithm() : oldChild.getAlgorithm());
-                        updateDomain.setAlgorithminherited(oldChild.getAlgorithminherited());
-                        updateDomain.setAlphabet(oldChild.getAlphabetinherited() ? newDomain.getAlphabet() : oldDomain.getAlphabet());
-                        updateDomain.setAlphabetinherited(oldChild.getAlphabetinherited());
-                        updateDomain.setRandomalgorithmdesiredsize(oldChild.getRandomalgorithmdesiredsizeinherited() ? newDomain.getRandomalgorithmdesiredsize() : oldDomain.getRandomalgorithmdesiredsize());
-                        updateDomain.setRandomalgorithmdesiredsizeinherited(oldChild.getRandomalgorithmdesiredsizeinherited());
-                        updateDomain.setRandomalgorithmdesiredsuccessprobability(oldChild.getRandomalgorithmdesiredsuccessprobabilityinherited() ? newDomain.getRandomalgorithmdesiredsuccessprobability() : oldDomain.getRandomalgorithmdesiredsuccessprobability());
-                        updateDomain.setRandomalgorithmdesiredsuccessprobabilityinherited(oldChild.getRandomalgorithmdesiredsuccessprobabilityinherited());
-                        updateDomain.setPseudonymlength(oldChild.getPseudonymlengthinherited() ? newDomain.getPseudonymlength() : oldChild.getPseudonymlength());
-                        updateDomain.setPseudonymlengthinherited(oldChild.getPseudonymlengthinherited());
-                        updateDomain.setPaddingcharacter(oldChild.getPaddingcharacterinherited() ? newDomain.getPaddingcharacter() : oldChild.getPaddingcharacter());
-                        updateDomain.setPaddingcharacterinherited(oldChild.getPaddingcharacterinherited());
-                        updateDomain.setAddcheckdigit(oldChild.getAddcheckdigitinherited() ? newDomain.getAddcheckdigit() : oldDomain.getAddcheckdigit());
-                        updateDomain.setAddcheckdigitinherited(oldChild.getAddcheckdigitinherited());
-                        updateDomain.setLengthincludescheckdigit(oldChild.getLengthincludescheckdigitinherited() ? newDomain.getLengthincludescheckdigit() : oldDomain.getLengthincludescheckdigit());
-                        updateDomain.setLengthincludescheckdigitinherited(oldChild.getLengthincludescheckdigitinherited());
-
-                        // Recursive call of the update method
-                        if (updateDomain(oldChild, updateDomain, recursiveChanges) != null) {
-                            log.debug("Successfully updated the child-domain \"" + oldChild.getName() + "\".");
-                        } else {
-                            // Failed update of child-domain. Use exception to break the transaction.
-                            throw new FailedChildDomainUpdateException(oldChild.getName());
-                        }
-                    }
-                } // End of recursive child-handling
+                // Propagate the inherited validity to the pseudonym-records of the (sub-)tree. Very large 
+                // domains can be processed in chunks after the domain update was committed (see below).
+                if (properties.getValidityPropagationChunkSize() <= 0) {
+                	int propagated = propagateInheritedValidity(DSL.using(configuration), subtree, null, null);
+                	log.debug("Propagated the inherited validity to " + propagated + " pseudonym-record(s).");
+                }
                 
                 // Check if the permissions need to be adapted
                 if (newDomain.getName() != null && !oldDomain.getName().equals(newDomain.getName())) {
@@ -979,6 +1200,20 @@ public class DomainDBAccessService {
                     	throw new PermissionManagementException(newDomain.getName());
                     }
                 }
+                
+                // The pseudonymizers and pooled pseudonyms were built with the old settings (e.g. salt, alphabet) and must 
+                // be rebuilt; the cached lookups may contain records with an outdated inherited validity
+                for (Integer domainId : subtree) {
+                	pseudonymizerRegistry.invalidateDomain(domainId);
+                	pseudonymPool.invalidateDomain(domainId);
+                	pseudonymCache.invalidateDomain(domainId);
+                }
+                domainTree.invalidate();
+                
+                // A manually set counter replaces the values that were already leased
+                if (newDomain.getConsecutivevaluecounter() != null) {
+                	counterAllocator.invalidateDomain(oldDomain.getId());
+                }
 
                 // Implicit transaction commit here
             });
@@ -986,6 +1221,15 @@ public class DomainDBAccessService {
             // Successful update
             String name = (newDomain.getName() != null) ? newDomain.getName() : oldDomain.getName();
             log.debug("Successfully updated the domain \"" + name + "\".");
+            
+            // Propagate the inherited validity in chunks, each in its own transaction
+            if (properties.getValidityPropagationChunkSize() > 0 
+            		&& propagateInheritedValidityInChunks(name, subtree, properties.getValidityPropagationChunkSize()) < 0) {
+            	// The propagation is derived from the committed domain(s), so repeating the update completes it
+            	log.error("The domain \"" + name + "\" was updated, but the inherited validity couldn't be propagated to all of its pseudonym-records.");
+            	return null;
+            }
+            
             return getDomainByName(name);
         } catch (DomainNotFoundException e) {
             log.info("The domain (\"" + e.getDomainName() + "\") is not in the database. Nothing to update.");
@@ -994,12 +1238,6 @@ public class DomainDBAccessService {
             log.error("The update would have affected an unexpected number of records. It should only affect 1 record, "
                     + "but affected " + f.getActual() + " records.");
             return null;
-        } catch (FailedPseudonymUpdateException g) {
-            log.error("While updating the records in the domain \"" + g.getDomainName() + "\" an error occurred. The update was therefore rolled back.");
-            return null;
-        } catch (FailedChildDomainUpdateException h) {
-            log.error("Updating the child-domain \"" + h.getChildName() + "\" was unsuccessful and was therefore rolled back.");
-            return null;
         } catch (PermissionManagementException i) {
             log.error("Updating the permissions failed for the domain (" + i.getCausingResource() + "). The update was therefore rolled back.");
             return null;
@@ -1009,4 +1247,147 @@ public class DomainDBAccessService {
             return null;
         }
     }
+
+    /**
+     * Helper method that propagates the inheritable attributes of a domain to all of its descendants
+     * with a single statement. A recursive common table expression walks down the tree and determines
+     * the effective values of every descendant: inherited attributes are taken from the (already 
+     * resolved) parent, all others are kept.
+     *
+     * @param ctx the context of the running transaction
+     * @param domainId the ID of the domain whose attributes should be propagated
+     * @return the IDs of the updated descendant domains
+     */
+    private List<Integer> propagateInheritedAttributes(DSLContext ctx, int domainId) {
+    	return ctx.resultQuery(
+    			"WITH RECURSIVE tree AS ("
+    			+ "SELECT id, validfrom, validto, enforcestartdatevalidity, enforceenddatevalidity, algorithm, alphabet, "
+    			+ "randomalgorithmdesiredsize, randomalgorithmdesiredsuccessprobability, pseudonymlength, paddingcharacter, "
+    			+ "addcheckdigit, lengthincludescheckdigit "
+    			+ "FROM {0} WHERE id = {1} "
+    			+ "UNION ALL "
+    			+ "SELECT c.id, "
+    			+ "CASE WHEN c.validfrominherited THEN t.validfrom ELSE c.validfrom END, "
+    			+ "CASE WHEN c.validtoinherited THEN t.validto ELSE c.validto END, "
+    			+ "CASE WHEN c.enforcestartdatevalidityinherited THEN t.enforcestartdatevalidity ELSE c.enforcestartdatevalidity END, "
+    			+ "CASE WHEN c.enforceenddatevalidityinherited THEN t.enforceenddatevalidity ELSE c.enforceenddatevalidity END, "
+    			+ "CASE WHEN c.algorithminherited THEN t.algorithm ELSE c.algorithm END, "
+    			+ "CASE WHEN c.alphabetinherited THEN t.alphabet ELSE c.alphabet END, "
+    			+ "CASE WHEN c.randomalgorithmdesiredsizeinherited THEN t.randomalgorithmdesiredsize ELSE c.randomalgorithmdesiredsize END, "
+    			+ "CASE WHEN c.randomalgorithmdesiredsuccessprobabilityinherited THEN t.randomalgorithmdesiredsuccessprobability ELSE c.randomalgorithmdesiredsuccessprobability END, "
+    			+ "CASE WHEN c.pseudonymlengthinherited THEN t.pseudonymlength ELSE c.pseudonymlength END, "
+    			+ "CASE WHEN c.paddingcharacterinherited THEN t.paddingcharacter ELSE c.paddingcharacter END, "
+    			+ "CASE WHEN c.addcheckdigitinherited THEN t.addcheckdigit ELSE c.addcheckdigit END, "
+    			+ "CASE WHEN c.lengthincludescheckdigitinherited THEN t.lengthincludescheckdigit ELSE c.lengthincludescheckdigit END "
+    			+ "FROM {0} c JOIN tree t ON c.superdomainid = t.id) "
+    			+ "UPDATE {0} d SET validfrom = t.validfrom, validto = t.validto, "
+    			+ "enforcestartdatevalidity = t.enforcestartdatevalidity, enforceenddatevalidity = t.enforceenddatevalidity, "
+    			+ "algorithm = t.algorithm, alphabet = t.alphabet, randomalgorithmdesiredsize = t.randomalgorithmdesiredsize, "
+    			+ "randomalgorithmdesiredsuccessprobability = t.randomalgorithmdesiredsuccessprobability, "
+    			+ "pseudonymlength = t.pseudonymlength, paddingcharacter = t.paddingcharacter, "
+    			+ "addcheckdigit = t.addcheckdigit, lengthincludescheckdigit = t.lengthincludescheckdigit "
+    			+ "FROM tree t WHERE d.id = t.id AND d.id <> {1} "
+    			+ "RETURNING d.id", 
+    			DOMAIN, DSL.val(domainId))
+    		.fetch(0, Integer.class);
+    }
+
+    /**
+     * Helper method that propagates the inherited validity period of the given domains to their 
+     * pseudonym-records with a single statement. Only records that inherit their validFrom or validTo
+     * value and differ from their domain's value are touched.
+     *
+     * @param ctx the context of the transaction to use
+     * @param domainIds the IDs of the domains whose records should be updated
+     * @param lowerId if not {@code null}, only records with a greater ID are updated
+     * @param upperId if not {@code null}, only records with an ID less than or equal to it are updated
+     * @return the number of updated pseudonym-records
+     */
+    private int propagateInheritedValidity(DSLContext ctx, List<Integer> domainIds, Long lowerId, Long upperId) {
+    	Condition condition = PSEUDONYM.DOMAINID.eq(DOMAIN.ID)
+    			.and(DOMAIN.ID.in(domainIds))
+    			.and(PSEUDONYM.VALIDFROMINHERITED.isTrue().and(PSEUDONYM.VALIDFROM.isDistinctFrom(DOMAIN.VALIDFROM))
+    					.or(PSEUDONYM.VALIDTOINHERITED.isTrue().and(PSEUDONYM.VALIDTO.isDistinctFrom(DOMAIN.VALIDTO))));
+    	
+    	if (lowerId != null) {
+    		condition = condition.and(PSEUDONYM.ID.gt(lowerId));
+    	}
+    	
+    	if (upperId != null) {
+    		condition = condition.and(PSEUDONYM.ID.le(upperId));
+    	}
+    	
+    	return ctx.update(PSEUDONYM)
+    			.set(PSEUDONYM.VALIDFROM, DSL.when(PSEUDONYM.VALIDFROMINHERITED.isTrue(), DOMAIN.VALIDFROM).otherwise(PSEUDONYM.VALIDFROM))
+    			.set(PSEUDONYM.VALIDTO, DSL.when(PSEUDONYM.VALIDTOINHERITED.isTrue(), DOMAIN.VALIDTO).otherwise(PSEUDONYM.VALIDTO))
+    			.from(DOMAIN)
+    			.where(condition)
+    			.execute();
+    }
+
+    /**
+     * Helper method that propagates the inherited validity period of the given domains to their 
+     * pseudonym-records in chunks of consecutive record IDs. Every chunk is committed in its own 
+     * transaction, so that very large domains neither hold one long-running transaction nor 
+     * exhaust the memory. The progress is logged after every chunk. Since the new values are 
+     * derived from the committed domains, an interrupted propagation can simply be repeated.
+     *
+     * @param domainName the name of the updated domain (for the progress reports)
+     * @param domainIds the IDs of the domains whose records should be updated
+     * @param chunkSize the maximum number of records per chunk
+     * @return the number of updated pseudonym-records, or {@code -1} if an error occurred
+     */
+    private long propagateInheritedValidityInChunks(String domainName, List<Integer> domainIds, int chunkSize) {
+    	try {
+    		// Determine the number of records to process for the progress reports
+    		long total = dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.in(domainIds)
+    				.and(PSEUDONYM.VALIDFROMINHERITED.isTrue().or(PSEUDONYM.VALIDTOINHERITED.isTrue())));
+    		
+    		long processed = 0;
+    		long propagated = 0;
+    		Long lowerId = null;
+    		
+    		while (true) {
+    			// Determine the upper bound of the next chunk
+    			Condition chunkCondition = PSEUDONYM.DOMAINID.in(domainIds)
+    					.and(PSEUDONYM.VALIDFROMINHERITED.isTrue().or(PSEUDONYM.VALIDTOINHERITED.isTrue()));
+    			if (lowerId != null) {
+    				chunkCondition = chunkCondition.and(PSEUDONYM.ID.gt(lowerId));
+    			}
+    			
+    			Table<?> chunk = dsl.select(PSEUDONYM.ID)
+    					.from(PSEUDONYM)
+    					.where(chunkCondition)
+    					.orderBy(PSEUDONYM.ID)
+    					.limit(chunkSize)
+    					.asTable("chunk");
+    			Record2<Long, Integer> bounds = dsl.select(DSL.max(chunk.field(PSEUDONYM.ID)), DSL.count())
+    					.from(chunk)
+    					.fetchOne();
+    			
+    			if (bounds == null || bounds.value1() == null) {
+    				break;
+    			}
+    			
+    			// Update the chunk in its own transaction
+    			Long from = lowerId;
+    			Long to = bounds.value1();
+    			propagated += dsl.transactionResult(configuration -> propagateInheritedValidity(DSL.using(configuration), domainIds, from, to));
+    			processed += bounds.value2();
+    			
+    			// The chunk is committed now; lookups cached in the meantime may contain records with the old validity
+    			domainIds.forEach(pseudonymCache::invalidateDomain);
+    			lowerId = to;
+    			
+    			log.info("Propagating the inherited validity of the domain \"" + domainName + "\": processed " + processed 
+    					+ " of " + total + " pseudonym-records (" + (total == 0 ? 100 : processed * 100 / total) + "%).");
+    		}
+    		
+    		log.debug("Propagated the inherited validity to " + propagated + " pseudonym-record(s).");
+    		return propagated;
+    	} catch (Exception e) {
+    		log.error("Couldn't propagate the inherited validity to the pseudonym-records: " + e.getClass() + ": " + e.getMessage());
+    		return -1;
+    	}
+    }
 }
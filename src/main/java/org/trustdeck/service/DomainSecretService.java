@@ -0,0 +1,114 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Manages the secret keys of the domains. Unlike the salt, a domain's secret key is never part of the 
+ * domain object, so it's neither returned by any endpoint nor written to the logs. The key is generated 
+ * randomly the first time it's needed and never changes afterwards.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class DomainSecretService {
+	
+	/** The number of random bytes of a secret key. */
+	private static final int KEY_LENGTH = 32;
+	
+	/** The table holding the secret keys. */
+	private static final Table<Record> DOMAIN_SECRET = DSL.table(DSL.name("domain_secret"));
+	
+	/** The ID of the domain the key belongs to. */
+	private static final Field<Integer> DOMAIN_ID = DSL.field(DSL.name("domain_secret", "domainid"), Integer.class);
+	
+	/** The key used for the format-preserving encryption. */
+	private static final Field<byte[]> FPE_KEY = DSL.field(DSL.name("domain_secret", "fpekey"), byte[].class);
+	
+	/** Source of the generated keys. */
+	private final SecureRandom random = new SecureRandom();
+	
+	/** The keys that were already loaded. They never change, so they don't have to be invalidated. */
+	private final Map<Integer, byte[]> keys = new ConcurrentHashMap<>();
+	
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/**
+	 * Retrieves the format-preserving encryption key of a domain. If the domain doesn't have a key yet, 
+	 * a new one is generated. When several nodes do this at the same time, all of them use the key that 
+	 * was stored first.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return a copy of the key, or {@code null} if it couldn't be retrieved
+	 */
+	public byte[] getFpeKey(int domainId) {
+		byte[] key = keys.get(domainId);
+		if (key == null) {
+			try {
+				key = loadOrCreateFpeKey(domainId);
+			} catch (Exception e) {
+				log.error("Couldn't retrieve the secret key of the domain with ID " + domainId + ": " + e.getMessage());
+				return null;
+			}
+			
+			keys.put(domainId, key);
+		}
+		
+		return key.clone();
+	}
+	
+	/**
+	 * Reads the key of a domain from the database and stores a new one if there is none yet.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the stored key
+	 */
+	private byte[] loadOrCreateFpeKey(int domainId) {
+		byte[] key = dsl.select(FPE_KEY).from(DOMAIN_SECRET).where(DOMAIN_ID.eq(domainId)).fetchOne(FPE_KEY);
+		if (key != null) {
+			return key;
+		}
+		
+		byte[] generated = new byte[KEY_LENGTH];
+		random.nextBytes(generated);
+		dsl.insertInto(DOMAIN_SECRET, DOMAIN_ID, FPE_KEY)
+			.values(domainId, generated)
+			.onConflictDoNothing()
+			.execute();
+		log.debug("Generated a new secret key for the domain with ID " + domainId + ".");
+		
+		// Another node might have stored its key first
+		return dsl.select(FPE_KEY).from(DOMAIN_SECRET).where(DOMAIN_ID.eq(domainId)).fetchSingle(FPE_KEY);
+	}
+}
@@ -0,0 +1,456 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustdeck.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.dto.DomainStatisticsDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.utils.TransactionHooks;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+import static org.trustdeck.jooq.generated.Tables.DOMAIN;
+import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
+
+/**
+ * Service that maintains the number of pseudonyms per domain, so that it doesn't need to be counted 
+ * on every request. Insertions, deletions, and moves of pseudonyms are collected as per-domain deltas 
+ * in memory (once their transaction is committed) and periodically added to the {@code domain_statistics} 
+ * table. Since only deltas are written, multiple nodes can maintain the same statistics. A reconciliation 
+ * job periodically stores exact counts, which also provide the reference point for the growth rate. 
+ * The deltas are kept apart from the exact counts and tagged with the time of their commit, so that 
+ * deltas flushed after a reconciliation are only added if the exact count didn't contain them yet.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class DomainStatisticsService {
+
+	/** The table holding the statistics. */
+	private static final Table<Record> DOMAIN_STATISTICS = DSL.table(DSL.name("domain_statistics"));
+	
+	/** The ID of the domain the statistics belong to. */
+	private static final Field<Integer> DOMAIN_ID = DSL.field(DSL.name("domain_statistics", "domainid"), Integer.class);
+	
+	/** The sum of the changes of the number of pseudonyms since the last reconciliation. */
+	private static final Field<Long> DELTA_COUNT = DSL.field(DSL.name("domain_statistics", "deltacount"), Long.class);
+	
+	/** The exact number of pseudonyms at the last reconciliation. */
+	private static final Field<Long> RECONCILED_COUNT = DSL.field(DSL.name("domain_statistics", "reconciledcount"), Long.class);
+	
+	/** The time of the last reconciliation. */
+	private static final Field<LocalDateTime> RECONCILED_AT = DSL.field(DSL.name("domain_statistics", "reconciledat"), LocalDateTime.class);
+	
+	/** The exact number of pseudonyms at the reconciliation before the last one. */
+	private static final Field<Long> PREVIOUS_COUNT = DSL.field(DSL.name("domain_statistics", "previouscount"), Long.class);
+	
+	/** The time of the reconciliation before the last one. */
+	private static final Field<LocalDateTime> PREVIOUS_AT = DSL.field(DSL.name("domain_statistics", "previousat"), LocalDateTime.class);
+	
+	/** The time of the last change of the statistics. */
+	private static final Field<LocalDateTime> UPDATED_AT = DSL.field(DSL.name("domain_statistics", "updatedat"), LocalDateTime.class);
+	
+	/** The current time of the database, which (unlike {@code now()}) advances within a transaction. */
+	private static final Field<LocalDateTime> CLOCK = DSL.field("clock_timestamp()::timestamp", LocalDateTime.class);
+	
+	/** The length of the time slots by which the pending changes are grouped (in milliseconds). */
+	private static final long BUCKET_MILLIS = 100;
+	
+	/** How long flushed (and therefore empty) time slots are kept before they are removed (in milliseconds). */
+	private static final long BUCKET_RETENTION_MILLIS = 60000;
+
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/** The tuning properties (flush and reconciliation intervals). */
+	@Autowired
+	private PseudonymizationProperties properties;
+
+	/** 
+	 * The committed changes of the number of pseudonyms that weren't written to the database yet, keyed by the domain's ID 
+	 * and grouped by the start of the time slot (in local epoch milliseconds) in which they were committed.
+	 */
+	private final Map<Integer, ConcurrentSkipListMap<Long, LongAdder>> pendingDeltas = new ConcurrentHashMap<>();
+	
+	/** Executes the flushes and reconciliations in the background. */
+	private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "domain-statistics");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	/**
+	 * Schedules the background jobs. The statistics table is part of the database schema.
+	 */
+	@PostConstruct
+	public void init() {
+		if (properties.getStatisticsFlushIntervalMillis() > 0) {
+			scheduler.scheduleWithFixedDelay(this::flushSafely, properties.getStatisticsFlushIntervalMillis(), 
+					properties.getStatisticsFlushIntervalMillis(), TimeUnit.MILLISECONDS);
+		}
+		
+		if (properties.getStatisticsReconciliationIntervalMinutes() > 0) {
+			// Domains without statistics are reconciled on their first request, so the first run can wait
+			scheduler.scheduleWithFixedDelay(() -> reconcile(null), properties.getStatisticsReconciliationIntervalMinutes(), 
+					properties.getStatisticsReconciliationIntervalMinutes(), TimeUnit.MINUTES);
+		}
+	}
+	
+	/**
+	 * Counts newly stored pseudonyms once the surrounding transaction is committed.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param count the number of stored pseudonyms
+	 */
+	public void recordInserted(int domainId, long count) {
+		if (count != 0) {
+			TransactionHooks.afterCommit(() -> {
+				long bucket = System.currentTimeMillis() / BUCKET_MILLIS * BUCKET_MILLIS;
+				pendingDeltas.computeIfAbsent(domainId, id -> new ConcurrentSkipListMap<>())
+						.computeIfAbsent(bucket, b -> new LongAdder())
+						.add(count);
+			});
+		}
+	}
+	
+	/**
+	 * Counts deleted pseudonyms (or pseudonyms moved to another domain) once the surrounding transaction is committed.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param count the number of deleted pseudonyms
+	 */
+	public void recordDeleted(int domainId, long count) {
+		recordInserted(domainId, -count);
+	}
+	
+	/**
+	 * Drops the pending changes of a domain (e.g. when it was deleted; its statistics are deleted along with it).
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainId) {
+		if (domainId != null) {
+			TransactionHooks.afterCommit(() -> pendingDeltas.remove(domainId));
+		}
+	}
+	
+	/**
+	 * Retrieves the number of pseudonyms in a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param exact whether the pseudonyms should be counted ({@code true}) or the maintained number, 
+	 * 			including the changes not yet written by this node, is sufficient ({@code false})
+	 * @return the number of pseudonyms, or {@code null} when an error occurred
+	 */
+	public Long getPseudonymCount(int domainId, boolean exact) {
+		try {
+			if (!exact) {
+				Record r = dsl.select(RECONCILED_COUNT, DELTA_COUNT)
+						.from(DOMAIN_STATISTICS)
+						.where(DOMAIN_ID.eq(domainId))
+						.fetchOne();
+				
+				if (r != null && r.get(RECONCILED_COUNT) != null) {
+					return r.get(RECONCILED_COUNT) + r.get(DELTA_COUNT) + getPendingDelta(domainId);
+				}
+				
+				// The domain wasn't reconciled yet; do it now
+				log.debug("No statistics found for the domain with ID " + domainId + ". Reconciling.");
+				reconcile(domainId);
+			}
+			
+			return (long) dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(domainId));
+		} catch (Exception e) {
+			log.error("Couldn't determine the number of pseudonyms in the domain with ID " + domainId + ": " + e.getClass() + ": " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Collects the statistics of a domain: the number of pseudonyms, the fill ratio relative to the 
+	 * desired size of randomness-based domains, and the growth per hour since the reconciliation 
+	 * before the last one.
+	 * 
+	 * @param domain the domain
+	 * @param exact whether the pseudonyms should be counted or the maintained number is sufficient
+	 * @return the statistics of the domain, or {@code null} when an error occurred
+	 */
+	public DomainStatisticsDTO getStatistics(Domain domain, boolean exact) {
+		Long count = getPseudonymCount(domain.getId(), exact);
+		if (count == null) {
+			return null;
+		}
+		
+		DomainStatisticsDTO statistics = DomainStatisticsDTO.builder()
+				.domainName(domain.getName())
+				.pseudonymCount(count)
+				.exact(exact)
+				.desiredSize(domain.getRandomalgorithmdesiredsize())
+				.build();
+		
+		if (domain.getRandomalgorithmdesiredsize() != null && domain.getRandomalgorithmdesiredsize() > 0) {
+			statistics.setFillRatio((double) count / domain.getRandomalgorithmdesiredsize());
+		}
+		
+		try {
+			Record r = dsl.select(RECONCILED_AT, PREVIOUS_COUNT, PREVIOUS_AT)
+					.from(DOMAIN_STATISTICS)
+					.where(DOMAIN_ID.eq(domain.getId()))
+					.fetchOne();
+			
+			if (r != null) {
+				statistics.setReconciledAt(r.get(RECONCILED_AT));
+				
+				// The growth is measured from the older reconciliation, so that the window is never empty
+				LocalDateTime previousAt = r.get(PREVIOUS_AT);
+				if (previousAt != null && r.get(PREVIOUS_COUNT) != null) {
+					double hours = Duration.between(previousAt, LocalDateTime.now()).toMillis() / 3600000.0d;
+					if (hours > 0) {
+						statistics.setGrowthPerHour((count - r.get(PREVIOUS_COUNT)) / hours);
+					}
+				}
+			}
+		} catch (Exception e) {
+			log.debug("Couldn't determine the growth of the domain \"" + domain.getName() + "\": " + e.getMessage());
+		}
+		
+		return statistics;
+	}
+	
+	/**
+	 * Writes the pending changes to the database. Changes are added to the stored deltas,
+	 * so that multiple nodes can flush independently. Changes committed before the last
+	 * reconciliation are dropped, since the exact count already contains them.
+	 * 
+	 * @return the number of domains whose statistics were updated
+	 */
+	public synchronized int flush() {
+		int flushed = 0;
+		
+		// The offset between the database's clock and the local clock, to compare commit times with reconciliation times
+		Long clockOffset = null;
+		
+		for (Map.Entry<Integer, ConcurrentSkipListMap<Long, LongAdder>> entry : pendingDeltas.entrySet()) {
+			Integer domainId = entry.getKey();
+			ConcurrentSkipListMap<Long, LongAdder> buckets = entry.getValue();
+			
+			// Collect the changes per time slot; slots are only removed once no commit can refer to them anymore
+			Map<Long, Long> drained = new TreeMap<>();
+			for (Map.Entry<Long, LongAdder> bucket : buckets.entrySet()) {
+				long delta = bucket.getValue().sumThenReset();
+				if (delta != 0) {
+					drained.put(bucket.getKey(), delta);
+				}
+			}
+			buckets.headMap(System.currentTimeMillis() - BUCKET_RETENTION_MILLIS).clear();
+			
+			if (drained.isEmpty()) {
+				continue;
+			}
+			
+			try {
+				if (clockOffset == null) {
+					long localMillis = System.currentTimeMillis();
+					clockOffset = toMillis(dsl.select(CLOCK).fetchOne(CLOCK)) - localMillis;
+				}
+				long offset = clockOffset;
+				
+				dsl.transaction(configuration -> {
+					DSLContext ctx = DSL.using(configuration);
+					
+					// Lock the statistics, so that a concurrent reconciliation can't count the changes in between
+					ctx.insertInto(DOMAIN_STATISTICS, DOMAIN_ID)
+							.values(domainId)
+							.onConflictDoNothing()
+							.execute();
+					LocalDateTime reconciledAt = ctx.select(RECONCILED_AT)
+							.from(DOMAIN_STATISTICS)
+							.where(DOMAIN_ID.eq(domainId))
+							.forUpdate()
+							.fetchOne(RECONCILED_AT);
+					
+					// Time slots that overlap the reconciliation are added, as their changes might not be contained
+					long cutoff = (reconciledAt == null) ? Long.MIN_VALUE : toMillis(reconciledAt) - offset;
+					long delta = drained.entrySet().stream()
+							.filter(bucket -> bucket.getKey() + BUCKET_MILLIS > cutoff)
+							.mapToLong(Map.Entry::getValue)
+							.sum();
+					
+					ctx.update(DOMAIN_STATISTICS)
+							.set(DELTA_COUNT, DELTA_COUNT.plus(delta))
+							.set(UPDATED_AT, DSL.currentLocalDateTime())
+							.where(DOMAIN_ID.eq(domainId))
+							.execute();
+				});
+				flushed++;
+			} catch (Exception e) {
+				log.debug("Couldn't write the statistics of the domain with ID " + domainId + ": " + e.getMessage());
+				
+				// Keep the changes for the next attempt, unless the domain was deleted in the meantime
+				try {
+					if (!dsl.fetchExists(DOMAIN, DOMAIN.ID.eq(domainId))) {
+						pendingDeltas.remove(domainId);
+						continue;
+					}
+				} catch (Exception f) {
+					// Keep the changes
+				}
+				drained.forEach((bucket, delta) -> buckets.computeIfAbsent(bucket, b -> new LongAdder()).add(delta));
+			}
+		}
+		
+		return flushed;
+	}
+	
+	/**
+	 * Stores exact counts of the pseudonyms and resets the deltas that were maintained since the
+	 * last reconciliation. The previous reconciliation is kept as the reference point for the growth rate.
+	 * Each domain is reconciled in a transaction of its own, during which its statistics are locked.
+	 * 
+	 * @param domainId the ID of the domain to reconcile, or {@code null} to reconcile all domains
+	 * @return the number of reconciled domains, or {@code -1} when an error occurred
+	 */
+	public int reconcile(Integer domainId) {
+		List<Integer> domainIds;
+		try {
+			// Write this node's pending changes first, so that they don't linger until the next flush
+			flush();
+			
+			domainIds = (domainId == null) ? dsl.select(DOMAIN.ID).from(DOMAIN).fetch(DOMAIN.ID) : List.of(domainId);
+		} catch (Exception e) {
+			log.error("Couldn't reconcile the domain statistics: " + e.getClass() + ": " + e.getMessage());
+			return -1;
+		}
+		
+		int reconciled = 0;
+		boolean failed = false;
+		
+		for (Integer id : domainIds) {
+			try {
+				dsl.transaction(configuration -> {
+					DSLContext ctx = DSL.using(configuration);
+					
+					// Lock the statistics, so that no delta is flushed while counting
+					ctx.insertInto(DOMAIN_STATISTICS, DOMAIN_ID)
+							.values(id)
+							.onConflictDoNothing()
+							.execute();
+					Record previous = ctx.select(RECONCILED_COUNT, RECONCILED_AT)
+							.from(DOMAIN_STATISTICS)
+							.where(DOMAIN_ID.eq(id))
+							.forUpdate()
+							.fetchOne();
+					
+					// The time is taken before counting, so that every change committed earlier is contained in the count
+					LocalDateTime reconciledAt = ctx.select(CLOCK).fetchOne(CLOCK);
+					long count = ctx.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(id));
+					
+					ctx.update(DOMAIN_STATISTICS)
+							.set(PREVIOUS_COUNT, previous.get(RECONCILED_COUNT))
+							.set(PREVIOUS_AT, previous.get(RECONCILED_AT))
+							.set(RECONCILED_COUNT, count)
+							.set(RECONCILED_AT, reconciledAt)
+							.set(DELTA_COUNT, 0L)
+							.set(UPDATED_AT, DSL.currentLocalDateTime())
+							.where(DOMAIN_ID.eq(id))
+							.execute();
+				});
+				reconciled++;
+			} catch (Exception e) {
+				// Domains deleted in the meantime don't need statistics
+				try {
+					if (!dsl.fetchExists(DOMAIN, DOMAIN.ID.eq(id))) {
+						continue;
+					}
+				} catch (Exception f) {
+					// Report the original error
+				}
+				
+				log.error("Couldn't reconcile the statistics of the domain with ID " + id + ": " + e.getClass() + ": " + e.getMessage());
+				failed = true;
+			}
+		}
+		
+		log.debug("Reconciled the statistics of " + reconciled + " domain(s).");
+		return failed ? -1 : reconciled;
+	}
+	
+	/**
+	 * Sums up the changes of a domain that weren't written to the database yet.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the sum of the pending changes
+	 */
+	private long getPendingDelta(int domainId) {
+		Map<Long, LongAdder> buckets = pendingDeltas.get(domainId);
+		return (buckets == null) ? 0 : buckets.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+	
+	/**
+	 * Converts a timestamp of the database into milliseconds, so that it can be compared with the local clock.
+	 * 
+	 * @param timestamp the timestamp
+	 * @return the timestamp in milliseconds (shifted by the database's time zone, which the clock offset compensates)
+	 */
+	private static long toMillis(LocalDateTime timestamp) {
+		return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+	}
+
+	/**
+	 * Writes the pending changes to the database without propagating errors (used by the background job).
+	 */
+	private void flushSafely() {
+		try {
+			flush();
+		} catch (Exception e) {
+			log.error("Flushing the domain statistics failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Writes the pending changes and stops the background jobs.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		scheduler.shutdownNow();
+		flushSafely();
+	}
+}
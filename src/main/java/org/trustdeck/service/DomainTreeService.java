@@ -0,0 +1,145 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import static org.trustdeck.jooq.generated.Tables.DOMAIN;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jooq.DSLContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.trustdeck.algorithms.DomainTree;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Holds the current snapshot of the domain tree, so that tree traversals (subtrees, paths for the linking 
+ * of pseudonyms, etc.) don't have to query the domain table recursively every time. The snapshot is loaded 
+ * once and replaced as a whole whenever a domain is created, updated, or deleted; readers always see one 
+ * consistent version. Changes made by other nodes are picked up once the snapshot reached its maximum age.
+ * Only the structure of the tree is reliable; other attributes of the domains (e.g. the counter) may be outdated.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class DomainTreeService {
+	
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/** The tuning properties of the pseudonymization (e.g. the maximum age of the snapshot). */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/** The current snapshot, or {@code null} if none was loaded yet. */
+	private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+	
+	/** Source for the versions of the snapshots. */
+	private final AtomicLong versionCounter = new AtomicLong();
+	
+	/** Counts the invalidations. A snapshot is outdated when an invalidation happened after it started loading. */
+	private final AtomicLong invalidationCounter = new AtomicLong();
+	
+	/**
+	 * Retrieves the current snapshot of the domain tree. An outdated snapshot is replaced first.
+	 * 
+	 * @return the snapshot, or {@code null} if it couldn't be loaded
+	 */
+	public DomainTree getTree() {
+		Snapshot current = snapshot.get();
+		if (isValid(current)) {
+			return current.tree();
+		}
+		
+		synchronized (this) {
+			// Another thread might have replaced the snapshot in the meantime
+			current = snapshot.get();
+			if (isValid(current)) {
+				return current.tree();
+			}
+			
+			// Remember the invalidations before loading, so that concurrent changes outdate the new snapshot right away
+			long invalidations = invalidationCounter.get();
+			List<Domain> domains = null;
+			try {
+				domains = dsl.selectFrom(DOMAIN).fetchInto(Domain.class);
+			} catch (Exception e) {
+				log.error("Couldn't load the domain tree: " + e.getMessage());
+				return null;
+			}
+			
+			DomainTree tree = new DomainTree(domains, versionCounter.incrementAndGet());
+			snapshot.set(new Snapshot(tree, invalidations, System.nanoTime()));
+			log.trace("Loaded version " + tree.getVersion() + " of the domain tree with " + tree.size() + " domain(s).");
+			
+			return tree;
+		}
+	}
+	
+	/**
+	 * Outdates the current snapshot, right away and once the surrounding transaction is completed 
+	 * (so that a snapshot loaded in between, which might contain uncommitted changes, is also replaced).
+	 * Needs to be called whenever a domain is created, updated, moved, or deleted.
+	 */
+	public void invalidate() {
+		invalidationCounter.incrementAndGet();
+		
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					invalidationCounter.incrementAndGet();
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Helper method that checks whether a snapshot can still be used.
+	 * 
+	 * @param current the snapshot
+	 * @return {@code true} if the snapshot is neither outdated by an invalidation nor too old
+	 */
+	private boolean isValid(Snapshot current) {
+		if (current == null || current.invalidations() != invalidationCounter.get()) {
+			return false;
+		}
+		
+		long maxAge = properties.getDomainTreeMaxAgeSeconds();
+		return maxAge > 0 && System.nanoTime() - current.loadedAt() < TimeUnit.SECONDS.toNanos(maxAge);
+	}
+	
+	/**
+	 * A loaded snapshot.
+	 * 
+	 * @param tree the domain tree
+	 * @param invalidations the number of invalidations when the loading started
+	 * @param loadedAt the time of the loading (in nanoseconds, see {@link System#nanoTime()})
+	 */
+	private record Snapshot(DomainTree tree, long invalidations, long loadedAt) {};
+}
@@ -0,0 +1,272 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.QueryPart;
+import org.jooq.Record;
+import org.jooq.Result;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.utils.Utility.Pair;
+
+import lombok.extern.slf4j.Slf4j;
+
+import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
+
+/**
+ * Service that links pseudonym-records along a path through the domain tree. A record in one domain is 
+ * linked to a record in the next domain of the path, when the pseudonym of the one is the identifier 
+ * of the other (down the tree) or vice versa (up the tree). The path is walked one hop at a time with a 
+ * recursive query, where every hop only probes the indexes of its own domain. A search therefore costs 
+ * (path length &times; fan-out) index lookups and is aborted when it visits too many records.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class LinkedPseudonymService {
+
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/** The tuning properties of the pseudonymization (e.g. the maximum number of visited records). */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/**
+	 * Finds the records in the last domain of the path that are linked to the starting record(s) in the 
+	 * first domain of the path. The starting records are determined by the identifier and idType, or by 
+	 * the pseudonym. If neither is given, all records of the first domain are used.
+	 * 
+	 * @param path the domains along the path, starting with the source domain and ending with the target domain
+	 * @param sourceIdentifier the identifier of the record to start from (used together with the idType)
+	 * @param sourceIdType the idType of the record to start from
+	 * @param sourcePsn the pseudonym of the record to start from (used if no identifier and idType are given)
+	 * @return the linked records and the number of records found at each hop, or {@code null} when an error occurred
+	 */
+	@Transactional(readOnly = true)
+	public LinkageResult link(List<Domain> path, String sourceIdentifier, String sourceIdType, String sourcePsn) {
+		// Determine the starting record(s) in the first domain of the path
+		Condition source = PSEUDONYM.as("s").DOMAINID.eq(path.getFirst().getId());
+		if (sourceIdentifier != null && sourceIdType != null) {
+			source = source.and(PSEUDONYM.as("s").IDENTIFIER.eq(sourceIdentifier)).and(PSEUDONYM.as("s").IDTYPE.eq(sourceIdType));
+		} else if (sourcePsn != null) {
+			source = source.and(PSEUDONYM.as("s").PSEUDONYM_.eq(sourcePsn));
+		}
+		QueryPart start = DSL.sql("SELECT 1, s.id, s.id, s.identifier, s.pseudonym, 1::bigint FROM {0} s WHERE {1}", PSEUDONYM, source);
+		
+		try {
+			BatchLinkageResult walk = walk(path, start, 1, properties.getLinkedPseudonymMaxRows());
+			return new LinkageResult(walk.links().getFirst(), walk.hopCardinalities(), walk.limitExceeded());
+		} catch (Exception e) {
+			log.error("Couldn't link the pseudonyms along the path of " + path.size() + " domains: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Finds the records in the last domain of the path that are linked to each of the given starting records 
+	 * in the first domain of the path. All chains are resolved at once. The starting records are determined by 
+	 * their identifier and idType, or by their pseudonym if no complete identifier is given. 
+	 * The limit of visited records applies to the whole batch, independent of its size.
+	 * 
+	 * @param path the domains along the path, starting with the source domain and ending with the target domain
+	 * @param sources the starting records (an identifier &amp; idType or a pseudonym each)
+	 * @return the linked records for each starting record (in the original order) and the number of records 
+	 * 			found at each hop, or {@code null} when an error occurred
+	 */
+	@Transactional(readOnly = true)
+	public BatchLinkageResult linkAll(List<Domain> path, List<PseudonymDTO> sources) {
+		if (sources.isEmpty()) {
+			return new BatchLinkageResult(List.of(), new ArrayList<>(Collections.nCopies(path.size(), 0)), false);
+		}
+		
+		int n = sources.size();
+		String[] identifiers = new String[n];
+		String[] idTypes = new String[n];
+		String[] psns = new String[n];
+		for (int i = 0; i < n; i++) {
+			PseudonymDTO source = sources.get(i);
+			IdentifierItem item = source.getIdentifierItem();
+			if (item != null && item.getIdentifier() != null && item.getIdType() != null) {
+				identifiers[i] = item.getIdentifier();
+				idTypes[i] = item.getIdType();
+			} else {
+				psns[i] = source.getPsn();
+			}
+		}
+		
+		// Join every starting record with its record(s) in the first domain of the path, either by identifier or by pseudonym
+		QueryPart start = DSL.sql("SELECT 1, s.id, s.id, s.identifier, s.pseudonym, i.ord "
+				+ "FROM unnest({0}::text[], {1}::text[], {2}::text[]) WITH ORDINALITY AS i(identifier, idtype, pseudonym, ord) "
+				+ "CROSS JOIN LATERAL ("
+				+ "SELECT * FROM {3} r WHERE r.domainid = {4} AND i.identifier IS NOT NULL AND r.identifier = i.identifier AND r.idtype = i.idtype "
+				+ "UNION ALL "
+				+ "SELECT * FROM {3} r WHERE r.domainid = {4} AND i.identifier IS NULL AND r.pseudonym = i.pseudonym"
+				+ ") s", 
+				DSL.val(identifiers), DSL.val(idTypes), DSL.val(psns), PSEUDONYM, DSL.val(path.getFirst().getId()));
+		
+		try {
+			return walk(path, start, n, properties.getLinkedPseudonymBatchMaxRows());
+		} catch (Exception e) {
+			log.error("Couldn't link the batch of " + n + " pseudonyms along the path of " + path.size() + " domains: " + e.getMessage());
+			return null;
+		}
+	}
+	
+	/**
+	 * Helper method that walks the path one hop at a time, starting from the given records in the first domain. 
+	 * Every hop only looks up the records of its own domain whose identifier is the previous pseudonym (down the 
+	 * tree) or whose pseudonym is the previous identifier (up the tree). Since the recursion is evaluated lazily, 
+	 * the limit also stops the walk once too many records were visited.
+	 * 
+	 * @param path the domains along the path
+	 * @param start the query for the starting records (hop 1) with the columns 
+	 * 			(hop, source's ID, ID, identifier, pseudonym, position of the starting record in the request)
+	 * @param sources the number of starting records in the request
+	 * @param maxRows the maximum number of records to visit
+	 * @return the linked records for each starting record and the number of records found at each hop
+	 */
+	private BatchLinkageResult walk(List<Domain> path, QueryPart start, int sources, long maxRows) {
+		Integer[] domainIds = path.stream().map(Domain::getId).toArray(Integer[]::new);
+		long limit = Math.max(1L, maxRows);
+		
+		Result<Record> chain = dsl.resultQuery(
+				"WITH RECURSIVE chain(hop, sourceid, id, identifier, pseudonym, sourceord) AS ("
+				+ "{2} "
+				+ "UNION ALL "
+				+ "SELECT c.hop + 1, c.sourceid, n.id, n.identifier, n.pseudonym, c.sourceord FROM chain c "
+				+ "CROSS JOIN LATERAL ("
+				+ "SELECT f.id, f.identifier, f.pseudonym FROM {0} f WHERE f.domainid = ({1}::integer[])[c.hop + 1] AND f.identifier = c.pseudonym "
+				+ "UNION "
+				+ "SELECT b.id, b.identifier, b.pseudonym FROM {0} b WHERE b.domainid = ({1}::integer[])[c.hop + 1] AND b.pseudonym = c.identifier"
+				+ ") n WHERE c.hop < {3}) "
+				+ "SELECT hop, sourceid, id, sourceord FROM chain LIMIT {4}", 
+				PSEUDONYM, DSL.val(domainIds), start, DSL.inline(domainIds.length), DSL.inline(limit + 1))
+			.fetch();
+		
+		// Count the records found at each hop
+		List<Integer> hopCardinalities = new ArrayList<>(Collections.nCopies(domainIds.length, 0));
+		for (Record r : chain) {
+			int hop = r.get("hop", Integer.class);
+			hopCardinalities.set(hop - 1, hopCardinalities.get(hop - 1) + 1);
+		}
+		
+		if (chain.size() > limit) {
+			log.warn("Linking pseudonyms along the path of " + domainIds.length + " domains was aborted after visiting more than " 
+					+ limit + " records (per hop: " + hopCardinalities + ").");
+			return new BatchLinkageResult(List.of(), hopCardinalities, true);
+		}
+		log.debug("Linking pseudonyms along the path of " + domainIds.length + " domains visited " + chain.size() 
+				+ " records (per hop: " + hopCardinalities + ").");
+		
+		// Collect the ends of the complete chains; the same pair can be reached on different ways through the tree
+		Set<ChainEnd> chainEnds = new LinkedHashSet<>();
+		Set<Long> sourceIds = new HashSet<>();
+		Set<Long> targetIds = new HashSet<>();
+		for (Record r : chain) {
+			if (r.get("hop", Integer.class) == domainIds.length) {
+				ChainEnd end = new ChainEnd(r.get("sourceord", Long.class).intValue() - 1, r.get("sourceid", Long.class), r.get("id", Long.class));
+				chainEnds.add(end);
+				sourceIds.add(end.sourceId());
+				targetIds.add(end.targetId());
+			}
+		}
+		
+		// Retrieve the complete records at both ends of the chains and group them by starting record
+		Map<Long, Pseudonym> sourceRecords = chainEnds.isEmpty() ? Map.of() : fetchRecords(domainIds[0], sourceIds);
+		Map<Long, Pseudonym> targetRecords = chainEnds.isEmpty() ? Map.of() : fetchRecords(domainIds[domainIds.length - 1], targetIds);
+		
+		List<List<Pair<Pseudonym, Pseudonym>>> links = new ArrayList<>(sources);
+		for (int i = 0; i < sources; i++) {
+			links.add(new ArrayList<>());
+		}
+		for (ChainEnd end : chainEnds) {
+			Pseudonym source = sourceRecords.get(end.sourceId());
+			Pseudonym target = targetRecords.get(end.targetId());
+			if (source != null && target != null) {
+				links.get(end.position()).add(new Pair<>(source, target));
+			}
+		}
+		
+		return new BatchLinkageResult(links, hopCardinalities, false);
+	}
+	
+	/**
+	 * Helper method that retrieves the records with the given IDs from a domain.
+	 * 
+	 * @param domainId the ID of the domain the records are in
+	 * @param ids the IDs of the records
+	 * @return the records, keyed by their ID
+	 */
+	private Map<Long, Pseudonym> fetchRecords(int domainId, Set<Long> ids) {
+		return dsl.selectFrom(PSEUDONYM)
+				.where(PSEUDONYM.DOMAINID.eq(domainId))
+				.and(PSEUDONYM.ID.in(ids))
+				.fetchInto(Pseudonym.class)
+				.stream()
+				.collect(Collectors.toMap(Pseudonym::getId, Function.identity()));
+	}
+	
+	/**
+	 * The result of linking pseudonyms along a path through the domain tree.
+	 * 
+	 * @param links the pairs of linked records (A, B), with A being the starting record and B being the linked record
+	 * @param hopCardinalities the number of records found at each hop of the path (starting with the source domain)
+	 * @param limitExceeded whether or not the search was aborted because it visited too many records
+	 */
+	public record LinkageResult(List<Pair<Pseudonym, Pseudonym>> links, List<Integer> hopCardinalities, boolean limitExceeded) {};
+	
+	/**
+	 * The result of linking the pseudonyms of multiple starting records along a path through the domain tree.
+	 * 
+	 * @param links the pairs of linked records (A, B) for each starting record (in the order of the request)
+	 * @param hopCardinalities the number of records found at each hop of the path (starting with the source domain)
+	 * @param limitExceeded whether or not the search was aborted because it visited too many records
+	 */
+	public record BatchLinkageResult(List<List<Pair<Pseudonym, Pseudonym>>> links, List<Integer> hopCardinalities, boolean limitExceeded) {};
+	
+	/**
+	 * The ends of a complete chain of linked records.
+	 * 
+	 * @param position the position of the starting record in the request
+	 * @param sourceId the ID of the record the chain starts with
+	 * @param targetId the ID of the record the chain ends with
+	 */
+	private record ChainEnd(int position, long sourceId, long targetId) {};
+}
@@ -0,0 +1,465 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.trustdeck.service;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.utils.TransactionHooks;
+
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.map.IMap;
+import com.hazelcast.query.Predicate;
+import com.hazelcast.topic.ITopic;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache for the lookups of pseudonym-records by identifier &amp; idType and by pseudonym-value.
+ * By default, the lookups are kept in a bounded local cache with a time-to-live (and a shorter one for 
+ * lookups that found nothing). Optionally, a Hazelcast map with a near cache (see {@code CachingConfig}) 
+ * is used instead, whose entries are also invalidated when records are changed by other nodes.
+ * Entries are invalidated by all paths that create, update, move, or delete pseudonym-records, both right 
+ * away and once the surrounding transaction is committed. When the local cache is used, the invalidations 
+ * are also published on a Hazelcast topic, so that the other nodes drop their entries as well. Lookups that 
+ * overlap with an invalidation are not cached, so that no outdated record is put into the cache after it 
+ * was invalidated.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class PseudonymCacheService {
+	
+	/** Name of the Hazelcast map that is optionally used instead of the local cache. */
+	public static final String MAP_PSEUDONYM_LOOKUPS = "pseudonym-lookups";
+	
+	/** Name of the Hazelcast topic on which the invalidations of the local caches are published. */
+	public static final String TOPIC_PSEUDONYM_INVALIDATIONS = "pseudonym-invalidations";
+	
+	/** Hazelcast instance used for the optional shared cache and for publishing the invalidations to the other nodes. */
+	@Autowired
+	private HazelcastInstance hazelcast;
+	
+	/** The tuning properties (size and time-to-live of the cache). */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/** The local cache; evicts the least recently used entries once it is full. */
+	private Map<LookupKey, CacheEntry> local;
+	
+	/** Counts the invalidations; a lookup is only cached if no invalidation happened while it was loaded. */
+	private final AtomicLong invalidationCounter = new AtomicLong();
+	
+	/** The number of lookups answered with a record from the cache. */
+	private final LongAdder hits = new LongAdder();
+	
+	/** The number of lookups answered from the cache with the information that no record exists. */
+	private final LongAdder negativeHits = new LongAdder();
+	
+	/** The number of lookups that had to query the database. */
+	private final LongAdder misses = new LongAdder();
+	
+	/** The topic on which the invalidations are exchanged with the other nodes. */
+	private ITopic<Invalidation> topic;
+	
+	/**
+	 * Creates the local cache with the configured capacity and subscribes to the invalidations published by the other nodes.
+	 */
+	@PostConstruct
+	public void init() {
+		int capacity = properties.getPseudonymCacheMaxEntries();
+		local = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<LookupKey, CacheEntry> eldest) {
+				return size() > capacity;
+			}
+		});
+		
+		topic = hazelcast.getTopic(TOPIC_PSEUDONYM_INVALIDATIONS);
+		topic.addMessageListener(message -> {
+			if (message.getPublishingMember() != null && message.getPublishingMember().localMember()) {
+				return;
+			}
+			
+			Invalidation invalidation = message.getMessageObject();
+			log.trace("Received the invalidation of " + (invalidation.domainId() == null ? "all pseudonym lookups." 
+					: "pseudonym lookups in the domain with ID " + invalidation.domainId() + "."));
+			
+			if (invalidation.domainId() == null) {
+				removeAll();
+			} else if (invalidation.byIdentifier() == null && invalidation.byPsn() == null) {
+				removeDomain(invalidation.domainId());
+			} else {
+				remove(invalidation.byIdentifier(), invalidation.byPsn());
+			}
+		});
+	}
+	
+	/**
+	 * Retrieves the pseudonym-records of an identifier &amp; idType combination in a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param identifier the identifier
+	 * @param idType the type of the identifier
+	 * @param loader queries the records from the database if they aren't cached (returns an empty list if there are none)
+	 * @return copies of the records, or an empty list if there are none
+	 */
+	public List<Pseudonym> getByIdentifier(int domainId, String identifier, String idType, Supplier<List<Pseudonym>> loader) {
+		return get(new LookupKey(domainId, identifier, idType, null), loader);
+	}
+	
+	/**
+	 * Retrieves the pseudonym-record of a pseudonym-value in a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param psn the pseudonym-value
+	 * @param loader queries the record from the database if it isn't cached (returns an empty list if there is none)
+	 * @return a copy of the record, or {@code null} if there is none
+	 */
+	public Pseudonym getByPsn(int domainId, String psn, Supplier<List<Pseudonym>> loader) {
+		List<Pseudonym> pseudonyms = get(new LookupKey(domainId, null, null, psn), loader);
+		return pseudonyms.isEmpty() ? null : pseudonyms.get(0);
+	}
+	
+	/**
+	 * Removes the lookups of a pseudonym-record from the cache (on this and all other nodes), right away 
+	 * and once the surrounding transaction is committed.
+	 * 
+	 * @param domainId the ID of the domain the record is (or was) in
+	 * @param identifier the identifier of the record
+	 * @param idType the type of the identifier
+	 * @param psn the pseudonym-value of the record
+	 */
+	public void invalidate(int domainId, String identifier, String idType, String psn) {
+		if (!isEnabled()) {
+			return;
+		}
+		
+		LookupKey byIdentifier = new LookupKey(domainId, identifier, idType, null);
+		LookupKey byPsn = new LookupKey(domainId, null, null, psn);
+		
+		Runnable removal = () -> {
+			remove(byIdentifier, byPsn);
+			
+			if (properties.isPseudonymCacheHazelcastEnabled()) {
+				IMap<LookupKey, ArrayList<Pseudonym>> map = hazelcast.getMap(MAP_PSEUDONYM_LOOKUPS);
+				map.delete(byIdentifier);
+				map.delete(byPsn);
+			}
+		};
+		
+		removal.run();
+		TransactionHooks.afterCommitIfActive(removal);
+		publish(new Invalidation(domainId, byIdentifier, byPsn));
+	}
+	
+	/**
+	 * Removes all lookups of a domain from the cache (on this and all other nodes, e.g. when the domain was deleted 
+	 * or the validity of its records changed), right away and once the surrounding transaction is committed.
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainId) {
+		if (domainId == null || !isEnabled()) {
+			return;
+		}
+		
+		Runnable removal = () -> {
+			removeDomain(domainId);
+			
+			if (properties.isPseudonymCacheHazelcastEnabled()) {
+				IMap<LookupKey, ArrayList<Pseudonym>> map = hazelcast.getMap(MAP_PSEUDONYM_LOOKUPS);
+				map.removeAll((Predicate<LookupKey, ArrayList<Pseudonym>>) entry -> entry.getKey().domainId() == domainId);
+			}
+		};
+		
+		removal.run();
+		TransactionHooks.afterCommitIfActive(removal);
+		publish(new Invalidation(domainId, null, null));
+	}
+	
+	/**
+	 * Removes all lookups from the cache (on this and all other nodes).
+	 */
+	public void invalidateAll() {
+		if (!isEnabled()) {
+			return;
+		}
+		
+		removeAll();
+		
+		if (properties.isPseudonymCacheHazelcastEnabled()) {
+			hazelcast.getMap(MAP_PSEUDONYM_LOOKUPS).clear();
+		}
+		
+		publish(new Invalidation(null, null, null));
+	}
+	
+	/**
+	 * Collects the metrics of the cache.
+	 * 
+	 * @return the metrics
+	 */
+	public CacheMetrics getMetrics() {
+		long h = hits.sum();
+		long n = negativeHits.sum();
+		long m = misses.sum();
+		long lookups = h + n + m;
+		
+		int size = !isEnabled() ? 0 : properties.isPseudonymCacheHazelcastEnabled() ? hazelcast.getMap(MAP_PSEUDONYM_LOOKUPS).size() : local.size();
+		
+		return new CacheMetrics(size, h, n, m, lookups == 0 ? 0.0d : (double) (h + n) / lookups, 
+				invalidationCounter.get(), properties.isPseudonymCacheHazelcastEnabled());
+	}
+	
+	/**
+	 * Looks up the given key in the cache, or loads and caches the records if they are not cached.
+	 * 
+	 * @param key the lookup
+	 * @param loader queries the records from the database
+	 * @return copies of the records
+	 */
+	private List<Pseudonym> get(LookupKey key, Supplier<List<Pseudonym>> loader) {
+		if (!isEnabled()) {
+			return loader.get();
+		}
+		
+		long version = invalidationCounter.get();
+		long now = System.currentTimeMillis();
+		
+		// The Hazelcast map's near cache replaces the local cache, since it is also invalidated by changes on other nodes
+		IMap<LookupKey, ArrayList<Pseudonym>> map = properties.isPseudonymCacheHazelcastEnabled() ? hazelcast.getMap(MAP_PSEUDONYM_LOOKUPS) : null;
+		if (map != null) {
+			ArrayList<Pseudonym> shared = map.get(key);
+			if (shared != null) {
+				return hit(shared);
+			}
+		} else {
+			CacheEntry entry = local.get(key);
+			if (entry != null && entry.expiresAt() > now) {
+				return hit(entry.pseudonyms());
+			}
+		}
+		
+		// Query the database
+		misses.increment();
+		List<Pseudonym> loaded = loader.get();
+		ArrayList<Pseudonym> pseudonyms = new ArrayList<>(loaded.size());
+		loaded.forEach(p -> pseudonyms.add(new Pseudonym(p)));
+		
+		store(map, key, pseudonyms, version, now);
+		return copy(pseudonyms);
+	}
+	
+	/**
+	 * Puts the records of a lookup into the cache, unless an invalidation happened since the lookup started.
+	 * 
+	 * @param map the Hazelcast map, or {@code null} if the local cache is used
+	 * @param key the lookup
+	 * @param pseudonyms the records
+	 * @param version the value of the invalidation counter when the lookup started
+	 * @param now the time the lookup started
+	 */
+	private void store(IMap<LookupKey, ArrayList<Pseudonym>> map, LookupKey key, ArrayList<Pseudonym> pseudonyms, long version, long now) {
+		if (map != null) {
+			// The remote write isn't done while holding the lock; an invalidation during the write removes the entry again
+			if (invalidationCounter.get() != version) {
+				log.trace("The pseudonym lookup was invalidated while it was loaded and is therefore not cached.");
+				return;
+			}
+			
+			map.set(key, pseudonyms, ttlMillis(pseudonyms), TimeUnit.MILLISECONDS);
+			if (invalidationCounter.get() != version) {
+				map.delete(key);
+			}
+			return;
+		}
+		
+		synchronized (local) {
+			if (invalidationCounter.get() != version) {
+				log.trace("The pseudonym lookup was invalidated while it was loaded and is therefore not cached.");
+				return;
+			}
+			
+			local.put(key, new CacheEntry(pseudonyms, now + ttlMillis(pseudonyms)));
+		}
+	}
+	
+	/**
+	 * Removes the given lookups from the local cache.
+	 * 
+	 * @param keys the lookups
+	 */
+	private void remove(LookupKey... keys) {
+		synchronized (local) {
+			invalidationCounter.incrementAndGet();
+			for (LookupKey key : keys) {
+				local.remove(key);
+			}
+		}
+	}
+	
+	/**
+	 * Removes all lookups of a domain from the local cache.
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	private void removeDomain(int domainId) {
+		synchronized (local) {
+			invalidationCounter.incrementAndGet();
+			local.keySet().removeIf(key -> key.domainId() == domainId);
+		}
+	}
+	
+	/**
+	 * Removes all lookups from the local cache.
+	 */
+	private void removeAll() {
+		synchronized (local) {
+			invalidationCounter.incrementAndGet();
+			local.clear();
+		}
+	}
+	
+	/**
+	 * Publishes an invalidation to the other nodes once the current transaction is committed, or right away 
+	 * if there is no transaction. The shared Hazelcast map needs no publication, since it is invalidated 
+	 * on all nodes anyway.
+	 * 
+	 * @param invalidation the invalidation
+	 */
+	private void publish(Invalidation invalidation) {
+		if (properties.isPseudonymCacheHazelcastEnabled()) {
+			return;
+		}
+		
+		Runnable publication = () -> {
+			try {
+				topic.publish(invalidation);
+			} catch (Exception e) {
+				log.error("Couldn't publish the invalidation of pseudonym lookups: " + e.getMessage());
+			}
+		};
+		
+		TransactionHooks.afterCommit(publication);
+	}
+	
+	/**
+	 * Counts a cache hit.
+	 * 
+	 * @param pseudonyms the cached records
+	 * @return copies of the records
+	 */
+	private List<Pseudonym> hit(List<Pseudonym> pseudonyms) {
+		if (pseudonyms.isEmpty()) {
+			negativeHits.increment();
+		} else {
+			hits.increment();
+		}
+		
+		return copy(pseudonyms);
+	}
+	
+	/**
+	 * Copies cached records, so that callers can't alter the cache's content.
+	 * 
+	 * @param pseudonyms the cached records
+	 * @return the copies
+	 */
+	private static List<Pseudonym> copy(List<Pseudonym> pseudonyms) {
+		List<Pseudonym> copies = new ArrayList<>(pseudonyms.size());
+		pseudonyms.forEach(p -> copies.add(new Pseudonym(p)));
+		
+		return copies;
+	}
+	
+	/**
+	 * Determines how long a lookup is cached. Lookups without a result are only cached briefly.
+	 * 
+	 * @param pseudonyms the records of the lookup
+	 * @return the time-to-live in milliseconds
+	 */
+	private long ttlMillis(List<Pseudonym> pseudonyms) {
+		return 1000L * (pseudonyms.isEmpty() ? properties.getPseudonymCacheNegativeTtlSeconds() : properties.getPseudonymCacheTtlSeconds());
+	}
+	
+	/**
+	 * Checks whether or not the cache is enabled.
+	 * 
+	 * @return {@code true} if lookups should be cached
+	 */
+	private boolean isEnabled() {
+		return properties.getPseudonymCacheMaxEntries() > 0;
+	}
+	
+	/**
+	 * The key of a cached lookup: either an identifier &amp; idType combination or a pseudonym-value in a domain.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param identifier the identifier ({@code null} for lookups by pseudonym-value)
+	 * @param idType the type of the identifier ({@code null} for lookups by pseudonym-value)
+	 * @param psn the pseudonym-value ({@code null} for lookups by identifier)
+	 */
+	public record LookupKey(int domainId, String identifier, String idType, String psn) implements Serializable {};
+	
+	/**
+	 * An invalidation published to the other nodes: either the lookups of a pseudonym-record, 
+	 * all lookups of a domain (without lookups), or all lookups (without a domain).
+	 * 
+	 * @param domainId the ID of the domain, or {@code null} to invalidate all lookups
+	 * @param byIdentifier the lookup of the record by identifier &amp; idType, or {@code null}
+	 * @param byPsn the lookup of the record by pseudonym-value, or {@code null}
+	 */
+	public record Invalidation(Integer domainId, LookupKey byIdentifier, LookupKey byPsn) implements Serializable {};
+	
+	/**
+	 * An entry of the local cache.
+	 * 
+	 * @param pseudonyms the records of the lookup (empty if nothing was found)
+	 * @param expiresAt the time (in milliseconds since the epoch) at which the entry expires
+	 */
+	private record CacheEntry(List<Pseudonym> pseudonyms, long expiresAt) {};
+	
+	/**
+	 * The metrics of the cache.
+	 * 
+	 * @param size the number of cached lookups
+	 * @param hits the number of lookups answered with a cached record
+	 * @param negativeHits the number of lookups answered with the cached information that no record exists
+	 * @param misses the number of lookups that queried the database
+	 * @param hitRate the fraction of lookups answered from the cache
+	 * @param invalidations the number of invalidations
+	 * @param hazelcast whether or not the Hazelcast map is used instead of the local cache
+	 */
+	public record CacheMetrics(int size, long hits, long negativeHits, long misses, double hitRate, long invalidations, boolean hazelcast) {};
+}
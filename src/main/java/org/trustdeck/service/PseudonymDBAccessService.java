@@ -20,12 +20,13 @@ package org.trustdeck.service;
 import lombok.extern.slf4j.Slf4j;
 
 import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.DeleteConditionStep;
 import org.jooq.Field;
-import org.jooq.Insert;
-import org.jooq.Row2;
-import org.jooq.UpdateConditionStep;
+import org.jooq.Record;
+import org.jooq.Record2;
+import org.jooq.Result;
 import org.jooq.exception.DataAccessException;
 import org.jooq.exception.MappingException;
 import org.jooq.impl.DSL;
@@ -33,9 +34,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.trustdeck.algorithms.FPEPseudonymizer;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.dto.DomainDTO;
 import org.trustdeck.dto.PseudonymDTO;
 import org.trustdeck.dto.PseudonymUpdateDTO;
 import org.trustdeck.exception.UnexpectedResultSizeException;
+import org.trustdeck.jooq.generated.Routines;
 import org.trustdeck.jooq.generated.tables.pojos.Domain;
 import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
 import org.trustdeck.jooq.generated.tables.records.PseudonymRecord;
@@ -46,11 +51,16 @@ import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 
 /**
@@ -70,6 +80,22 @@ public class PseudonymDBAccessService {
     @Autowired
     private DSLContext dsl;
 
+    /** Answers "definitely new" for pseudonym-values without querying the database. */
+    @Autowired
+    private PseudonymExistenceFilterService existenceFilter;
+
+    /** Maintains the number of pseudonyms per domain. */
+    @Autowired
+    private DomainStatisticsService domainStatistics;
+
+    /** Caches the lookups of pseudonym-records by identifier and by pseudonym-value. */
+    @Autowired
+    private PseudonymCacheService pseudonymCache;
+
+    /** Provides the preconfigured pseudonymizers of the domains. */
+    @Autowired
+    private PseudonymizerRegistryService pseudonymizerRegistry;
+
     /** Represents the duplication status of a requested insertion of an identifier and idType combination into the database. */
     public static final String INSERTION_DUPLICATE_IDENTIFIER = "duplicate identifier";
     
@@ -82,148 +108,89 @@ public class PseudonymDBAccessService {
     /** Represents a successful insertion of a record into the database. */
     public static final String INSERTION_SUCCESS = "success";
 
+    /** The maximum number of parameter bytes a single pseudonym insertion statement should carry. */
+    private static final long INSERT_CHUNK_BYTES = 4L * 1024 * 1024;
+
+    /** The estimated number of parameter bytes of a pseudonym record apart from its strings. */
+    private static final long INSERT_RECORD_OVERHEAD_BYTES = 64L;
+
     /**
      * Method to insert multiple pseudonyms at once in a batch. Duplicates will be ignored.
+     * Each chunk of the batch is inserted with a single statement; uniqueness is enforced
+     * by the table's constraints and the per-record status is reconstructed from the
+     * records the statement reports as inserted.
      *
      * @param pseudonyms a list of pseudonyms to insert into the database
      * @param domainId the ID of the domain in which the pseudonyms should be created
      * @param multiplePsnAllowed whether or not multiple pseudonyms per id &amp; idType combination are allowed
-     * @return {@code INSERTION_SUCCESS} when the batch insertion was successful, {@code INSERTION_ERROR} otherwise
+     * @return a list containing {@code INSERTION_SUCCESS}, {@code INSERTION_DUPLICATE_IDENTIFIER} or 
+     * 			{@code INSERTION_DUPLICATE_PSEUDONYM} for each pseudonym (in the original order), 
+     * 			or {@code null} when an error occurred
      */
     @Transactional
     public List<String> createPseudonyms(List<PseudonymDTO> pseudonyms, int domainId, boolean multiplePsnAllowed) {
+    	return createPseudonyms(pseudonyms, domainId, multiplePsnAllowed, false);
+    }
+
+    /**
+     * Method to insert multiple pseudonyms at once in a batch. Duplicates will be ignored.
+     * Each chunk of the batch is inserted with a single statement; uniqueness is enforced
+     * by the table's constraints and the per-record status is reconstructed from the
+     * records the statement reports as inserted.
+     * For algorithms that can't create colliding pseudonyms (see {@link Pseudonymizer#isCollisionFree(String)}), 
+     * the identifiers aren't checked for existing records before the insertion: since every identifier 
+     * always receives the same pseudonym, a conflicting pseudonym-value means that the identifier exists.
+     *
+     * @param pseudonyms a list of pseudonyms to insert into the database
+     * @param domainId the ID of the domain in which the pseudonyms should be created
+     * @param multiplePsnAllowed whether or not multiple pseudonyms per id &amp; idType combination are allowed
+     * @param collisionFree whether or not the pseudonyms were created by a collision-free algorithm
+     * @return a list containing {@code INSERTION_SUCCESS}, {@code INSERTION_DUPLICATE_IDENTIFIER} or 
+     * 			{@code INSERTION_DUPLICATE_PSEUDONYM} for each pseudonym (in the original order), 
+     * 			or {@code null} when an error occurred
+     */
+    @Transactional
+    public List<String> createPseudonyms(List<PseudonymDTO> pseudonyms, int domainId, boolean multiplePsnAllowed, boolean collisionFree) {
     	// Check if there is something to do
     	if (pseudonyms == null || pseudonyms.isEmpty()) {
             return List.of();
         }
     	
     	int n = pseudonyms.size();
-    	List<String> results = new ArrayList<>(n);
-    	
-    	// Prefill the result list with nulls
-    	for (int i = 0; i < n; i++) {
-    		results.add(null);
-    	}
-    	
-    	// Prefill the identifier-idType-duplicate-check list (only used if !multiplePsnAllowed)
-        List<Boolean> idExistsFlags = new ArrayList<>(Collections.nCopies(n, Boolean.FALSE));
-        
-        // Prefill the psn-duplicate-check list
-        List<Boolean> psnExistsFlags = new ArrayList<>(Collections.nCopies(n, Boolean.FALSE));
+    	List<String> results = new ArrayList<>(Collections.nCopies(n, (String) null));
     	
     	try {
-    		// If multiple pseudonyms per id&idType-combination are not allowed, then check 
-        	// if the id&idType-combination is already in the database
-            if (!multiplePsnAllowed) {
-            	// Create a list of identifier-idType-pairs that we can use to query the database
-            	List<Row2<String, String>> idRows = new ArrayList<>(n);
-	            for (PseudonymDTO dto : pseudonyms) {
-	                idRows.add(DSL.row(dto.getIdentifierItem().getIdentifier(), dto.getIdentifierItem().getIdType()));
-	            }
-	            
-	            // Query the database and see if we find any of the user-provided identifier-idType-pairs already in there
-	            Map<Row2<String, String>, Boolean> existingIdMap = dsl.select(PSEUDONYM.IDENTIFIER, PSEUDONYM.IDTYPE)
-	            	       .from(PSEUDONYM)
-	            	       .where(DSL.row(PSEUDONYM.IDENTIFIER, PSEUDONYM.IDTYPE).in(idRows))
-	            	       .and(PSEUDONYM.DOMAINID.eq(domainId))
-	            	       .fetchMap(r -> DSL.row(r.get(PSEUDONYM.IDENTIFIER), r.get(PSEUDONYM.IDTYPE)), r -> Boolean.TRUE);
-
-            	// Build List<Boolean> in the original order and mark duplicates
-	            for (int i = 0; i < n; i++) {
-	                boolean idIsDuplicate = existingIdMap.containsKey(idRows.get(i));
-	                idExistsFlags.set(i, idIsDuplicate);
-
-            		if (idIsDuplicate) {
-            	        results.set(i, INSERTION_DUPLICATE_IDENTIFIER);
-            	    }
-            	}
-            }
-            
-            // Check for duplicated pseudonyms (e.g. when using randomness-based algorithms and only a few unused pseudonyms are left)
-            List<String> psns = new ArrayList<>(n);
-            for (PseudonymDTO dto : pseudonyms) {
-                psns.add(dto.getPsn());
-            }
-
-            // Fetch existing pseudonyms in the domain of interest
-            Set<String> existingPsns = new HashSet<>(dsl.select(PSEUDONYM.PSEUDONYM_)
-                      .from(PSEUDONYM)
-                      .where(PSEUDONYM.DOMAINID.eq(domainId))
-                      .and(PSEUDONYM.PSEUDONYM_.in(psns))
-                      .fetch(PSEUDONYM.PSEUDONYM_));
-
-            // Fill psnExistsFlags and mark results
-            for (int i = 0; i < n; i++) {
-                boolean psnIsDuplicate = existingPsns.contains(psns.get(i));
-                psnExistsFlags.set(i, psnIsDuplicate);
-
-                if (psnIsDuplicate && results.get(i) == null) {
-                    results.set(i, INSERTION_DUPLICATE_PSEUDONYM);
-                }
-            }
+    		int inserted = 0;
+    		int chunks = 0;
+            List<String> insertedPsns = new ArrayList<>(n);
             
-            // Try inserting all (non-duplicate) pseudonym records
-            // Prepare the batch insert
-            List<Insert<PseudonymRecord>> inserts = new ArrayList<>(n);
-            List<Integer> insertIndices = new ArrayList<>(n); // For mapping batch result index -> pseudonym index
-            int skippedDuplicates = 0;
-
-            for (int i = 0; i < n; i++) {
-                // Skip if duplicate and duplicates are not allowed
-                if ((!multiplePsnAllowed && idExistsFlags.get(i)) || psnExistsFlags.get(i)) {
-                    skippedDuplicates++;
-                    continue;
-                }
-
-                // Prepare and add the insert query
-                PseudonymDTO dto = pseudonyms.get(i);
-                inserts.add(dsl.insertInto(PSEUDONYM)
-                    .set(PSEUDONYM.IDENTIFIER, dto.getIdentifierItem().getIdentifier())
-                    .set(PSEUDONYM.IDTYPE, dto.getIdentifierItem().getIdType())
-                    .set(PSEUDONYM.PSEUDONYM_, dto.getPsn())
-                    .set(PSEUDONYM.VALIDFROM, dto.getValidFrom())
-                    .set(PSEUDONYM.VALIDFROMINHERITED, dto.getValidFromInherited())
-                    .set(PSEUDONYM.VALIDTO, dto.getValidTo())
-                    .set(PSEUDONYM.VALIDTOINHERITED, dto.getValidToInherited())
-                    .set(PSEUDONYM.DOMAINID, domainId));
-                
-                // Track prepared indices
-                insertIndices.add(i);
+            // Split the batch into chunks that stay below the byte budget of a single statement
+            int chunkStart = 0;
+            long chunkBytes = 0;
+            for (int i = 0; i <= n; i++) {
+            	long recordBytes = i < n ? estimateInsertBytes(pseudonyms.get(i)) : 0;
+            	
+            	if (i == n || (i > chunkStart && chunkBytes + recordBytes > INSERT_CHUNK_BYTES)) {
+            		inserted += insertChunk(pseudonyms, chunkStart, i, domainId, multiplePsnAllowed, collisionFree, results, insertedPsns);
+            		chunks++;
+            		chunkStart = i;
+            		chunkBytes = 0;
+            	}
+            	
+            	chunkBytes += recordBytes;
             }
 
-            // If there is nothing to insert, we’re done
-            if (inserts.isEmpty()) {
-                log.trace("No pseudonyms to insert (" + skippedDuplicates + " duplicates skipped).");
-                return results;
-            }
-            
-            // Execute the batch 
-            int[] batchResult = dsl.batch(inserts).execute();
+            // Make the new pseudonyms known to the existence filter (after the commit)
+            existenceFilter.recordInserted(domainId, insertedPsns);
+            domainStatistics.recordInserted(domainId, inserted);
             
-            // Evaluate the results
-            int inserted = 0;
-            int ignored = skippedDuplicates;
-
-            for (int j = 0; j < batchResult.length; j++) {
-                int individualResult = batchResult[j];
-                int originalIndex = insertIndices.get(j);
-
-                if (individualResult == 1) {
-                    inserted++;
-                    results.set(originalIndex, INSERTION_SUCCESS);
-                } else if (individualResult == 0) {
-                    ignored++;
-                    if (results.get(originalIndex) == null) {
-                        results.set(originalIndex, INSERTION_ERROR);
-                    }
-                } else {
-                    // Unexpected result size: abort
-                    throw new UnexpectedResultSizeException(1, individualResult);
-                }
+            // Cached lookups (also those that found nothing) of the identifiers and pseudonym-values are outdated
+            for (PseudonymDTO p : pseudonyms) {
+            	pseudonymCache.invalidate(domainId, p.getIdentifierItem().getIdentifier(), p.getIdentifierItem().getIdType(), p.getPsn());
             }
 
-            log.trace("Inserted " + inserted + " pseudonym(s).");
-            log.trace("Ignored " + ignored + " pseudonym(s) (including " + skippedDuplicates + " duplicates).");
+            log.trace("Inserted " + inserted + " pseudonym(s) using " + chunks + " statement(s).");
+            log.trace("Ignored " + (n - inserted) + " pseudonym(s).");
             log.debug("Successfully inserted " + inserted + " out of " + n + " pseudonym" + (n == 1 ? "" : "s") + " into the database.");
 
             return results;
@@ -237,7 +204,226 @@ public class PseudonymDBAccessService {
     }
     
     /**
-     * Method to retrieve pseudonym-records. This method actually only 
+     * Helper method that inserts a chunk of pseudonyms with a single statement.
+     * The records are passed as one array parameter per column and unnested on the server side.
+     * Conflicts with the unique constraints are skipped ({@code ON CONFLICT DO NOTHING}). If multiple 
+     * pseudonyms per identifier are not allowed, records whose identifier &amp; idType combination 
+     * already exists in the domain (or occurred earlier in the same chunk) are left out by the statement itself.
+     * This check is skipped for collision-free algorithms, whose conflicts are reported as duplicate identifiers.
+     * Conflicts with identifiers that were inserted concurrently are reported as duplicate identifiers as well.
+     * The statement reports the outcome for every record of the chunk, identified by its position.
+     *
+     * @param pseudonyms the complete batch of pseudonyms
+     * @param from the index of the first pseudonym of the chunk (inclusive)
+     * @param to the index of the last pseudonym of the chunk (exclusive)
+     * @param domainId the ID of the domain in which the pseudonyms should be created
+     * @param multiplePsnAllowed whether or not multiple pseudonyms per id &amp; idType combination are allowed
+     * @param collisionFree whether or not the pseudonyms were created by a collision-free algorithm
+     * @param results the result list in which the status of each record is stored
+     * @param insertedPsns the list to which the inserted pseudonym-values are added
+     * @return the number of inserted records
+     */
+    private int insertChunk(List<PseudonymDTO> pseudonyms, int from, int to, int domainId, boolean multiplePsnAllowed, 
+    		boolean collisionFree, List<String> results, List<String> insertedPsns) {
+    	int size = to - from;
+    	String[] identifiers = new String[size];
+    	String[] idTypes = new String[size];
+    	String[] psns = new String[size];
+    	LocalDateTime[] validFroms = new LocalDateTime[size];
+    	Boolean[] validFromsInherited = new Boolean[size];
+    	LocalDateTime[] validTos = new LocalDateTime[size];
+    	Boolean[] validTosInherited = new Boolean[size];
+    	
+    	for (int i = 0; i < size; i++) {
+    		PseudonymDTO dto = pseudonyms.get(from + i);
+    		identifiers[i] = dto.getIdentifierItem().getIdentifier();
+    		idTypes[i] = dto.getIdentifierItem().getIdType();
+    		psns[i] = dto.getPsn();
+    		validFroms[i] = dto.getValidFrom();
+    		validFromsInherited[i] = dto.getValidFromInherited();
+    		validTos[i] = dto.getValidTo();
+    		validTosInherited[i] = dto.getValidToInherited();
+    	}
+    	
+    	// Only the first occurrence of an unused identifier & idType combination is a candidate when 
+    	// multiple pseudonyms are not allowed; otherwise every record is a candidate. Collision-free 
+    	// algorithms don't need the check, the pseudonym-value's constraint rejects existing identifiers.
+    	String candidates = (multiplePsnAllowed || collisionFree) 
+    			? "SELECT * FROM input" 
+    			: "SELECT DISTINCT ON (i.identifier, i.idtype) i.* FROM input i "
+    				+ "WHERE NOT EXISTS (SELECT 1 FROM {0} p WHERE p.domainid = {8} AND p.identifier = i.identifier AND p.idtype = i.idtype) "
+    				+ "ORDER BY i.identifier, i.idtype, i.ord";
+    	
+    	// Outcome per record: 0 = inserted, 1 = identifier & idType combination not a candidate, 2 = conflict on insertion
+    	Result<Record2<Long, Integer>> outcomes = dsl.resultQuery(
+    			"WITH input AS ("
+    			+ "SELECT * FROM unnest({1}::text[], {2}::text[], {3}::text[], {4}::timestamp[], {5}::boolean[], {6}::timestamp[], {7}::boolean[]) "
+    			+ "WITH ORDINALITY AS u(identifier, idtype, pseudonym, validfrom, validfrominherited, validto, validtoinherited, ord)), "
+    			+ "candidates AS (" + candidates + "), "
+    			+ "inserted AS ("
+    			+ "INSERT INTO {0} (identifier, idtype, pseudonym, validfrom, validfrominherited, validto, validtoinherited, domainid) "
+    			+ "SELECT identifier, idtype, pseudonym, validfrom, validfrominherited, validto, validtoinherited, {8} FROM candidates "
+    			+ "ON CONFLICT DO NOTHING "
+    			+ "RETURNING identifier, idtype, pseudonym), "
+    			+ "inserted_ords AS ("
+    			+ "SELECT min(c.ord) AS ord FROM inserted ins "
+    			+ "JOIN candidates c ON c.identifier = ins.identifier AND c.idtype = ins.idtype AND c.pseudonym = ins.pseudonym "
+    			+ "GROUP BY ins.identifier, ins.idtype, ins.pseudonym) "
+    			+ "SELECT i.ord, CASE WHEN r.ord IS NOT NULL THEN 0 WHEN c.ord IS NULL THEN 1 ELSE 2 END AS outcome "
+    			+ "FROM input i "
+    			+ "LEFT JOIN candidates c ON c.ord = i.ord "
+    			+ "LEFT JOIN inserted_ords r ON r.ord = i.ord", 
+    			PSEUDONYM, DSL.val(identifiers), DSL.val(idTypes), DSL.val(psns), DSL.val(validFroms), 
+    			DSL.val(validFromsInherited), DSL.val(validTos), DSL.val(validTosInherited), DSL.val(domainId))
+    		.coerce(DSL.field("ord", Long.class), DSL.field("outcome", Integer.class))
+    		.fetch();
+    	
+    	if (outcomes.size() != size) {
+    		// Every record of the chunk must be reported exactly once: abort
+    		throw new UnexpectedResultSizeException(size, outcomes.size());
+    	}
+    	
+    	// A conflict might also stem from an identifier that was inserted concurrently (the domain's unique identifier 
+    	// index rejects it), which the statement didn't see yet; a new statement also sees the committed records
+    	Set<Long> identifierConflicts = Set.of();
+    	if (!multiplePsnAllowed && !collisionFree && outcomes.stream().anyMatch(o -> o.value2() == 2)) {
+    		String[] conflictIdentifiers = new String[size];
+    		String[] conflictIdTypes = new String[size];
+    		for (Record2<Long, Integer> outcome : outcomes) {
+    			if (outcome.value2() == 2) {
+    				int i = outcome.value1().intValue() - 1;
+    				conflictIdentifiers[i] = identifiers[i];
+    				conflictIdTypes[i] = idTypes[i];
+    			}
+    		}
+    		
+    		identifierConflicts = new HashSet<>(dsl.resultQuery(
+    				"SELECT u.ord FROM unnest({1}::text[], {2}::text[]) WITH ORDINALITY AS u(identifier, idtype, ord) "
+    				+ "WHERE EXISTS (SELECT 1 FROM {0} p WHERE p.domainid = {3} AND p.identifier = u.identifier AND p.idtype = u.idtype)", 
+    				PSEUDONYM, DSL.val(conflictIdentifiers), DSL.val(conflictIdTypes), DSL.val(domainId))
+    			.coerce(DSL.field("ord", Long.class))
+    			.fetch(0, Long.class));
+    	}
+    	
+    	// Map the outcomes back to the original order (the ordinality is 1-based)
+    	int inserted = 0;
+    	for (Record2<Long, Integer> outcome : outcomes) {
+    		int index = from + outcome.value1().intValue() - 1;
+    		
+    		switch (identifierConflicts.contains(outcome.value1()) ? 1 : outcome.value2()) {
+    			case 0 -> {
+    				inserted++;
+    				results.set(index, INSERTION_SUCCESS);
+    				insertedPsns.add(pseudonyms.get(index).getPsn());
+    			}
+    			case 1 -> results.set(index, INSERTION_DUPLICATE_IDENTIFIER);
+    			default -> results.set(index, collisionFree ? INSERTION_DUPLICATE_IDENTIFIER : INSERTION_DUPLICATE_PSEUDONYM);
+    		}
+    	}
+    	
+    	return inserted;
+    }
+    
+    /**
+     * Helper method that estimates the number of bytes a pseudonym record 
+     * contributes to the parameters of an insertion statement.
+     *
+     * @param dto the pseudonym record
+     * @return the estimated size in bytes
+     */
+    private static long estimateInsertBytes(PseudonymDTO dto) {
+    	// Timestamps, booleans and the array element headers
+    	long bytes = INSERT_RECORD_OVERHEAD_BYTES;
+    	
+    	IdentifierItem item = dto.getIdentifierItem();
+    	if (item != null) {
+    		bytes += utf8Length(item.getIdentifier()) + utf8Length(item.getIdType());
+    	}
+    	
+    	return bytes + utf8Length(dto.getPsn());
+    }
+    
+    /**
+     * Helper method that determines the length of a string in UTF-8 encoding without encoding it.
+     *
+     * @param s the string
+     * @return the number of bytes of the UTF-8 encoded string, {@code 0} for {@code null}
+     */
+    private static long utf8Length(String s) {
+    	if (s == null) {
+    		return 0;
+    	}
+    	
+    	long length = 0;
+    	for (int i = 0; i < s.length(); i++) {
+    		char c = s.charAt(i);
+    		if (c < 0x80) {
+    			length += 1;
+    		} else if (c < 0x800) {
+    			length += 2;
+    		} else if (Character.isHighSurrogate(c)) {
+    			// Surrogate pairs form a single four-byte character
+    			length += 4;
+    			i++;
+    		} else {
+    			length += 3;
+    		}
+    	}
+    	
+    	return length;
+    }
+    
+    /**
+     * Determines which of the given pseudonym-values already exist in a domain.
+     * Used by the random pseudonymizers to regenerate colliding candidates before the insertion.
+     *
+     * @param domainId the ID of the domain to search in
+     * @param psns the pseudonym-values to check
+     * @return the subset of the given pseudonym-values that already exists in the domain,
+     * or {@code null} when an error occurs
+     */
+    @Transactional
+    public Set<String> getExistingPseudonyms(int domainId, Collection<String> psns) {
+    	// Check if there is something to do
+    	if (psns == null || psns.isEmpty()) {
+    		return Set.of();
+    	}
+
+        try {
+            return queryExistingPseudonyms(domainId, psns);
+        } catch (Exception e) {
+            log.error("Couldn't check the existence of " + psns.size() + " pseudonyms: " + e.getClass() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Helper method that determines which of the given pseudonym-values already exist in a domain.
+     * Values that the domain's existence filter reports as definitely new are not queried.
+     *
+     * @param domainId the ID of the domain to search in
+     * @param psns the pseudonym-values to check
+     * @return the subset of the given pseudonym-values that already exists in the domain
+     */
+    private Set<String> queryExistingPseudonyms(int domainId, Collection<String> psns) {
+    	Collection<String> possiblyExisting = existenceFilter.filterPossiblyExisting(domainId, psns);
+    	if (possiblyExisting.isEmpty()) {
+    		return new HashSet<>();
+    	}
+
+    	// Pass all values as a single array parameter to stay independent of the bind value limit
+        Set<String> existing = new HashSet<>(dsl.select(PSEUDONYM.PSEUDONYM_)
+                .from(PSEUDONYM)
+                .where(PSEUDONYM.DOMAINID.eq(domainId))
+                .and(PSEUDONYM.PSEUDONYM_.eq(DSL.any(possiblyExisting.toArray(new String[0]))))
+                .fetch(PSEUDONYM.PSEUDONYM_));
+        existenceFilter.recordConfirmedHits(domainId, existing.size());
+
+        return existing;
+    }
+
+    /**
+     * Method to retrieve pseudonym-records. This method actually only
      * evaluates the given information and delegates the getting-process.
      * 
      * @param domainName the name of the domain to search in
@@ -297,20 +483,22 @@ public class PseudonymDBAccessService {
                 return null;
             }
         	
-        	// Build and execute the query
-            List<Pseudonym> pseudonyms = dsl.selectFrom(PSEUDONYM)
-                    .where(PSEUDONYM.IDENTIFIER.equal(identifierItem.getIdentifier()))
-                    .and(PSEUDONYM.IDTYPE.equal(identifierItem.getIdType()))
-                    .and(PSEUDONYM.DOMAINID.eq(d.getId()))
-                    .fetchInto(Pseudonym.class);
+        	// Build and execute the query (unless the lookup is cached)
+            List<Pseudonym> pseudonyms = pseudonymCache.getByIdentifier(d.getId(), identifierItem.getIdentifier(), identifierItem.getIdType(), 
+            		() -> dsl.selectFrom(PSEUDONYM)
+		                    .where(PSEUDONYM.IDENTIFIER.equal(identifierItem.getIdentifier()))
+		                    .and(PSEUDONYM.IDTYPE.equal(identifierItem.getIdType()))
+		                    .and(PSEUDONYM.DOMAINID.eq(d.getId()))
+		                    .fetchInto(Pseudonym.class));
 
             // Check if a pseudonym-record was found or not
             if (pseudonyms == null || pseudonyms.size() == 0) {
                 log.debug("There is no element in the database matching the given identifier and type.");
                 return null;
             } else {
+            	DomainDTO domain = new DomainDTO().assignPojoValues(d);
             	List<PseudonymDTO> dtos = pseudonyms.stream()
-                        .map(p -> new PseudonymDTO().assignPojoValues(p))
+                        .map(p -> new PseudonymDTO().assignPojoValues(p, domain))
                         .collect(Collectors.toList());
 
                 log.trace("Successfully retrieved " + dtos.size() + " pseudonym" + (dtos.size() == 1 ? "." : "s."));
@@ -343,12 +531,21 @@ public class PseudonymDBAccessService {
                 log.debug("The domain to search the pseudonym in, wasn't found.");
                 return null;
             }
+            
+            // Values that can't be decrypted with the domain's key were never created in an FPE domain
+            if (Pseudonymizer.isCollisionFree(d.getAlgorithm()) 
+            		&& pseudonymizerRegistry.getPseudonymizer(d) instanceof FPEPseudonymizer fpe 
+            		&& fpe.depseudonymize(psn, d.getPrefix()) == null) {
+            	log.debug("The given value is no pseudonym of the domain.");
+            	return null;
+            }
         	
-        	// Build and execute the query
-            Pseudonym pseudonym = dsl.selectFrom(PSEUDONYM)
-                    .where(PSEUDONYM.PSEUDONYM_.equal(psn))
-                    .and(PSEUDONYM.DOMAINID.eq(d.getId()))
-                    .fetchOneInto(Pseudonym.class);
+        	// Build and execute the query (unless the lookup is cached)
+            Pseudonym pseudonym = pseudonymCache.getByPsn(d.getId(), psn, 
+            		() -> dsl.selectFrom(PSEUDONYM)
+		                    .where(PSEUDONYM.PSEUDONYM_.equal(psn))
+		                    .and(PSEUDONYM.DOMAINID.eq(d.getId()))
+		                    .fetchInto(Pseudonym.class));
             
             // Check if a pseudonym-record was found or not
             if (pseudonym == null) {
@@ -356,7 +553,7 @@ public class PseudonymDBAccessService {
                 return null;
             } else {
             	log.debug("Successfully retrieved a pseudonym.");
-                return new PseudonymDTO().assignPojoValues(pseudonym);
+                return new PseudonymDTO().assignPojoValues(pseudonym, new DomainDTO().assignPojoValues(d));
             }
         } catch (Exception e) {
         	// Force the outcome of this method to be a roll-back instead of committing the transaction
@@ -367,6 +564,278 @@ public class PseudonymDBAccessService {
         }
     }
 
+    /**
+     * Looks up many pseudonym-records at once with a single statement. Every lookup is given either 
+     * by an identifier &amp; idType, by a pseudonym-value, or by all three (then both have to match), 
+     * just like the single lookups. If multiple records match an identifier, the oldest one is returned.
+     * 
+     * @param domainId the ID of the domain to search in
+     * @param lookups the identifiers and/or pseudonym-values to look up
+     * @return a list containing the found record or {@code null} for each lookup (in the original order), 
+     * 			or {@code null} when an error occurred
+     */
+    public List<Pseudonym> lookupPseudonyms(int domainId, List<PseudonymDTO> lookups) {
+    	if (lookups == null || lookups.isEmpty()) {
+    		return List.of();
+    	}
+    	
+    	int n = lookups.size();
+    	String[] identifiers = new String[n];
+    	String[] idTypes = new String[n];
+    	String[] psns = new String[n];
+    	
+    	for (int i = 0; i < n; i++) {
+    		PseudonymDTO lookup = lookups.get(i);
+    		if (lookup.getIdentifierItem() != null && lookup.getIdentifierItem().isNotNullNorEmpty()) {
+    			identifiers[i] = lookup.getIdentifierItem().getIdentifier();
+    			idTypes[i] = lookup.getIdentifierItem().getIdType();
+    		}
+    		psns[i] = Assertion.isNotNullOrEmpty(lookup.getPsn()) ? lookup.getPsn() : null;
+    	}
+    	
+    	try {
+    		List<Pseudonym> found = lookup(domainId, identifiers, idTypes, psns);
+    		
+    		long hits = found.stream().filter(r -> r != null).count();
+    		log.debug("Found " + hits + " out of " + n + " looked up pseudonym" + (n == 1 ? "." : "s."));
+    		return found;
+    	} catch (Exception e) {
+    		log.error("Couldn't look up the batch of pseudonyms: " + e.getClass() + ": " + e.getMessage());
+    		return null;
+    	}
+    }
+    
+    /**
+     * Resolves identifiers to their pseudonym-records and creates the records that don't exist yet (get-or-create). 
+     * Pseudonyms are only generated for identifiers that don't have a record yet. The new records are inserted 
+     * with a single insert-statement per attempt; records that exist by now are returned as well. In domains that 
+     * don't allow multiple pseudonyms per identifier, the unique identifier index of the domain's partition ensures 
+     * that concurrent resolutions of the same identifier create only one record, which all of them return. 
+     * Records whose pseudonym is already used by another identifier (or twice in the same attempt) are left out 
+     * and generated anew in the next attempt.
+     * 
+     * @param domainId the ID of the domain
+     * @param requested the requested records (an identifier &amp; idType each; optionally a pseudonym and a validity period)
+     * @param creator completes the given requests that have to be created (pseudonym and validity period) and returns 
+     * 			one record for each of them (in the same order; {@code null} if a record can't be created)
+     * @param attempts the maximum number of attempts to create a record (more than one only helps 
+     * 			if the creator generates different pseudonyms in every attempt)
+     * @return a list containing the resolved record or {@code null} for each request (in the original order), 
+     * 			or {@code null} when an error occurred
+     */
+    @Transactional
+    public List<ResolvedPseudonym> resolvePseudonyms(int domainId, List<PseudonymDTO> requested, UnaryOperator<List<PseudonymDTO>> creator, int attempts) {
+    	if (requested == null || requested.isEmpty()) {
+    		return List.of();
+    	}
+    	
+    	List<ResolvedPseudonym> resolved = new ArrayList<>(Collections.nCopies(requested.size(), (ResolvedPseudonym) null));
+    	
+    	try {
+    		// Every identifier & idType combination is only resolved once, even if it is requested multiple times
+    		Map<IdentifierItem, List<Integer>> positions = new LinkedHashMap<>();
+    		for (int i = 0; i < requested.size(); i++) {
+    			IdentifierItem item = requested.get(i).getIdentifierItem();
+    			positions.computeIfAbsent(new IdentifierItem(item.getIdentifier(), item.getIdType()), k -> new ArrayList<>()).add(i);
+    		}
+    		
+    		List<IdentifierItem> keys = new ArrayList<>(positions.keySet());
+    		int n = keys.size();
+    		String[] identifiers = new String[n];
+    		String[] idTypes = new String[n];
+    		for (int k = 0; k < n; k++) {
+    			identifiers[k] = keys.get(k).getIdentifier();
+    			idTypes[k] = keys.get(k).getIdType();
+    		}
+    		
+    		// Retrieve the records that already exist; only the remaining identifiers need a pseudonym
+    		List<Pseudonym> existing = lookup(domainId, identifiers, idTypes, new String[n]);
+    		List<Integer> missing = new ArrayList<>();
+    		for (int k = 0; k < n; k++) {
+    			if (existing.get(k) != null) {
+    				setResolved(resolved, positions.get(keys.get(k)), new ResolvedPseudonym(existing.get(k), false));
+    			} else {
+    				missing.add(k);
+    			}
+    		}
+    		
+    		List<String> createdPsns = new ArrayList<>();
+    		for (int attempt = 0; attempt < attempts && !missing.isEmpty(); attempt++) {
+    			// Let the caller generate the pseudonyms and validity periods
+    			List<PseudonymDTO> toCreate = new ArrayList<>(missing.size());
+    			for (int k : missing) {
+    				toCreate.add(requested.get(positions.get(keys.get(k)).get(0)));
+    			}
+    			List<PseudonymDTO> prepared = creator.apply(toCreate);
+    			
+    			// Insert the new records; records that exist by now are returned as well
+    			Map<Integer, ResolvedPseudonym> upserted = upsertChunk(prepared, domainId);
+    			List<Integer> remaining = new ArrayList<>();
+    			for (int m = 0; m < missing.size(); m++) {
+    				ResolvedPseudonym r = upserted.get(m);
+    				if (r == null) {
+    					remaining.add(missing.get(m));
+    					continue;
+    				}
+    				
+    				setResolved(resolved, positions.get(keys.get(missing.get(m))), r);
+    				if (r.created()) {
+    					createdPsns.add(r.pseudonym().getPseudonym());
+    					pseudonymCache.invalidate(domainId, r.pseudonym().getIdentifier(), r.pseudonym().getIdtype(), r.pseudonym().getPseudonym());
+    				}
+    			}
+    			
+    			missing = remaining;
+    		}
+    		
+    		// Make the new pseudonyms known to the existence filter and the statistics (after the commit)
+    		existenceFilter.recordInserted(domainId, createdPsns);
+    		domainStatistics.recordInserted(domainId, createdPsns.size());
+    		
+    		log.debug("Resolved " + (n - missing.size()) + " out of " + n + " identifier" + (n == 1 ? "" : "s") 
+    				+ " (" + createdPsns.size() + " created).");
+    		return resolved;
+    	} catch (Exception e) {
+        	// Force the outcome of this method to be a roll-back instead of committing the transaction
+        	TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+        	
+    		log.error("Couldn't resolve the batch of pseudonyms: " + e.getClass() + ": " + e.getMessage());
+    		return null;
+    	}
+    }
+    
+    /**
+     * Helper method that looks up one record for each given identifier &amp; idType and/or pseudonym-value
+     * with a single statement. The lookups are joined with (at most) one matching record each.
+     * 
+     * @param domainId the ID of the domain to search in
+     * @param identifiers the identifiers ({@code null} for lookups by pseudonym-value only)
+     * @param idTypes the types of the identifiers
+     * @param psns the pseudonym-values ({@code null} for lookups by identifier only)
+     * @return the found record or {@code null} for each lookup (in the original order)
+     */
+    private List<Pseudonym> lookup(int domainId, String[] identifiers, String[] idTypes, String[] psns) {
+    	Result<Record> result = dsl.resultQuery(
+    			"SELECT i.ord AS lookup_ord, p.* "
+    			+ "FROM unnest({1}::text[], {2}::text[], {3}::text[]) WITH ORDINALITY AS i(identifier, idtype, pseudonym, ord) "
+    			+ "LEFT JOIN LATERAL ("
+    			+ "SELECT * FROM {0} r WHERE r.domainid = {4} "
+    			+ "AND ((i.pseudonym IS NOT NULL AND r.pseudonym = i.pseudonym) "
+    			+ "OR (i.pseudonym IS NULL AND r.identifier = i.identifier AND r.idtype = i.idtype)) "
+    			+ "AND (i.identifier IS NULL OR (r.identifier = i.identifier AND r.idtype = i.idtype)) "
+    			+ "ORDER BY r.id LIMIT 1) p ON true", 
+    			PSEUDONYM, DSL.val(identifiers), DSL.val(idTypes), DSL.val(psns), DSL.val(domainId))
+    		.fetch();
+    	
+    	// Map the rows back to the original order (the ordinality is 1-based)
+    	List<Pseudonym> found = new ArrayList<>(Collections.nCopies(identifiers.length, (Pseudonym) null));
+    	for (Record r : result) {
+    		if (r.get("id") != null) {
+    			found.set(r.get("lookup_ord", Long.class).intValue() - 1, r.into(Pseudonym.class));
+    		}
+    	}
+    	
+    	return found;
+    }
+    
+    /**
+     * Helper method that inserts the given records with a single insert-statement that skips all conflicting records. 
+     * For a skipped record, the identifier's existing record (e.g. one created concurrently) is retrieved and returned instead. 
+     * Records whose pseudonym is already used by another identifier in the domain (or by an earlier record 
+     * of the given list) are left out.
+     * 
+     * @param prepared the records to insert ({@code null} entries are skipped)
+     * @param domainId the ID of the domain
+     * @return the inserted or existing records, keyed by their position in the given list
+     */
+    private Map<Integer, ResolvedPseudonym> upsertChunk(List<PseudonymDTO> prepared, int domainId) {
+    	int size = prepared.size();
+    	String[] identifiers = new String[size];
+    	String[] idTypes = new String[size];
+    	String[] psns = new String[size];
+    	LocalDateTime[] validFroms = new LocalDateTime[size];
+    	Boolean[] validFromsInherited = new Boolean[size];
+    	LocalDateTime[] validTos = new LocalDateTime[size];
+    	Boolean[] validTosInherited = new Boolean[size];
+    	
+    	for (int i = 0; i < size; i++) {
+    		PseudonymDTO dto = prepared.get(i);
+    		if (dto == null) {
+    			continue;
+    		}
+    		
+    		identifiers[i] = dto.getIdentifierItem().getIdentifier();
+    		idTypes[i] = dto.getIdentifierItem().getIdType();
+    		psns[i] = dto.getPsn();
+    		validFroms[i] = dto.getValidFrom();
+    		validFromsInherited[i] = dto.getValidFromInherited();
+    		validTos[i] = dto.getValidTo();
+    		validTosInherited[i] = dto.getValidToInherited();
+    	}
+    	
+    	// Only the first record per pseudonym is inserted; conflicts with any unique constraint 
+    	// (also with concurrently inserted records) skip the record instead of failing the statement
+    	Result<Record> result = dsl.resultQuery(
+    			"WITH input AS ("
+    			+ "SELECT DISTINCT ON (u.pseudonym) * "
+    			+ "FROM unnest({1}::text[], {2}::text[], {3}::text[], {4}::timestamp[], {5}::boolean[], {6}::timestamp[], {7}::boolean[]) "
+    			+ "WITH ORDINALITY AS u(identifier, idtype, pseudonym, validfrom, validfrominherited, validto, validtoinherited, ord) "
+    			+ "WHERE u.pseudonym IS NOT NULL ORDER BY u.pseudonym, u.ord), "
+    			+ "inserted AS ("
+    			+ "INSERT INTO {0} (identifier, idtype, pseudonym, validfrom, validfrominherited, validto, validtoinherited, domainid) "
+    			+ "SELECT i.identifier, i.idtype, i.pseudonym, i.validfrom, i.validfrominherited, i.validto, i.validtoinherited, {8} FROM input i "
+    			+ "ON CONFLICT DO NOTHING "
+    			+ "RETURNING *) "
+    			+ "SELECT i.ord AS resolve_ord, p.* FROM input i "
+    			+ "JOIN inserted p ON p.identifier = i.identifier AND p.idtype = i.idtype AND p.pseudonym = i.pseudonym", 
+    			PSEUDONYM, DSL.val(identifiers), DSL.val(idTypes), DSL.val(psns), DSL.val(validFroms), 
+    			DSL.val(validFromsInherited), DSL.val(validTos), DSL.val(validTosInherited), DSL.val(domainId))
+    		.fetch();
+    	
+    	// Map the rows back to their position (the ordinality is 1-based)
+    	Map<Integer, ResolvedPseudonym> upserted = new HashMap<>();
+    	for (Record r : result) {
+    		upserted.put(r.get("resolve_ord", Long.class).intValue() - 1, new ResolvedPseudonym(r.into(Pseudonym.class), true));
+    	}
+    	
+    	// The identifiers of skipped records might exist already (a new statement also sees the records committed 
+    	// in the meantime), otherwise the record's pseudonym is used by another identifier
+    	String[] skippedIdentifiers = new String[size];
+    	String[] skippedIdTypes = new String[size];
+    	boolean anySkipped = false;
+    	for (int i = 0; i < size; i++) {
+    		if (psns[i] != null && !upserted.containsKey(i)) {
+    			skippedIdentifiers[i] = identifiers[i];
+    			skippedIdTypes[i] = idTypes[i];
+    			anySkipped = true;
+    		}
+    	}
+    	
+    	if (anySkipped) {
+    		List<Pseudonym> existing = lookup(domainId, skippedIdentifiers, skippedIdTypes, new String[size]);
+    		for (int i = 0; i < size; i++) {
+    			if (skippedIdentifiers[i] != null && existing.get(i) != null) {
+    				upserted.put(i, new ResolvedPseudonym(existing.get(i), false));
+    			}
+    		}
+    	}
+    	
+    	return upserted;
+    }
+    
+    /**
+     * Helper method that stores the resolved record at all positions it was requested at.
+     * 
+     * @param resolved the list of resolved records
+     * @param positions the positions of the requests
+     * @param pseudonym the resolved record
+     */
+    private static void setResolved(List<ResolvedPseudonym> resolved, List<Integer> positions, ResolvedPseudonym pseudonym) {
+    	for (int position : positions) {
+    		resolved.set(position, pseudonym);
+    	}
+    }
+
     /**
      * Method to update multiple pseudonyms at once in a single batch. Not found pseudonyms will be ignored.
      * Can also update a single pseudonym (given as a list).
@@ -376,108 +845,154 @@ public class PseudonymDBAccessService {
      */
     @Transactional
     public List<Boolean> updatePseudonyms(List<PseudonymUpdateDTO> pseudonymUpdates) {
+    	List<PseudonymDTO> updated = updateAndRetrievePseudonyms(pseudonymUpdates);
+    	if (updated == null) {
+    		return null;
+    	}
+    	
+    	List<Boolean> updateSuccess = new ArrayList<>(updated.size());
+    	for (PseudonymDTO p : updated) {
+    		updateSuccess.add(p != null);
+    	}
+    	
+    	return updateSuccess;
+    }
+
+    /**
+     * Method to update multiple pseudonyms at once with a single statement. Not found pseudonyms will be ignored.
+     * The records to be updated are identified by their pseudonym-value, their identifier &amp; idType, or all three.
+     * Attributes that are not given in an update object keep their current value. The updated records are 
+     * returned by the statement itself, so they don't need to be retrieved again.
+     *
+     * @param pseudonymUpdates a list of pseudonyms that are to be updated in the database
+     * @return a list containing the updated record for each successful update and {@code null} for each 
+     * 			ignored one (in the original order), or {@code null} when an error occurred
+     */
+    @Transactional
+    public List<PseudonymDTO> updateAndRetrievePseudonyms(List<PseudonymUpdateDTO> pseudonymUpdates) {
         // Check if there is something to do
     	if (pseudonymUpdates == null || pseudonymUpdates.isEmpty()) {
             return List.of();
         }
     	
     	int n = pseudonymUpdates.size();
-    	List<Boolean> updateSuccess = new ArrayList<>(n);
-    	
-    	// Prefill the result list with nulls
-    	for (int i = 0; i < n; i++) {
-    		updateSuccess.add(null);
-    	}
+    	List<PseudonymDTO> updatedPseudonyms = new ArrayList<>(Collections.nCopies(n, (PseudonymDTO) null));
     	
     	try {
-            List<UpdateConditionStep<PseudonymRecord>> updates = new ArrayList<>();
-            List<Integer> originalIndex = new ArrayList<>();
-            int updated = 0;
-            int ignored = 0;
-        	
-        	// Create a list of update statements
-            for (int j = 0; j < n; j++) {
-            	PseudonymUpdateDTO p = pseudonymUpdates.get(j);
-            	
-            	// Check if the pseudonym record to be updated exists
-            	List<PseudonymDTO> found = getPseudonym(p.getOldDomain().getName(), p.getOldIdentifierItem(), p.getOldPsn());
-            	if (found == null || found.size() == 0 || found.getFirst() == null) {
-            		log.debug("The pseudonym record was not found in the database, so this update is ignored.");
-            		ignored++;
-                    updateSuccess.set(j, false);
-                    continue;
-                } else if (found.size() != 1) {
-                	log.debug("Found too many matching pseudonym records, so this update is ignored.");
-            		ignored++;
-                    updateSuccess.set(j, false);
-                    continue;
-                }
-            	
-            	PseudonymDTO old = found.getFirst();
-                
-                // Sanitize update values
-                String identifier = (p.getNewIdentifierItem() != null && Assertion.isNotNullOrEmpty(p.getNewIdentifierItem().getIdentifier())) ? p.getNewIdentifierItem().getIdentifier() : old.getIdentifierItem().getIdentifier();
-                String idType = (p.getNewIdentifierItem() != null && Assertion.isNotNullOrEmpty(p.getNewIdentifierItem().getIdType())) ? p.getNewIdentifierItem().getIdType() : old.getIdentifierItem().getIdType();
-                String psn = Assertion.isNotNullOrEmpty(p.getNewPsn()) ? p.getNewPsn() : old.getPsn();
-                LocalDateTime validFrom = (p.getValidFrom() != null) ? p.getValidFrom() : old.getValidFrom();
-                Boolean validFromInh = (p.getValidFromInherited() != null) ? p.getValidFromInherited() : old.getValidFromInherited();
-                LocalDateTime validTo = (p.getValidTo() != null) ? p.getValidTo() : old.getValidTo();
-                Boolean validToInh = (p.getValidToInherited() != null) ? p.getValidToInherited() : old.getValidToInherited();
-                int domainId = (p.getNewDomain() != null) ? p.getNewDomain().getId() : p.getOldDomain().getId();
-            	
-            	// Add to batch update
-            	updates.add(dsl.update(PSEUDONYM)
-                        .set(PSEUDONYM.IDENTIFIER, identifier)
-                        .set(PSEUDONYM.IDTYPE, idType)
-                        .set(PSEUDONYM.PSEUDONYM_, psn)
-                        .set(PSEUDONYM.VALIDFROM, validFrom)
-                        .set(PSEUDONYM.VALIDFROMINHERITED, validFromInh)
-                        .set(PSEUDONYM.VALIDTO, validTo)
-                        .set(PSEUDONYM.VALIDTOINHERITED, validToInh)
-                        .set(PSEUDONYM.DOMAINID, domainId)
-                        .where(PSEUDONYM.IDENTIFIER.eq(old.getIdentifierItem().getIdentifier()))
-            	        .and(PSEUDONYM.IDTYPE.eq(old.getIdentifierItem().getIdType()))
-            	        .and(PSEUDONYM.PSEUDONYM_.eq(old.getPsn()))
-            	        .and(PSEUDONYM.DOMAINID.eq(p.getOldDomain().getId())));
-            	
-            	// Store the index of the original list
-            	originalIndex.add(j);
-			}
-            
-        	// Batch the update statements and execute the batch
-            int[] result = dsl.batch(updates).execute();
-
-            // Process the result
-            for (int i = 0; i < result.length; i++) {
-                if (result[i] == 1) {
-                    // Successful update of exactly one record
-                    updated++;
-                    updateSuccess.set(originalIndex.get(i), true);
-                } else if (result[i] == 0) {
-                    // Update didn't affect any record (e.g. because the record to be updated wasn't found)
-                    ignored++;
-                    updateSuccess.set(originalIndex.get(i), false);
-                } else {
-                    // Unexpected result, abort the complete transaction by throwing an exception
-                    throw new UnexpectedResultSizeException(1, result[i]);
-                }
-            }
+    		String[] oldIdentifiers = new String[n];
+    		String[] oldIdTypes = new String[n];
+    		String[] oldPsns = new String[n];
+    		Integer[] oldDomainIds = new Integer[n];
+    		String[] identifiers = new String[n];
+    		String[] idTypes = new String[n];
+    		String[] psns = new String[n];
+    		LocalDateTime[] validFroms = new LocalDateTime[n];
+    		Boolean[] validFromsInherited = new Boolean[n];
+    		LocalDateTime[] validTos = new LocalDateTime[n];
+    		Boolean[] validTosInherited = new Boolean[n];
+    		Integer[] domainIds = new Integer[n];
+    		
+    		// Collect the identifying attributes and the new values (absent or empty values are passed as null)
+    		for (int j = 0; j < n; j++) {
+    			PseudonymUpdateDTO p = pseudonymUpdates.get(j);
+    			
+    			if (p.getOldIdentifierItem() != null && p.getOldIdentifierItem().isNotNullNorEmpty()) {
+    				oldIdentifiers[j] = p.getOldIdentifierItem().getIdentifier();
+    				oldIdTypes[j] = p.getOldIdentifierItem().getIdType();
+    			}
+    			oldPsns[j] = p.getOldPsn();
+    			oldDomainIds[j] = p.getOldDomain() != null ? p.getOldDomain().getId() : null;
+    			
+    			if (p.getNewIdentifierItem() != null) {
+    				identifiers[j] = Assertion.isNotNullOrEmpty(p.getNewIdentifierItem().getIdentifier()) ? p.getNewIdentifierItem().getIdentifier() : null;
+    				idTypes[j] = Assertion.isNotNullOrEmpty(p.getNewIdentifierItem().getIdType()) ? p.getNewIdentifierItem().getIdType() : null;
+    			}
+    			psns[j] = Assertion.isNotNullOrEmpty(p.getNewPsn()) ? p.getNewPsn() : null;
+    			validFroms[j] = p.getValidFrom();
+    			validFromsInherited[j] = p.getValidFromInherited();
+    			validTos[j] = p.getValidTo();
+    			validTosInherited[j] = p.getValidToInherited();
+    			domainIds[j] = p.getNewDomain() != null ? p.getNewDomain().getId() : null;
+    			
+    			if (oldDomainIds[j] == null || (oldIdentifiers[j] == null && oldPsns[j] == null)) {
+    				log.debug("The pseudonym record with batch-number " + (j + 1) + " can't be identified, so this update is ignored.");
+    			}
+    		}
+    		
+    		// Records are only updated if the identifying attributes match exactly one record. If multiple 
+    		// updates target the same record, only the first one is applied. The RETURNING clause reports 
+    		// the position of the update, the record's previous psn-value and domain, and the updated record.
+    		Result<Record> result = dsl.resultQuery(
+    				"WITH input AS ("
+    				+ "SELECT * FROM unnest({1}::text[], {2}::text[], {3}::text[], {4}::integer[], {5}::text[], {6}::text[], {7}::text[], "
+    				+ "{8}::timestamp[], {9}::boolean[], {10}::timestamp[], {11}::boolean[], {12}::integer[]) "
+    				+ "WITH ORDINALITY AS u(old_identifier, old_idtype, old_pseudonym, old_domainid, identifier, idtype, pseudonym, "
+    				+ "validfrom, validfrominherited, validto, validtoinherited, domainid, ord)), "
+    				+ "matches AS ("
+    				+ "SELECT i.ord, p.id, p.identifier AS previous_identifier, p.idtype AS previous_idtype, p.pseudonym AS old_pseudonym, "
+    				+ "p.domainid AS old_domainid, count(*) OVER (PARTITION BY i.ord) AS hits "
+    				+ "FROM input i JOIN {0} p ON p.domainid = i.old_domainid "
+    				+ "AND (i.old_pseudonym IS NOT NULL OR i.old_identifier IS NOT NULL) "
+    				+ "AND (i.old_pseudonym IS NULL OR p.pseudonym = i.old_pseudonym) "
+    				+ "AND (i.old_identifier IS NULL OR (p.identifier = i.old_identifier AND p.idtype = i.old_idtype))), "
+    				+ "targets AS ("
+    				+ "SELECT DISTINCT ON (m.id) m.ord, m.id, m.previous_identifier, m.previous_idtype, m.old_pseudonym, m.old_domainid FROM matches m "
+    				+ "WHERE m.hits = 1 ORDER BY m.id, m.ord) "
+    				+ "UPDATE {0} p SET "
+    				+ "identifier = COALESCE(i.identifier, p.identifier), "
+    				+ "idtype = COALESCE(i.idtype, p.idtype), "
+    				+ "pseudonym = COALESCE(i.pseudonym, p.pseudonym), "
+    				+ "validfrom = COALESCE(i.validfrom, p.validfrom), "
+    				+ "validfrominherited = COALESCE(i.validfrominherited, p.validfrominherited), "
+    				+ "validto = COALESCE(i.validto, p.validto), "
+    				+ "validtoinherited = COALESCE(i.validtoinherited, p.validtoinherited), "
+    				+ "domainid = COALESCE(i.domainid, p.domainid) "
+    				+ "FROM targets t JOIN input i ON i.ord = t.ord "
+    				+ "WHERE p.id = t.id "
+    				+ "RETURNING t.ord AS update_ord, t.previous_identifier, t.previous_idtype, t.old_pseudonym, t.old_domainid, p.*", 
+    				PSEUDONYM, DSL.val(oldIdentifiers), DSL.val(oldIdTypes), DSL.val(oldPsns), DSL.val(oldDomainIds), 
+    				DSL.val(identifiers), DSL.val(idTypes), DSL.val(psns), DSL.val(validFroms), DSL.val(validFromsInherited), 
+    				DSL.val(validTos), DSL.val(validTosInherited), DSL.val(domainIds))
+    			.fetch();
+    		
+    		// Process the result; domains are only resolved once per batch
+    		Map<Integer, DomainDTO> domains = new HashMap<>();
+    		for (Record r : result) {
+    			int index = r.get("update_ord", Long.class).intValue() - 1;
+    			Pseudonym changed = r.into(Pseudonym.class);
+    			
+    			DomainDTO domain = domains.computeIfAbsent(changed.getDomainid(), 
+    					id -> new DomainDTO().assignPojoValues(domainDBAccessService.getDomainByID(id)));
+    			updatedPseudonyms.set(index, new PseudonymDTO().assignPojoValues(changed, domain));
+    			
+    			// Keep the existence filters up to date: the new value is added, the old one counts as deleted
+    			String oldPsn = r.get("old_pseudonym", String.class);
+    			Integer oldDomainId = r.get("old_domainid", Integer.class);
+    			if (!changed.getPseudonym().equals(oldPsn) || !changed.getDomainid().equals(oldDomainId)) {
+    				existenceFilter.recordInserted(changed.getDomainid(), List.of(changed.getPseudonym()));
+    				existenceFilter.recordDeleted(oldDomainId, 1);
+    			}
+    			
+    			// Moving a record to another domain changes the number of pseudonyms in both domains
+    			if (!changed.getDomainid().equals(oldDomainId)) {
+    				domainStatistics.recordInserted(changed.getDomainid(), 1);
+    				domainStatistics.recordDeleted(oldDomainId, 1);
+    			}
+    			
+    			// The cached lookups of both the previous and the new state of the record are outdated
+    			pseudonymCache.invalidate(oldDomainId, r.get("previous_identifier", String.class), r.get("previous_idtype", String.class), oldPsn);
+    			pseudonymCache.invalidate(changed.getDomainid(), changed.getIdentifier(), changed.getIdtype(), changed.getPseudonym());
+    		}
+    		
+    		int updated = result.size();
 
             // Log information about the batch processing
             log.trace("Updated " + updated + " pseudonym(s).");
-            log.trace("Ignored " + ignored + " pseudonym(s).");
+            log.trace("Ignored " + (n - updated) + " pseudonym(s).");
 
-            // Return the list of success or failure
-            log.debug("Successfully updated " + updated + " out of " + pseudonymUpdates.size() + " pseudonym" + (updates.size() == 1 ? "" : "s") + " in the database.");
-            return updateSuccess;
-        } catch (UnexpectedResultSizeException e) {
-        	// Force the outcome of this method to be a roll-back instead of committing the transaction
-        	TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-        	
-            log.error("The update would have affected an unexpected number of records (" + e.getActual() + ") "
-                    + "when it should have only affected " + e.getExpected() + " record(s). The batch update "
-                    + "was therefore rolled back.");
-            return null;
+            // Return the list of updated records
+            log.debug("Successfully updated " + updated + " out of " + n + " pseudonym" + (n == 1 ? "" : "s") + " in the database.");
+            return updatedPseudonyms;
         } catch (Exception f) {
         	// Force the outcome of this method to be a roll-back instead of committing the transaction
         	TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
@@ -515,6 +1030,11 @@ public class PseudonymDBAccessService {
 
             // Batch the delete statements and execute the batch
             int[] result = dsl.batch(deletions).execute();
+            
+            // The cached lookups of the deleted records are outdated
+            for (PseudonymDTO p : pseudonyms) {
+            	pseudonymCache.invalidate(domainId, p.getIdentifierItem().getIdentifier(), p.getIdentifierItem().getIdType(), p.getPsn());
+            }
 
             // Process the result
             int deleted = 0;
@@ -535,6 +1055,10 @@ public class PseudonymDBAccessService {
                 }
             }
 
+            // Deleted values remain in the existence filter until it is rebuilt
+            existenceFilter.recordDeleted(domainId, deleted);
+            domainStatistics.recordDeleted(domainId, deleted);
+
             // Log information about the batch processing
             log.trace("Deleted " + deleted + " pseudonym(s).");
             log.trace("Ignored " + ignored + " pseudonym(s).");
@@ -559,17 +1083,92 @@ public class PseudonymDBAccessService {
         }
     }
     
+    /**
+     * Retrieves a page of the pseudonym-records in a domain using keyset pagination.
+     * The records are ordered by their ID, so that the ID of the last record of a page
+     * can be used as the cursor for the next page.
+     *
+     * @param domainId the ID of the domain
+     * @param afterId the ID of the last record of the previous page, or {@code null} for the first page
+     * @param limit the maximum number of records of the page
+     * @return the records of the page, or {@code null} when an error occurs
+     */
+    @Transactional
+    public List<Pseudonym> getPseudonymPage(int domainId, Long afterId, int limit) {
+        try {
+        	Condition condition = PSEUDONYM.DOMAINID.eq(domainId);
+        	if (afterId != null) {
+        		condition = condition.and(PSEUDONYM.ID.gt(afterId));
+        	}
+        	
+            List<Pseudonym> page = dsl.selectFrom(PSEUDONYM)
+                    .where(condition)
+                    .orderBy(PSEUDONYM.ID)
+                    .limit(limit)
+                    .fetchInto(Pseudonym.class);
+
+            log.trace("Successfully retrieved a page of " + page.size() + " pseudonym(s).");
+            return page;
+        } catch (Exception e) {
+            log.error("Couldn't retrieve the page of pseudonyms from the database: " + e.getClass() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Streams all pseudonym-records of a domain (ordered by their ID) to the given consumer.
+     * The records are read through a database cursor with a fixed fetch size, so that the 
+     * memory consumption doesn't depend on the size of the domain.
+     *
+     * @param domainId the ID of the domain
+     * @param fetchSize the number of records that are fetched from the database at once
+     * @param consumer receives the records one after another
+     * @return the number of streamed records, or {@code -1} when an error occurs
+     */
+    public long streamPseudonyms(int domainId, int fetchSize, Consumer<Pseudonym> consumer) {
+        try {
+        	// The PostgreSQL driver only uses a cursor inside of a transaction
+            long streamed = dsl.transactionResult(configuration -> {
+            	long count = 0;
+            	
+            	try (Cursor<PseudonymRecord> cursor = DSL.using(configuration).selectFrom(PSEUDONYM)
+            			.where(PSEUDONYM.DOMAINID.eq(domainId))
+            			.orderBy(PSEUDONYM.ID)
+            			.fetchSize(fetchSize)
+            			.fetchLazy()) {
+            		for (PseudonymRecord r : cursor) {
+            			consumer.accept(r.into(Pseudonym.class));
+            			count++;
+            		}
+            	}
+            	
+            	return count;
+            });
+
+            log.debug("Successfully streamed " + streamed + " pseudonym(s).");
+            return streamed;
+        } catch (Exception e) {
+            log.error("Couldn't stream the pseudonyms of the domain with ID " + domainId + ": " + e.getClass() + ": " + e.getMessage());
+            return -1;
+        }
+    }
+
     /**
      * Method to search for pseudonyms.
-     * This search supports searching in the identifier, idType, and psn-value.
+     * This search supports searching in the identifier, idType, and psn-value. Every part of 
+     * the query must be contained in or be similar to (in terms of trigrams) at least one of 
+     * these columns. Both conditions are served by the trigram indexes on these columns.
+     * The results are ranked by their similarity to the query parts (most similar first) and 
+     * are returned page by page.
      * 
      * @param query the search query
      * @param domainId the id of the domain in which to search for
-     * @return a list of pseudonyms that match the search query
+     * @param after the position of the last result of the previous page, or {@code null} for the first page
+     * @param limit the maximum number of results of the page
+     * @return the page of pseudonyms that match the search query, or {@code null} when an error occurred
      */
-    @Transactional
-    public List<PseudonymDTO> searchPseudonyms(String query, int domainId) {
-    	if (Assertion.isNullOrEmpty(query)) {
+    public PseudonymSearchPage searchPseudonyms(String query, int domainId, SearchCursor after, int limit) {
+    	if (Assertion.isNullOrEmpty(query) || query.isBlank()) {
             log.debug("Search query is empty.");
             return null;
         }
@@ -577,18 +1176,28 @@ public class PseudonymDBAccessService {
         // Split query-parts on whitespaces; every part should match at least one column
         String[] parts = query.trim().split("\\s+");
         
-        // Built the search conditions statement
+        // Built the search conditions statement and the rank of the results
         Condition condition = DSL.trueCondition();
+        Field<Float> rank = null;
         for (String part : parts) {
             String pattern = "%" + part + "%";
 
-            // Search across identifier, idType, and psn
+            // Search across identifier, idType, and psn, either for the part itself or for similar values
             Condition partCond = PSEUDONYM.IDENTIFIER.likeIgnoreCase(pattern)
                 .or(PSEUDONYM.IDTYPE.likeIgnoreCase(pattern))
-                .or(PSEUDONYM.PSEUDONYM_.likeIgnoreCase(pattern));
+                .or(PSEUDONYM.PSEUDONYM_.likeIgnoreCase(pattern))
+                .or(DSL.condition("{0} % {1}", PSEUDONYM.IDENTIFIER, DSL.val(part)))
+                .or(DSL.condition("{0} % {1}", PSEUDONYM.IDTYPE, DSL.val(part)))
+                .or(DSL.condition("{0} % {1}", PSEUDONYM.PSEUDONYM_, DSL.val(part)));
 
             // AND-connect all search parts
             condition = condition.and(partCond);
+            
+            // Every part contributes the similarity of its best matching column (kept as real, so that cursors are exact)
+            Field<Float> partRank = DSL.greatest(Routines.similarity(PSEUDONYM.IDENTIFIER, DSL.val(part)), 
+            		Routines.similarity(PSEUDONYM.IDTYPE, DSL.val(part)), 
+            		Routines.similarity(PSEUDONYM.PSEUDONYM_, DSL.val(part)));
+            rank = (rank == null) ? partRank : rank.plus(partRank);
         }
 
         // Exclude pseudonyms which are not valid anymore
@@ -597,29 +1206,102 @@ public class PseudonymDBAccessService {
         
         // Only search in a domain scope
         condition = condition.and(PSEUDONYM.DOMAINID.eq(domainId));
+        
+        // Continue after the last result of the previous page
+        if (after != null) {
+        	Field<Float> afterRank = DSL.val(after.rank());
+        	condition = condition.and(rank.lt(afterRank).or(rank.eq(afterRank).and(PSEUDONYM.ID.gt(after.id()))));
+        }
 
-        // Execute the search
-        List<Pseudonym> results;
+        // Execute the search (fetch one more result than needed to find out whether there are further ones)
+        Field<Float> rankField = rank.as("rank");
+        Result<Record> results;
         try {
-            results = dsl.selectFrom(PSEUDONYM)
+            results = dsl.select(PSEUDONYM.asterisk(), rankField)
+                      .from(PSEUDONYM)
                       .where(condition)
-                      .orderBy(PSEUDONYM.IDENTIFIER.asc(), PSEUDONYM.IDTYPE.asc())
-                      .fetchInto(Pseudonym.class);
-        } catch (MappingException e) {
-            log.debug("Could not map pseudonym search result.", e);
-            return null;
+                      .orderBy(rankField.desc(), PSEUDONYM.ID.asc())
+                      .limit(limit + 1)
+                      .fetch();
         } catch (DataAccessException e) {
             log.debug("Searching pseudonyms failed.", e);
             return null;
         }
 
         // Evaluate the search results
-        if (results == null || results.isEmpty()) {
+        if (results.isEmpty()) {
             log.debug("No pseudonym matched the query \"" + query + "\".");
-            return null;
+            return new PseudonymSearchPage(Collections.emptyList(), null);
+        }
+        
+        // Determine the cursor for the next page
+        SearchCursor next = null;
+        if (results.size() > limit) {
+        	Record last = results.get(limit - 1);
+        	next = new SearchCursor(last.get(rankField), last.get(PSEUDONYM.ID));
         }
 
-        // Return the found types
-        return results.stream().map(row -> new PseudonymDTO().assignPojoValues(row)).toList();
+        // Return the found pseudonyms (all of them belong to the same domain, which is therefore only retrieved once)
+        try {
+        	DomainDTO domain = new DomainDTO().assignPojoValues(domainDBAccessService.getDomainByID(domainId));
+	        List<PseudonymDTO> pseudonyms = results.stream()
+	        		.limit(limit)
+	        		.map(row -> new PseudonymDTO().assignPojoValues(row.into(PSEUDONYM).into(Pseudonym.class), domain))
+	        		.toList();
+	        return new PseudonymSearchPage(pseudonyms, next);
+        } catch (MappingException e) {
+            log.debug("Could not map pseudonym search result.", e);
+            return null;
+        }
     }
+    
+    /**
+     * The position of a result in the ranked pseudonym search, used to continue the search on the next page.
+     * Its textual representation ({@code <rank>:<id>}) is handed to the clients as the cursor.
+     * 
+     * @param rank the rank of the result
+     * @param id the ID of the pseudonym-record
+     */
+    public record SearchCursor(float rank, long id) {
+    	
+    	/**
+    	 * Parses the textual representation of a cursor.
+    	 * 
+    	 * @param cursor the cursor as handed to the client
+    	 * @return the cursor, or {@code null} if the given string isn't a valid cursor
+    	 */
+    	public static SearchCursor parse(String cursor) {
+    		if (cursor == null) {
+    			return null;
+    		}
+    		
+    		int separator = cursor.lastIndexOf(':');
+    		try {
+    			return new SearchCursor(Float.parseFloat(cursor.substring(0, separator)), Long.parseLong(cursor.substring(separator + 1)));
+    		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+    			return null;
+    		}
+    	}
+    	
+    	@Override
+    	public String toString() {
+    		return rank + ":" + id;
+    	}
+    };
+    
+    /**
+     * A page of the ranked pseudonym search.
+     * 
+     * @param pseudonyms the pseudonyms of this page
+     * @param nextCursor the position to continue the search at, or {@code null} if this is the last page
+     */
+    public record PseudonymSearchPage(List<PseudonymDTO> pseudonyms, SearchCursor nextCursor) {};
+    
+    /**
+     * The result of resolving an identifier (get-or-create).
+     * 
+     * @param pseudonym the pseudonym-record of the identifier
+     * @param created whether the record was created ({@code true}) or already existed ({@code false})
+     */
+    public record ResolvedPseudonym(Pseudonym pseudonym, boolean created) {};
 }
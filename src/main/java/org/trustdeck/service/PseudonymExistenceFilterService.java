@@ -0,0 +1,416 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.utils.BloomFilter;
+import org.trustdeck.utils.TransactionHooks;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Maintains one Bloom filter per domain over the domain's pseudonym-values. The filters answer 
+ * "definitely new" for a pseudonym without touching the database; only possible hits have to be 
+ * checked against the database.
+ * A filter is seeded by a streaming scan of the domain's pseudonyms on first use (in the background; 
+ * until then, all values are checked against the database) and is updated whenever pseudonyms are 
+ * committed. Deleted values can't be removed from a Bloom filter, so deletions only cause false positives 
+ * and trigger a rebuild once they make up a considerable part of the filter. A rebuild is also triggered 
+ * when the filter exceeds the capacity it was dimensioned for.
+ * The filters only learn about pseudonyms created on this node. Pseudonyms created by other nodes are 
+ * still rejected by the database's unique constraint when inserting.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class PseudonymExistenceFilterService {
+	
+	/** The number of rows fetched at once when seeding a filter. */
+	private static final int SCAN_FETCH_SIZE = 10000;
+	
+	/** The fraction of deleted values (relative to the filter's entries) that triggers a rebuild. */
+	private static final double REBUILD_DELETION_RATIO = 0.25d;
+
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	private DSLContext dsl;
+	
+	/** The tuning properties for the pseudonymization. */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/** The filters, keyed by the domain's ID. */
+	private final Map<Integer, DomainFilter> filters = new ConcurrentHashMap<>();
+	
+	/** Builds the filters in the background, one at a time to limit the load on the database. */
+	private final ExecutorService builder = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "pseudonym-filter-builder");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	/** The status of a domain's filter. */
+	public enum FilterStatus {
+		/** The filter is being seeded; all values are checked against the database. */
+		BUILDING,
+		/** The filter can be used. */
+		READY,
+		/** Seeding the filter failed; all values are checked against the database. */
+		FAILED
+	}
+	
+	/**
+	 * Reduces the given pseudonym-values to those that might already exist in the domain, i.e. those that 
+	 * still have to be checked against the database. All other values definitely don't exist yet.
+	 * If the filter is not (yet) usable, all values are returned.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param psns the pseudonym-values to check
+	 * @return the values that might exist
+	 */
+	public Collection<String> filterPossiblyExisting(int domainId, Collection<String> psns) {
+		if (!properties.isExistenceFilterEnabled()) {
+			return psns;
+		}
+		
+		DomainFilter df = getOrCreate(domainId);
+		BloomFilter filter = df.active;
+		if (filter == null) {
+			return psns;
+		}
+		
+		List<String> possible = new ArrayList<>();
+		for (String psn : psns) {
+			if (psn != null && filter.mightContain(psn)) {
+				possible.add(psn);
+			}
+		}
+		
+		df.lookups.addAndGet(psns.size());
+		df.possibleHits.addAndGet(possible.size());
+		
+		return possible;
+	}
+	
+	/**
+	 * Records how many of the possible hits were confirmed by the database. 
+	 * Used to determine the observed false positive rate.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param confirmed the number of values that really existed
+	 */
+	public void recordConfirmedHits(int domainId, int confirmed) {
+		DomainFilter df = filters.get(domainId);
+		if (df != null && df.active != null) {
+			df.confirmedHits.addAndGet(confirmed);
+		}
+	}
+	
+	/**
+	 * Adds newly stored pseudonym-values to the domain's filter once the surrounding transaction is committed.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param psns the stored pseudonym-values
+	 */
+	public void recordInserted(int domainId, Collection<String> psns) {
+		if (!properties.isExistenceFilterEnabled() || psns.isEmpty()) {
+			return;
+		}
+		
+		List<String> values = new ArrayList<>(psns);
+		TransactionHooks.afterCommit(() -> {
+			DomainFilter df = filters.get(domainId);
+			if (df == null) {
+				// No filter yet; it will be seeded with these values
+				return;
+			}
+			
+			// Read the pending filter first: a value that misses the pending filter is either covered by the 
+			// seeding scan (committed before it started) or sees the already swapped-in active filter
+			BloomFilter pending = df.pending;
+			BloomFilter active = df.active;
+			for (String psn : values) {
+				if (pending != null) {
+					pending.put(psn);
+				}
+				if (active != null && active != pending) {
+					active.put(psn);
+				}
+			}
+			
+			if (active != null && active.getEntryCount() > active.getCapacity()) {
+				log.debug("The existence filter of the domain with ID " + domainId + " exceeded its capacity. Rebuilding.");
+				scheduleBuild(domainId, df);
+			}
+		});
+	}
+	
+	/**
+	 * Records that pseudonyms were removed from the domain. Triggers a rebuild once the deleted 
+	 * values make up a considerable part of the filter.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param count the number of removed pseudonyms
+	 */
+	public void recordDeleted(int domainId, int count) {
+		if (!properties.isExistenceFilterEnabled() || count <= 0) {
+			return;
+		}
+		
+		TransactionHooks.afterCommit(() -> {
+			DomainFilter df = filters.get(domainId);
+			if (df == null) {
+				return;
+			}
+			
+			long deletions = df.deletions.addAndGet(count);
+			BloomFilter active = df.active;
+			if (active != null && deletions > active.getEntryCount() * REBUILD_DELETION_RATIO) {
+				log.debug("Many pseudonyms were deleted from the domain with ID " + domainId + ". Rebuilding the existence filter.");
+				scheduleBuild(domainId, df);
+			}
+		});
+	}
+	
+	/**
+	 * Removes the filter of a domain, e.g. when the domain was deleted.
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainId) {
+		if (domainId != null && filters.remove(domainId) != null) {
+			log.trace("Removed the existence filter of the domain with ID " + domainId + ".");
+		}
+	}
+	
+	/**
+	 * Collects the metrics of all filters.
+	 * 
+	 * @return the metrics, one entry per domain
+	 */
+	public List<FilterMetrics> getMetrics() {
+		List<FilterMetrics> metrics = new ArrayList<>(filters.size());
+		filters.forEach((domainId, df) -> metrics.add(df.toMetrics(domainId)));
+		
+		return metrics;
+	}
+	
+	/**
+	 * Retrieves the filter of a domain, creating and seeding it if there is none yet.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @return the domain's filter
+	 */
+	private DomainFilter getOrCreate(int domainId) {
+		DomainFilter df = filters.get(domainId);
+		if (df != null) {
+			return df;
+		}
+		
+		DomainFilter created = new DomainFilter();
+		df = filters.putIfAbsent(domainId, created);
+		if (df == null) {
+			scheduleBuild(domainId, created);
+			return created;
+		}
+		
+		return df;
+	}
+	
+	/**
+	 * Schedules the (re-)build of a filter unless one is already in progress.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param df the domain's filter
+	 */
+	private void scheduleBuild(int domainId, DomainFilter df) {
+		if (df.building.compareAndSet(false, true)) {
+			builder.execute(() -> build(domainId, df));
+		}
+	}
+	
+	/**
+	 * Seeds a new filter with a streaming scan over the domain's pseudonyms and swaps it in.
+	 * The currently active filter (if any) stays in use until the new one is complete.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param df the domain's filter
+	 */
+	private void build(int domainId, DomainFilter df) {
+		long start = System.currentTimeMillis();
+		
+		try {
+			// Dimension the filter with room for growth
+			long count = dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(domainId));
+			BloomFilter filter = new BloomFilter(Math.max(properties.getExistenceFilterMinimumCapacity(), 2 * count), 
+					properties.getExistenceFilterFalsePositiveRate());
+			
+			// From now on, committed pseudonyms are added to the new filter as well
+			df.pending = filter;
+			
+			// Stream all pseudonyms of the domain into the filter (the cursor needs a transaction to fetch in chunks)
+			dsl.transaction(configuration -> {
+				try (Cursor<Record1<String>> cursor = DSL.using(configuration)
+						.select(PSEUDONYM.PSEUDONYM_)
+						.from(PSEUDONYM)
+						.where(PSEUDONYM.DOMAINID.eq(domainId))
+						.fetchSize(SCAN_FETCH_SIZE)
+						.fetchLazy()) {
+					for (Record1<String> r : cursor) {
+						filter.put(r.value1());
+					}
+				}
+			});
+			
+			// Swap in the new filter and reset the statistics
+			df.active = filter;
+			df.pending = null;
+			df.deletions.set(0);
+			df.lookups.set(0);
+			df.possibleHits.set(0);
+			df.confirmedHits.set(0);
+			df.status = FilterStatus.READY;
+			df.builds.incrementAndGet();
+			df.lastBuildDuration = System.currentTimeMillis() - start;
+			df.lastBuiltAt = LocalDateTime.now();
+			
+			log.debug("Built the existence filter of the domain with ID " + domainId + " (" + filter.getEntryCount() 
+					+ " entries, " + filter.getSizeInBytes() + " bytes) in " + df.lastBuildDuration + " ms.");
+		} catch (Exception e) {
+			df.pending = null;
+			if (df.active == null) {
+				df.status = FilterStatus.FAILED;
+			}
+			
+			log.error("Couldn't build the existence filter of the domain with ID " + domainId + ": " + e.getMessage());
+		} finally {
+			df.building.set(false);
+		}
+	}
+	
+	/**
+	 * Stops the background builder.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		builder.shutdownNow();
+	}
+	
+	/**
+	 * The filter of a single domain together with its state and statistics.
+	 */
+	private static final class DomainFilter {
+		
+		/** The filter used for lookups; {@code null} until the first build is complete. */
+		private volatile BloomFilter active;
+		
+		/** The filter that is currently being seeded. */
+		private volatile BloomFilter pending;
+		
+		/** The status of the filter. */
+		private volatile FilterStatus status = FilterStatus.BUILDING;
+		
+		/** Whether or not a build is in progress. */
+		private final AtomicBoolean building = new AtomicBoolean();
+		
+		/** The number of values that were checked against the filter since the last build. */
+		private final AtomicLong lookups = new AtomicLong();
+		
+		/** The number of values the filter reported as possibly existing since the last build. */
+		private final AtomicLong possibleHits = new AtomicLong();
+		
+		/** The number of possible hits that were confirmed by the database since the last build. */
+		private final AtomicLong confirmedHits = new AtomicLong();
+		
+		/** The number of deleted pseudonyms since the last build. */
+		private final AtomicLong deletions = new AtomicLong();
+		
+		/** The number of completed builds. */
+		private final AtomicInteger builds = new AtomicInteger();
+		
+		/** The duration of the last build in milliseconds. */
+		private volatile long lastBuildDuration;
+		
+		/** The time of the last completed build. */
+		private volatile LocalDateTime lastBuiltAt;
+		
+		/**
+		 * Creates a snapshot of the filter's metrics.
+		 * 
+		 * @param domainId the ID of the domain
+		 * @return the metrics
+		 */
+		private FilterMetrics toMetrics(int domainId) {
+			BloomFilter filter = active;
+			long negatives = lookups.get() - confirmedHits.get();
+			double observed = (negatives > 0) ? (double) (possibleHits.get() - confirmedHits.get()) / negatives : 0.0d;
+			
+			return new FilterMetrics(domainId, status, building.get(),
+					(filter == null) ? 0L : filter.getEntryCount(),
+					(filter == null) ? 0L : filter.getCapacity(),
+					(filter == null) ? 0L : filter.getSizeInBytes(),
+					(filter == null) ? 0 : filter.getHashFunctionCount(),
+					(filter == null) ? 0.0d : filter.getExpectedFalsePositiveRate(),
+					observed, lookups.get(), deletions.get(), builds.get(), lastBuildDuration, lastBuiltAt);
+		}
+	}
+	
+	/**
+	 * The metrics of a domain's existence filter.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param status the status of the filter
+	 * @param rebuilding whether or not a (re-)build is in progress
+	 * @param entries the number of values in the filter
+	 * @param capacity the number of values the filter was dimensioned for
+	 * @param sizeInBytes the size of the filter's bit array
+	 * @param hashFunctions the number of hash functions
+	 * @param expectedFalsePositiveRate the false positive rate expected from the filter's fill level
+	 * @param observedFalsePositiveRate the false positive rate observed since the last build
+	 * @param lookups the number of values checked since the last build
+	 * @param deletionsSinceBuild the number of deleted pseudonyms since the last build
+	 * @param builds the number of completed builds
+	 * @param lastBuildDurationMillis the duration of the last build in milliseconds
+	 * @param lastBuiltAt the time of the last completed build
+	 */
+	public record FilterMetrics(int domainId, FilterStatus status, boolean rebuilding, long entries, long capacity, long sizeInBytes,
+			int hashFunctions, double expectedFalsePositiveRate, double observedFalsePositiveRate, long lookups, 
+			long deletionsSinceBuild, int builds, long lastBuildDurationMillis, LocalDateTime lastBuiltAt) {};
+}
@@ -0,0 +1,426 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a pool of pre-generated pseudonyms for each domain that uses a randomness-based algorithm. 
+ * Generating random pseudonyms gets more expensive the fuller a domain is (more collisions that have 
+ * to be regenerated), so a background worker generates them ahead of time: it fills the pools up to 
+ * their capacity whenever they drop below the low watermark, checks the candidates against the database 
+ * in bulk and reserves them on this node. Requests then only take values from a lock-free queue and fall 
+ * back to generating pseudonyms themselves when a pool is empty.
+ * A pool is created when a domain is used for the first time. Pooled values can still be taken by other 
+ * nodes in the meantime; such (very unlikely) clashes are rejected by the database's unique constraint.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class PseudonymPoolService {
+	
+	/** Provides the preconfigured pseudonymizers of the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
+	/** The tuning properties for the pseudonymization. */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/** The pools, keyed by the domain's ID. */
+	private final Map<Integer, DomainPool> pools = new ConcurrentHashMap<>();
+	
+	/** Refills the pools in the background, one at a time to limit the load on the database. */
+	private final ScheduledExecutorService refiller = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "pseudonym-pool-refill");
+		t.setDaemon(true);
+		return t;
+	});
+	
+	/**
+	 * Starts the periodic refill of the pools.
+	 */
+	@PostConstruct
+	public void start() {
+		if (properties.isPoolEnabled()) {
+			long interval = Math.max(1L, properties.getPoolRefillIntervalMillis());
+			refiller.scheduleWithFixedDelay(this::refillAll, interval, interval, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/**
+	 * Checks whether or not pseudonyms of the given algorithm can be pooled. Only randomness-based 
+	 * algorithms don't depend on the identifier and get more expensive when the domain fills up.
+	 * 
+	 * @param algorithm the name of the pseudonymization algorithm
+	 * @return {@code true} if pseudonyms of this algorithm are pooled, {@code false} otherwise
+	 */
+	public static boolean supports(String algorithm) {
+		return algorithm != null && algorithm.trim().toUpperCase().startsWith("RANDOM");
+	}
+	
+	/**
+	 * Takes a pre-generated pseudonym (including the prefix and, if configured, the check digit) from the domain's pool.
+	 * 
+	 * @param domain the domain
+	 * @return the pseudonym, or {@code null} if pooling is not used for the domain or the pool is empty
+	 */
+	public String poll(Domain domain) {
+		List<String> taken = take(domain, 1);
+		return taken.isEmpty() ? null : taken.getFirst();
+	}
+	
+	/**
+	 * Takes up to the given number of pre-generated pseudonyms (including the prefix and, 
+	 * if configured, the check digit) from the domain's pool.
+	 * 
+	 * @param domain the domain
+	 * @param count the number of pseudonyms needed
+	 * @return the pseudonyms; fewer than requested (or none) if the pool runs empty
+	 */
+	public List<String> take(Domain domain, int count) {
+		if (!properties.isPoolEnabled() || count <= 0 || domain == null || domain.getId() == null || !supports(domain.getAlgorithm())) {
+			return List.of();
+		}
+		
+		DomainPool pool = getOrCreate(domain);
+		List<String> taken = new ArrayList<>(Math.min(count, properties.getPoolCapacity()));
+		while (taken.size() < count) {
+			String psn = pool.values.poll();
+			if (psn == null) {
+				break;
+			}
+			
+			pool.reserved.remove(psn);
+			pool.depth.decrementAndGet();
+			taken.add(psn);
+		}
+		pool.served.addAndGet(taken.size());
+		
+		if (taken.size() < count) {
+			pool.exhaustions.incrementAndGet();
+			log.debug("The pseudonym pool of the domain \"" + domain.getName() + "\" ran empty (" + taken.size() + " of " + count 
+					+ " pseudonyms taken). Generating the remaining pseudonyms directly.");
+		}
+		
+		if (pool.depth.get() < properties.getPoolLowWatermark()) {
+			scheduleRefill(domain.getId(), pool);
+		}
+		
+		return taken;
+	}
+	
+	/**
+	 * Puts taken pseudonyms that weren't stored back into the domain's pool (e.g. because their 
+	 * identifier already had a pseudonym), so that they aren't lost. Values are only taken back 
+	 * while the pool still has the settings they were generated with and there is room for them.
+	 * 
+	 * @param domain the domain
+	 * @param psns the unused pseudonyms, as they were taken from the pool
+	 */
+	public void giveBack(Domain domain, Collection<String> psns) {
+		if (!properties.isPoolEnabled() || psns == null || psns.isEmpty() || domain == null || domain.getId() == null) {
+			return;
+		}
+		
+		DomainPool pool = pools.get(domain.getId());
+		if (pool == null || !pool.settings.equals(Settings.of(domain))) {
+			return;
+		}
+		
+		int returned = 0;
+		for (String psn : psns) {
+			if (psn != null && pool.depth.get() < properties.getPoolCapacity() && pool.reserved.add(psn)) {
+				pool.values.offer(psn);
+				pool.depth.incrementAndGet();
+				returned++;
+			}
+		}
+		pool.served.addAndGet(-returned);
+		
+		log.trace("Put " + returned + " unused pseudonym(s) back into the pool of the domain with ID " + domain.getId() + ".");
+	}
+	
+	/**
+	 * Removes the pool of a domain, e.g. when the domain was changed or deleted.
+	 * 
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainId) {
+		if (domainId != null && pools.remove(domainId) != null) {
+			log.trace("Removed the pseudonym pool of the domain with ID " + domainId + ".");
+		}
+	}
+	
+	/**
+	 * Collects the metrics of all pools.
+	 * 
+	 * @return the metrics, one entry per domain
+	 */
+	public List<PoolMetrics> getMetrics() {
+		List<PoolMetrics> metrics = new ArrayList<>(pools.size());
+		pools.forEach((domainId, pool) -> metrics.add(pool.toMetrics(domainId)));
+		
+		return metrics;
+	}
+	
+	/**
+	 * Retrieves the pool of a domain, creating it if there is none yet. A pool that was filled 
+	 * with different settings (e.g. another alphabet or prefix) is replaced.
+	 * 
+	 * @param domain the domain
+	 * @return the domain's pool
+	 */
+	private DomainPool getOrCreate(Domain domain) {
+		Settings settings = Settings.of(domain);
+		DomainPool pool = pools.get(domain.getId());
+		if (pool != null && pool.settings.equals(settings)) {
+			return pool;
+		}
+		
+		// Register a new pool unless another thread already did so for the same settings
+		DomainPool created = new DomainPool(new Domain(domain), settings);
+		DomainPool current = pools.compute(domain.getId(), (id, existing) -> (existing != null && existing.settings.equals(settings)) ? existing : created);
+		if (current == created) {
+			scheduleRefill(domain.getId(), created);
+		}
+		
+		return current;
+	}
+	
+	/**
+	 * Refills all pools that are below their low watermark.
+	 */
+	private void refillAll() {
+		pools.forEach((domainId, pool) -> {
+			if (pool.depth.get() < properties.getPoolLowWatermark() && pool.refilling.compareAndSet(false, true)) {
+				refill(domainId, pool);
+			}
+		});
+	}
+	
+	/**
+	 * Schedules the refill of a pool unless one is already in progress.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param pool the domain's pool
+	 */
+	private void scheduleRefill(int domainId, DomainPool pool) {
+		if (pool.refilling.compareAndSet(false, true)) {
+			refiller.execute(() -> refill(domainId, pool));
+		}
+	}
+	
+	/**
+	 * Fills a pool up to its capacity. The candidates are generated in batches, which checks them 
+	 * against the existing pseudonyms of the domain in bulk, and are then reserved for this node.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param pool the domain's pool
+	 */
+	private void refill(int domainId, DomainPool pool) {
+		long start = System.nanoTime();
+		int added = 0;
+		
+		try {
+			Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(pool.domain);
+			if (pseudonymizer == null) {
+				return;
+			}
+			
+			int capacity = properties.getPoolCapacity();
+			int batchSize = Math.max(1, properties.getPoolRefillBatchSize());
+			
+			// Stop as soon as the pool was replaced (settings changed) or removed
+			while (pool.depth.get() < capacity && pools.get(domainId) == pool) {
+				int n = Math.min(batchSize, capacity - pool.depth.get());
+				
+				// Random pseudonymizers don't use the identifiers, so empty placeholders suffice
+				List<String> candidates = pseudonymizer.pseudonymizeAll(Collections.nCopies(n, ""), pool.domain.getPrefix());
+				int addedInBatch = 0;
+				boolean domainFull = false;
+				
+				for (String psn : candidates) {
+					if (psn == null) {
+						continue;
+					} else if (psn.equals(Pseudonymizer.DOMAIN_FULL)) {
+						domainFull = true;
+					} else if (pool.reserved.add(psn)) {
+						pool.values.offer(psn);
+						pool.depth.incrementAndGet();
+						addedInBatch++;
+					}
+				}
+				added += addedInBatch;
+				
+				if (domainFull || addedInBatch == 0) {
+					log.warn("Couldn't generate enough unused pseudonyms for the pool of the domain \"" + pool.domain.getName() 
+							+ "\". The domain might be reaching its filling point.");
+					break;
+				}
+			}
+		} catch (Exception e) {
+			log.error("Couldn't refill the pseudonym pool of the domain with ID " + domainId + ": " + e.getMessage());
+		} finally {
+			long duration = System.nanoTime() - start;
+			if (added > 0) {
+				pool.refilled.addAndGet(added);
+				pool.refills.incrementAndGet();
+				pool.lastRefillRate = added / Math.max(duration / 1.0e9d, 1.0e-9d);
+				pool.lastRefillAt = LocalDateTime.now();
+				
+				log.trace("Added " + added + " pseudonyms to the pool of the domain with ID " + domainId + " in " 
+						+ TimeUnit.NANOSECONDS.toMillis(duration) + " ms.");
+			}
+			pool.refilling.set(false);
+		}
+	}
+	
+	/**
+	 * Stops the background refill.
+	 */
+	@PreDestroy
+	public void shutdown() {
+		refiller.shutdownNow();
+	}
+	
+	/**
+	 * The pool of a single domain together with its statistics.
+	 */
+	private static final class DomainPool {
+		
+		/** A copy of the domain the pool was created for. */
+		private final Domain domain;
+		
+		/** The settings the pooled values were generated with. */
+		private final Settings settings;
+		
+		/** The pre-generated pseudonyms. */
+		private final Queue<String> values = new ConcurrentLinkedQueue<>();
+		
+		/** The pooled pseudonyms, used to avoid duplicates in the pool. */
+		private final Set<String> reserved = ConcurrentHashMap.newKeySet();
+		
+		/** The number of pooled pseudonyms (the queue's size is not constant-time). */
+		private final AtomicInteger depth = new AtomicInteger();
+		
+		/** Whether or not a refill is in progress. */
+		private final AtomicBoolean refilling = new AtomicBoolean();
+		
+		/** The number of pseudonyms taken from the pool. */
+		private final AtomicLong served = new AtomicLong();
+		
+		/** The number of pseudonyms added to the pool. */
+		private final AtomicLong refilled = new AtomicLong();
+		
+		/** The number of completed refills. */
+		private final AtomicInteger refills = new AtomicInteger();
+		
+		/** The number of requests that found the pool (partially) empty. */
+		private final AtomicLong exhaustions = new AtomicLong();
+		
+		/** The number of pseudonyms per second generated during the last refill. */
+		private volatile double lastRefillRate;
+		
+		/** The time of the last refill. */
+		private volatile LocalDateTime lastRefillAt;
+		
+		/**
+		 * Creates an empty pool.
+		 * 
+		 * @param domain a copy of the domain
+		 * @param settings the settings the values are generated with
+		 */
+		private DomainPool(Domain domain, Settings settings) {
+			this.domain = domain;
+			this.settings = settings;
+		}
+		
+		/**
+		 * Creates a snapshot of the pool's metrics.
+		 * 
+		 * @param domainId the ID of the domain
+		 * @return the metrics
+		 */
+		private PoolMetrics toMetrics(int domainId) {
+			return new PoolMetrics(domainId, domain.getName(), depth.get(), refilling.get(), served.get(), refilled.get(), 
+					refills.get(), exhaustions.get(), lastRefillRate, lastRefillAt);
+		}
+	}
+	
+	/**
+	 * The subset of a domain's attributes that determine the generated pseudonyms.
+	 */
+	private record Settings(String algorithm, String alphabet, String prefix, Integer pseudonymLength, 
+			Boolean addCheckDigit, Boolean lengthIncludesCheckDigit) {
+		
+		/**
+		 * Extracts the relevant settings from a domain.
+		 * 
+		 * @param d the domain object
+		 * @return the settings
+		 */
+		static Settings of(Domain d) {
+			return new Settings(d.getAlgorithm(), d.getAlphabet(), d.getPrefix(), d.getPseudonymlength(), 
+					d.getAddcheckdigit(), d.getLengthincludescheckdigit());
+		}
+	};
+	
+	/**
+	 * The metrics of a domain's pseudonym pool.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @param domainName the name of the domain
+	 * @param depth the number of pooled pseudonyms
+	 * @param refilling whether or not a refill is in progress
+	 * @param served the number of pseudonyms taken from the pool
+	 * @param refilled the number of pseudonyms added to the pool
+	 * @param refills the number of completed refills
+	 * @param exhaustions the number of requests that found the pool (partially) empty
+	 * @param lastRefillRate the number of pseudonyms per second generated during the last refill
+	 * @param lastRefillAt the time of the last refill
+	 */
+	public record PoolMetrics(int domainId, String domainName, int depth, boolean refilling, long served, long refilled, 
+			int refills, long exhaustions, double lastRefillRate, LocalDateTime lastRefillAt) {};
+}
@@ -0,0 +1,190 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Service;
+import org.trustdeck.algorithms.PseudonymizationFactory;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.jooq.generated.tables.pojos.Algorithm;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry that keeps one preconfigured pseudonymizer per domain (or algorithm object).
+ * The pseudonymizers hold all resolved settings (alphabet, salt, check digit engine, length, padding)
+ * so that they can be reused for every identifier of a batch instead of being rebuilt each time.
+ * Entries are versioned by the settings they were built from and are invalidated whenever a domain
+ * is updated or deleted.
+ *
+ * @author Armin Müller
+ */
+@Service
+@Slf4j
+public class PseudonymizerRegistryService {
+
+	/** The registered pseudonymizers for domains, keyed by the domain's ID. */
+	private final Map<Integer, RegistryEntry> domainPseudonymizers = new ConcurrentHashMap<>();
+
+	/** The registered pseudonymizers for algorithm objects, keyed by the algorithm's ID. */
+	private final Map<Integer, RegistryEntry> algorithmPseudonymizers = new ConcurrentHashMap<>();
+
+	/** Source for the version stamps of the registry entries. */
+	private final AtomicLong versionCounter = new AtomicLong();
+
+	/**
+	 * Retrieves the pseudonymizer for the given domain. If there is no pseudonymizer registered or the
+	 * registered one was built from outdated settings, a new one is created and registered.
+	 *
+	 * @param domain the domain for which the pseudonymizer is needed
+	 * @return the preconfigured pseudonymizer, or {@code null} if none could be created
+	 */
+	public Pseudonymizer getPseudonymizer(Domain domain) {
+		if (domain == null) {
+			return null;
+		}
+
+		// Domains without an ID (e.g. not yet persisted) can't be cached
+		if (domain.getId() == null) {
+			return new PseudonymizationFactory().getPseudonymizer(domain);
+		}
+
+		Settings settings = Settings.of(domain);
+		RegistryEntry entry = domainPseudonymizers.get(domain.getId());
+		if (entry != null && entry.settings().equals(settings)) {
+			return entry.pseudonymizer();
+		}
+
+		// (Re-)build the pseudonymizer. The factory may alter the domain object, so work on a copy.
+		Pseudonymizer pseudonymizer = new PseudonymizationFactory().getPseudonymizer(new Domain(domain));
+		if (pseudonymizer == null) {
+			return null;
+		}
+
+		RegistryEntry created = new RegistryEntry(settings, versionCounter.incrementAndGet(), pseudonymizer);
+		domainPseudonymizers.put(domain.getId(), created);
+		log.trace("Registered pseudonymizer version " + created.version() + " for domain \"" + domain.getName() + "\".");
+
+		return pseudonymizer;
+	}
+
+	/**
+	 * Retrieves the pseudonymizer for the given algorithm object. If there is no pseudonymizer registered
+	 * or the registered one was built from outdated settings, a new one is created and registered.
+	 *
+	 * @param algorithm the algorithm object for which the pseudonymizer is needed
+	 * @return the preconfigured pseudonymizer
+	 */
+	public Pseudonymizer getPseudonymizer(Algorithm algorithm) {
+		if (algorithm == null) {
+			return null;
+		}
+
+		// Algorithms without an ID (e.g. not yet persisted) can't be cached
+		if (algorithm.getId() == null) {
+			return new PseudonymizationFactory().getPseudonymizer(algorithm);
+		}
+
+		Settings settings = Settings.of(algorithm);
+		RegistryEntry entry = algorithmPseudonymizers.get(algorithm.getId());
+		if (entry != null && entry.settings().equals(settings)) {
+			return entry.pseudonymizer();
+		}
+
+		// (Re-)build the pseudonymizer. The factory may alter the algorithm object, so work on a copy.
+		Pseudonymizer pseudonymizer = new PseudonymizationFactory().getPseudonymizer(new Algorithm(algorithm));
+		RegistryEntry created = new RegistryEntry(settings, versionCounter.incrementAndGet(), pseudonymizer);
+		algorithmPseudonymizers.put(algorithm.getId(), created);
+		log.trace("Registered pseudonymizer version " + created.version() + " for algorithm object with ID " + algorithm.getId() + ".");
+
+		return pseudonymizer;
+	}
+
+	/**
+	 * Removes the pseudonymizer registered for the given domain.
+	 *
+	 * @param domainId the ID of the domain
+	 */
+	public void invalidateDomain(Integer domainId) {
+		if (domainId != null && domainPseudonymizers.remove(domainId) != null) {
+			log.trace("Invalidated the pseudonymizer of the domain with ID " + domainId + ".");
+		}
+	}
+
+	/**
+	 * Removes the pseudonymizer registered for the given algorithm object.
+	 *
+	 * @param algorithmId the ID of the algorithm object
+	 */
+	public void invalidateAlgorithm(Integer algorithmId) {
+		if (algorithmId != null && algorithmPseudonymizers.remove(algorithmId) != null) {
+			log.trace("Invalidated the pseudonymizer of the algorithm object with ID " + algorithmId + ".");
+		}
+	}
+
+	/**
+	 * Removes all registered pseudonymizers.
+	 */
+	public void invalidateAll() {
+		domainPseudonymizers.clear();
+		algorithmPseudonymizers.clear();
+	}
+
+	/**
+	 * An entry of the registry.
+	 *
+	 * @param settings the settings the pseudonymizer was built from
+	 * @param version the version stamp of this entry
+	 * @param pseudonymizer the preconfigured pseudonymizer
+	 */
+	private record RegistryEntry(Settings settings, long version, Pseudonymizer pseudonymizer) {};
+
+	/**
+	 * The subset of a domain's or algorithm's attributes that influence the pseudonymization.
+	 * Used to detect outdated registry entries, e.g. when a domain was changed on another node.
+	 */
+	private record Settings(String name, String algorithm, String alphabet, Boolean multiplePsnAllowed, Integer pseudonymLength,
+			String paddingCharacter, Boolean addCheckDigit, Boolean lengthIncludesCheckDigit, String salt) {
+
+		/**
+		 * Extracts the relevant settings from a domain.
+		 *
+		 * @param d the domain object
+		 * @return the settings
+		 */
+		static Settings of(Domain d) {
+			return new Settings(d.getName(), d.getAlgorithm(), d.getAlphabet(), d.getMultiplepsnallowed(), d.getPseudonymlength(),
+					d.getPaddingcharacter(), d.getAddcheckdigit(), d.getLengthincludescheckdigit(), d.getSalt());
+		}
+
+		/**
+		 * Extracts the relevant settings from an algorithm object.
+		 *
+		 * @param a the algorithm object
+		 * @return the settings
+		 */
+		static Settings of(Algorithm a) {
+			return new Settings(null, a.getName(), a.getAlphabet(), false, a.getPseudonymlength(),
+					a.getPaddingcharacter(), a.getAddcheckdigit(), a.getLengthincludescheckdigit(), a.getSalt());
+		}
+	};
+}
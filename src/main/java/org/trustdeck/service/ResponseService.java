@@ -17,8 +17,12 @@
 
 package org.trustdeck.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -26,6 +30,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.trustdeck.configuration.ResponseMediaTypeConfig;
 import org.trustdeck.dto.HttpStatusDTO;
 import org.trustdeck.dto.IObjectDTO;
@@ -33,6 +38,8 @@ import org.trustdeck.dto.IObjectDTO;
 import lombok.extern.slf4j.Slf4j;
 
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 
@@ -49,9 +56,16 @@ public class ResponseService {
     @Autowired
     ResponseMediaTypeConfig responseMediaTypeConfig;
 
+    /** Serializes the bodies of streamed responses. */
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /** Defines a list of media types that the services is able to respond with. */
     public static final Set<String> supportedMediaTypes = Set.of(MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE);
 
+    /** The name of the header that contains the cursor for the next page of a paginated result. */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     /**
      * Checks whether or not the provided media type is in the list of supported media types.
      *
@@ -317,6 +331,88 @@ public class ResponseService {
         return this.createResponseEntityFromBody(HttpStatus.OK, mediaType, body, null);
     }
 
+    /**
+     * Ok (200) response entity <b>with</b> a body that is one page of a larger result.
+     * The cursor for the next page is passed in the {@link #NEXT_CURSOR_HEADER} header.
+     *
+     * @param <T> the type parameter
+     * @param mediaType the media type
+     * @param body the body
+     * @param nextCursor the cursor for the next page, or {@code null} if this is the last page
+     * @return the response entity
+     */
+    public <T> ResponseEntity<T> ok(String mediaType, T body, String nextCursor) {
+        return this.withNextCursor(this.createResponseEntityFromBody(HttpStatus.OK, mediaType, body, null), nextCursor);
+    }
+    
+    /**
+     * Adds the cursor for the next page of a paginated result to a response.
+     *
+     * @param <T> the type parameter
+     * @param response the response entity
+     * @param nextCursor the cursor for the next page, or {@code null} if the response contains the last page
+     * @return the response entity including the {@link #NEXT_CURSOR_HEADER} header
+     */
+    private <T> ResponseEntity<T> withNextCursor(ResponseEntity<T> response, String nextCursor) {
+    	if (nextCursor == null) {
+    		return response;
+    	}
+    	
+    	// Add the cursor to the headers of the response
+    	HttpHeaders headers = new HttpHeaders();
+    	headers.addAll(response.getHeaders());
+    	headers.set(NEXT_CURSOR_HEADER, nextCursor);
+    	
+        return ResponseEntity.status(response.getStatusCode()).headers(headers).body(response.getBody());
+    }
+
+    /**
+     * Ok (200) response entity with a body that is written directly to the 
+     * response's output stream (e.g. for exports of arbitrary size).
+     *
+     * @param mediaType the media type of the streamed content (written in UTF-8)
+     * @param fileName the name of the file the content should be saved as
+     * @param body the body that writes the content
+     * @return the response entity
+     */
+    public ResponseEntity<StreamingResponseBody> stream(String mediaType, String fileName, StreamingResponseBody body) {
+    	// Build headers for the streamed payload
+    	HttpHeaders headers = new HttpHeaders();
+    	headers.set(HttpHeaders.CONTENT_TYPE, mediaType + ";charset=" + StandardCharsets.UTF_8.name());
+    	headers.setContentDisposition(ContentDisposition.attachment().filename(fileName, StandardCharsets.UTF_8).build());
+    	
+    	// The content is generated on every request and must not be cached
+    	headers.set(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+    	
+        return ResponseEntity.ok().headers(headers).body(body);
+    }
+
+    /**
+     * Converts a response entity (e.g. an error response) into one with a streamed body. This is needed 
+     * for endpoints that stream their content, since the body type of their response is fixed.
+     * String bodies are written as they are, other bodies are serialized to JSON.
+     *
+     * @param response the response entity
+     * @return the response entity with the same status, headers, and content
+     */
+    public ResponseEntity<StreamingResponseBody> streamed(ResponseEntity<?> response) {
+    	Object body = response.getBody();
+    	if (body == null) {
+    		return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).build();
+    	}
+    	
+    	String text;
+    	try {
+    		text = (body instanceof String s) ? s : objectMapper.writeValueAsString(body);
+    	} catch (JsonProcessingException e) {
+    		log.error("Couldn't serialize the body of the response: " + e.getMessage());
+    		return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).build();
+    	}
+    	byte[] content = text.getBytes(Charset.forName(responseMediaTypeConfig.getEncodingCharset()));
+    	
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders()).body(out -> out.write(content));
+    }
+
     /**
      * Ok (200) response entity <b>with</b> an image in the body.
      *
@@ -407,6 +503,20 @@ public class ResponseService {
         return this.createResponseEntityFromBody(HttpStatus.PARTIAL_CONTENT, mediaType, body, null);
     }
 
+    /**
+     * Partial Content (206) response entity <b>with</b> a body that is one page of a larger result.
+     * The cursor for the next page is passed in the {@link #NEXT_CURSOR_HEADER} header.
+     *
+     * @param <T> the type parameter
+     * @param mediaType the media type
+     * @param body the body
+     * @param nextCursor the cursor for the next page
+     * @return the response entity
+     */
+    public <T> ResponseEntity<T> partialContent(String mediaType, T body, String nextCursor) {
+        return this.withNextCursor(this.createResponseEntityFromBody(HttpStatus.PARTIAL_CONTENT, mediaType, body, null), nextCursor);
+    }
+
     /**
      * Gone (410) response entity.
      *
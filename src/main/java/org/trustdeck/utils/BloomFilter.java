@@ -0,0 +1,190 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.utils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+/**
+ * Basic Bloom filter for strings. The bits are stored in a primitive long array and set atomically,
+ * so values can be added and looked up concurrently without locking.
+ * A Bloom filter has no false negatives: if {@link #mightContain(String)} returns {@code false}, 
+ * the value was definitely never added. Values can't be removed.
+ * 
+ * @author Armin Müller
+ */
+@Getter
+public final class BloomFilter {
+	
+	/** Atomic access to the single words of the bit array. */
+	private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+	
+	/** The hash function used for the values. Stateless and thread-safe. */
+	private static final XXHash64 HASH = XXHashFactory.fastestInstance().hash64();
+	
+	/** The maximum number of bits (limited by the maximum array length). */
+	private static final long MAX_BITS = (long) Integer.MAX_VALUE * Long.SIZE;
+	
+	/** The number of values the filter was dimensioned for. */
+	private final long capacity;
+	
+	/** The number of bits of the filter. */
+	private final long bitCount;
+	
+	/** The number of hash functions (bits per value). */
+	private final int hashFunctionCount;
+	
+	/** The bit array. */
+	@Getter(AccessLevel.NONE)
+	private final long[] words;
+	
+	/** The number of values that were added. */
+	@Getter(AccessLevel.NONE)
+	private final AtomicLong insertions = new AtomicLong();
+	
+	/**
+	 * Creates a filter with the optimal number of bits and hash functions 
+	 * for the given capacity and false positive rate.
+	 * 
+	 * @param capacity the expected number of values
+	 * @param falsePositiveRate the desired false positive rate at full capacity (between 0 and 1, exclusive)
+	 */
+	public BloomFilter(long capacity, double falsePositiveRate) {
+		if (capacity <= 0 || falsePositiveRate <= 0.0d || falsePositiveRate >= 1.0d) {
+			throw new IllegalArgumentException("The capacity must be positive and the false positive rate between 0 and 1.");
+		}
+		
+		// m = -n * ln(p) / ln(2)^2, rounded up to whole words
+		double bits = -capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+		int wordCount = (int) Math.min(Integer.MAX_VALUE, Math.max(1L, (long) Math.ceil(bits / Long.SIZE)));
+		
+		this.capacity = capacity;
+		this.words = new long[wordCount];
+		this.bitCount = Math.min(MAX_BITS, (long) wordCount * Long.SIZE);
+		
+		// k = m / n * ln(2)
+		this.hashFunctionCount = Math.max(1, (int) Math.round((double) bitCount / capacity * Math.log(2)));
+	}
+	
+	/**
+	 * Adds a value to the filter.
+	 * 
+	 * @param value the value to add
+	 */
+	public void put(String value) {
+		long h1 = hash(value);
+		long h2 = mix(h1);
+		
+		for (int i = 0; i < hashFunctionCount; i++) {
+			long bit = index(h1 + i * h2);
+			WORDS.getAndBitwiseOr(words, (int) (bit >>> 6), 1L << bit);
+		}
+		
+		insertions.incrementAndGet();
+	}
+	
+	/**
+	 * Checks if a value might have been added to the filter.
+	 * 
+	 * @param value the value to look up
+	 * @return {@code false} if the value was definitely not added, {@code true} if it might have been added
+	 */
+	public boolean mightContain(String value) {
+		long h1 = hash(value);
+		long h2 = mix(h1);
+		
+		for (int i = 0; i < hashFunctionCount; i++) {
+			long bit = index(h1 + i * h2);
+			long word = (long) WORDS.getAcquire(words, (int) (bit >>> 6));
+			
+			if ((word & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Retrieves the number of values that were added (including values that were added more than once).
+	 * 
+	 * @return the number of insertions
+	 */
+	public long getEntryCount() {
+		return insertions.get();
+	}
+	
+	/**
+	 * Estimates the current false positive rate from the number of added values: (1 - e^(-k*n/m))^k.
+	 * 
+	 * @return the expected false positive rate
+	 */
+	public double getExpectedFalsePositiveRate() {
+		return Math.pow(1.0d - Math.exp(-(double) hashFunctionCount * insertions.get() / bitCount), hashFunctionCount);
+	}
+	
+	/**
+	 * Retrieves the size of the bit array.
+	 * 
+	 * @return the size in bytes
+	 */
+	public long getSizeInBytes() {
+		return (long) words.length * Long.BYTES;
+	}
+	
+	/**
+	 * Maps a combined hash value to a bit position.
+	 * 
+	 * @param combinedHash the combined hash value
+	 * @return the bit position
+	 */
+	private long index(long combinedHash) {
+		return (combinedHash & Long.MAX_VALUE) % bitCount;
+	}
+	
+	/**
+	 * Hashes the UTF-8 representation of a value.
+	 * 
+	 * @param value the value
+	 * @return the 64 bit hash
+	 */
+	private static long hash(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		return HASH.hash(bytes, 0, bytes.length, 0L);
+	}
+	
+	/**
+	 * Derives a second, independent hash from the first one (SplitMix64 finalizer). Together they 
+	 * simulate the k hash functions through double hashing (h1 + i * h2). The result is always odd.
+	 * 
+	 * @param h the first hash
+	 * @return the second hash
+	 */
+	private static long mix(long h) {
+		h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+		h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+		return (h ^ (h >>> 31)) | 1L;
+	}
+}
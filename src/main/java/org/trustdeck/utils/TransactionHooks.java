@@ -0,0 +1,85 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Defers actions (e.g. cache invalidations) until the surrounding transaction has ended, 
+ * so that they don't take effect for changes that are still invisible to others or rolled back.
+ *
+ * @author Armin Müller
+ */
+public final class TransactionHooks {
+	
+	/**
+	 * Private constructor, only static helpers.
+	 */
+	private TransactionHooks() {}
+	
+	/**
+	 * Runs the given action once the current transaction is committed, or immediately if there is no transaction.
+	 * 
+	 * @param action the action
+	 */
+	public static void afterCommit(Runnable action) {
+		if (!afterCommitIfActive(action)) {
+			action.run();
+		}
+	}
+	
+	/**
+	 * Runs the given action once the current transaction is committed. Without a transaction, nothing is done.
+	 * 
+	 * @param action the action
+	 * @return {@code true} if the action was registered, {@code false} if there is no transaction
+	 */
+	public static boolean afterCommitIfActive(Runnable action) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return false;
+		}
+		
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCommit() {
+				action.run();
+			}
+		});
+		return true;
+	}
+	
+	/**
+	 * Runs the given action once the current transaction is completed (committed or rolled back). 
+	 * Without a transaction, it is run right away.
+	 * 
+	 * @param action the action
+	 */
+	public static void afterCompletion(Runnable action) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					action.run();
+				}
+			});
+		} else {
+			action.run();
+		}
+	}
+}
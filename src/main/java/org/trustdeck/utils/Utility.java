@@ -226,6 +226,10 @@ public class Utility {
 	        case "RANDOM_NUM": {
 	        	return NUMBERS_ONLY_ALPHABET;
 	        }
+	        case "FPE": {
+	        	// Format-preserving encryption works on any alphabet without duplicate symbols; default to A-Z0-9
+	        	return (alphabet != null && !alphabet.isBlank()) ? alphabet : LETTERS_AND_NUMBERS_ALPHABET;
+	        }
 	        case "RANDOM": {
 	        	// If "RANDOM" was selected, use the user-provided alphabet or A-Z0-9 if nothing was provided
 	        	return (alphabet != null && !alphabet.isBlank()) ? alphabet : LETTERS_AND_NUMBERS_ALPHABET;
@@ -0,0 +1,272 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+
+/**
+ * This class tests the in-memory snapshot of the domain tree and the path finder built on it.
+ *
+ * @author Armin Müller
+ */
+public class TestsDomainTree {
+	
+	/**
+	 * Navigates a small forest: Root (1) with the children A (2) and B (3), A1 (4) below A, A1a (5) below A1, 
+	 * the separate root X (6), and Orphan (9) whose super-domain doesn't exist.
+	 */
+	@Test
+	@DisplayName("navigatesForest")
+	public void navigatesForest() {
+		DomainTree tree = new DomainTree(forest(), 7L);
+		assertEquals(7L, tree.getVersion());
+		assertEquals(7, tree.size());
+		
+		assertEquals(2, tree.getParent(4).getId());
+		assertNull(tree.getParent(1));
+		assertNull(tree.getParent(9));
+		assertEquals(List.of(2, 3), ids(tree.getChildren(1)));
+		assertEquals(List.of(), ids(tree.getChildren(5)));
+		assertEquals(1, tree.getRoot(5).getId());
+		assertEquals(9, tree.getRoot(9).getId());
+		assertEquals(0, tree.getDepth(1));
+		assertEquals(3, tree.getDepth(5));
+		
+		assertTrue(tree.isAncestorOrSelf(1, 5));
+		assertTrue(tree.isAncestorOrSelf(4, 4));
+		assertFalse(tree.isAncestorOrSelf(5, 1));
+		assertFalse(tree.isAncestorOrSelf(3, 4));
+		assertFalse(tree.isAncestorOrSelf(1, 6));
+		
+		assertEquals(List.of(1, 2, 4, 5, 3), ids(tree.getSubtree(1)));
+		assertEquals(List.of(2, 4, 5), ids(tree.getSubtree(2)));
+		assertEquals(List.of(1, 2, 4, 5, 3), ids(tree.getTree(5)));
+		assertEquals(List.of(6), ids(tree.getTree(6)));
+		
+		assertEquals(List.of(5, 4, 2, 1, 3), ids(tree.getPath(5, 3)));
+		assertEquals(List.of(1, 2, 4), ids(tree.getPath(1, 4)));
+		assertEquals(List.of(4), ids(tree.getPath(4, 4)));
+		assertEquals(List.of(), tree.getPath(1, 6));
+	}
+	
+	/**
+	 * Treats unknown domains and the domains of a cycle (7 and 8) alike.
+	 */
+	@Test
+	@DisplayName("unknownDomains")
+	public void unknownDomains() {
+		DomainTree tree = new DomainTree(forest(), 1L);
+		
+		for (Integer id : new Integer[] {7, 8, 42, null}) {
+			assertNull(tree.getDomain(id));
+			assertNull(tree.getParent(id));
+			assertNull(tree.getRoot(id));
+			assertEquals(-1, tree.getDepth(id));
+			assertEquals(List.of(), tree.getChildren(id));
+			assertEquals(List.of(), tree.getSubtree(id));
+			assertEquals(List.of(), tree.getTree(id));
+			assertFalse(tree.isAncestorOrSelf(id, 1));
+			assertFalse(tree.isAncestorOrSelf(1, id));
+			assertNull(tree.getPath(1, id));
+		}
+		
+		assertEquals(0, new DomainTree(null, 1L).size());
+	}
+	
+	/**
+	 * Looks domains up by their names, case-insensitively. Names that are only unique when compared 
+	 * case-sensitively are ambiguous.
+	 */
+	@Test
+	@DisplayName("namesAreCaseInsensitive")
+	public void namesAreCaseInsensitive() {
+		List<Domain> domains = forest();
+		domains.add(domain(10, "root", 6));
+		domains.add(domain(11, "a", 6));
+		DomainTree tree = new DomainTree(domains, 1L);
+		
+		assertEquals(4, tree.getDomain("a1a").getSuperdomainid());
+		assertEquals(5, tree.getDomain("A1A").getId());
+		assertNull(tree.getDomain("Root"));
+		assertNull(tree.getDomain("A"));
+		assertNull(tree.getDomain("Cycle1"));
+		assertNull(tree.getDomain("Unknown"));
+		
+		PathFinder finder = new PathFinder(domains);
+		assertEquals(List.of(5, 4, 2, 1, 3), ids(finder.getPath("A1a", "b")));
+		assertEquals(List.of(), finder.getPath("B", "X"));
+		assertNull(finder.getPath("A", "B"));
+		assertNull(finder.getPath("B", "Unknown"));
+	}
+	
+	/**
+	 * Compares the snapshot of random forests with a naive walk along the super-domains.
+	 */
+	@Test
+	@DisplayName("matchesParentWalk")
+	public void matchesParentWalk() {
+		Random random = new Random(4711);
+		
+		for (int round = 0; round < 20; round++) {
+			// Domains only refer to domains created before them; the list is shuffled afterwards
+			int n = 1 + random.nextInt(200);
+			List<Domain> domains = new ArrayList<>();
+			for (int id = 1; id <= n; id++) {
+				Integer superId = (id == 1 || random.nextInt(10) == 0) ? null : 1 + random.nextInt(id - 1);
+				domains.add(domain(id, "D" + id, superId));
+			}
+			Collections.shuffle(domains, random);
+			
+			DomainTree tree = new DomainTree(domains, round);
+			Map<Integer, Integer> parents = new HashMap<>();
+			domains.forEach(d -> parents.put(d.getId(), d.getSuperdomainid()));
+			
+			for (int s = 1; s <= n; s++) {
+				List<Integer> ancestors = ancestors(parents, s);
+				assertEquals(ancestors.size() - 1, tree.getDepth(s));
+				assertEquals(ancestors.get(ancestors.size() - 1), tree.getRoot(s).getId());
+				
+				// Every domain of a subtree comes after its parent
+				List<Integer> subtree = ids(tree.getSubtree(s));
+				assertEquals(s, subtree.get(0));
+				for (int k = 1; k < subtree.size(); k++) {
+					assertTrue(subtree.indexOf(parents.get(subtree.get(k))) < k);
+				}
+				
+				for (int t = 1; t <= n; t++) {
+					boolean isAncestor = ancestors(parents, t).contains(s);
+					assertEquals(isAncestor, tree.isAncestorOrSelf(s, t));
+					assertEquals(isAncestor, subtree.contains(t));
+					assertEquals(path(parents, s, t), ids(tree.getPath(s, t)));
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Builds a chain of 100,000 domains, which must neither overflow the stack nor take long.
+	 */
+	@Test
+	@DisplayName("deepChain")
+	public void deepChain() {
+		int n = 100000;
+		List<Domain> domains = new ArrayList<>(n);
+		for (int id = 1; id <= n; id++) {
+			domains.add(domain(id, "D" + id, id == 1 ? null : id - 1));
+		}
+		
+		DomainTree tree = new DomainTree(domains, 1L);
+		assertEquals(n - 1, tree.getDepth(n));
+		assertEquals(1, tree.getRoot(n).getId());
+		assertTrue(tree.isAncestorOrSelf(1, n));
+		assertEquals(n, tree.getSubtree(1).size());
+		assertEquals(n, tree.getPath(n, 1).size());
+	}
+	
+	/**
+	 * Creates the forest used by most tests: Root (1) with the children A (2) and B (3), A1 (4) below A, 
+	 * A1a (5) below A1, the separate root X (6), the cycle Cycle1 (7) and Cycle2 (8), and Orphan (9).
+	 * 
+	 * @return the (modifiable) list of domains
+	 */
+	private static List<Domain> forest() {
+		return new ArrayList<>(List.of(domain(5, "A1a", 4), domain(2, "A", 1), domain(1, "Root", null), domain(3, "B", 1), 
+				domain(4, "A1", 2), domain(6, "X", null), domain(7, "Cycle1", 8), domain(8, "Cycle2", 7), domain(9, "Orphan", 99)));
+	}
+	
+	/**
+	 * Creates a domain that only consists of its structure.
+	 * 
+	 * @param id the ID of the domain
+	 * @param name the name of the domain
+	 * @param superId the ID of the super-domain, or {@code null}
+	 * @return the domain
+	 */
+	private static Domain domain(int id, String name, Integer superId) {
+		Domain domain = new Domain();
+		domain.setId(id);
+		domain.setName(name);
+		domain.setSuperdomainid(superId);
+		
+		return domain;
+	}
+	
+	/**
+	 * Maps domains to their IDs.
+	 * 
+	 * @param domains the domains
+	 * @return the IDs, or {@code null} if the list is {@code null}
+	 */
+	private static List<Integer> ids(List<Domain> domains) {
+		return domains == null ? null : domains.stream().map(Domain::getId).toList();
+	}
+	
+	/**
+	 * Walks from a domain up to its root.
+	 * 
+	 * @param parents the super-domain ID of each domain
+	 * @param id the ID of the domain
+	 * @return the IDs of the domain and its ancestors, ending with the root
+	 */
+	private static List<Integer> ancestors(Map<Integer, Integer> parents, int id) {
+		List<Integer> result = new ArrayList<>();
+		for (Integer current = id; current != null; current = parents.get(current)) {
+			result.add(current);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Finds the path between two domains through their lowest common ancestor.
+	 * 
+	 * @param parents the super-domain ID of each domain
+	 * @param source the ID of the source domain
+	 * @param dest the ID of the destination domain
+	 * @return the IDs along the path, or an empty list if the domains are in different trees
+	 */
+	private static List<Integer> path(Map<Integer, Integer> parents, int source, int dest) {
+		List<Integer> up = ancestors(parents, source);
+		List<Integer> down = ancestors(parents, dest);
+		
+		for (int i = 0; i < up.size(); i++) {
+			int k = down.indexOf(up.get(i));
+			if (k >= 0) {
+				List<Integer> result = new ArrayList<>(up.subList(0, i + 1));
+				result.addAll(down.subList(0, k).reversed());
+				return result;
+			}
+		}
+		
+		return List.of();
+	}
+}
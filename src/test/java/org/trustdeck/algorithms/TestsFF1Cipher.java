@@ -0,0 +1,138 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HexFormat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * This class tests the FF1 cipher against the sample vectors of NIST SP 800-38G.
+ *
+ * @author Armin Müller
+ */
+public class TestsFF1Cipher {
+	
+	/** The 128 bit key of the NIST samples. */
+	private static final String KEY_128 = "2B7E151628AED2A6ABF7158809CF4F3C";
+	
+	/** The 192 bit key of the NIST samples. */
+	private static final String KEY_192 = KEY_128 + "EF4359D8D580AA4F";
+	
+	/** The 256 bit key of the NIST samples. */
+	private static final String KEY_256 = KEY_192 + "7F036D6F04FC6A94";
+	
+	/**
+	 * Encrypts and decrypts the NIST SP 800-38G FF1 samples 1 to 9.
+	 * 
+	 * @param key the AES key (hex)
+	 * @param radix the radix of the numeral strings
+	 * @param plaintext the plaintext (numerals written in base 36)
+	 * @param tweak the tweak (hex, may be empty)
+	 * @param ciphertext the expected ciphertext (numerals written in base 36)
+	 */
+	@ParameterizedTest(name = "NIST FF1 sample {index}")
+	@CsvSource(value = {
+		KEY_128 + ", 10, 0123456789, , 2433477484",
+		KEY_128 + ", 10, 0123456789, 39383736353433323130, 6124200773",
+		KEY_128 + ", 36, 0123456789abcdefghi, 3737373770717273373737, a9tv40mll9kdu509eum",
+		KEY_192 + ", 10, 0123456789, , 2830668132",
+		KEY_192 + ", 10, 0123456789, 39383736353433323130, 2496655549",
+		KEY_192 + ", 36, 0123456789abcdefghi, 3737373770717273373737, xbj3kv35jrawxv32ysr",
+		KEY_256 + ", 10, 0123456789, , 6657667009",
+		KEY_256 + ", 10, 0123456789, 39383736353433323130, 1001623463",
+		KEY_256 + ", 36, 0123456789abcdefghi, 3737373770717273373737, xs8a0azh2avyalyzuwd"
+	})
+	@DisplayName("nistSampleVectors")
+	public void nistSampleVectors(String key, int radix, String plaintext, String tweak, String ciphertext) {
+		FF1Cipher cipher = new FF1Cipher(HexFormat.of().parseHex(key), radix);
+		byte[] t = (tweak == null) ? new byte[0] : HexFormat.of().parseHex(tweak);
+		
+		assertEquals(ciphertext, toText(cipher.encrypt(toNumerals(plaintext), t)));
+		assertEquals(plaintext, toText(cipher.decrypt(toNumerals(ciphertext), t)));
+	}
+	
+	/**
+	 * Checks that a round trip over a large radix restores the input and that the encryption doesn't modify it.
+	 */
+	@Test
+	@DisplayName("roundTripLargeRadix")
+	public void roundTripLargeRadix() {
+		FF1Cipher cipher = new FF1Cipher(HexFormat.of().parseHex(KEY_256), 1000);
+		int[] input = {999, 0, 1, 500, 42, 7, 998, 3};
+		int[] copy = input.clone();
+		
+		int[] encrypted = cipher.encrypt(input, new byte[0]);
+		assertArrayEquals(copy, input);
+		assertEquals(input.length, encrypted.length);
+		assertArrayEquals(input, cipher.decrypt(encrypted, new byte[0]));
+	}
+	
+	/**
+	 * Checks the minimum message space required by the standard.
+	 */
+	@Test
+	@DisplayName("supportsLength")
+	public void supportsLength() {
+		FF1Cipher decimal = new FF1Cipher(HexFormat.of().parseHex(KEY_128), 10);
+		assertFalse(decimal.supportsLength(5));
+		assertTrue(decimal.supportsLength(6));
+		
+		FF1Cipher large = new FF1Cipher(HexFormat.of().parseHex(KEY_128), 1 << 16);
+		assertFalse(large.supportsLength(1));
+		assertTrue(large.supportsLength(2));
+	}
+	
+	/**
+	 * Converts a string of base 36 digits into numerals.
+	 * 
+	 * @param text the digits
+	 * @return the numerals
+	 */
+	private static int[] toNumerals(String text) {
+		int[] numerals = new int[text.length()];
+		for (int i = 0; i < numerals.length; i++) {
+			numerals[i] = Character.digit(text.charAt(i), 36);
+		}
+		
+		return numerals;
+	}
+	
+	/**
+	 * Converts numerals into a string of base 36 digits.
+	 * 
+	 * @param numerals the numerals
+	 * @return the digits
+	 */
+	private static String toText(int[] numerals) {
+		StringBuilder sb = new StringBuilder(numerals.length);
+		for (int numeral : numerals) {
+			sb.append(Character.forDigit(numeral, 36));
+		}
+		
+		return sb.toString();
+	}
+}
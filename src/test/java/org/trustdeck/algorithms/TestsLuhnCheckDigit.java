@@ -0,0 +1,210 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.algorithms;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class tests the table-driven Luhn mod N check digit engines against the known Luhn sample 
+ * and against a straightforward implementation that searches the allowed characters for every input character.
+ *
+ * @author Armin Müller
+ */
+public class TestsLuhnCheckDigit {
+	
+	/** The engines under test. */
+	private static final List<LuhnCheckDigit> ENGINES = List.of(LuhnMod10CheckDigit.INSTANCE, LuhnMod16CheckDigit.INSTANCE, 
+			LuhnMod26CheckDigit.INSTANCE, LuhnMod32CheckDigit.INSTANCE, LuhnMod36CheckDigit.INSTANCE, 
+			LuhnModNCheckDigit.forAlphabet("QWERTZ0123"));
+	
+	/** The prefix of the test pseudonyms. */
+	private static final String PREFIX = "TS-";
+	
+	/**
+	 * Computes and validates the check digit of the well-known Luhn sample.
+	 */
+	@Test
+	@DisplayName("knownSample")
+	public void knownSample() {
+		assertEquals(Character.valueOf('3'), LuhnMod10CheckDigit.INSTANCE.computeCheckDigit("TS-7992739871", PREFIX));
+		assertTrue(LuhnMod10CheckDigit.INSTANCE.validateCheckDigit("TS-79927398713", PREFIX));
+		assertFalse(LuhnMod10CheckDigit.INSTANCE.validateCheckDigit("TS-79927398710", PREFIX));
+		assertFalse(LuhnMod10CheckDigit.INSTANCE.validateCheckDigit("XX-79927398713", PREFIX));
+		assertNull(LuhnMod10CheckDigit.INSTANCE.computeCheckDigit("TS-79927A", PREFIX));
+	}
+	
+	/**
+	 * Produces the same results as the straightforward implementation for random inputs, including 
+	 * lower-case letters, surrounding white spaces, missing prefixes, and characters outside of the alphabet.
+	 */
+	@Test
+	@DisplayName("matchesReference")
+	public void matchesReference() {
+		Random random = new Random(20260218L);
+		
+		for (LuhnCheckDigit engine : ENGINES) {
+			List<String> inputs = new ArrayList<>();
+			for (int i = 0; i < 2000; i++) {
+				inputs.add(randomInput(random, engine.getAllowedCharacters()));
+			}
+			
+			for (String input : inputs) {
+				assertEquals(referenceCompute(engine, input, PREFIX), engine.computeCheckDigit(input, PREFIX), input);
+				assertEquals(referenceValidate(engine, input, PREFIX), engine.validateCheckDigit(input, PREFIX), input);
+			}
+			assertEquals(inputs.stream().map(input -> engine.computeCheckDigit(input, PREFIX)).toList(), engine.computeCheckDigits(inputs, PREFIX));
+			assertEquals(inputs.stream().map(input -> engine.validateCheckDigit(input, PREFIX)).toList(), engine.validateCheckDigits(inputs, PREFIX));
+		}
+	}
+	
+	/**
+	 * Accepts every pseudonym with its computed check digit and detects every single substituted character.
+	 */
+	@Test
+	@DisplayName("detectsSubstitutions")
+	public void detectsSubstitutions() {
+		Random random = new Random(42L);
+		
+		for (LuhnCheckDigit engine : ENGINES) {
+			String alphabet = engine.getAllowedCharacters();
+			for (int i = 0; i < 200; i++) {
+				StringBuilder value = new StringBuilder();
+				for (int j = 0; j < 12; j++) {
+					value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+				}
+				String pseudonym = PREFIX + value + engine.computeCheckDigit(PREFIX + value, PREFIX);
+				assertTrue(engine.validateCheckDigit(pseudonym, PREFIX), pseudonym);
+				
+				int position = PREFIX.length() + random.nextInt(pseudonym.length() - PREFIX.length());
+				char original = pseudonym.charAt(position);
+				char substitute = alphabet.charAt((alphabet.indexOf(original) + 1 + random.nextInt(alphabet.length() - 1)) % alphabet.length());
+				String modified = pseudonym.substring(0, position) + substitute + pseudonym.substring(position + 1);
+				assertFalse(engine.validateCheckDigit(modified, PREFIX), modified);
+			}
+		}
+	}
+	
+	/**
+	 * Shares one engine per alphabet, also with the check digit resolution of the pseudonymizers.
+	 */
+	@Test
+	@DisplayName("enginesAreShared")
+	public void enginesAreShared() {
+		assertSame(LuhnModNCheckDigit.forAlphabet("QWERTZ0123"), LuhnModNCheckDigit.forAlphabet("QWERTZ0123"));
+		assertSame(LuhnModNCheckDigit.forAlphabet("QWERTZ0123"), Pseudonymizer.resolveCheckDigitEngine("RANDOM", "QWERTZ0123"));
+		assertSame(LuhnModNCheckDigit.forAlphabet("QWERTZ0123"), Pseudonymizer.resolveCheckDigitEngine("CONSECUTIVE", "QWERTZ0123"));
+		assertSame(LuhnMod16CheckDigit.INSTANCE, Pseudonymizer.resolveCheckDigitEngine("SHA2", null));
+	}
+	
+	/**
+	 * Creates a random input that mostly consists of the alphabet's characters.
+	 * 
+	 * @param random the source of randomness
+	 * @param alphabet the allowed characters
+	 * @return the input
+	 */
+	private static String randomInput(Random random, String alphabet) {
+		StringBuilder input = new StringBuilder();
+		if (random.nextInt(5) > 0) {
+			input.append(PREFIX);
+		}
+		if (random.nextInt(10) == 0) {
+			input.append(' ');
+		}
+		
+		int length = 1 + random.nextInt(20);
+		for (int i = 0; i < length; i++) {
+			char c = alphabet.charAt(random.nextInt(alphabet.length()));
+			int variant = random.nextInt(50);
+			input.append((variant == 0) ? '#' : (variant < 10) ? Character.toLowerCase(c) : c);
+		}
+		
+		if (random.nextInt(10) == 0) {
+			input.append(' ');
+		}
+		
+		return input.toString();
+	}
+	
+	/**
+	 * Computes the check digit by searching the allowed characters for every input character.
+	 * 
+	 * @param engine the engine whose alphabet is used
+	 * @param input the input
+	 * @param prefix the domain prefix
+	 * @return the check digit, or {@code null} if a character isn't allowed
+	 */
+	private static Character referenceCompute(LuhnCheckDigit engine, String input, String prefix) {
+		String value = input.startsWith(prefix) ? input.substring(prefix.length()) : input;
+		int sum = referenceSum(engine, value.trim().toUpperCase(), 2);
+		
+		return (sum < 0) ? null : engine.getAllowedCharacters().charAt((engine.getMod() - (sum % engine.getMod())) % engine.getMod());
+	}
+	
+	/**
+	 * Validates the check digit by searching the allowed characters for every input character.
+	 * 
+	 * @param engine the engine whose alphabet is used
+	 * @param input the input
+	 * @param prefix the domain prefix
+	 * @return whether the check digit is valid, or {@code null} if a character isn't allowed
+	 */
+	private static Boolean referenceValidate(LuhnCheckDigit engine, String input, String prefix) {
+		if (!input.startsWith(prefix)) {
+			return false;
+		}
+		
+		int sum = referenceSum(engine, input.substring(prefix.length()).trim().toUpperCase(), 1);
+		return (sum < 0) ? null : (sum % engine.getMod() == 0);
+	}
+	
+	/**
+	 * Calculates the Luhn sum from right to left.
+	 * 
+	 * @param engine the engine whose alphabet is used
+	 * @param value the standardized value
+	 * @param factor the factor of the rightmost character
+	 * @return the sum, or {@code -1} if a character isn't allowed
+	 */
+	private static int referenceSum(LuhnCheckDigit engine, String value, int factor) {
+		int sum = 0;
+		for (int i = value.length() - 1; i >= 0; i--) {
+			int index = engine.getAllowedCharacters().lastIndexOf(value.charAt(i));
+			if (index == -1) {
+				return -1;
+			}
+			
+			int addend = factor * index;
+			factor = (factor == 2) ? 1 : 2;
+			sum += (addend / engine.getMod()) + (addend % engine.getMod());
+		}
+		
+		return sum;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jooq.DSLContext;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.model.IdentifierItem;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class offers a base for tests that work directly with the database access services 
+ * instead of the REST endpoints. Every test starts with an empty domain table.
+ *
+ * @author Armin Müller
+ */
+@SpringBootTest
+@Slf4j
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class AssertDatabaseService {
+	
+	/** The start of the validity period of the test domains. */
+	protected static final LocalDateTime VALID_FROM = LocalDateTime.of(2022, 2, 26, 19, 15, 20);
+	
+	/** The end of the validity period of the test domains. */
+	protected static final LocalDateTime VALID_TO = LocalDateTime.of(2052, 2, 19, 19, 15, 20);
+	
+	/** References a jOOQ configuration object that configures jOOQ's behavior when executing queries. */
+	@Autowired
+	protected DSLContext dsl;
+	
+	/** Enables access to the domain database methods. */
+	@Autowired
+	protected DomainDBAccessService domainDBAccessService;
+	
+	/** Enables access to the pseudonym database methods. */
+	@Autowired
+	protected PseudonymDBAccessService pseudonymDBAccessService;
+	
+	/** Enables access to the permission grants database methods. */
+	@Autowired
+	private PermissionDBService permissionDBService;
+	
+	/**
+	 * Removes all domains (and with them all pseudonyms and their partitions) and their permissions.
+	 */
+	@BeforeEach
+	public void resetDatabase() {
+		log.debug("Truncating table domain.");
+		dsl.query("TRUNCATE TABLE domain CASCADE").execute();
+		
+		// The truncation keeps the per-domain partitions of the pseudonym table, which would be reused by the next domains
+		dsl.resultQuery("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid "
+				+ "WHERE i.inhparent = to_regclass('pseudonym') AND c.relname <> 'pseudonym_default'")
+			.fetch(0, String.class)
+			.forEach(partition -> dsl.query("DROP TABLE {0}", DSL.name(partition)).execute());
+		dsl.query("ALTER SEQUENCE domain_id_seq RESTART WITH 1").execute();
+		permissionDBService.removeDomainPermissions();
+	}
+	
+	/**
+	 * Creates a domain with the default test settings.
+	 * 
+	 * @param name the name of the domain
+	 * @param prefix the prefix of the domain
+	 * @param algorithm the pseudonymization algorithm
+	 * @param superDomain the super-domain, or {@code null} for a root domain
+	 * @return the stored domain
+	 */
+	protected Domain createDomain(String name, String prefix, String algorithm, Domain superDomain) {
+		Domain domain = new Domain();
+		domain.setName(name);
+		domain.setPrefix(prefix);
+		domain.setValidfrom(VALID_FROM);
+		domain.setValidfrominherited(superDomain != null);
+		domain.setValidto(VALID_TO);
+		domain.setValidtoinherited(superDomain != null);
+		domain.setEnforcestartdatevalidity(true);
+		domain.setEnforcestartdatevalidityinherited(false);
+		domain.setEnforceenddatevalidity(true);
+		domain.setEnforceenddatevalidityinherited(false);
+		domain.setAlgorithm(algorithm);
+		domain.setAlgorithminherited(false);
+		domain.setAlphabet("ABCDEF0123456789");
+		domain.setAlphabetinherited(false);
+		domain.setRandomalgorithmdesiredsize(100000000L);
+		domain.setRandomalgorithmdesiredsizeinherited(false);
+		domain.setRandomalgorithmdesiredsuccessprobability(0.99999998d);
+		domain.setRandomalgorithmdesiredsuccessprobabilityinherited(false);
+		domain.setMultiplepsnallowed(false);
+		domain.setMultiplepsnallowedinherited(false);
+		domain.setConsecutivevaluecounter(1L);
+		domain.setPseudonymlength(16);
+		domain.setPseudonymlengthinherited(false);
+		domain.setPaddingcharacter("0");
+		domain.setPaddingcharacterinherited(false);
+		domain.setAddcheckdigit(false);
+		domain.setAddcheckdigitinherited(false);
+		domain.setLengthincludescheckdigit(false);
+		domain.setLengthincludescheckdigitinherited(false);
+		domain.setSalt("azMPTIQXJsept_4nDj5B1BXN83Bj_8VJ");
+		domain.setSaltlength(32);
+		domain.setSuperdomainid(superDomain == null ? null : superDomain.getId());
+		
+		assertEquals(DomainDBAccessService.INSERTION_SUCCESS, domainDBAccessService.insertDomain(domain));
+		Domain stored = domainDBAccessService.getDomainByName(name);
+		assertNotNull(stored);
+		
+		return stored;
+	}
+	
+	/**
+	 * Creates a pseudonym object that inherits the validity period of the test domains.
+	 * 
+	 * @param domain the domain of the pseudonym
+	 * @param identifier the identifier
+	 * @param psn the pseudonym-value
+	 * @return the pseudonym object
+	 */
+	protected static PseudonymDTO pseudonym(Domain domain, String identifier, String psn) {
+		PseudonymDTO p = new PseudonymDTO();
+		p.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType("ANY-ID").build());
+		p.setPsn(psn);
+		p.setDomainName(domain.getName());
+		p.setValidFrom(domain.getValidfrom());
+		p.setValidFromInherited(true);
+		p.setValidTo(domain.getValidto());
+		p.setValidToInherited(true);
+		
+		return p;
+	}
+	
+	/**
+	 * Stores the given number of pseudonyms with the identifiers {@code <prefix>0}, {@code <prefix>1}, ... 
+	 * and the pseudonym-values {@code <domain prefix><prefix>0}, ...
+	 * 
+	 * @param domain the domain of the pseudonyms
+	 * @param identifierPrefix the start of the identifiers
+	 * @param count the number of pseudonyms
+	 * @return the stored pseudonyms
+	 */
+	protected List<PseudonymDTO> createPseudonyms(Domain domain, String identifierPrefix, int count) {
+		List<PseudonymDTO> pseudonyms = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			pseudonyms.add(pseudonym(domain, identifierPrefix + i, domain.getPrefix() + identifierPrefix + i));
+		}
+		
+		List<String> results = pseudonymDBAccessService.createPseudonyms(pseudonyms, domain.getId(), domain.getMultiplepsnallowed());
+		assertNotNull(results);
+		for (String result : results) {
+			assertEquals(PseudonymDBAccessService.INSERTION_SUCCESS, result);
+		}
+		
+		return pseudonyms;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymizerRegistryService;
+
+/**
+ * This class offers tests for pseudonymizing a whole batch of identifiers at once.
+ *
+ * @author Armin Müller
+ */
+public class TestsBulkPseudonymizationIT extends AssertDatabaseService {
+	
+	/** The hash algorithms, which process large batches in parallel. */
+	private static final List<String> HASH_ALGORITHMS = List.of("MD5", "SHA1", "SHA2", "SHA3", "BLAKE3", "XXHASH");
+	
+	/** Provides the pseudonymizers of the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
+	/**
+	 * Creates the same pseudonyms (including the check digit) as single calls, in the order of the 
+	 * identifiers, for small batches and for batches that are large enough to be processed in parallel.
+	 */
+	@Test
+	@DisplayName("hashBatchesMatchSingleCalls")
+	public void hashBatchesMatchSingleCalls() {
+		for (String algorithm : HASH_ALGORITHMS) {
+			Domain domain = createDomain("Studie" + algorithm, "TS-", algorithm, null);
+			Domain update = new Domain();
+			update.setAddcheckdigit(true);
+			assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+			domain = domainDBAccessService.getDomainByName("Studie" + algorithm);
+			Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+			
+			for (int size : new int[] {3, 1000}) {
+				List<String> identifiers = new ArrayList<>(size);
+				List<String> expected = new ArrayList<>(size);
+				for (int i = 0; i < size; i++) {
+					String identifier = pseudonymizer.saltIdentifier("ID" + i, "ANY-ID");
+					identifiers.add(identifier);
+					expected.add(pseudonymizer.addCheckDigit(pseudonymizer.pseudonymize(identifier, domain.getPrefix()), 
+							false, domain.getName(), domain.getPrefix()));
+				}
+				
+				assertEquals(expected, pseudonymizer.pseudonymizeAll(identifiers, domain.getPrefix()), algorithm + ", " + size + " identifiers");
+			}
+		}
+	}
+	
+	/**
+	 * Assigns different pseudonyms to the same identifier when the domain allows multiple pseudonyms per identifier.
+	 */
+	@Test
+	@DisplayName("hashBatchesUseCounterRange")
+	public void hashBatchesUseCounterRange() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain update = new Domain();
+		update.setMultiplepsnallowed(true);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		domain = domainDBAccessService.getDomainByName("TestStudie");
+		
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+		String identifier = pseudonymizer.saltIdentifier("ID1", "ANY-ID");
+		List<String> pseudonyms = pseudonymizer.pseudonymizeAll(List.of(identifier, identifier, identifier), domain.getPrefix());
+		
+		assertEquals(3, new HashSet<>(pseudonyms).size());
+	}
+	
+	/**
+	 * Numbers the pseudonyms of a batch consecutively from one reserved range.
+	 */
+	@Test
+	@DisplayName("consecutiveBatchesAreConsecutive")
+	public void consecutiveBatchesAreConsecutive() {
+		Domain domain = createDomain("TestStudie", "TS-", "CONSECUTIVE", null);
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+		
+		List<String> pseudonyms = pseudonymizer.pseudonymizeAll(List.of("", "", "", "", ""), domain.getPrefix());
+		assertEquals(5, pseudonyms.size());
+		
+		long first = Long.parseLong(pseudonyms.get(0).substring(domain.getPrefix().length()));
+		for (int i = 0; i < pseudonyms.size(); i++) {
+			assertEquals(domain.getPrefix().length() + domain.getPseudonymlength(), pseudonyms.get(i).length());
+			assertEquals(first + i, Long.parseLong(pseudonyms.get(i).substring(domain.getPrefix().length())));
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.CounterAllocatorService;
+
+/**
+ * This class offers tests for the counter values that are leased in blocks.
+ *
+ * @author Armin Müller
+ */
+public class TestsCounterAllocatorIT extends AssertDatabaseService {
+	
+	/** Hands out the counter values. */
+	@Autowired
+	private CounterAllocatorService counterAllocator;
+	
+	/**
+	 * Hands out every value only once, also when many threads draw values (and lease blocks) at the same time.
+	 * 
+	 * @throws Exception forwards the exceptions of the threads
+	 */
+	@Test
+	@DisplayName("valuesAreUniqueAcrossThreads")
+	public void valuesAreUniqueAcrossThreads() throws Exception {
+		Domain domain = createDomain("TestStudie", "TS-", "CONSECUTIVE", null);
+		int threads = 8;
+		int valuesPerThread = 250;
+		
+		Set<Long> values = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < threads; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < valuesPerThread; i++) {
+						Long value = counterAllocator.nextDomainValue(domain.getId());
+						assertNotNull(value);
+						assertTrue(values.add(value), "The value " + value + " was handed out twice.");
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		
+		assertEquals(threads * valuesPerThread, values.size());
+		
+		// The stored counter marks the end of the last leased block
+		long counter = domainDBAccessService.getDomainByName("TestStudie").getConsecutivevaluecounter();
+		assertTrue(values.stream().allMatch(v -> v > 1 && v <= counter));
+	}
+	
+	/**
+	 * Reserves a range for a batch next to the leased block, without touching the block.
+	 */
+	@Test
+	@DisplayName("reservedRangesDontOverlapBlocks")
+	public void reservedRangesDontOverlapBlocks() {
+		Domain domain = createDomain("TestStudie", "TS-", "CONSECUTIVE", null);
+		
+		long first = counterAllocator.nextDomainValue(domain.getId());
+		long counter = domainDBAccessService.getDomainByName("TestStudie").getConsecutivevaluecounter();
+		
+		assertEquals(Long.valueOf(counter + 1), counterAllocator.reserveDomainValues(domain.getId(), 10));
+		assertEquals(Long.valueOf(counter + 10), domainDBAccessService.getDomainByName("TestStudie").getConsecutivevaluecounter());
+		assertEquals(Long.valueOf(first + 1), counterAllocator.nextDomainValue(domain.getId()));
+	}
+	
+	/**
+	 * Continues after a manually set counter, instead of handing out the rest of the leased block.
+	 */
+	@Test
+	@DisplayName("manualCounterDropsBlock")
+	public void manualCounterDropsBlock() {
+		Domain domain = createDomain("TestStudie", "TS-", "CONSECUTIVE", null);
+		counterAllocator.nextDomainValue(domain.getId());
+		
+		Domain update = new Domain();
+		update.setConsecutivevaluecounter(1000L);
+		assertNotNull(domainDBAccessService.updateDomain(domainDBAccessService.getDomainByName("TestStudie"), update, false));
+		
+		assertEquals(Long.valueOf(1001L), counterAllocator.nextDomainValue(domain.getId()));
+	}
+}
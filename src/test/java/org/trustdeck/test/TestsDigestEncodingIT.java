@@ -0,0 +1,117 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.stream.IntStream;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymizerRegistryService;
+
+import net.jpountz.xxhash.XXHashFactory;
+
+/**
+ * This class offers tests for the hash pseudonymizers, which encode the digests directly into the pseudonym-values.
+ * The values are compared with hex strings created by the reference implementations.
+ *
+ * @author Armin Müller
+ */
+public class TestsDigestEncodingIT extends AssertDatabaseService {
+	
+	/** The reference implementations of the cryptographic hash algorithms (upper-case hex). */
+	private static final Map<String, UnaryOperator<String>> REFERENCES = Map.of(
+			"MD5", text -> DigestUtils.md5Hex(text).toUpperCase(),
+			"SHA1", text -> DigestUtils.sha1Hex(text).toUpperCase(),
+			"SHA2", text -> DigestUtils.sha512Hex(text).toUpperCase(),
+			"SHA3", text -> DigestUtils.sha3_512Hex(text).toUpperCase());
+	
+	/** Provides the pseudonymizers of the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
+	/**
+	 * Creates the same values as the reference implementations, cut to the pseudonym length or padded up to it. 
+	 * The identifiers are pseudonymized concurrently, since the pseudonymizers reuse per-thread buffers.
+	 */
+	@Test
+	@DisplayName("digestsMatchReference")
+	public void digestsMatchReference() {
+		for (Map.Entry<String, UnaryOperator<String>> reference : REFERENCES.entrySet()) {
+			for (int length : new int[] {16, 200}) {
+				Pseudonymizer pseudonymizer = pseudonymizer(reference.getKey(), length);
+				
+				IntStream.range(0, 500).parallel().forEach(i -> {
+					String identifier = pseudonymizer.saltIdentifier("ID" + i, "ANY-ID");
+					String expected = "TS-" + pseudonymizer.correctPseudonymLength(reference.getValue().apply(identifier));
+					assertEquals(expected, pseudonymizer.pseudonymize(identifier, "TS-"), reference.getKey() + ", length " + length);
+				});
+			}
+		}
+	}
+	
+	/**
+	 * Creates the same values as the reference implementation of xxHash, whose leading zeros are kept.
+	 */
+	@Test
+	@DisplayName("xxHashMatchesReference")
+	public void xxHashMatchesReference() {
+		for (int length : new int[] {8, 16, 32}) {
+			Pseudonymizer pseudonymizer = pseudonymizer("XXHASH", length);
+			long seed = ByteBuffer.wrap(DigestUtils.sha256(domainDBAccessService.getDomainByName("StudieXXHASH" + length).getSalt())).getLong();
+			
+			IntStream.range(0, 500).parallel().forEach(i -> {
+				String identifier = pseudonymizer.saltIdentifier("ID" + i, "ANY-ID");
+				String hex = Long.toHexString(XXHashFactory.safeInstance().hash64().hash(ByteBuffer.wrap(identifier.getBytes()), seed));
+				String expected = "TS-" + pseudonymizer.correctPseudonymLength(pseudonymizer.addPadding(hex, 16, '0'));
+				assertEquals(expected, pseudonymizer.pseudonymize(identifier, "TS-"), "length " + length);
+			});
+		}
+	}
+	
+	/**
+	 * Creates a domain with the given algorithm and pseudonym length and retrieves its pseudonymizer.
+	 * 
+	 * @param algorithm the hash algorithm
+	 * @param length the length of the pseudonym-values
+	 * @return the domain's pseudonymizer
+	 */
+	private Pseudonymizer pseudonymizer(String algorithm, int length) {
+		String name = "Studie" + algorithm + length;
+		Domain domain = createDomain(name, "TS-", algorithm, null);
+		
+		Domain update = new Domain();
+		update.setPseudonymlength(length);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domainDBAccessService.getDomainByName(name));
+		assertNotNull(pseudonymizer);
+		
+		return pseudonymizer;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.trustdeck.jooq.generated.Tables.DOMAIN;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.DomainCacheService;
+import org.trustdeck.service.DomainCacheService.DomainCacheMetrics;
+
+/**
+ * This class offers tests for the cache of the domains.
+ *
+ * @author Armin Müller
+ */
+public class TestsDomainCacheIT extends AssertDatabaseService {
+	
+	/** Caches the domains by ID and by name. */
+	@Autowired
+	private DomainCacheService domainCache;
+	
+	/**
+	 * Answers repeated lookups by name (case-insensitively) and by ID from the cache, with copies of the 
+	 * cached domain. A change that bypasses the services is only seen once the domain is invalidated.
+	 */
+	@Test
+	@DisplayName("lookupsAreCached")
+	public void lookupsAreCached() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		domainCache.invalidateAll();
+		DomainCacheMetrics before = domainCache.getMetrics();
+		
+		Domain first = domainDBAccessService.getDomainByName("TestStudie");
+		Domain second = domainDBAccessService.getDomainByID(domain.getId());
+		Domain third = domainDBAccessService.getDomainByName(" teststudie ");
+		DomainCacheMetrics after = domainCache.getMetrics();
+		assertEquals(before.misses() + 1, after.misses());
+		assertEquals(before.hits() + 2, after.hits());
+		assertEquals(1, after.size());
+		
+		// Callers get copies, which they may alter
+		assertEquals(domain.getId(), third.getId());
+		assertNotSame(first, second);
+		first.setPrefix("XX-");
+		assertEquals("TS-", domainDBAccessService.getDomainByName("TestStudie").getPrefix());
+		
+		// Domains that weren't found are not cached
+		assertNull(domainDBAccessService.getDomainByName("Unknown"));
+		assertNull(domainDBAccessService.getDomainByName("Unknown"));
+		assertEquals(after.misses() + 2, domainCache.getMetrics().misses());
+		
+		// A change that bypasses the services is hidden by the cache until the domain is invalidated
+		dsl.update(DOMAIN).set(DOMAIN.PREFIX, "NEW-").where(DOMAIN.ID.eq(domain.getId())).execute();
+		assertEquals("TS-", domainDBAccessService.getDomainByID(domain.getId()).getPrefix());
+		
+		long version = domainCache.getMetrics().version();
+		domainCache.invalidate(domain.getId());
+		assertTrue(domainCache.getMetrics().version() > version);
+		assertEquals(0, domainCache.getMetrics().size());
+		assertEquals("NEW-", domainDBAccessService.getDomainByName("TestStudie").getPrefix());
+	}
+	
+	/**
+	 * Invalidates the cached domains when their counter is changed or when they are renamed or deleted (incl. sub-domains).
+	 */
+	@Test
+	@DisplayName("writesInvalidate")
+	public void writesInvalidate() {
+		Domain root = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain child = createDomain("TestStudie-Labor", "TL-", "MD5", root);
+		assertEquals(1L, domainDBAccessService.getDomainByID(root.getId()).getConsecutivevaluecounter());
+		assertNotNull(domainDBAccessService.getDomainByID(child.getId()));
+		
+		assertTrue(domainDBAccessService.updateCounter(5L, "TestStudie"));
+		assertEquals(5L, domainDBAccessService.getDomainByName("TestStudie").getConsecutivevaluecounter());
+		assertEquals(15L, domainDBAccessService.reserveCounterRange(root.getId(), 10));
+		assertEquals(15L, domainDBAccessService.getDomainByID(root.getId()).getConsecutivevaluecounter());
+		
+		// A renamed domain is only found by its new name
+		Domain update = new Domain();
+		update.setName("TestStudie-Klinik");
+		assertNotNull(domainDBAccessService.updateDomain(child, update, false));
+		assertNull(domainDBAccessService.getDomainByName("TestStudie-Labor"));
+		assertEquals(child.getId(), domainDBAccessService.getDomainByName("TestStudie-Klinik").getId());
+		assertEquals("TestStudie-Klinik", domainDBAccessService.getDomainByID(child.getId()).getName());
+		
+		// Deleting a domain recursively removes its sub-domains from the cache as well
+		assertTrue(domainDBAccessService.deleteDomain("TestStudie", true));
+		assertNull(domainDBAccessService.getDomainByID(root.getId()));
+		assertNull(domainDBAccessService.getDomainByID(child.getId()));
+		assertNull(domainDBAccessService.getDomainByName("TestStudie-Klinik"));
+	}
+	
+	/**
+	 * Doesn't cache a lookup that overlapped with an invalidation, since it might have read outdated data.
+	 */
+	@Test
+	@DisplayName("overlappingInvalidation")
+	public void overlappingInvalidation() {
+		Domain domain = new Domain();
+		domain.setId(4711);
+		domain.setName("Overlap");
+		AtomicInteger loads = new AtomicInteger();
+		
+		Supplier<Domain> invalidatingLoader = () -> {
+			loads.incrementAndGet();
+			domainCache.invalidate(4712);
+			return domain;
+		};
+		Supplier<Domain> loader = () -> {
+			loads.incrementAndGet();
+			return domain;
+		};
+		
+		assertSame(domain, domainCache.getByName("Overlap", invalidatingLoader));
+		assertSame(domain, domainCache.getByName("Overlap", loader));
+		assertEquals(2, loads.get());
+		
+		// The second lookup was cached
+		assertEquals("Overlap", domainCache.getByName("OVERLAP", loader).getName());
+		assertEquals("Overlap", domainCache.getById(4711, () -> fail("The domain should have been cached.")).getName());
+		assertEquals(2, loads.get());
+	}
+}
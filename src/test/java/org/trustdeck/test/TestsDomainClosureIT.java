@@ -0,0 +1,117 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.DomainClosureService;
+import org.trustdeck.service.DomainClosureService.ClosureVerification;
+
+/**
+ * This class offers tests for the closure table of the domain tree.
+ *
+ * @author Armin Müller
+ */
+public class TestsDomainClosureIT extends AssertDatabaseService {
+	
+	/** The number of rows of the test tree (one per domain and ancestor, including the domain itself). */
+	private static final long CLOSURE_ROWS = 8L;
+	
+	/** The service maintaining the closure table. */
+	@Autowired
+	private DomainClosureService domainClosure;
+	
+	/**
+	 * Creates the test tree: a root domain with two sub-domains, one of which has a sub-domain of its own.
+	 */
+	@BeforeEach
+	public void createTree() {
+		Domain root = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain child = createDomain("SubStudie", "SS-", "MD5", root);
+		createDomain("SiblingStudie", "SI-", "MD5", root);
+		createDomain("SubSubStudie", "SSS-", "MD5", child);
+	}
+	
+	/**
+	 * Retrieves the subtrees, with every domain coming before its sub-domains.
+	 */
+	@Test
+	@DisplayName("subtreeIsOrderedByDepth")
+	public void subtreeIsOrderedByDepth() {
+		assertEquals(List.of("TestStudie", "SubStudie", "SiblingStudie", "SubSubStudie"), names(domainClosure.getSubtree("teststudie")));
+		assertEquals(List.of("SubStudie", "SubSubStudie"), names(domainClosure.getSubtree("SubStudie")));
+		assertTrue(domainClosure.getSubtree("Unknown").isEmpty());
+	}
+	
+	/**
+	 * Verifies the maintained closure table, breaks it, and rebuilds it.
+	 */
+	@Test
+	@DisplayName("verifyAndBackfill")
+	public void verifyAndBackfill() {
+		ClosureVerification verification = domainClosure.verify();
+		assertTrue(verification.consistent());
+		assertEquals(CLOSURE_ROWS, verification.expected());
+		assertEquals(CLOSURE_ROWS, verification.actual());
+		
+		// Lose the rows of the ancestors
+		dsl.query("DELETE FROM domain_closure WHERE depth > 0").execute();
+		verification = domainClosure.verify();
+		assertFalse(verification.consistent());
+		assertEquals(4L, verification.missing());
+		assertEquals(0L, verification.surplus());
+		
+		assertEquals(CLOSURE_ROWS, domainClosure.backfill());
+		assertTrue(domainClosure.verify().consistent());
+	}
+	
+	/**
+	 * Deletes a sub-domain and then the remaining tree recursively.
+	 */
+	@Test
+	@DisplayName("deleteRemovesClosureRows")
+	public void deleteRemovesClosureRows() {
+		assertTrue(domainDBAccessService.deleteDomain("SubStudie", true));
+		assertEquals(List.of("TestStudie", "SiblingStudie"), names(domainClosure.getSubtree("TestStudie")));
+		assertTrue(domainClosure.verify().consistent());
+		
+		assertTrue(domainDBAccessService.deleteDomain("TestStudie", true));
+		assertEquals(0, dsl.fetchCount(DSL.table(DSL.name("domain_closure"))));
+	}
+	
+	/**
+	 * Extracts the names of domains.
+	 * 
+	 * @param domains the domains
+	 * @return the names
+	 */
+	private static List<String> names(List<Domain> domains) {
+		return domains.stream().map(Domain::getName).toList();
+	}
+}
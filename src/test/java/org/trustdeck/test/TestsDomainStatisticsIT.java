@@ -0,0 +1,100 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.DomainStatisticsService;
+
+/**
+ * This class offers tests for the maintained per-domain pseudonym counts.
+ *
+ * @author Armin Müller
+ */
+public class TestsDomainStatisticsIT extends AssertDatabaseService {
+	
+	/** The service maintaining the counts. */
+	@Autowired
+	private DomainStatisticsService domainStatistics;
+	
+	/**
+	 * Inserts and deletes pseudonyms and compares the maintained count with the exact count.
+	 */
+	@Test
+	@DisplayName("maintainCountsOnInsertAndDelete")
+	public void maintainCountsOnInsertAndDelete() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		List<PseudonymDTO> pseudonyms = createPseudonyms(domain, "ID", 3);
+		
+		// The first request reconciles the domain
+		assertEquals(Long.valueOf(3), domainStatistics.getPseudonymCount(domain.getId(), false));
+		
+		createPseudonyms(domain, "NEW", 2);
+		assertEquals(Long.valueOf(5), domainStatistics.getPseudonymCount(domain.getId(), false));
+		domainStatistics.flush();
+		assertEquals(Long.valueOf(5), domainStatistics.getPseudonymCount(domain.getId(), false));
+		
+		pseudonymDBAccessService.deletePseudonyms(List.of(pseudonyms.get(0)), domain.getId());
+		assertEquals(Long.valueOf(4), domainStatistics.getPseudonymCount(domain.getId(), false));
+		assertEquals(1, domainStatistics.reconcile(domain.getId()));
+		assertEquals(Long.valueOf(4), domainStatistics.getPseudonymCount(domain.getId(), false));
+		assertEquals(Long.valueOf(4), domainStatistics.getPseudonymCount(domain.getId(), true));
+	}
+	
+	/**
+	 * Reconciles the domain on another node while this node still holds changes that are contained 
+	 * in the exact count, and checks that flushing them afterwards doesn't count them twice.
+	 * 
+	 * @throws InterruptedException when the test is interrupted while waiting
+	 */
+	@Test
+	@DisplayName("keepCountsWhenFlushingAfterReconciliation")
+	public void keepCountsWhenFlushingAfterReconciliation() throws InterruptedException {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 3);
+		assertEquals(1, domainStatistics.reconcile(domain.getId()));
+		
+		// Pending on this node
+		createPseudonyms(domain, "NEW", 2);
+		Thread.sleep(250);
+		
+		DomainStatisticsService otherNode = new DomainStatisticsService();
+		ReflectionTestUtils.setField(otherNode, "dsl", dsl);
+		assertEquals(1, otherNode.reconcile(domain.getId()));
+		assertEquals(Long.valueOf(5), otherNode.getPseudonymCount(domain.getId(), false));
+		
+		// Already contained in the reconciled count
+		domainStatistics.flush();
+		assertEquals(Long.valueOf(5), domainStatistics.getPseudonymCount(domain.getId(), false));
+		
+		// Committed after the reconciliation
+		createPseudonyms(domain, "LATE", 1);
+		domainStatistics.flush();
+		assertEquals(Long.valueOf(6), otherNode.getPseudonymCount(domain.getId(), false));
+		assertEquals(Long.valueOf(6), domainStatistics.getPseudonymCount(domain.getId(), true));
+	}
+}
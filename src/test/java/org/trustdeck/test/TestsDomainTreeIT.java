@@ -0,0 +1,110 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.algorithms.DomainTree;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.DomainTreeService;
+
+/**
+ * This class offers tests for the snapshot of the domain tree.
+ *
+ * @author Armin Müller
+ */
+public class TestsDomainTreeIT extends AssertDatabaseService {
+	
+	/** Holds the snapshot of the domain tree. */
+	@Autowired
+	private DomainTreeService domainTreeService;
+	
+	/**
+	 * Keeps the snapshot while the domains don't change and replaces it when a domain is created, renamed, or deleted.
+	 */
+	@Test
+	@DisplayName("snapshotFollowsChanges")
+	public void snapshotFollowsChanges() {
+		Domain root = createDomain("TestStudie", "TS-", "MD5", null);
+		DomainTree tree = domainTreeService.getTree();
+		assertNotNull(tree);
+		assertSame(tree, domainTreeService.getTree());
+		assertEquals(1, tree.size());
+		
+		// A new sub-domain is visible right away
+		Domain child = createDomain("TestStudie-Labor", "TL-", "MD5", root);
+		DomainTree created = domainTreeService.getTree();
+		assertTrue(created.getVersion() > tree.getVersion());
+		assertEquals(root.getId(), created.getParent(child.getId()).getId());
+		assertEquals(List.of("TestStudie", "TestStudie-Labor"), domainDBAccessService.getFlatDomainTree("TestStudie-Labor"));
+		
+		// A renamed domain is found by its new name only
+		Domain update = new Domain();
+		update.setName("TestStudie-Klinik");
+		assertNotNull(domainDBAccessService.updateDomain(child, update, false));
+		DomainTree renamed = domainTreeService.getTree();
+		assertTrue(renamed.getVersion() > created.getVersion());
+		assertEquals(child.getId(), renamed.getDomain("TestStudie-Klinik").getId());
+		assertNull(renamed.getDomain("TestStudie-Labor"));
+		
+		// A deleted domain is gone, and so is the path to it
+		assertTrue(domainDBAccessService.deleteDomain("TestStudie-Klinik", false));
+		DomainTree deleted = domainTreeService.getTree();
+		assertEquals(1, deleted.size());
+		assertNull(deleted.getDomain(child.getId()));
+		assertNull(deleted.getPath(root.getId(), child.getId()));
+		assertEquals(List.of("TestStudie"), domainDBAccessService.getFlatDomainTree("TestStudie"));
+	}
+	
+	/**
+	 * Finds the path between two sub-domains through their common super-domain.
+	 */
+	@Test
+	@DisplayName("pathBetweenSubDomains")
+	public void pathBetweenSubDomains() {
+		Domain root = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain left = createDomain("TestStudie-Labor", "TL-", "MD5", root);
+		Domain leaf = createDomain("TestStudie-Labor-Probe", "TP-", "MD5", left);
+		Domain right = createDomain("TestStudie-Klinik", "TK-", "MD5", root);
+		Domain other = createDomain("OtherStudie", "OS-", "MD5", null);
+		
+		DomainTree tree = domainTreeService.getTree();
+		assertEquals(List.of(leaf.getId(), left.getId(), root.getId(), right.getId()), 
+				tree.getPath(leaf.getId(), right.getId()).stream().map(Domain::getId).toList());
+		assertTrue(tree.isAncestorOrSelf(root.getId(), leaf.getId()));
+		assertEquals(2, tree.getDepth(leaf.getId()));
+		assertEquals(List.of(), tree.getPath(leaf.getId(), other.getId()));
+		
+		// The complete tree starts with the root domain; the order of siblings isn't fixed
+		List<Integer> structure = domainDBAccessService.getDomainTreeStructure(right).stream().map(Domain::getId).toList();
+		assertEquals(4, structure.size());
+		assertEquals(root.getId(), structure.get(0));
+		assertTrue(structure.indexOf(left.getId()) < structure.indexOf(leaf.getId()));
+		assertTrue(structure.contains(right.getId()));
+	}
+}
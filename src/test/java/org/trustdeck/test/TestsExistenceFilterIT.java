@@ -0,0 +1,116 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymExistenceFilterService;
+import org.trustdeck.service.PseudonymExistenceFilterService.FilterStatus;
+import org.trustdeck.utils.BloomFilter;
+
+/**
+ * This class offers tests for the per-domain existence filters of the pseudonym-values.
+ *
+ * @author Armin Müller
+ */
+@TestPropertySource(properties = "app.pseudonymization.existence-filter-enabled=true")
+public class TestsExistenceFilterIT extends AssertDatabaseService {
+	
+	/** Maintains the existence filters. */
+	@Autowired
+	private PseudonymExistenceFilterService existenceFilter;
+	
+	/**
+	 * Never reports a stored value as new, and reports new values as possibly existing 
+	 * at roughly the rate the filter was dimensioned for.
+	 */
+	@Test
+	@DisplayName("bloomFilterHasNoFalseNegatives")
+	public void bloomFilterHasNoFalseNegatives() {
+		BloomFilter filter = new BloomFilter(10000, 0.01d);
+		for (int i = 0; i < 10000; i++) {
+			filter.put("TS-" + i);
+		}
+		
+		int falsePositives = 0;
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(filter.mightContain("TS-" + i));
+			falsePositives += filter.mightContain("OTHER-" + i) ? 1 : 0;
+		}
+		assertTrue(falsePositives < 300, "Too many false positives: " + falsePositives);
+	}
+	
+	/**
+	 * Seeds the filter with the stored pseudonyms, learns newly stored ones, and leaves only the possibly 
+	 * existing values for the database query.
+	 * 
+	 * @throws InterruptedException if the test is interrupted while waiting for the filter
+	 */
+	@Test
+	@DisplayName("filterSeedsAndLearns")
+	public void filterSeedsAndLearns() throws InterruptedException {
+		Domain domain = createDomain("TestStudie", "TS-", "RANDOM_HEX", null);
+		createPseudonyms(domain, "ID", 5);
+		
+		// The first lookup starts seeding the filter in the background
+		existenceFilter.filterPossiblyExisting(domain.getId(), List.of("TS-ID0"));
+		awaitReady(domain.getId());
+		
+		Collection<String> possible = existenceFilter.filterPossiblyExisting(domain.getId(), List.of("TS-ID0", "TS-ID4", "TS-NEW0"));
+		assertTrue(possible.containsAll(List.of("TS-ID0", "TS-ID4")));
+		
+		createPseudonyms(domain, "NEW", 1);
+		assertTrue(existenceFilter.filterPossiblyExisting(domain.getId(), List.of("TS-NEW0")).contains("TS-NEW0"));
+		
+		// The database only confirms the values that really exist
+		List<String> values = new ArrayList<>(List.of("TS-ID0", "TS-NEW0"));
+		for (int i = 0; i < 100; i++) {
+			values.add("TS-UNUSED" + i);
+		}
+		assertEquals(Set.of("TS-ID0", "TS-NEW0"), pseudonymDBAccessService.getExistingPseudonyms(domain.getId(), values));
+	}
+	
+	/**
+	 * Waits until the filter of a domain is ready.
+	 * 
+	 * @param domainId the ID of the domain
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	private void awaitReady(int domainId) throws InterruptedException {
+		for (int i = 0; i < 100; i++) {
+			if (existenceFilter.getMetrics().stream().anyMatch(m -> m.domainId() == domainId && m.status() == FilterStatus.READY)) {
+				return;
+			}
+			Thread.sleep(100);
+		}
+		
+		throw new AssertionError("The existence filter of the domain with ID " + domainId + " wasn't built in time.");
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymDBAccessService.ResolvedPseudonym;
+
+/**
+ * This class offers tests for resolving identifiers to their pseudonym-records and 
+ * creating the missing ones (get-or-create) directly against the database.
+ *
+ * @author Armin Müller
+ */
+public class TestsGetOrCreateIT extends AssertDatabaseService {
+	
+	/**
+	 * Creates the records on the first resolution and returns the same records on the second one.
+	 */
+	@Test
+	@DisplayName("resolveCreatesOnlyOnce")
+	public void resolveCreatesOnlyOnce() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		List<PseudonymDTO> requested = List.of(request(domain, "ID1"), request(domain, "ID2"), request(domain, "ID1"));
+		
+		List<ResolvedPseudonym> first = pseudonymDBAccessService.resolvePseudonyms(domain.getId(), requested, 
+				missing -> missing.stream().map(m -> pseudonym(domain, identifier(m), "TS-" + identifier(m))).toList(), 1);
+		assertNotNull(first);
+		assertEquals(3, first.size());
+		assertTrue(first.get(0).created());
+		assertTrue(first.get(1).created());
+		assertSame(first.get(0), first.get(2));
+		
+		List<ResolvedPseudonym> second = pseudonymDBAccessService.resolvePseudonyms(domain.getId(), requested, 
+				missing -> { throw new AssertionError("Nothing should be created."); }, 1);
+		assertNotNull(second);
+		for (int i = 0; i < 3; i++) {
+			assertFalse(second.get(i).created());
+			assertEquals(first.get(i).pseudonym().getPseudonym(), second.get(i).pseudonym().getPseudonym());
+		}
+	}
+	
+	/**
+	 * Resolves identifiers that are assigned the same pseudonym within one batch and a pseudonym 
+	 * that is already used by another identifier. The conflicting records are skipped instead of 
+	 * failing the whole batch.
+	 */
+	@Test
+	@DisplayName("resolveSkipsConflictingPseudonyms")
+	public void resolveSkipsConflictingPseudonyms() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "OLD", 1);
+		
+		List<PseudonymDTO> requested = List.of(request(domain, "ID1"), request(domain, "ID2"), request(domain, "ID3"));
+		List<ResolvedPseudonym> resolved = pseudonymDBAccessService.resolvePseudonyms(domain.getId(), requested, 
+				missing -> missing.stream().map(m -> pseudonym(domain, identifier(m), 
+						identifier(m).equals("ID3") ? "TS-OLD0" : "TS-SAME")).toList(), 1);
+		
+		assertNotNull(resolved);
+		assertTrue(resolved.get(0).created());
+		assertEquals("TS-SAME", resolved.get(0).pseudonym().getPseudonym());
+		assertNull(resolved.get(1));
+		assertNull(resolved.get(2));
+		assertEquals("OLD0", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-OLD0").getIdentifierItem().getIdentifier());
+	}
+	
+	/**
+	 * Generates a new pseudonym for a skipped record in the next attempt.
+	 */
+	@Test
+	@DisplayName("resolveRetriesSkippedRecords")
+	public void resolveRetriesSkippedRecords() {
+		Domain domain = createDomain("TestStudie", "TS-", "RANDOM_HEX", null);
+		createPseudonyms(domain, "OLD", 1);
+		
+		AtomicInteger attempt = new AtomicInteger();
+		List<ResolvedPseudonym> resolved = pseudonymDBAccessService.resolvePseudonyms(domain.getId(), List.of(request(domain, "ID1")), 
+				missing -> {
+					String psn = (attempt.getAndIncrement() == 0) ? "TS-OLD0" : "TS-NEW";
+					return missing.stream().map(m -> pseudonym(domain, identifier(m), psn)).toList();
+				}, 3);
+		
+		assertNotNull(resolved);
+		assertEquals(2, attempt.get());
+		assertTrue(resolved.get(0).created());
+		assertEquals("TS-NEW", resolved.get(0).pseudonym().getPseudonym());
+	}
+	
+	/**
+	 * Creates a request for an identifier without a pseudonym.
+	 * 
+	 * @param domain the domain
+	 * @param identifier the identifier
+	 * @return the request
+	 */
+	private static PseudonymDTO request(Domain domain, String identifier) {
+		return pseudonym(domain, identifier, null);
+	}
+	
+	/**
+	 * Extracts the identifier of a request.
+	 * 
+	 * @param request the request
+	 * @return the identifier
+	 */
+	private static String identifier(PseudonymDTO request) {
+		return request.getIdentifierItem().getIdentifier();
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.LinkedPseudonymService.BatchLinkageResult;
+import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.utils.Utility.Pair;
+
+/**
+ * This class offers tests for linking the pseudonyms of many source records at once.
+ *
+ * @author Armin Müller
+ */
+@TestPropertySource(properties = {"app.pseudonymization.linked-pseudonym-max-rows=5", "app.pseudonymization.linked-pseudonym-batch-max-rows=8"})
+public class TestsLinkedPseudonymBatchIT extends AssertDatabaseService {
+	
+	/**
+	 * Groups the linked records by source record, in the order of the request.
+	 */
+	@Test
+	@DisplayName("batchKeepsOrder")
+	public void batchKeepsOrder() {
+		createTree();
+		
+		List<PseudonymDTO> sources = List.of(byIdentifier("P3"), byPsn("R-0"), byIdentifier("P2"), byIdentifier("P9"), byPsn("R-3"));
+		BatchLinkageResult linkage = domainDBAccessService.linkPseudonymBatch("RootStudie", sources, "AStudie");
+		assertNotNull(linkage);
+		assertFalse(linkage.limitExceeded());
+		assertEquals(List.of(4, 3), linkage.hopCardinalities());
+		
+		List<List<List<String>>> links = new ArrayList<>();
+		for (List<Pair<Pseudonym, Pseudonym>> pairs : linkage.links()) {
+			links.add(pairs.stream().map(pair -> List.of(pair.first().getPseudonym(), pair.second().getPseudonym())).toList());
+		}
+		assertEquals(List.of(List.of(List.of("R-3", "A-3")), List.of(List.of("R-0", "A-0")), List.of(), List.of(), List.of(List.of("R-3", "A-3"))), links);
+		
+		// The records are also available as pseudonym objects of their domains
+		assertEquals("AStudie", domainDBAccessService.toPseudonymDTOPairs(linkage, "RootStudie", "AStudie").get(1).getFirst().second().getDomainName());
+	}
+	
+	/**
+	 * Applies the limit of visited records to the whole batch, no matter how many source records it contains.
+	 */
+	@Test
+	@DisplayName("batchLimitIsFixed")
+	public void batchLimitIsFixed() {
+		createTree();
+		
+		// Every source visits two records: eight in total are allowed
+		List<PseudonymDTO> sources = new ArrayList<>(List.of(byIdentifier("P0"), byIdentifier("P1"), byIdentifier("P3"), byPsn("R-0")));
+		BatchLinkageResult linkage = domainDBAccessService.linkPseudonymBatch("RootStudie", sources, "AStudie");
+		assertFalse(linkage.limitExceeded());
+		assertEquals(4, linkage.links().size());
+		
+		// Ten exceed the limit, although each source stays below the limit of a single search
+		sources.add(byPsn("R-1"));
+		linkage = domainDBAccessService.linkPseudonymBatch("RootStudie", sources, "AStudie");
+		assertTrue(linkage.limitExceeded());
+		assertTrue(linkage.links().isEmpty());
+	}
+	
+	/**
+	 * Handles empty batches and unknown domains.
+	 */
+	@Test
+	@DisplayName("batchEdgeCases")
+	public void batchEdgeCases() {
+		createTree();
+		
+		BatchLinkageResult linkage = domainDBAccessService.linkPseudonymBatch("RootStudie", List.of(), "AStudie");
+		assertTrue(linkage.links().isEmpty());
+		assertEquals(List.of(0, 0), linkage.hopCardinalities());
+		
+		assertNull(domainDBAccessService.linkPseudonymBatch("RootStudie", List.of(byIdentifier("P0")), "UnknownStudie"));
+	}
+	
+	/**
+	 * Creates the domain tree: "RootStudie" with the records P0 to P3 (pseudonyms R-0 to R-3) and 
+	 * its sub-domain "AStudie" with the linked records A-0, A-1, and A-3.
+	 */
+	private void createTree() {
+		Domain root = createDomain("RootStudie", "R-", "MD5", null);
+		Domain a = createDomain("AStudie", "A-", "MD5", root);
+		
+		List<PseudonymDTO> rootRecords = new ArrayList<>();
+		List<PseudonymDTO> aRecords = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			rootRecords.add(pseudonym(root, "P" + i, "R-" + i));
+			if (i != 2) {
+				aRecords.add(pseudonym(a, "R-" + i, "A-" + i));
+			}
+		}
+		
+		assertTrue(pseudonymDBAccessService.createPseudonyms(rootRecords, root.getId(), false).stream().allMatch(PseudonymDBAccessService.INSERTION_SUCCESS::equals));
+		assertTrue(pseudonymDBAccessService.createPseudonyms(aRecords, a.getId(), false).stream().allMatch(PseudonymDBAccessService.INSERTION_SUCCESS::equals));
+	}
+	
+	/**
+	 * Creates a source record given by its identifier.
+	 * 
+	 * @param identifier the identifier
+	 * @return the source record
+	 */
+	private static PseudonymDTO byIdentifier(String identifier) {
+		PseudonymDTO source = new PseudonymDTO();
+		source.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType("ANY-ID").build());
+		
+		return source;
+	}
+	
+	/**
+	 * Creates a source record given by its pseudonym-value.
+	 * 
+	 * @param psn the pseudonym-value
+	 * @return the source record
+	 */
+	private static PseudonymDTO byPsn(String psn) {
+		PseudonymDTO source = new PseudonymDTO();
+		source.setPsn(psn);
+		
+		return source;
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.context.TestPropertySource;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.LinkedPseudonymService.LinkageResult;
+import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.utils.Utility.Pair;
+
+/**
+ * This class offers tests for linking pseudonyms hop by hop along the path through the domain tree.
+ * A record in a sub-domain is linked to a record of its super-domain when its identifier is that record's pseudonym.
+ *
+ * @author Armin Müller
+ */
+@TestPropertySource(properties = "app.pseudonymization.linked-pseudonym-max-rows=5")
+public class TestsLinkedPseudonymsIT extends AssertDatabaseService {
+	
+	/**
+	 * Links records down and up the tree and reports the number of records found at each hop.
+	 */
+	@Test
+	@DisplayName("linkAlongPath")
+	public void linkAlongPath() {
+		createTree();
+		
+		// Down the tree, starting by identifier
+		LinkageResult linkage = domainDBAccessService.linkPseudonyms("RootStudie", "P1", "ANY-ID", null, "AStudie");
+		assertNotNull(linkage);
+		assertEquals(List.of(List.of("R-1", "A-1")), pairs(linkage.links()));
+		assertEquals(List.of(1, 1), linkage.hopCardinalities());
+		
+		// Up and down again, starting by pseudonym
+		linkage = domainDBAccessService.linkPseudonyms("AStudie", null, null, "A-1", "BStudie");
+		assertEquals(List.of(List.of("A-1", "B-1")), pairs(linkage.links()));
+		assertEquals(List.of(1, 1, 1), linkage.hopCardinalities());
+		
+		// A chain that ends before the target domain
+		linkage = domainDBAccessService.linkPseudonyms("AStudie", null, null, "A-2", "BStudie");
+		assertTrue(linkage.links().isEmpty());
+		assertEquals(List.of(1, 1, 0), linkage.hopCardinalities());
+		assertFalse(linkage.limitExceeded());
+	}
+	
+	/**
+	 * Ignores matching records in domains that aren't on the path, also for the starting record.
+	 */
+	@Test
+	@DisplayName("linkStaysOnPath")
+	public void linkStaysOnPath() {
+		createTree();
+		Domain other = createDomain("OtherStudie", "O-", "MD5", null);
+		insert(other, "R-1", "ANY-ID", "A-1");
+		insert(other, "A-1", "ANY-ID", "O-1");
+		
+		LinkageResult linkage = domainDBAccessService.linkPseudonyms("AStudie", null, null, "A-1", "BStudie");
+		assertEquals(List.of(List.of("A-1", "B-1")), pairs(linkage.links()));
+		assertEquals(List.of(1, 1, 1), linkage.hopCardinalities());
+	}
+	
+	/**
+	 * Links a record to all of its records in the target domain, and aborts a search that visits too many records.
+	 */
+	@Test
+	@DisplayName("fanOutAndLimit")
+	public void fanOutAndLimit() {
+		createTree();
+		Domain a = domainDBAccessService.getDomainByName("AStudie");
+		insert(a, "R-2", "T1", "A-2B");
+		insert(a, "R-2", "T2", "A-2C");
+		
+		// One record in the root domain and three in the sub-domain
+		LinkageResult linkage = domainDBAccessService.linkPseudonyms("RootStudie", "P2", "ANY-ID", null, "AStudie");
+		assertEquals(List.of(List.of("R-2", "A-2"), List.of("R-2", "A-2B"), List.of("R-2", "A-2C")), 
+				pairs(linkage.links()).stream().sorted((x, y) -> x.get(1).compareTo(y.get(1))).toList());
+		assertEquals(List.of(1, 3), linkage.hopCardinalities());
+		
+		// Six records exceed the limit of five
+		insert(a, "R-2", "T3", "A-2D");
+		insert(a, "R-2", "T4", "A-2E");
+		linkage = domainDBAccessService.linkPseudonyms("RootStudie", "P2", "ANY-ID", null, "AStudie");
+		assertTrue(linkage.limitExceeded());
+		assertTrue(linkage.links().isEmpty());
+		assertNull(domainDBAccessService.getLinkedPseudonyms("RootStudie", "P2", "ANY-ID", null, "AStudie"));
+	}
+	
+	/**
+	 * Creates the domain tree: "RootStudie" with the sub-domains "AStudie" and "BStudie". 
+	 * The records P1 and P2 of the root domain are linked to A-1 and A-2, only P1 is linked to B-1.
+	 */
+	private void createTree() {
+		Domain root = createDomain("RootStudie", "R-", "MD5", null);
+		Domain a = createDomain("AStudie", "A-", "MD5", root);
+		Domain b = createDomain("BStudie", "B-", "MD5", root);
+		
+		insert(root, "P1", "ANY-ID", "R-1");
+		insert(root, "P2", "ANY-ID", "R-2");
+		insert(a, "R-1", "ANY-ID", "A-1");
+		insert(a, "R-2", "ANY-ID", "A-2");
+		insert(b, "R-1", "ANY-ID", "B-1");
+	}
+	
+	/**
+	 * Stores a record.
+	 * 
+	 * @param domain the domain of the record
+	 * @param identifier the identifier
+	 * @param idType the idType
+	 * @param psn the pseudonym-value
+	 */
+	private void insert(Domain domain, String identifier, String idType, String psn) {
+		PseudonymDTO p = pseudonym(domain, identifier, psn);
+		p.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType(idType).build());
+		
+		assertEquals(List.of(PseudonymDBAccessService.INSERTION_SUCCESS), pseudonymDBAccessService.createPseudonyms(List.of(p), domain.getId(), false));
+	}
+	
+	/**
+	 * Reduces the linked records to their pseudonym-values.
+	 * 
+	 * @param links the pairs of linked records
+	 * @return the pairs of pseudonym-values
+	 */
+	private static List<List<String>> pairs(List<Pair<Pseudonym, Pseudonym>> links) {
+		List<List<String>> pairs = new ArrayList<>();
+		for (Pair<Pseudonym, Pseudonym> link : links) {
+			pairs.add(List.of(link.first().getPseudonym(), link.second().getPseudonym()));
+		}
+		
+		return pairs;
+	}
+}
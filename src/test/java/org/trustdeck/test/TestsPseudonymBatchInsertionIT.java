@@ -0,0 +1,141 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.trustdeck.jooq.generated.Tables.PSEUDONYM;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymDBAccessService;
+
+/**
+ * This class offers tests for the insertion of pseudonym batches with a single statement per chunk.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymBatchInsertionIT extends AssertDatabaseService {
+	
+	/**
+	 * Reports the outcome of every record, also for conflicts within the batch itself, 
+	 * when only one pseudonym per identifier is allowed.
+	 */
+	@Test
+	@DisplayName("outcomesPerRecord")
+	public void outcomesPerRecord() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 1);
+		
+		List<PseudonymDTO> batch = List.of(
+				pseudonym(domain, "ID0", "TS-NEW0"),
+				pseudonym(domain, "ID5", "TS-ID0"),
+				pseudonym(domain, "ID6", "TS-ID6"),
+				pseudonym(domain, "ID6", "TS-ID6B"),
+				pseudonym(domain, "ID7", "TS-ID6"),
+				pseudonym(domain, "ID8", "TS-ID8"));
+		
+		assertEquals(List.of(PseudonymDBAccessService.INSERTION_DUPLICATE_IDENTIFIER, PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM, 
+				PseudonymDBAccessService.INSERTION_SUCCESS, PseudonymDBAccessService.INSERTION_DUPLICATE_IDENTIFIER, 
+				PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM, PseudonymDBAccessService.INSERTION_SUCCESS), 
+				pseudonymDBAccessService.createPseudonyms(batch, domain.getId(), false));
+		
+		assertEquals(3, dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(domain.getId())));
+		assertEquals("ID6", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID6").getIdentifierItem().getIdentifier());
+		assertEquals("ID0", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0").getIdentifierItem().getIdentifier());
+	}
+	
+	/**
+	 * Only rejects duplicate pseudonym-values when multiple pseudonyms per identifier are allowed.
+	 */
+	@Test
+	@DisplayName("outcomesWithMultiplePseudonyms")
+	public void outcomesWithMultiplePseudonyms() {
+		Domain domain = createDomain("TestStudie", "TS-", "RANDOM", null);
+		Domain update = new Domain();
+		update.setMultiplepsnallowed(true);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		domain = domainDBAccessService.getDomainByName("TestStudie");
+		createPseudonyms(domain, "ID", 1);
+		
+		List<PseudonymDTO> batch = List.of(
+				pseudonym(domain, "ID0", "TS-ID0B"),
+				pseudonym(domain, "ID0", "TS-ID0"),
+				pseudonym(domain, "ID1", "TS-ID1C"),
+				pseudonym(domain, "ID1", "TS-ID1C"),
+				pseudonym(domain, "ID1", "TS-ID1D"));
+		
+		assertEquals(List.of(PseudonymDBAccessService.INSERTION_SUCCESS, PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM, 
+				PseudonymDBAccessService.INSERTION_SUCCESS, PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM, 
+				PseudonymDBAccessService.INSERTION_SUCCESS), 
+				pseudonymDBAccessService.createPseudonyms(batch, domain.getId(), true));
+		
+		assertEquals(4, dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(domain.getId())));
+	}
+	
+	/**
+	 * Reports conflicting pseudonym-values of collision-free algorithms as duplicate identifiers.
+	 */
+	@Test
+	@DisplayName("collisionFreeConflicts")
+	public void collisionFreeConflicts() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 1);
+		
+		List<PseudonymDTO> batch = List.of(pseudonym(domain, "ID0", "TS-ID0"), pseudonym(domain, "ID1", "TS-ID1"));
+		assertEquals(List.of(PseudonymDBAccessService.INSERTION_DUPLICATE_IDENTIFIER, PseudonymDBAccessService.INSERTION_SUCCESS), 
+				pseudonymDBAccessService.createPseudonyms(batch, domain.getId(), false, true));
+	}
+	
+	/**
+	 * Splits a batch that exceeds the parameter budget of a single statement into multiple chunks, 
+	 * keeping the order of the outcomes and the duplicate checks across the chunks.
+	 */
+	@Test
+	@DisplayName("largeBatchIsChunked")
+	public void largeBatchIsChunked() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		
+		// About 1.5 KiB per record, so that the batch needs two statements
+		int count = 3000;
+		String padding = "X".repeat(1500);
+		List<PseudonymDTO> batch = new ArrayList<>(count + 2);
+		for (int i = 0; i < count; i++) {
+			batch.add(pseudonym(domain, padding + i, "TS-" + i));
+		}
+		batch.add(pseudonym(domain, padding + 0, "TS-AGAIN"));
+		batch.add(pseudonym(domain, padding + "NEW", "TS-1"));
+		
+		List<String> results = pseudonymDBAccessService.createPseudonyms(batch, domain.getId(), false);
+		assertNotNull(results);
+		assertEquals(count + 2, results.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals(PseudonymDBAccessService.INSERTION_SUCCESS, results.get(i), "Record " + i);
+		}
+		assertEquals(PseudonymDBAccessService.INSERTION_DUPLICATE_IDENTIFIER, results.get(count));
+		assertEquals(PseudonymDBAccessService.INSERTION_DUPLICATE_PSEUDONYM, results.get(count + 1));
+		
+		assertEquals(count, dsl.fetchCount(PSEUDONYM, PSEUDONYM.DOMAINID.eq(domain.getId())));
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.dto.PseudonymUpdateDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.AssertDatabaseService;
+
+/**
+ * This class offers tests for the set-based batch update of pseudonyms.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymBatchUpdateIT extends AssertDatabaseService {
+	
+	/**
+	 * Updates records identified by their pseudonym-value and by their identifier in one batch.
+	 */
+	@Test
+	@DisplayName("updateBatchByPsnAndIdentifier")
+	public void updateBatchByPsnAndIdentifier() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 3);
+		LocalDateTime validTo = LocalDateTime.of(2040, 1, 1, 0, 0);
+		
+		PseudonymUpdateDTO byPsn = update(domain);
+		byPsn.setOldPsn("TS-ID0");
+		byPsn.setValidTo(validTo);
+		byPsn.setValidToInherited(false);
+		
+		PseudonymUpdateDTO byIdentifier = update(domain);
+		byIdentifier.setOldIdentifierItem(IdentifierItem.builder().identifier("ID1").idType("ANY-ID").build());
+		byIdentifier.setNewPsn("TS-NEW1");
+		
+		List<PseudonymDTO> updated = pseudonymDBAccessService.updateAndRetrievePseudonyms(List.of(byPsn, byIdentifier));
+		assertNotNull(updated);
+		assertEquals(2, updated.size());
+		
+		// Only the given attributes are changed
+		assertEquals("TS-ID0", updated.get(0).getPsn());
+		assertEquals(validTo, updated.get(0).getValidTo());
+		assertFalse(updated.get(0).getValidToInherited());
+		assertEquals("TS-NEW1", updated.get(1).getPsn());
+		assertEquals(domain.getValidto(), updated.get(1).getValidTo());
+		
+		// The changes are stored
+		assertEquals(validTo, pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0").getValidTo());
+		assertNull(pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID1"));
+		assertEquals("ID1", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-NEW1").getIdentifierItem().getIdentifier());
+		assertEquals("TS-ID2", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID2").getPsn());
+	}
+	
+	/**
+	 * Updates that don't match a record are reported as unsuccessful without affecting the others.
+	 */
+	@Test
+	@DisplayName("updateBatchIgnoresUnknownRecords")
+	public void updateBatchIgnoresUnknownRecords() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 2);
+		
+		PseudonymUpdateDTO known = update(domain);
+		known.setOldPsn("TS-ID0");
+		known.setNewIdentifierItem(IdentifierItem.builder().idType("OTHER-ID").build());
+		
+		PseudonymUpdateDTO unknown = update(domain);
+		unknown.setOldPsn("TS-UNKNOWN");
+		unknown.setNewIdentifierItem(IdentifierItem.builder().idType("OTHER-ID").build());
+		
+		PseudonymUpdateDTO unidentifiable = update(domain);
+		unidentifiable.setNewIdentifierItem(IdentifierItem.builder().idType("OTHER-ID").build());
+		
+		List<Boolean> results = pseudonymDBAccessService.updatePseudonyms(List.of(known, unknown, unidentifiable));
+		assertEquals(List.of(true, false, false), results);
+		
+		assertEquals("OTHER-ID", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0").getIdentifierItem().getIdType());
+		assertEquals("ANY-ID", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID1").getIdentifierItem().getIdType());
+	}
+	
+	/**
+	 * Multiple updates of the same record within one batch only apply the first one.
+	 */
+	@Test
+	@DisplayName("updateBatchAppliesFirstUpdateOfRecord")
+	public void updateBatchAppliesFirstUpdateOfRecord() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 1);
+		
+		PseudonymUpdateDTO first = update(domain);
+		first.setOldPsn("TS-ID0");
+		first.setNewIdentifierItem(IdentifierItem.builder().idType("FIRST-ID").build());
+		
+		PseudonymUpdateDTO second = update(domain);
+		second.setOldIdentifierItem(IdentifierItem.builder().identifier("ID0").idType("ANY-ID").build());
+		second.setNewIdentifierItem(IdentifierItem.builder().idType("SECOND-ID").build());
+		
+		List<Boolean> results = pseudonymDBAccessService.updatePseudonyms(List.of(first, second));
+		assertTrue(results.get(0));
+		assertFalse(results.get(1));
+		assertEquals("FIRST-ID", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0").getIdentifierItem().getIdType());
+	}
+	
+	/**
+	 * Moves a record into another domain.
+	 */
+	@Test
+	@DisplayName("updateBatchMovesRecordToOtherDomain")
+	public void updateBatchMovesRecordToOtherDomain() {
+		Domain source = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain target = createDomain("OtherStudie", "OS-", "MD5", null);
+		createPseudonyms(source, "ID", 1);
+		
+		PseudonymUpdateDTO move = update(source);
+		move.setOldPsn("TS-ID0");
+		move.setNewDomain(target);
+		
+		assertEquals(List.of(true), pseudonymDBAccessService.updatePseudonyms(List.of(move)));
+		assertNull(pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0"));
+		assertEquals("OtherStudie", pseudonymDBAccessService.getPseudonymFromPsn("OtherStudie", "TS-ID0").getDomainName());
+	}
+	
+	/**
+	 * Creates an update object for a record of the given domain.
+	 * 
+	 * @param domain the domain the record is currently in
+	 * @return the update object
+	 */
+	private static PseudonymUpdateDTO update(Domain domain) {
+		PseudonymUpdateDTO u = new PseudonymUpdateDTO();
+		u.setOldDomain(domain);
+		
+		return u;
+	}
+}
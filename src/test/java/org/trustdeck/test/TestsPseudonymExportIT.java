@@ -0,0 +1,219 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MvcResult;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.AssertWebRequestService;
+import org.trustdeck.service.DomainDBAccessService;
+import org.trustdeck.service.PseudonymDBAccessService;
+import org.trustdeck.service.ResponseService;
+
+/**
+ * This class offers tests for retrieving the pseudonyms of a domain page by page and for exporting them.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymExportIT extends AssertWebRequestService {
+	
+	/** The identifiers of the test domain after the setup. */
+	private static final Set<String> IDENTIFIERS = Set.of("10000008912", "A,\"B\"", "C\nD", "E F");
+	
+	/** Enables access to the domain database methods. */
+	@Autowired
+	private DomainDBAccessService domainDBAccessService;
+	
+	/** Enables access to the pseudonym database methods. */
+	@Autowired
+	private PseudonymDBAccessService pseudonymDBAccessService;
+	
+	/**
+	 * Adds records whose identifiers need to be quoted in CSV to the test domain.
+	 */
+	@BeforeEach
+	public void addRecords() {
+		Domain domain = domainDBAccessService.getDomainByName("TestStudie");
+		assertNotNull(domain);
+		
+		List<PseudonymDTO> pseudonyms = new ArrayList<>();
+		pseudonyms.add(pseudonym(domain, "A,\"B\"", "TS-QUOTE"));
+		pseudonyms.add(pseudonym(domain, "C\nD", "TS-BREAK"));
+		pseudonyms.add(pseudonym(domain, "E F", "TS-SPACE"));
+		assertEquals(List.of(PseudonymDBAccessService.INSERTION_SUCCESS, PseudonymDBAccessService.INSERTION_SUCCESS, PseudonymDBAccessService.INSERTION_SUCCESS), 
+				pseudonymDBAccessService.createPseudonyms(pseudonyms, domain.getId(), false));
+	}
+	
+	/**
+	 * Retrieves the pseudonyms of the test domain page by page. The last page has no cursor.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	@DisplayName("batchPages")
+	public void batchPages() throws Exception {
+		String url = "/api/pseudonymization/domains/TestStudie/pseudonyms/batch";
+		
+		MockHttpServletResponse response = this.assertOkRequest("readRecordBatchFirstPage", get(url), Map.of("limit", "3"), null, this.getAccessToken());
+		List<PseudonymDTO> firstPage = this.mapJsonObjectsInStringToList(response.getContentAsString(), PseudonymDTO.class);
+		String cursor = response.getHeader(ResponseService.NEXT_CURSOR_HEADER);
+		assertEquals(3, firstPage.size());
+		assertNotNull(cursor);
+		
+		response = this.assertOkRequest("readRecordBatchLastPage", get(url), Map.of("limit", "3", "cursor", cursor), null, this.getAccessToken());
+		List<PseudonymDTO> lastPage = this.mapJsonObjectsInStringToList(response.getContentAsString(), PseudonymDTO.class);
+		assertEquals(1, lastPage.size());
+		assertNull(response.getHeader(ResponseService.NEXT_CURSOR_HEADER));
+		
+		Set<String> identifiers = new HashSet<>();
+		firstPage.forEach(p -> identifiers.add(p.getIdentifierItem().getIdentifier()));
+		lastPage.forEach(p -> identifiers.add(p.getIdentifierItem().getIdentifier()));
+		assertEquals(IDENTIFIERS, identifiers);
+		
+		// A page that ends exactly with the last record
+		response = this.assertOkRequest("readRecordBatchExactPage", get(url), Map.of("limit", "4"), null, this.getAccessToken());
+		assertEquals(4, this.mapJsonObjectsInStringToList(response.getContentAsString(), PseudonymDTO.class).size());
+		assertNull(response.getHeader(ResponseService.NEXT_CURSOR_HEADER));
+		
+		// Without cursor and limit, the whole domain is returned
+		response = this.assertOkRequest("readRecordBatchComplete", get(url), null, null, this.getAccessToken());
+		assertEquals(4, this.mapJsonObjectsInStringToList(response.getContentAsString(), PseudonymDTO.class).size());
+		assertNull(response.getHeader(ResponseService.NEXT_CURSOR_HEADER));
+		
+		this.assertBadRequestRequest("readRecordBatchInvalidLimit", get(url), Map.of("limit", "0"), null, this.getAccessToken());
+	}
+	
+	/**
+	 * Exports the test domain as CSV, quoting the fields that contain separators, quotes, or line breaks.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	@DisplayName("exportCsv")
+	public void exportCsv() throws Exception {
+		MockHttpServletResponse response = export("TestStudie", "csv");
+		assertEquals(200, response.getStatus());
+		assertTrue(response.getContentType().startsWith("text/csv"));
+		
+		String content = response.getContentAsString();
+		assertTrue(content.startsWith("identifier,idType,psn,validFrom,"));
+		assertTrue(content.contains("\n\"A,\"\"B\"\"\",ANY-ID,TS-QUOTE,"));
+		assertTrue(content.contains("\n\"C\nD\",ANY-ID,TS-BREAK,"));
+		assertTrue(content.contains("\nE F,ANY-ID,TS-SPACE,"));
+		assertTrue(content.contains("\n10000008912,ANY-ID,"));
+		
+		// One line per record, each ending with the domain's name
+		assertEquals(4, content.split(",TestStudie\n", -1).length - 1);
+		assertTrue(content.endsWith(",TestStudie\n"));
+	}
+	
+	/**
+	 * Exports the test domain with one JSON object per line.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	@DisplayName("exportNdjson")
+	public void exportNdjson() throws Exception {
+		MockHttpServletResponse response = export("TestStudie", null);
+		assertEquals(200, response.getStatus());
+		assertTrue(response.getContentType().startsWith("application/x-ndjson"));
+		
+		String content = response.getContentAsString();
+		assertTrue(content.endsWith("\n"));
+		
+		List<String> lines = Arrays.asList(content.split("\n"));
+		assertEquals(4, lines.size());
+		assertEquals(IDENTIFIERS, lines.stream()
+				.map(line -> this.applySingleJsonContentToClass(line, PseudonymDTO.class).getIdentifierItem().getIdentifier())
+				.collect(Collectors.toSet()));
+	}
+	
+	/**
+	 * Rejects unknown formats and domains.
+	 *
+	 * @throws Exception the exception
+	 */
+	@Test
+	@DisplayName("exportFailures")
+	public void exportFailures() throws Exception {
+		assertEquals(400, export("TestStudie", "xml").getStatus());
+		assertEquals(404, export("TestStudie-Labor", "csv").getStatus());
+	}
+	
+	/**
+	 * Requests an export and waits for the streamed response.
+	 * 
+	 * @param domainName the name of the domain
+	 * @param format the format of the export, or {@code null} for the default
+	 * @return the complete response
+	 * @throws Exception the exception
+	 */
+	private MockHttpServletResponse export(String domainName, String format) throws Exception {
+		MvcResult started = this.getMockMvc()
+				.perform(this.createRequestBuilder(get("/api/pseudonymization/domains/" + domainName + "/pseudonyms/export"), 
+						(format == null) ? null : Map.of("format", format), null, this.getAccessToken()))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		
+		return this.getMockMvc().perform(asyncDispatch(started)).andReturn().getResponse();
+	}
+	
+	/**
+	 * Creates a pseudonym object that inherits the validity period of the given domain.
+	 * 
+	 * @param domain the domain of the pseudonym
+	 * @param identifier the identifier
+	 * @param psn the pseudonym-value
+	 * @return the pseudonym object
+	 */
+	private static PseudonymDTO pseudonym(Domain domain, String identifier, String psn) {
+		PseudonymDTO p = new PseudonymDTO();
+		p.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType("ANY-ID").build());
+		p.setPsn(psn);
+		p.setDomainName(domain.getName());
+		p.setValidFrom(domain.getValidfrom());
+		p.setValidFromInherited(true);
+		p.setValidTo(domain.getValidto());
+		p.setValidToInherited(true);
+		
+		return p;
+	}
+}
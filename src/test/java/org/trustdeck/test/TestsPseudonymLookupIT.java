@@ -0,0 +1,123 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.model.IdentifierItem;
+import org.trustdeck.service.AssertDatabaseService;
+
+/**
+ * This class offers tests for looking up many pseudonym-records with a single statement.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymLookupIT extends AssertDatabaseService {
+	
+	/**
+	 * Resolves lookups by identifier, by pseudonym, and by both, in the order of the request.
+	 */
+	@Test
+	@DisplayName("lookupKeepsOrder")
+	public void lookupKeepsOrder() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain other = createDomain("OtherStudie", "OS-", "MD5", null);
+		createPseudonyms(domain, "ID", 3);
+		createPseudonyms(other, "OD", 1);
+		
+		List<PseudonymDTO> lookups = new ArrayList<>();
+		lookups.add(byIdentifier("ID2"));
+		lookups.add(byPsn("TS-ID0"));
+		lookups.add(pseudonym(domain, "ID1", "TS-ID1"));
+		lookups.add(pseudonym(domain, "ID1", "TS-ID0"));
+		lookups.add(byIdentifier("ID9"));
+		lookups.add(byPsn("OS-OD0"));
+		lookups.add(byIdentifier("ID2"));
+		
+		List<Pseudonym> found = pseudonymDBAccessService.lookupPseudonyms(domain.getId(), lookups);
+		assertNotNull(found);
+		assertEquals(lookups.size(), found.size());
+		assertEquals("TS-ID2", found.get(0).getPseudonym());
+		assertEquals("ID0", found.get(1).getIdentifier());
+		assertEquals("TS-ID1", found.get(2).getPseudonym());
+		
+		// Identifier and pseudonym of different records, an unknown identifier, and a pseudonym of another domain
+		assertNull(found.get(3));
+		assertNull(found.get(4));
+		assertNull(found.get(5));
+		
+		assertEquals(found.get(0).getId(), found.get(6).getId());
+		assertEquals(List.of(), pseudonymDBAccessService.lookupPseudonyms(domain.getId(), List.of()));
+	}
+	
+	/**
+	 * Returns the oldest record of an identifier that has multiple pseudonyms.
+	 */
+	@Test
+	@DisplayName("lookupReturnsOldestRecord")
+	public void lookupReturnsOldestRecord() {
+		Domain domain = createDomain("TestStudie", "TS-", "RANDOM", null);
+		Domain update = new Domain();
+		update.setMultiplepsnallowed(true);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		domain = domainDBAccessService.getDomainByName("TestStudie");
+		
+		createPseudonyms(domain, "ID", 1);
+		assertNotNull(pseudonymDBAccessService.createPseudonyms(List.of(pseudonym(domain, "ID0", "TS-SECOND")), domain.getId(), true));
+		
+		List<Pseudonym> found = pseudonymDBAccessService.lookupPseudonyms(domain.getId(), List.of(byIdentifier("ID0"), byPsn("TS-SECOND")));
+		assertEquals("TS-ID0", found.get(0).getPseudonym());
+		assertEquals("ID0", found.get(1).getIdentifier());
+	}
+	
+	/**
+	 * Creates a lookup by identifier only.
+	 * 
+	 * @param identifier the identifier
+	 * @return the lookup
+	 */
+	private static PseudonymDTO byIdentifier(String identifier) {
+		PseudonymDTO lookup = new PseudonymDTO();
+		lookup.setIdentifierItem(IdentifierItem.builder().identifier(identifier).idType("ANY-ID").build());
+		
+		return lookup;
+	}
+	
+	/**
+	 * Creates a lookup by pseudonym-value only.
+	 * 
+	 * @param psn the pseudonym-value
+	 * @return the lookup
+	 */
+	private static PseudonymDTO byPsn(String psn) {
+		PseudonymDTO lookup = new PseudonymDTO();
+		lookup.setPsn(psn);
+		
+		return lookup;
+	}
+}
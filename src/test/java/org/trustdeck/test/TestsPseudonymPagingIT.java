@@ -0,0 +1,119 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
+import org.trustdeck.service.AssertDatabaseService;
+
+/**
+ * This class offers tests for retrieving the pseudonyms of a domain page by page and as a stream.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymPagingIT extends AssertDatabaseService {
+	
+	/**
+	 * Walks through a domain whose record IDs are interleaved with another domain's 
+	 * and checks the boundaries of the pages.
+	 */
+	@Test
+	@DisplayName("pageBoundaries")
+	public void pageBoundaries() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain other = createDomain("OtherStudie", "OS-", "MD5", null);
+		createPseudonyms(domain, "ID", 2);
+		createPseudonyms(other, "ID", 3);
+		createPseudonyms(domain, "JD", 3);
+		
+		// Pages of two records, the last page isn't full
+		List<Pseudonym> all = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		Long cursor = null;
+		List<Pseudonym> page;
+		do {
+			page = pseudonymDBAccessService.getPseudonymPage(domain.getId(), cursor, 2);
+			assertNotNull(page);
+			pageSizes.add(page.size());
+			all.addAll(page);
+			cursor = page.isEmpty() ? cursor : page.getLast().getId();
+		} while (page.size() == 2);
+		
+		assertEquals(List.of(2, 2, 1), pageSizes);
+		assertEquals(List.of("ID0", "ID1", "JD0", "JD1", "JD2"), all.stream().map(Pseudonym::getIdentifier).toList());
+		for (int i = 1; i < all.size(); i++) {
+			assertTrue(all.get(i - 1).getId() < all.get(i).getId());
+		}
+		
+		// A page that ends exactly with the last record, and the empty page behind it
+		assertEquals(5, pseudonymDBAccessService.getPseudonymPage(domain.getId(), null, 5).size());
+		assertTrue(pseudonymDBAccessService.getPseudonymPage(domain.getId(), all.getLast().getId(), 5).isEmpty());
+		
+		// A cursor that belongs to another domain continues behind it
+		Pseudonym foreign = pseudonymDBAccessService.getPseudonymPage(other.getId(), null, 1).getFirst();
+		assertEquals("JD0", pseudonymDBAccessService.getPseudonymPage(domain.getId(), foreign.getId(), 1).getFirst().getIdentifier());
+	}
+	
+	/**
+	 * Streams the records of a domain in the order of the pages with a fetch size smaller than the domain.
+	 */
+	@Test
+	@DisplayName("streamMatchesPages")
+	public void streamMatchesPages() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain other = createDomain("OtherStudie", "OS-", "MD5", null);
+		createPseudonyms(domain, "ID", 25);
+		createPseudonyms(other, "ID", 5);
+		
+		List<Pseudonym> streamed = new ArrayList<>();
+		assertEquals(25, pseudonymDBAccessService.streamPseudonyms(domain.getId(), 4, streamed::add));
+		assertEquals(pseudonymDBAccessService.getPseudonymPage(domain.getId(), null, 100).stream().map(Pseudonym::getId).toList(), 
+				streamed.stream().map(Pseudonym::getId).toList());
+		
+		Domain empty = createDomain("EmptyStudie", "ES-", "MD5", null);
+		assertEquals(0, pseudonymDBAccessService.streamPseudonyms(empty.getId(), 4, p -> {}));
+	}
+	
+	/**
+	 * Aborts the stream when the consumer fails, e.g. because the client closed the connection.
+	 */
+	@Test
+	@DisplayName("streamAbortsOnConsumerError")
+	public void streamAbortsOnConsumerError() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "ID", 10);
+		
+		List<Pseudonym> streamed = new ArrayList<>();
+		assertEquals(-1, pseudonymDBAccessService.streamPseudonyms(domain.getId(), 2, p -> {
+			if (streamed.size() == 3) {
+				throw new IllegalStateException("Closed");
+			}
+			streamed.add(p);
+		}));
+		assertEquals(3, streamed.size());
+	}
+}
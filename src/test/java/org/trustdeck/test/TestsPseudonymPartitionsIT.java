@@ -0,0 +1,126 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+
+/**
+ * This class offers tests for the per-domain partitions of the pseudonym table.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymPartitionsIT extends AssertDatabaseService {
+	
+	/**
+	 * Creates a domain, stores pseudonyms in it, and deletes it again. The domain's partition 
+	 * is created along with it, receives its records, and is dropped along with it.
+	 */
+	@Test
+	@DisplayName("partitionFollowsDomainLifecycle")
+	public void partitionFollowsDomainLifecycle() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		String partition = "pseudonym_d" + domain.getId();
+		assertNotNull(regclass(partition));
+		
+		createPseudonyms(domain, "ID", 3);
+		assertEquals(3, count(partition));
+		assertEquals(0, count("pseudonym_default"));
+		
+		assertTrue(domainDBAccessService.deleteDomain("TestStudie", false));
+		assertNull(regclass(partition));
+	}
+	
+	/**
+	 * Moves the records of a domain without a partition of its own out of the default partition.
+	 */
+	@Test
+	@DisplayName("createMissingPartitions")
+	public void createMissingPartitions() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain other = createDomain("OtherStudie", "OS-", "MD5", null);
+		String partition = "pseudonym_d" + domain.getId();
+		
+		// Simulate a database that was partitioned after the domain was created
+		dsl.query("DROP TABLE {0}", DSL.name(partition)).execute();
+		createPseudonyms(domain, "ID", 3);
+		createPseudonyms(other, "ID", 2);
+		assertEquals(3, count("pseudonym_default"));
+		
+		assertEquals(1, domainDBAccessService.createMissingPseudonymPartitions());
+		assertEquals(3, count(partition));
+		assertEquals(0, count("pseudonym_default"));
+		assertEquals(2, count("pseudonym_d" + other.getId()));
+		assertEquals("ID1", pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID1").getIdentifierItem().getIdentifier());
+		
+		assertEquals(0, domainDBAccessService.createMissingPseudonymPartitions());
+	}
+	
+	/**
+	 * Keeps the identifiers of a domain unique as long as it doesn't allow multiple pseudonyms per identifier.
+	 */
+	@Test
+	@DisplayName("identifierIndexFollowsSetting")
+	public void identifierIndexFollowsSetting() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		String index = "pseudonym_d" + domain.getId() + "_identifier_idtype_key";
+		assertNotNull(regclass(index));
+		
+		// The index rejects a second pseudonym for an identifier even without the statement's own check
+		createPseudonyms(domain, "ID", 1);
+		assertEquals(0, dsl.query("INSERT INTO pseudonym (identifier, idtype, pseudonym, domainid) VALUES ('ID0', 'ANY-ID', 'TS-OTHER', {0}) "
+				+ "ON CONFLICT DO NOTHING", DSL.val(domain.getId())).execute());
+		
+		Domain update = new Domain();
+		update.setMultiplepsnallowed(true);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		assertNull(regclass(index));
+		
+		update.setMultiplepsnallowed(false);
+		assertNotNull(domainDBAccessService.updateDomain(domainDBAccessService.getDomainByName("TestStudie"), update, false));
+		assertNotNull(regclass(index));
+	}
+	
+	/**
+	 * Resolves the name of a table.
+	 * 
+	 * @param table the name of the table
+	 * @return the name of the table, or {@code null} if it doesn't exist
+	 */
+	private String regclass(String table) {
+		return dsl.fetchValue(DSL.field("to_regclass({0})::text", String.class, DSL.val(table)));
+	}
+	
+	/**
+	 * Counts the records of a table.
+	 * 
+	 * @param table the name of the table
+	 * @return the number of records
+	 */
+	private int count(String table) {
+		return dsl.fetchCount(DSL.table(DSL.name(table)));
+	}
+}
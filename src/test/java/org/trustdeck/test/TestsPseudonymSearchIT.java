@@ -0,0 +1,130 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymDBAccessService.PseudonymSearchPage;
+import org.trustdeck.service.PseudonymDBAccessService.SearchCursor;
+
+/**
+ * This class offers tests for the ranked, trigram-indexed pseudonym search.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymSearchIT extends AssertDatabaseService {
+	
+	/**
+	 * Finds the records that contain the query in any case, but not the unrelated ones.
+	 */
+	@Test
+	@DisplayName("searchMatchesIgnoringCase")
+	public void searchMatchesIgnoringCase() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "PATIENT", 3);
+		createPseudonyms(domain, "OTHER", 2);
+		
+		PseudonymSearchPage page = pseudonymDBAccessService.searchPseudonyms("patient", domain.getId(), null, 10);
+		assertNotNull(page);
+		assertEquals(3, page.pseudonyms().size());
+		assertNull(page.nextCursor());
+		for (PseudonymDTO p : page.pseudonyms()) {
+			assertTrue(p.getIdentifierItem().getIdentifier().startsWith("PATIENT"));
+		}
+		
+		// Every part of the query has to match
+		page = pseudonymDBAccessService.searchPseudonyms("patient 1", domain.getId(), null, 10);
+		assertNotNull(page);
+		assertEquals(1, page.pseudonyms().size());
+		assertEquals("PATIENT1", page.pseudonyms().getFirst().getIdentifierItem().getIdentifier());
+	}
+	
+	/**
+	 * Ranks the records by their similarity to the query, so that an exact match comes first.
+	 */
+	@Test
+	@DisplayName("searchRanksBySimilarity")
+	public void searchRanksBySimilarity() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		List<String> results = pseudonymDBAccessService.createPseudonyms(List.of(pseudonym(domain, "MEIERHOFER", "TS-X1"), 
+				pseudonym(domain, "MEIER", "TS-X2")), domain.getId(), false);
+		assertNotNull(results);
+		
+		PseudonymSearchPage page = pseudonymDBAccessService.searchPseudonyms("meier", domain.getId(), null, 10);
+		assertNotNull(page);
+		assertEquals(2, page.pseudonyms().size());
+		assertEquals("MEIER", page.pseudonyms().get(0).getIdentifierItem().getIdentifier());
+		assertEquals("MEIERHOFER", page.pseudonyms().get(1).getIdentifierItem().getIdentifier());
+	}
+	
+	/**
+	 * Pages through equally ranked results with the textual cursor. Every record is returned exactly once.
+	 */
+	@Test
+	@DisplayName("searchPagesWithCursor")
+	public void searchPagesWithCursor() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		createPseudonyms(domain, "PATIENT", 5);
+		
+		List<String> found = new ArrayList<>();
+		List<Integer> pageSizes = new ArrayList<>();
+		SearchCursor cursor = null;
+		do {
+			PseudonymSearchPage page = pseudonymDBAccessService.searchPseudonyms("patient", domain.getId(), cursor, 2);
+			assertNotNull(page);
+			pageSizes.add(page.pseudonyms().size());
+			page.pseudonyms().forEach(p -> found.add(p.getIdentifierItem().getIdentifier()));
+			
+			// The cursor is handed to the clients as "<rank>:<id>"
+			cursor = (page.nextCursor() == null) ? null : SearchCursor.parse(page.nextCursor().toString());
+			if (page.nextCursor() != null) {
+				assertEquals(page.nextCursor(), cursor);
+			}
+		} while (cursor != null);
+		
+		assertEquals(List.of(2, 2, 1), pageSizes);
+		Set<String> distinct = new HashSet<>(found);
+		assertEquals(5, distinct.size());
+		assertEquals(Set.of("PATIENT0", "PATIENT1", "PATIENT2", "PATIENT3", "PATIENT4"), distinct);
+	}
+	
+	/**
+	 * Rejects malformed cursors.
+	 */
+	@Test
+	@DisplayName("searchCursorParsing")
+	public void searchCursorParsing() {
+		assertEquals(new SearchCursor(0.5f, 42L), SearchCursor.parse("0.5:42"));
+		assertNull(SearchCursor.parse("42"));
+		assertNull(SearchCursor.parse("abc:def"));
+		assertNull(SearchCursor.parse(null));
+	}
+}
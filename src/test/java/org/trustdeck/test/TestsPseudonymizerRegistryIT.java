@@ -0,0 +1,100 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymizerRegistryService;
+
+/**
+ * This class offers tests for the registry that shares one preconfigured pseudonymizer per domain.
+ *
+ * @author Armin Müller
+ */
+public class TestsPseudonymizerRegistryIT extends AssertDatabaseService {
+	
+	/** Provides the pseudonymizers of the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
+	/**
+	 * Returns the same pseudonymizer for every lookup of an unchanged domain.
+	 */
+	@Test
+	@DisplayName("registryReusesPseudonymizer")
+	public void registryReusesPseudonymizer() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+		assertNotNull(pseudonymizer);
+		assertSame(pseudonymizer, pseudonymizerRegistry.getPseudonymizer(domainDBAccessService.getDomainByName("TestStudie")));
+	}
+	
+	/**
+	 * Builds a new pseudonymizer after the domain's salt was changed, and again for 
+	 * a caller that still holds the outdated domain object.
+	 */
+	@Test
+	@DisplayName("registryRebuildsOnChangedSettings")
+	public void registryRebuildsOnChangedSettings() {
+		Domain domain = createDomain("TestStudie", "TS-", "MD5", null);
+		Pseudonymizer before = pseudonymizerRegistry.getPseudonymizer(domain);
+		String psnBefore = before.pseudonymize("ID1", "ANY-ID", domain.getPrefix());
+		
+		Domain update = new Domain();
+		update.setSalt("Zq3_kR8pLm2NvX7cWt5YhB9dFj4GsA6e");
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		
+		Pseudonymizer after = pseudonymizerRegistry.getPseudonymizer(domainDBAccessService.getDomainByName("TestStudie"));
+		assertNotSame(before, after);
+		assertNotEquals(psnBefore, after.pseudonymize("ID1", "ANY-ID", domain.getPrefix()));
+		
+		// The outdated settings don't match the registered pseudonymizer either
+		assertEquals(psnBefore, pseudonymizerRegistry.getPseudonymizer(domain).pseudonymize("ID1", "ANY-ID", domain.getPrefix()));
+	}
+	
+	/**
+	 * Applies the salt and the check digit that were resolved when the pseudonymizer was built.
+	 */
+	@Test
+	@DisplayName("pseudonymizeAppliesSaltAndCheckDigit")
+	public void pseudonymizeAppliesSaltAndCheckDigit() {
+		Domain domain = createDomain("TestStudie", "TS-", "SHA2", null);
+		Domain update = new Domain();
+		update.setAddcheckdigit(true);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		domain = domainDBAccessService.getDomainByName("TestStudie");
+		
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+		String unchecked = pseudonymizer.pseudonymize(pseudonymizer.saltIdentifier("ID1", "ANY-ID"), domain.getPrefix());
+		String expected = pseudonymizer.addCheckDigit(unchecked, false, domain.getName(), domain.getPrefix());
+		
+		assertEquals(unchecked.length() + 1, expected.length());
+		assertEquals(expected, pseudonymizer.pseudonymize("ID1", "ANY-ID", domain.getPrefix()));
+	}
+}
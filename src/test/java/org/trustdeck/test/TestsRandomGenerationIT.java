@@ -0,0 +1,93 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.algorithms.Pseudonymizer;
+import org.trustdeck.algorithms.RandomSymbolGenerator;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+import org.trustdeck.service.PseudonymizerRegistryService;
+
+/**
+ * This class offers tests for the generation of random pseudonyms.
+ *
+ * @author Armin Müller
+ */
+public class TestsRandomGenerationIT extends AssertDatabaseService {
+	
+	/** Provides the pseudonymizers of the domains. */
+	@Autowired
+	private PseudonymizerRegistryService pseudonymizerRegistry;
+	
+	/**
+	 * Draws every symbol of an alphabet whose size isn't a power of two equally often (within seven standard deviations).
+	 */
+	@Test
+	@DisplayName("symbolsAreUniform")
+	public void symbolsAreUniform() {
+		String alphabet = "ABC";
+		int draws = 30000;
+		
+		int[] counts = new int[alphabet.length()];
+		for (char c : new RandomSymbolGenerator(alphabet).next(draws).toCharArray()) {
+			int index = alphabet.indexOf(c);
+			assertTrue(index >= 0, "The symbol " + c + " is not part of the alphabet.");
+			counts[index]++;
+		}
+		
+		for (int count : counts) {
+			assertTrue(Math.abs(count - draws / alphabet.length()) < 600, "Unexpected symbol count " + count + ".");
+		}
+	}
+	
+	/**
+	 * Fills up a domain with only 16 possible pseudonyms. A batch receives exactly the remaining pseudonyms, 
+	 * i.e. neither existing pseudonyms nor duplicates within the batch; entries beyond that are reported as full.
+	 */
+	@Test
+	@DisplayName("batchAvoidsCollisions")
+	public void batchAvoidsCollisions() {
+		Domain domain = createDomain("TestStudie", "TS-", "RANDOM", null);
+		Domain update = new Domain();
+		update.setPseudonymlength(1);
+		assertNotNull(domainDBAccessService.updateDomain(domain, update, false));
+		domain = domainDBAccessService.getDomainByName("TestStudie");
+		
+		// Occupy the pseudonyms TS-0 to TS-9
+		createPseudonyms(domain, "", 10);
+		
+		Pseudonymizer pseudonymizer = pseudonymizerRegistry.getPseudonymizer(domain);
+		List<String> pseudonyms = pseudonymizer.pseudonymizeAll(Collections.nCopies(10, ""), domain.getPrefix());
+		
+		Set<String> generated = new HashSet<>(pseudonyms);
+		assertEquals(Set.of("TS-A", "TS-B", "TS-C", "TS-D", "TS-E", "TS-F", Pseudonymizer.DOMAIN_FULL), generated);
+		assertEquals(4, Collections.frequency(pseudonyms, Pseudonymizer.DOMAIN_FULL));
+	}
+}
@@ -20,6 +20,7 @@ package org.trustdeck.test;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.delete;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.get;
 import static org.springframework.restdocs.mockmvc.RestDocumentationRequestBuilders.post;
@@ -36,6 +37,7 @@ import org.springframework.mock.web.MockHttpServletResponse;
 import org.trustdeck.algorithms.XxHashPseudonymizer;
 import org.trustdeck.dto.DomainDTO;
 import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.dto.PseudonymLookupDTO;
 import org.trustdeck.jooq.generated.tables.pojos.Pseudonym;
 import org.trustdeck.model.IdentifierItem;
 import org.trustdeck.service.AssertWebRequestService;
@@ -666,4 +668,47 @@ public class TestsRecordServiceIT extends AssertWebRequestService {
         assertNotEquals("", linkedRecord.getIdentifierItem().getIdentifier());
         assertEquals(r.getPsn(), linkedRecord.getIdentifierItem().getIdentifier());
     }
+
+    /**
+     * Tests the bulk lookup endpoint
+     *
+     * @throws Exception forwards any internally thrown exceptions
+     */
+    @Test
+    @DisplayName("recordLookupTest")
+    public void recordLookupTest() throws Exception {
+
+        String goodDomain = "TestStudie";
+        String goodDomainButNotFound = "TestStudie-Labor";
+
+        PseudonymDTO byIdentifier = new PseudonymDTO();
+        byIdentifier.setIdentifierItem(IdentifierItem.builder().identifier("10000008912").idType("ANY-ID").build());
+
+        PseudonymDTO byPsn = new PseudonymDTO();
+        byPsn.setPsn("TS-9EEEE39F0D5C03507CB9388609E925F9");
+
+        PseudonymDTO unknown = new PseudonymDTO();
+        unknown.setIdentifierItem(IdentifierItem.builder().identifier("10000008999").idType("ANY-ID").build());
+
+        List<PseudonymDTO> lookups = List.of(unknown, byPsn, byIdentifier);
+
+        MockHttpServletResponse response = this.assertOkRequest("lookupRecordBatch", post("/api/pseudonymization/domains/" + goodDomain + "/pseudonyms/lookup"), null, lookups, this.getAccessToken());
+        List<PseudonymLookupDTO> results = this.mapJsonObjectsInStringToList(response.getContentAsString(), PseudonymLookupDTO.class);
+
+        // One result per lookup, in the order of the request
+        assertEquals(3, results.size());
+        assertEquals(false, results.get(0).getFound());
+        assertNull(results.get(0).getPseudonym());
+        assertEquals("10000008999", results.get(0).getIdentifierItem().getIdentifier());
+        assertEquals(true, results.get(1).getFound());
+        assertEquals("10000008912", results.get(1).getPseudonym().getIdentifierItem().getIdentifier());
+        assertEquals(true, results.get(2).getFound());
+        assertEquals("TS-9EEEE39F0D5C03507CB9388609E925F9", results.get(2).getPseudonym().getPsn());
+
+        // An entry without identifier and pseudonym
+        this.assertBadRequestRequest("lookupRecordBatchEmptyEntry", post("/api/pseudonymization/domains/" + goodDomain + "/pseudonyms/lookup"), null, List.of(byPsn, new PseudonymDTO()), this.getAccessToken());
+
+        // Domain wrong
+        this.assertNotFoundRequest("lookupRecordBatchDomainNotFound", post("/api/pseudonymization/domains/" + goodDomainButNotFound + "/pseudonyms/lookup"), null, lookups, this.getAccessToken());
+    }
 }
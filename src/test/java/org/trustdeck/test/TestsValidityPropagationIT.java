@@ -0,0 +1,106 @@
+/*
+ * Trust Deck Services
+ * Copyright 2025-2026 Armin Müller and Eric Wündisch
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.trustdeck.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.trustdeck.configuration.PseudonymizationProperties;
+import org.trustdeck.dto.PseudonymDTO;
+import org.trustdeck.jooq.generated.tables.pojos.Domain;
+import org.trustdeck.service.AssertDatabaseService;
+
+/**
+ * This class offers tests for the propagation of an inherited validity period 
+ * from an updated domain to its sub-domains and their pseudonym-records.
+ *
+ * @author Armin Müller
+ */
+public class TestsValidityPropagationIT extends AssertDatabaseService {
+	
+	/** The new end of the validity period. */
+	private static final LocalDateTime NEW_VALID_TO = LocalDateTime.of(2045, 6, 30, 12, 0);
+	
+	/** The end of the validity period of the record that doesn't inherit it. */
+	private static final LocalDateTime OWN_VALID_TO = LocalDateTime.of(2030, 1, 1, 0, 0);
+	
+	/** The settings of the pseudonymization, used to switch between the propagation modes. */
+	@Autowired
+	private PseudonymizationProperties properties;
+	
+	/**
+	 * Propagates the validity within the transaction of the domain update.
+	 */
+	@Test
+	@DisplayName("propagateValidityInSingleStatement")
+	public void propagateValidityInSingleStatement() {
+		properties.setValidityPropagationChunkSize(0);
+		assertPropagation();
+	}
+	
+	/**
+	 * Propagates the validity in several chunks after the domain update was committed.
+	 */
+	@Test
+	@DisplayName("propagateValidityInChunks")
+	public void propagateValidityInChunks() {
+		properties.setValidityPropagationChunkSize(2);
+		assertPropagation();
+	}
+	
+	/**
+	 * Updates the end of the validity period of a root domain and checks that the sub-domain and 
+	 * all records that inherit it (but no others) were updated, including the cached lookups.
+	 */
+	private void assertPropagation() {
+		Domain root = createDomain("TestStudie", "TS-", "MD5", null);
+		Domain child = createDomain("SubStudie", "SS-", "MD5", root);
+		createPseudonyms(root, "ID", 3);
+		createPseudonyms(child, "ID", 5);
+		
+		PseudonymDTO own = pseudonym(child, "OWN", "SS-OWN");
+		own.setValidTo(OWN_VALID_TO);
+		own.setValidToInherited(false);
+		pseudonymDBAccessService.createPseudonyms(List.of(own), child.getId(), false);
+		
+		// Cache lookups before the update
+		assertEquals(VALID_TO, pseudonymDBAccessService.getPseudonymFromPsn("SubStudie", "SS-ID4").getValidTo());
+		assertEquals(VALID_TO, pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID0").getValidTo());
+		
+		Domain update = new Domain();
+		update.setValidto(NEW_VALID_TO);
+		assertNotNull(domainDBAccessService.updateDomain(root, update, true));
+		
+		assertEquals(NEW_VALID_TO, domainDBAccessService.getDomainByName("SubStudie").getValidto());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(NEW_VALID_TO, pseudonymDBAccessService.getPseudonymFromPsn("TestStudie", "TS-ID" + i).getValidTo());
+		}
+		for (int i = 0; i < 5; i++) {
+			PseudonymDTO p = pseudonymDBAccessService.getPseudonymFromPsn("SubStudie", "SS-ID" + i);
+			assertEquals(NEW_VALID_TO, p.getValidTo());
+			assertEquals(VALID_FROM, p.getValidFrom());
+		}
+		assertEquals(OWN_VALID_TO, pseudonymDBAccessService.getPseudonymFromPsn("SubStudie", "SS-OWN").getValidTo());
+	}
+}
@@ -38,6 +38,13 @@ SET xmloption = content;
 SET client_min_messages = warning;
 SET row_security = off;
 
+--
+-- Name: pg_trgm; Type: EXTENSION; Schema: -; Owner: -
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+
 SET default_tablespace = '';
 
 SET default_table_access_method = heap;
@@ -144,6 +151,48 @@ ALTER TABLE public.domain_id_seq OWNER TO "trustdeck-manager";
 ALTER SEQUENCE public.domain_id_seq OWNED BY public.domain.id;
 
 
+--
+-- Name: domain_closure; Type: TABLE; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE TABLE public.domain_closure (
+    ancestor_id integer NOT NULL,
+    descendant_id integer NOT NULL,
+    depth integer NOT NULL
+);
+
+
+ALTER TABLE public.domain_closure OWNER TO "trustdeck-manager";
+
+--
+-- Name: domain_secret; Type: TABLE; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE TABLE public.domain_secret (
+    domainid integer NOT NULL,
+    fpekey bytea NOT NULL
+);
+
+
+ALTER TABLE public.domain_secret OWNER TO "trustdeck-manager";
+
+--
+-- Name: domain_statistics; Type: TABLE; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE TABLE public.domain_statistics (
+    domainid integer NOT NULL,
+    deltacount bigint DEFAULT 0 NOT NULL,
+    reconciledcount bigint,
+    reconciledat timestamp without time zone,
+    previouscount bigint,
+    previousat timestamp without time zone,
+    updatedat timestamp without time zone DEFAULT now() NOT NULL
+);
+
+
+ALTER TABLE public.domain_statistics OWNER TO "trustdeck-manager";
+
 --
 -- Name: pseudonym; Type: TABLE; Schema: public; Owner: trustdeck-manager
 --
@@ -157,12 +206,22 @@ CREATE TABLE public.pseudonym (
     validfrominherited boolean NOT NULL,
     validto timestamp without time zone NOT NULL,
     validtoinherited boolean NOT NULL,
-    domainid integer
-);
+    domainid integer NOT NULL
+)
+PARTITION BY LIST (domainid);
 
 
 ALTER TABLE public.pseudonym OWNER TO "trustdeck-manager";
 
+--
+-- Name: pseudonym_default; Type: TABLE; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE TABLE public.pseudonym_default PARTITION OF public.pseudonym DEFAULT;
+
+
+ALTER TABLE public.pseudonym_default OWNER TO "trustdeck-manager";
+
 --
 -- Name: pseudonym_id_seq; Type: SEQUENCE; Schema: public; Owner: trustdeck-manager
 --
@@ -229,11 +288,35 @@ ALTER TABLE ONLY public.domain
     ADD CONSTRAINT domain_pkey PRIMARY KEY (id);
 
 
+--
+-- Name: domain_closure domain_closure_pkey; Type: CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_closure
+    ADD CONSTRAINT domain_closure_pkey PRIMARY KEY (ancestor_id, descendant_id);
+
+
+--
+-- Name: domain_secret domain_secret_pkey; Type: CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_secret
+    ADD CONSTRAINT domain_secret_pkey PRIMARY KEY (domainid);
+
+
+--
+-- Name: domain_statistics domain_statistics_pkey; Type: CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_statistics
+    ADD CONSTRAINT domain_statistics_pkey PRIMARY KEY (domainid);
+
+
 --
 -- Name: pseudonym pseudonym_identifier_idtype_domainid_pseudonym_key; Type: CONSTRAINT; Schema: public; Owner: trustdeck-manager
 --
 
-ALTER TABLE ONLY public.pseudonym
+ALTER TABLE public.pseudonym
     ADD CONSTRAINT pseudonym_identifier_idtype_domainid_pseudonym_key UNIQUE (identifier, idtype, domainid, pseudonym);
 
 
@@ -241,8 +324,8 @@ ALTER TABLE ONLY public.pseudonym
 -- Name: pseudonym pseudonym_pkey; Type: CONSTRAINT; Schema: public; Owner: trustdeck-manager
 --
 
-ALTER TABLE ONLY public.pseudonym
-    ADD CONSTRAINT pseudonym_pkey PRIMARY KEY (id);
+ALTER TABLE public.pseudonym
+    ADD CONSTRAINT pseudonym_pkey PRIMARY KEY (domainid, id);
 
 
 --
@@ -260,6 +343,13 @@ ALTER TABLE public.pseudonym
 CREATE INDEX auditusernameidx ON public.auditevent USING btree (username);
 
 
+--
+-- Name: domain_closure_descendant_idx; Type: INDEX; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE INDEX domain_closure_descendant_idx ON public.domain_closure USING btree (descendant_id, depth);
+
+
 --
 -- Name: ididtypeidx; Type: INDEX; Schema: public; Owner: trustdeck-manager
 --
@@ -271,7 +361,28 @@ CREATE INDEX ididtypeidx ON public.pseudonym USING btree (identifier, idtype);
 -- Name: idpsnidx; Type: INDEX; Schema: public; Owner: trustdeck-manager
 --
 
-CREATE UNIQUE INDEX idpsnidx ON public.pseudonym USING btree (identifier, pseudonym);
+CREATE UNIQUE INDEX idpsnidx ON public.pseudonym USING btree (identifier, pseudonym, domainid);
+
+
+--
+-- Name: pseudonym_identifier_trgm_idx; Type: INDEX; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE INDEX pseudonym_identifier_trgm_idx ON public.pseudonym USING gin (identifier public.gin_trgm_ops);
+
+
+--
+-- Name: pseudonym_idtype_trgm_idx; Type: INDEX; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE INDEX pseudonym_idtype_trgm_idx ON public.pseudonym USING gin (idtype public.gin_trgm_ops);
+
+
+--
+-- Name: pseudonym_pseudonym_trgm_idx; Type: INDEX; Schema: public; Owner: trustdeck-manager
+--
+
+CREATE INDEX pseudonym_pseudonym_trgm_idx ON public.pseudonym USING gin (pseudonym public.gin_trgm_ops);
 
 
 --
@@ -289,11 +400,43 @@ ALTER TABLE ONLY public.domain
     ADD CONSTRAINT domain_superdomainid_fkey FOREIGN KEY (superdomainid) REFERENCES public.domain(id);
 
 
+--
+-- Name: domain_closure domain_closure_ancestor_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_closure
+    ADD CONSTRAINT domain_closure_ancestor_id_fkey FOREIGN KEY (ancestor_id) REFERENCES public.domain(id) ON DELETE CASCADE;
+
+
+--
+-- Name: domain_closure domain_closure_descendant_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_closure
+    ADD CONSTRAINT domain_closure_descendant_id_fkey FOREIGN KEY (descendant_id) REFERENCES public.domain(id) ON DELETE CASCADE;
+
+
+--
+-- Name: domain_secret domain_secret_domainid_fkey; Type: FK CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_secret
+    ADD CONSTRAINT domain_secret_domainid_fkey FOREIGN KEY (domainid) REFERENCES public.domain(id) ON DELETE CASCADE;
+
+
+--
+-- Name: domain_statistics domain_statistics_domainid_fkey; Type: FK CONSTRAINT; Schema: public; Owner: trustdeck-manager
+--
+
+ALTER TABLE ONLY public.domain_statistics
+    ADD CONSTRAINT domain_statistics_domainid_fkey FOREIGN KEY (domainid) REFERENCES public.domain(id) ON DELETE CASCADE;
+
+
 --
 -- Name: pseudonym pseudonym_domainid_fkey; Type: FK CONSTRAINT; Schema: public; Owner: trustdeck-manager
 --
 
-ALTER TABLE ONLY public.pseudonym
+ALTER TABLE public.pseudonym
     ADD CONSTRAINT pseudonym_domainid_fkey FOREIGN KEY (domainid) REFERENCES public.domain(id);
 
 